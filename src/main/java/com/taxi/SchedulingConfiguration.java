@@ -0,0 +1,37 @@
+package com.taxi;
+
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.boot.task.TaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Configuration of the scheduler running the scheduled jobs, sized by {@code spring.task.scheduling.pool.size}.
+ * Declared explicitly because the scheduler registered by the WebSocket support would otherwise keep Spring Boot from
+ * configuring one, and all jobs would share whatever that scheduler provides.
+ * The scheduler is an executor as well, which makes Spring Boot back off from configuring its task executor, so that
+ * one is declared here too, sized by {@code spring.task.execution.pool.*}. Spring MVC runs asynchronous requests like
+ * the streamed exports on it instead of on a new thread per request.
+ */
+@Configuration
+public class SchedulingConfiguration
+{
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(TaskSchedulerBuilder builder)
+    {
+        return builder.build();
+    }
+
+
+    @Lazy
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME, AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    public ThreadPoolTaskExecutor applicationTaskExecutor(TaskExecutorBuilder builder)
+    {
+        return builder.build();
+    }
+}
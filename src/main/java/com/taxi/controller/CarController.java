@@ -1,6 +1,9 @@
 package com.taxi.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.taxi.controller.mapper.CarMapper;
+import com.taxi.controller.mapper.KeysetPageMapper;
+import com.taxi.controller.streaming.JsonStreams;
 import com.taxi.datatransferobject.CarDTO;
 import com.taxi.domainobject.CarDO;
 import com.taxi.domainvalue.EngineType;
@@ -8,9 +11,12 @@ import com.taxi.exception.ConstraintsViolationException;
 import com.taxi.exception.EntityNotFoundException;
 import com.taxi.service.car.CarService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 import java.util.List;
@@ -22,16 +28,19 @@ public class CarController
 
     private final CarService carService;
 
+    private final ObjectMapper objectMapper;
+
     @Autowired
-    public CarController(CarService carService)
+    public CarController(CarService carService, ObjectMapper objectMapper)
     {
         this.carService = carService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/{carId}")
     public ResponseEntity<CarDTO> getCar(@PathVariable long carId) throws EntityNotFoundException
     {
-        return ResponseEntity.ok(CarMapper.makeCarDTO(carService.find(carId)));
+        return ResponseEntity.ok(CarMapper.makeCarDTO(carService.findView(carId)));
     }
 
     @PostMapping
@@ -55,9 +64,35 @@ public class CarController
         return ResponseEntity.ok(CarMapper.makeCarDTO(carService.updateRating(carId, rating)));
     }
 
+    @PostMapping("/{carId}/ratings")
+    public ResponseEntity<Void> addRating(@PathVariable long carId, @RequestParam double rating)
+        throws EntityNotFoundException, ConstraintsViolationException
+    {
+        carService.addRating(carId, rating);
+        return ResponseEntity.accepted().build();
+    }
+
     @GetMapping
-    public ResponseEntity<List<CarDTO>> findCars(@RequestParam EngineType engineType)
+    public ResponseEntity<List<CarDTO>> findCars(
+        @RequestParam EngineType engineType, @RequestParam(defaultValue = "0") long cursor,
+        @RequestParam(defaultValue = "100") int limit) throws ConstraintsViolationException
+    {
+        return KeysetPageMapper.makeResponse(carService.find(engineType, cursor, limit), CarMapper::makeCarDTOList);
+    }
+
+    @GetMapping("/available")
+    public ResponseEntity<List<CarDTO>> findAvailableCars(
+        @RequestParam(required = false) EngineType engineType, @RequestParam(required = false) Integer minSeats,
+        @RequestParam(required = false) Boolean convertible)
+    {
+        return ResponseEntity.ok(CarMapper.makeCarDTOList(carService.findAvailable(engineType, minSeats, convertible)));
+    }
+
+    @GetMapping(value = "/export", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> exportCars(
+        @RequestParam EngineType engineType, @RequestHeader(value = HttpHeaders.ACCEPT, defaultValue = MediaType.APPLICATION_JSON_VALUE) String accept)
     {
-        return ResponseEntity.ok(CarMapper.makeCarDTOList(carService.find(engineType)));
+        return JsonStreams.<CarDTO>stream(
+            objectMapper, JsonStreams.acceptsNdjson(accept), writer -> carService.stream(engineType, car -> writer.accept(CarMapper.makeCarDTO(car))));
     }
 }
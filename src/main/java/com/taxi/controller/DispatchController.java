@@ -0,0 +1,51 @@
+package com.taxi.controller;
+
+import com.taxi.controller.mapper.DispatchMapper;
+import com.taxi.datatransferobject.DispatchCandidateDTO;
+import com.taxi.datatransferobject.RideRequestDTO;
+import com.taxi.domainvalue.DispatchRequest;
+import com.taxi.domainvalue.EngineType;
+import com.taxi.domainvalue.GeoCoordinate;
+import com.taxi.exception.ConstraintsViolationException;
+import com.taxi.service.dispatch.DispatchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("v1/dispatch")
+public class DispatchController
+{
+
+    private final DispatchService dispatchService;
+
+    @Autowired
+    public DispatchController(DispatchService dispatchService)
+    {
+        this.dispatchService = dispatchService;
+    }
+
+    @GetMapping("/candidates")
+    public ResponseEntity<List<DispatchCandidateDTO>> findCandidates(
+        @RequestParam double lat, @RequestParam double lon, @RequestParam(required = false) Integer minSeats,
+        @RequestParam(required = false) Boolean convertible, @RequestParam(required = false) EngineType engineType,
+        @RequestParam(required = false) Double minRating, @RequestParam(defaultValue = "5") int limit,
+        @RequestParam(defaultValue = "5000") double radius) throws ConstraintsViolationException
+    {
+        DispatchRequest request = new DispatchRequest(new GeoCoordinate(lat, lon), minSeats, convertible, engineType, minRating);
+        return ResponseEntity.ok(DispatchMapper.makeDispatchCandidateDTOList(dispatchService.findCandidates(request, limit, radius)));
+    }
+
+    @PostMapping("/assignments")
+    public CompletableFuture<ResponseEntity<DispatchCandidateDTO>> assignDriver(@Valid @RequestBody RideRequestDTO rideRequestDTO)
+    {
+        return dispatchService.assign(DispatchMapper.makeDispatchRequest(rideRequestDTO))
+            .thenApply(candidate -> candidate == null
+                ? ResponseEntity.noContent().<DispatchCandidateDTO>build()
+                : ResponseEntity.ok(DispatchMapper.makeDispatchCandidateDTO(candidate)));
+    }
+}
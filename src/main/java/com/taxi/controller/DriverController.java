@@ -1,20 +1,38 @@
 package com.taxi.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.taxi.controller.mapper.DriverMapper;
+import com.taxi.controller.mapper.KeysetPageMapper;
 import com.taxi.controller.specification.DriverSpecification;
+import com.taxi.controller.streaming.JsonStreams;
+import com.taxi.datatransferobject.DriverClusterDTO;
 import com.taxi.datatransferobject.DriverDTO;
+import com.taxi.datatransferobject.DriverFacetsDTO;
+import com.taxi.datatransferobject.DriverLocationDTO;
+import com.taxi.datatransferobject.LocationBatchResultDTO;
+import com.taxi.datatransferobject.NearbyDriverDTO;
 import com.taxi.domainobject.DriverDO;
+import com.taxi.domainvalue.DriverLocation;
 import com.taxi.domainvalue.OnlineStatus;
 import com.taxi.exception.CarAlreadyInUseException;
 import com.taxi.exception.ConstraintsViolationException;
 import com.taxi.exception.EntityNotFoundException;
 import com.taxi.service.driver.DriverService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
@@ -24,16 +42,19 @@ public class DriverController
 
     private final DriverService driverService;
 
+    private final ObjectMapper objectMapper;
+
     @Autowired
-    public DriverController(final DriverService driverService)
+    public DriverController(final DriverService driverService, final ObjectMapper objectMapper)
     {
         this.driverService = driverService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/{driverId}")
     public ResponseEntity<DriverDTO> getDriver(@PathVariable long driverId) throws EntityNotFoundException
     {
-        return ResponseEntity.ok(DriverMapper.makeDriverDTO(driverService.find(driverId)));
+        return ResponseEntity.ok(DriverMapper.makeDriverDTO(driverService.findView(driverId)));
     }
 
     @PostMapping
@@ -52,15 +73,58 @@ public class DriverController
     }
 
     @PutMapping("/{driverId}")
-    public ResponseEntity<DriverDTO> updateLocation(@PathVariable long driverId, @RequestParam double longitude, @RequestParam double latitude) throws EntityNotFoundException
+    public ResponseEntity<DriverDTO> updateLocation(@PathVariable long driverId, @RequestParam double longitude, @RequestParam double latitude)
+        throws EntityNotFoundException, ConstraintsViolationException
     {
         return ResponseEntity.ok(DriverMapper.makeDriverDTO(driverService.updateLocation(driverId, longitude, latitude)));
     }
 
+    @PutMapping("/{driverId}/status")
+    public ResponseEntity<DriverDTO> updateOnlineStatus(@PathVariable long driverId, @RequestParam OnlineStatus onlineStatus)
+        throws EntityNotFoundException, ConstraintsViolationException
+    {
+        return ResponseEntity.ok(DriverMapper.makeDriverDTO(driverService.updateOnlineStatus(driverId, onlineStatus)));
+    }
+
+    @PutMapping(value = "/locations", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<LocationBatchResultDTO> updateLocations(@RequestBody List<DriverLocationDTO> locations) throws ConstraintsViolationException
+    {
+        return updateLocationBatch(DriverMapper.makeDriverLocationList(locations));
+    }
+
+    @PutMapping(value = "/locations", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<LocationBatchResultDTO> updateLocationsFromNdjson(InputStream body) throws IOException, ConstraintsViolationException
+    {
+        List<DriverLocationDTO> batch = new ArrayList<>();
+        try (MappingIterator<DriverLocationDTO> locations = objectMapper.readerFor(DriverLocationDTO.class).readValues(body))
+        {
+            while (locations.hasNextValue())
+            {
+                if (batch.size() == DriverService.MAX_LOCATION_BATCH_SIZE)
+                {
+                    throw new ConstraintsViolationException("A location batch can contain at most " + DriverService.MAX_LOCATION_BATCH_SIZE + " locations");
+                }
+                batch.add(locations.nextValue());
+            }
+        }
+        return updateLocationBatch(DriverMapper.makeDriverLocationList(batch));
+    }
+
     @GetMapping
-    public ResponseEntity<List<DriverDTO>> findDrivers(@RequestParam OnlineStatus onlineStatus)
+    public ResponseEntity<List<DriverDTO>> findDrivers(
+        @RequestParam OnlineStatus onlineStatus, @RequestParam(defaultValue = "0") long cursor,
+        @RequestParam(defaultValue = "100") int limit) throws ConstraintsViolationException
+    {
+        return KeysetPageMapper.makeResponse(driverService.find(onlineStatus, cursor, limit), DriverMapper::makeDriverDTOList);
+    }
+
+    @GetMapping(value = "/export", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> exportDrivers(
+        @RequestParam OnlineStatus onlineStatus, @RequestHeader(value = HttpHeaders.ACCEPT, defaultValue = MediaType.APPLICATION_JSON_VALUE) String accept)
     {
-        return ResponseEntity.ok(DriverMapper.makeDriverDTOList(driverService.find(onlineStatus)));
+        return JsonStreams.<DriverDTO>stream(
+            objectMapper, JsonStreams.acceptsNdjson(accept),
+            writer -> driverService.stream(onlineStatus, driver -> writer.accept(DriverMapper.makeDriverDTO(driver))));
     }
 
     @PutMapping("/{driverId}/cars/select/{carId}")
@@ -75,9 +139,56 @@ public class DriverController
         return ResponseEntity.ok(DriverMapper.makeDriverDTO(driverService.deselectCar(driverId)));
     }
 
+    @GetMapping("/nearby")
+    public ResponseEntity<List<NearbyDriverDTO>> findNearbyDrivers(
+        @RequestParam double lat, @RequestParam double lon, @RequestParam(defaultValue = "10") int k,
+        @RequestParam(defaultValue = "5000") double radius) throws ConstraintsViolationException
+    {
+        return ResponseEntity.ok(DriverMapper.makeNearbyDriverDTOList(driverService.findNearby(lat, lon, k, radius)));
+    }
+
+    @GetMapping("/clusters")
+    public ResponseEntity<List<DriverClusterDTO>> findDriverClusters(@RequestParam List<Double> bbox, @RequestParam int zoom)
+        throws ConstraintsViolationException
+    {
+        return ResponseEntity.ok(DriverMapper.makeDriverClusterDTOList(driverService.findClusters(bbox, zoom)));
+    }
+
+    @GetMapping("/{driverId}/track")
+    public ResponseEntity<List<DriverLocationDTO>> getTrack(
+        @PathVariable long driverId, @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) ZonedDateTime from,
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) ZonedDateTime to,
+        @RequestParam(defaultValue = "0") double tolerance) throws ConstraintsViolationException
+    {
+        return ResponseEntity.ok(DriverMapper.makeDriverLocationDTOList(driverService.findTrack(driverId, from, to, tolerance)));
+    }
+
     @GetMapping("/search")
-    public ResponseEntity<List<DriverDTO>> searchDrivers(DriverSpecification params)
+    public ResponseEntity<List<DriverDTO>> searchDrivers(
+        DriverSpecification params, @RequestParam(defaultValue = "0") long cursor,
+        @RequestParam(defaultValue = "100") int limit) throws ConstraintsViolationException
+    {
+        return KeysetPageMapper.makeResponse(driverService.search(params, cursor, limit), DriverMapper::makeDriverDTOList);
+    }
+
+    @GetMapping("/search/facets")
+    public ResponseEntity<DriverFacetsDTO> countSearchFacets(DriverSpecification params)
+    {
+        return ResponseEntity.ok(DriverMapper.makeDriverFacetsDTO(driverService.countFacets(params)));
+    }
+
+    @GetMapping(value = "/search/export", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> exportSearchedDrivers(
+        DriverSpecification params, @RequestHeader(value = HttpHeaders.ACCEPT, defaultValue = MediaType.APPLICATION_JSON_VALUE) String accept)
+    {
+        return JsonStreams.<DriverDTO>stream(
+            objectMapper, JsonStreams.acceptsNdjson(accept),
+            writer -> driverService.streamSearch(params, driver -> writer.accept(DriverMapper.makeDriverDTO(driver))));
+    }
+
+    private ResponseEntity<LocationBatchResultDTO> updateLocationBatch(List<DriverLocation> locations) throws ConstraintsViolationException
     {
-        return ResponseEntity.ok(DriverMapper.makeDriverDTOList(driverService.search(params)));
+        List<DriverLocation> applied = driverService.updateLocations(locations);
+        return ResponseEntity.ok(DriverMapper.makeLocationBatchResultDTO(locations, applied));
     }
 }
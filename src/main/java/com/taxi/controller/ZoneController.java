@@ -0,0 +1,49 @@
+package com.taxi.controller;
+
+import com.taxi.controller.mapper.ZoneMapper;
+import com.taxi.datatransferobject.ZoneCountDTO;
+import com.taxi.datatransferobject.ZoneDTO;
+import com.taxi.domainobject.ZoneDO;
+import com.taxi.exception.ConstraintsViolationException;
+import com.taxi.service.zone.ZoneService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import java.util.List;
+
+@RestController
+@RequestMapping("v1/zones")
+public class ZoneController
+{
+
+    private final ZoneService zoneService;
+
+    @Autowired
+    public ZoneController(ZoneService zoneService)
+    {
+        this.zoneService = zoneService;
+    }
+
+    @PostMapping
+    public ResponseEntity<ZoneDTO> createZone(@Valid @RequestBody ZoneDTO zoneDTO) throws ConstraintsViolationException
+    {
+        ZoneDO zoneDO = ZoneMapper.makeZoneDO(zoneDTO);
+        ZoneDTO response = ZoneMapper.makeZoneDTO(zoneService.create(zoneDO));
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @GetMapping
+    public ResponseEntity<List<ZoneDTO>> findZones()
+    {
+        return ResponseEntity.ok(ZoneMapper.makeZoneDTOList(zoneService.findAll()));
+    }
+
+    @GetMapping("/counts")
+    public ResponseEntity<List<ZoneCountDTO>> findOnlineDriverCounts()
+    {
+        return ResponseEntity.ok(ZoneMapper.makeZoneCountDTOList(zoneService.findOnlineDriverCounts()));
+    }
+}
@@ -1,7 +1,9 @@
 package com.taxi.controller.exceptionhandler;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.taxi.exception.CarAlreadyInUseException;
 import com.taxi.exception.EntityNotFoundException;
+import com.taxi.exception.InvalidInputException;
 import java.util.HashMap;
 import java.util.Map;
 import org.springframework.http.HttpHeaders;
@@ -53,6 +55,21 @@ public class RestResponseEntityExceptionHandler
     }
 
 
+    /**
+     * Handle invalid input which is rejected outside of bean validation, e.g. out of range coordinates.
+     *
+     * @param ex
+     * @param request
+     * @return
+     */
+    @ExceptionHandler(value = {InvalidInputException.class, JsonProcessingException.class})
+    protected ResponseEntity<Object> handleBadRequest(final Exception ex, WebRequest request)
+    {
+        String bodyOfResponse = ex.getMessage();
+        return handleExceptionInternal(ex, bodyOfResponse, new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
+    }
+
+
     /**
      * Handle MethodArgumentNotValidException
      *
@@ -2,6 +2,8 @@ package com.taxi.controller.mapper;
 
 import com.taxi.datatransferobject.CarDTO;
 import com.taxi.domainobject.CarDO;
+import com.taxi.datatransferobject.ManufacturerDTO;
+import com.taxi.domainvalue.CarView;
 import com.taxi.domainvalue.EngineType;
 import java.util.Collection;
 import java.util.List;
@@ -59,7 +61,33 @@ public final class CarMapper
     }
 
 
-    public static List<CarDTO> makeCarDTOList(Collection<CarDO> cars)
+    public static CarDTO makeCarDTO(CarView carView)
+    {
+        CarDTO.CarDTOBuilder carDTOBuilder = CarDTO.newBuilder()
+            .setId(carView.getId())
+            .setLicensePlate(carView.getLicensePlate())
+            .setSeatCount(carView.getSeatCount())
+            .setRating(carView.getRating())
+            .setConvertible(carView.getConvertible());
+
+        if (carView.getEngineType() != null)
+        {
+            carDTOBuilder.setEngineType(carView.getEngineType().toString());
+        }
+
+        if (carView.getManufacturerId() != null)
+        {
+            carDTOBuilder.setManufacturer(ManufacturerDTO.newBuilder()
+                .setId(carView.getManufacturerId())
+                .setName(carView.getManufacturerName())
+                .createManufacturerDTO());
+        }
+
+        return carDTOBuilder.createCarDTO();
+    }
+
+
+    public static List<CarDTO> makeCarDTOList(Collection<CarView> cars)
     {
         return cars.stream()
             .map(CarMapper::makeCarDTO)
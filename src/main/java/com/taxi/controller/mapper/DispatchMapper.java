@@ -0,0 +1,55 @@
+package com.taxi.controller.mapper;
+
+import com.taxi.datatransferobject.DispatchCandidateDTO;
+import com.taxi.datatransferobject.RideRequestDTO;
+import com.taxi.domainvalue.DispatchCandidate;
+import com.taxi.domainvalue.DispatchRequest;
+import com.taxi.domainvalue.EngineType;
+import com.taxi.domainvalue.GeoCoordinate;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Mapping domain value to data transfer object.
+ * <p/>
+ */
+public final class DispatchMapper
+{
+
+    private DispatchMapper()
+    {
+    }
+
+
+    public static DispatchRequest makeDispatchRequest(RideRequestDTO rideRequestDTO)
+    {
+        return new DispatchRequest(
+            new GeoCoordinate(rideRequestDTO.getLatitude(), rideRequestDTO.getLongitude()),
+            rideRequestDTO.getMinSeats(),
+            rideRequestDTO.getConvertible(),
+            rideRequestDTO.getEngineType() == null ? null : EngineType.valueOf(rideRequestDTO.getEngineType()),
+            rideRequestDTO.getMinRating());
+    }
+
+
+    public static DispatchCandidateDTO makeDispatchCandidateDTO(DispatchCandidate candidate)
+    {
+        return DispatchCandidateDTO.newBuilder()
+            .setDriverId(candidate.getDriverId())
+            .setCarId(candidate.getCar().getCarId())
+            .setCoordinate(candidate.getCoordinate())
+            .setDistance(candidate.getDistance())
+            .setRating(candidate.getCar().getRating())
+            .setScore(candidate.getScore())
+            .createDispatchCandidateDTO();
+    }
+
+
+    public static List<DispatchCandidateDTO> makeDispatchCandidateDTOList(Collection<DispatchCandidate> candidates)
+    {
+        return candidates.stream()
+            .map(DispatchMapper::makeDispatchCandidateDTO)
+            .collect(Collectors.toList());
+    }
+}
@@ -1,10 +1,23 @@
 package com.taxi.controller.mapper;
 
 import com.taxi.datatransferobject.DriverDTO;
+import com.taxi.datatransferobject.DriverFacetsDTO;
+import com.taxi.datatransferobject.DriverLocationDTO;
+import com.taxi.datatransferobject.LocationBatchResultDTO;
+import com.taxi.datatransferobject.DriverClusterDTO;
+import com.taxi.datatransferobject.NearbyDriverDTO;
 import com.taxi.domainobject.DriverDO;
+import com.taxi.domainvalue.DriverCluster;
+import com.taxi.domainvalue.DriverFacets;
+import com.taxi.domainvalue.DriverLocation;
+import com.taxi.domainvalue.DriverView;
 import com.taxi.domainvalue.GeoCoordinate;
+import com.taxi.domainvalue.NearbyDriver;
+import com.taxi.exception.InvalidInputException;
+import java.time.ZonedDateTime;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -47,10 +60,132 @@ public final class DriverMapper
     }
 
 
-    public static List<DriverDTO> makeDriverDTOList(Collection<DriverDO> drivers)
+    public static DriverDTO makeDriverDTO(DriverView driverView)
+    {
+        DriverDTO.DriverDTOBuilder driverDTOBuilder = DriverDTO.newBuilder()
+            .setId(driverView.getId())
+            .setPassword(driverView.getPassword())
+            .setUsername(driverView.getUsername())
+            .setCoordinate(driverView.getCoordinate());
+
+        if (driverView.getCar() != null)
+        {
+            driverDTOBuilder.setCar(CarMapper.makeCarDTO(driverView.getCar()));
+        }
+
+        return driverDTOBuilder.createDriverDTO();
+    }
+
+
+    public static List<DriverDTO> makeDriverDTOList(Collection<DriverView> drivers)
     {
         return drivers.stream()
             .map(DriverMapper::makeDriverDTO)
             .collect(Collectors.toList());
     }
+
+
+    public static NearbyDriverDTO makeNearbyDriverDTO(NearbyDriver nearbyDriver)
+    {
+        return NearbyDriverDTO.newBuilder()
+            .setDriverId(nearbyDriver.getDriverId())
+            .setCoordinate(nearbyDriver.getCoordinate())
+            .setDistance(nearbyDriver.getDistance())
+            .createNearbyDriverDTO();
+    }
+
+
+    public static List<NearbyDriverDTO> makeNearbyDriverDTOList(Collection<NearbyDriver> nearbyDrivers)
+    {
+        return nearbyDrivers.stream()
+            .map(DriverMapper::makeNearbyDriverDTO)
+            .collect(Collectors.toList());
+    }
+
+
+    public static DriverClusterDTO makeDriverClusterDTO(DriverCluster driverCluster)
+    {
+        return DriverClusterDTO.newBuilder()
+            .setCoordinate(driverCluster.getCoordinate())
+            .setCount(driverCluster.getCount())
+            .createDriverClusterDTO();
+    }
+
+
+    public static List<DriverClusterDTO> makeDriverClusterDTOList(Collection<DriverCluster> driverClusters)
+    {
+        return driverClusters.stream()
+            .map(DriverMapper::makeDriverClusterDTO)
+            .collect(Collectors.toList());
+    }
+
+
+    public static DriverFacetsDTO makeDriverFacetsDTO(DriverFacets driverFacets)
+    {
+        return DriverFacetsDTO.newBuilder()
+            .setTotal(driverFacets.getTotal())
+            .setOnlineStatus(driverFacets.getOnlineStatus())
+            .setEngineType(driverFacets.getEngineType())
+            .setSeatCount(driverFacets.getSeatCount())
+            .setConvertible(driverFacets.getConvertible())
+            .createDriverFacetsDTO();
+    }
+
+
+    public static DriverLocation makeDriverLocation(DriverLocationDTO driverLocationDTO)
+    {
+        InvalidInputException.check(driverLocationDTO.getDriverId() != null, "driverId can not be null!");
+        InvalidInputException.check(driverLocationDTO.getLatitude() != null, "latitude can not be null!");
+        InvalidInputException.check(driverLocationDTO.getLongitude() != null, "longitude can not be null!");
+
+        ZonedDateTime now = ZonedDateTime.now();
+        ZonedDateTime timestamp = driverLocationDTO.getTimestamp() != null ? driverLocationDTO.getTimestamp() : now;
+        InvalidInputException.check(
+            !timestamp.isAfter(now.plus(DriverLocation.MAX_CLOCK_SKEW)),
+            "timestamp of driver " + driverLocationDTO.getDriverId() + " is more than " + DriverLocation.MAX_CLOCK_SKEW.toSeconds()
+                + " seconds in the future");
+        GeoCoordinate coordinate = new GeoCoordinate(driverLocationDTO.getLatitude(), driverLocationDTO.getLongitude());
+        return new DriverLocation(driverLocationDTO.getDriverId(), coordinate, timestamp);
+    }
+
+
+    public static List<DriverLocation> makeDriverLocationList(Collection<DriverLocationDTO> driverLocations)
+    {
+        return driverLocations.stream()
+            .map(DriverMapper::makeDriverLocation)
+            .collect(Collectors.toList());
+    }
+
+
+    public static DriverLocationDTO makeDriverLocationDTO(DriverLocation driverLocation)
+    {
+        return DriverLocationDTO.newBuilder()
+            .setDriverId(driverLocation.getDriverId())
+            .setLatitude(driverLocation.getCoordinate().getLatitude())
+            .setLongitude(driverLocation.getCoordinate().getLongitude())
+            .setTimestamp(driverLocation.getTimestamp())
+            .createDriverLocationDTO();
+    }
+
+
+    public static List<DriverLocationDTO> makeDriverLocationDTOList(Collection<DriverLocation> driverLocations)
+    {
+        return driverLocations.stream()
+            .map(DriverMapper::makeDriverLocationDTO)
+            .collect(Collectors.toList());
+    }
+
+
+    public static LocationBatchResultDTO makeLocationBatchResultDTO(Collection<DriverLocation> requested, Collection<DriverLocation> applied)
+    {
+        Set<Long> appliedIds = applied.stream()
+            .map(DriverLocation::getDriverId)
+            .collect(Collectors.toSet());
+        List<Long> skipped = requested.stream()
+            .map(DriverLocation::getDriverId)
+            .filter(driverId -> !appliedIds.contains(driverId))
+            .distinct()
+            .collect(Collectors.toList());
+        return new LocationBatchResultDTO(applied.size(), skipped);
+    }
 }
@@ -0,0 +1,34 @@
+package com.taxi.controller.mapper;
+
+import com.taxi.domainvalue.KeysetPage;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Mapping a page of domain objects to a response with the page content as body and the cursor of the next page
+ * as header.
+ * <p/>
+ */
+public final class KeysetPageMapper
+{
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+
+    private KeysetPageMapper()
+    {
+    }
+
+
+    public static <T, D> ResponseEntity<List<D>> makeResponse(KeysetPage<T> page, Function<Collection<T>, List<D>> contentMapper)
+    {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null)
+        {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor().toString());
+        }
+        return response.body(contentMapper.apply(page.getContent()));
+    }
+}
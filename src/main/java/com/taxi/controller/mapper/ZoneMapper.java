@@ -0,0 +1,65 @@
+package com.taxi.controller.mapper;
+
+import com.taxi.datatransferobject.ZoneCountDTO;
+import com.taxi.datatransferobject.ZoneDTO;
+import com.taxi.domainobject.ZoneDO;
+import com.taxi.domainvalue.ZoneCount;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.springframework.stereotype.Component;
+
+/**
+ * Mapping domain object to data access object and vice versa.
+ * <p/>
+ */
+@Component
+public final class ZoneMapper
+{
+
+    private ZoneMapper()
+    {
+    }
+
+
+    public static ZoneDO makeZoneDO(ZoneDTO zoneDTO)
+    {
+        return new ZoneDO(zoneDTO.getName(), zoneDTO.getVertices());
+    }
+
+
+    public static ZoneDTO makeZoneDTO(ZoneDO zoneDO)
+    {
+        return ZoneDTO.newBuilder()
+            .setId(zoneDO.getId())
+            .setName(zoneDO.getName())
+            .setVertices(zoneDO.getVertices())
+            .createZoneDTO();
+    }
+
+
+    public static List<ZoneDTO> makeZoneDTOList(Collection<ZoneDO> zones)
+    {
+        return zones.stream()
+            .map(ZoneMapper::makeZoneDTO)
+            .collect(Collectors.toList());
+    }
+
+
+    public static ZoneCountDTO makeZoneCountDTO(ZoneCount zoneCount)
+    {
+        return ZoneCountDTO.newBuilder()
+            .setZoneId(zoneCount.getZoneId())
+            .setName(zoneCount.getName())
+            .setOnlineDrivers(zoneCount.getOnlineDrivers())
+            .createZoneCountDTO();
+    }
+
+
+    public static List<ZoneCountDTO> makeZoneCountDTOList(Collection<ZoneCount> zoneCounts)
+    {
+        return zoneCounts.stream()
+            .map(ZoneMapper::makeZoneCountDTO)
+            .collect(Collectors.toList());
+    }
+}
@@ -8,6 +8,8 @@ import com.taxi.domainvalue.EngineType;
 import com.taxi.domainvalue.OnlineStatus;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Join;
@@ -22,6 +24,9 @@ import org.springframework.data.jpa.domain.Specification;
  */
 public class DriverSpecification implements Specification<DriverDO>
 {
+    /** Escape character of the LIKE patterns built by {@link #containsPattern}. */
+    public static final char LIKE_ESCAPE = '!';
+
     private String username;
     private OnlineStatus onlineStatus;
     private String licensePlate;
@@ -29,6 +34,8 @@ public class DriverSpecification implements Specification<DriverDO>
     private Boolean convertible;
     private Double rating;
     private EngineType engineType;
+    private Set<Long> driverIds;
+    private Set<Long> carIds;
 
 
     @Override
@@ -37,18 +44,26 @@ public class DriverSpecification implements Specification<DriverDO>
         Join<DriverDO, CarDO> carJoined = root.join("car", JoinType.LEFT);
 
         List<Predicate> predicates = new ArrayList<>();
-        if (username != null)
+        if (driverIds != null)
+        {
+            predicates.add(driverIds.isEmpty() ? builder.disjunction() : root.get(DriverDO_.id).in(driverIds));
+        }
+        else if (username != null)
         {
-            predicates.add(builder.like(root.get(DriverDO_.username), "%" + username + "%"));
+            predicates.add(builder.like(root.get(DriverDO_.username), containsPattern(username), LIKE_ESCAPE));
         }
         if (onlineStatus != null)
         {
             predicates.add(builder.equal(root.get(DriverDO_.onlineStatus), onlineStatus));
         }
 
-        if (licensePlate != null)
+        if (carIds != null)
         {
-            predicates.add(builder.like(carJoined.get(CarDO_.licensePlate), "%" + licensePlate + "%"));
+            predicates.add(carIds.isEmpty() ? builder.disjunction() : carJoined.get(CarDO_.id).in(carIds));
+        }
+        else if (licensePlate != null)
+        {
+            predicates.add(builder.like(carJoined.get(CarDO_.licensePlate), containsPattern(licensePlate), LIKE_ESCAPE));
         }
         if (seatCount != null)
         {
@@ -71,6 +86,123 @@ public class DriverSpecification implements Specification<DriverDO>
     }
 
 
+    /**
+     * Copy of this specification which matches the username and license plate substrings by the ids already resolved
+     * from an index instead of by LIKE.
+     *
+     * @param driverIds ids of the drivers whose username matches, null to match the username by LIKE
+     * @param carIds ids of the cars whose license plate matches, null to match the license plate by LIKE
+     * @return
+     */
+    public DriverSpecification resolvedBy(Set<Long> driverIds, Set<Long> carIds)
+    {
+        DriverSpecification resolved = new DriverSpecification();
+        resolved.username = username;
+        resolved.onlineStatus = onlineStatus;
+        resolved.licensePlate = licensePlate;
+        resolved.seatCount = seatCount;
+        resolved.convertible = convertible;
+        resolved.rating = rating;
+        resolved.engineType = engineType;
+        resolved.driverIds = username == null ? null : driverIds;
+        resolved.carIds = licensePlate == null ? null : carIds;
+        return resolved;
+    }
+
+
+    /**
+     * @return copy of this specification which is not affected by later changes of this one
+     */
+    public DriverSpecification copy()
+    {
+        return resolvedBy(driverIds, carIds);
+    }
+
+
+    /**
+     * @return true if the specification filters on any attribute of the selected car
+     */
+    public boolean filtersCar()
+    {
+        return licensePlate != null || seatCount != null || convertible != null || rating != null || engineType != null;
+    }
+
+
+    /**
+     * LIKE pattern matching values which contain the given text literally, like the substring indexes do. The
+     * wildcards {@code %} and {@code _} are escaped with {@link #LIKE_ESCAPE}, which has to be declared by the query.
+     *
+     * @param text
+     * @return the pattern
+     */
+    public static String containsPattern(String text)
+    {
+        StringBuilder pattern = new StringBuilder(text.length() + 2).append('%');
+        for (char c : text.toCharArray())
+        {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE)
+            {
+                pattern.append(LIKE_ESCAPE);
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+
+
+    /**
+     * Specifications are equal if they filter on the same values, so they select the same drivers.
+     */
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass())
+        {
+            return false;
+        }
+        DriverSpecification that = (DriverSpecification) o;
+        return Objects.equals(username, that.username)
+            && onlineStatus == that.onlineStatus
+            && Objects.equals(licensePlate, that.licensePlate)
+            && Objects.equals(seatCount, that.seatCount)
+            && Objects.equals(convertible, that.convertible)
+            && Objects.equals(rating, that.rating)
+            && engineType == that.engineType
+            && Objects.equals(driverIds, that.driverIds)
+            && Objects.equals(carIds, that.carIds);
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(username, onlineStatus, licensePlate, seatCount, convertible, rating, engineType, driverIds, carIds);
+    }
+
+
+    /**
+     * @return ids of the drivers whose username matches, null if the username is matched by LIKE or not filtered on
+     */
+    public Set<Long> getDriverIds()
+    {
+        return driverIds;
+    }
+
+
+    /**
+     * @return ids of the cars whose license plate matches, null if the license plate is matched by LIKE or not
+     * filtered on
+     */
+    public Set<Long> getCarIds()
+    {
+        return carIds;
+    }
+
+
     public String getUsername()
     {
         return username;
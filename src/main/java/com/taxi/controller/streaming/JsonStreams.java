@@ -0,0 +1,81 @@
+package com.taxi.controller.streaming;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Writes results to the response while they are read instead of collecting them first, either as one JSON array or
+ * as NDJSON with one object per line. Only the output buffer of the generator is held in memory. A stream is cut off
+ * once it runs longer than the async request timeout ({@code spring.mvc.async.request-timeout}).
+ * <p/>
+ */
+public final class JsonStreams
+{
+
+    private JsonStreams()
+    {
+    }
+
+
+    /**
+     * @param accept value of the Accept header, NDJSON is written if it accepts application/x-ndjson
+     * @return whether NDJSON is accepted
+     */
+    public static boolean acceptsNdjson(String accept)
+    {
+        return MediaType.parseMediaTypes(accept).stream().anyMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype);
+    }
+
+
+    /**
+     * @param objectMapper serializes each value
+     * @param ndjson whether to write NDJSON instead of a JSON array
+     * @param source hands each value to the given consumer, called when the response is written
+     * @return a response which writes the values as they are produced
+     */
+    public static <T> ResponseEntity<StreamingResponseBody> stream(ObjectMapper objectMapper, boolean ndjson, Consumer<Consumer<T>> source)
+    {
+        StreamingResponseBody body = output -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output))
+            {
+                generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+                if (!ndjson)
+                {
+                    generator.writeStartArray();
+                }
+                source.accept(value -> write(generator, value, ndjson));
+                if (!ndjson)
+                {
+                    generator.writeEndArray();
+                }
+            }
+        };
+        return ResponseEntity.ok()
+            .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+            .body(body);
+    }
+
+
+    private static void write(JsonGenerator generator, Object value, boolean ndjson)
+    {
+        try
+        {
+            generator.writeObject(value);
+            if (ndjson)
+            {
+                generator.writeRaw('\n');
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
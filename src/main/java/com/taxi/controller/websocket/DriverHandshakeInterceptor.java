@@ -0,0 +1,93 @@
+package com.taxi.controller.websocket;
+
+import com.taxi.domainobject.DriverDO;
+import com.taxi.exception.EntityNotFoundException;
+import com.taxi.security.DriverUserDetailsService.DriverUser;
+import com.taxi.service.driver.DriverService;
+import java.security.Principal;
+import java.util.Map;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Resolves the driver of a location stream once per session. A driver is bound to its own id, a {@code driverId}
+ * query parameter naming another driver is rejected; the configured user, who may update every driver, names the
+ * driver with the parameter. Unknown or deleted drivers are rejected before the connection is upgraded.
+ * <p/>
+ */
+@Component
+public class DriverHandshakeInterceptor implements HandshakeInterceptor
+{
+    static final String DRIVER_ID_ATTRIBUTE = "driverId";
+
+    private final DriverService driverService;
+
+
+    public DriverHandshakeInterceptor(final DriverService driverService)
+    {
+        this.driverService = driverService;
+    }
+
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler, Map<String, Object> attributes)
+    {
+        String driverId = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().getFirst(DRIVER_ID_ATTRIBUTE);
+        DriverUser driver = authenticatedDriver(request.getPrincipal());
+        long id;
+        try
+        {
+            id = driverId == null && driver != null ? driver.getDriverId() : Long.parseLong(driverId);
+        }
+        catch (NumberFormatException e)
+        {
+            response.setStatusCode(HttpStatus.BAD_REQUEST);
+            return false;
+        }
+        if (driver != null && driver.getDriverId() != id)
+        {
+            response.setStatusCode(HttpStatus.FORBIDDEN);
+            return false;
+        }
+
+        try
+        {
+            DriverDO driverDO = driverService.find(id);
+            if (Boolean.TRUE.equals(driverDO.getDeleted()))
+            {
+                response.setStatusCode(HttpStatus.NOT_FOUND);
+                return false;
+            }
+        }
+        catch (EntityNotFoundException e)
+        {
+            response.setStatusCode(HttpStatus.NOT_FOUND);
+            return false;
+        }
+        attributes.put(DRIVER_ID_ATTRIBUTE, id);
+        return true;
+    }
+
+
+    private static DriverUser authenticatedDriver(Principal principal)
+    {
+        if (principal instanceof Authentication && ((Authentication) principal).getPrincipal() instanceof DriverUser)
+        {
+            return (DriverUser) ((Authentication) principal).getPrincipal();
+        }
+        return null;
+    }
+
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler, Exception exception)
+    {
+        // nothing to do
+    }
+}
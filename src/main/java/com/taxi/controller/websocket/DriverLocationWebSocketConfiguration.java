@@ -0,0 +1,36 @@
+package com.taxi.controller.websocket;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * Registers the WebSocket endpoint drivers use to stream their positions.
+ * The handshake is a regular HTTP request and is authenticated once per session by the security configuration.
+ * <p/>
+ */
+@Configuration
+@EnableWebSocket
+public class DriverLocationWebSocketConfiguration implements WebSocketConfigurer
+{
+    public static final String ENDPOINT = "/v1/drivers/locations/stream";
+
+    private final DriverLocationWebSocketHandler handler;
+
+    private final DriverHandshakeInterceptor handshakeInterceptor;
+
+
+    public DriverLocationWebSocketConfiguration(final DriverLocationWebSocketHandler handler, final DriverHandshakeInterceptor handshakeInterceptor)
+    {
+        this.handler = handler;
+        this.handshakeInterceptor = handshakeInterceptor;
+    }
+
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry)
+    {
+        registry.addHandler(handler, ENDPOINT).addInterceptors(handshakeInterceptor);
+    }
+}
@@ -0,0 +1,110 @@
+package com.taxi.controller.websocket;
+
+import com.taxi.domainvalue.DriverLocation;
+import com.taxi.domainvalue.GeoCoordinate;
+import com.taxi.exception.InvalidInputException;
+import com.taxi.service.driver.DriverService;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.ZonedDateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+/**
+ * Receives position frames of one driver per session and feeds them into the regular location update.
+ * A frame is either binary, two big-endian doubles latitude and longitude (16 bytes), or text {@code "latitude,longitude"}.
+ * Frames are not acknowledged, a malformed frame closes the session.
+ * <p/>
+ */
+@Component
+public class DriverLocationWebSocketHandler extends AbstractWebSocketHandler
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(DriverLocationWebSocketHandler.class);
+
+    static final int BINARY_FRAME_SIZE = 2 * Double.BYTES;
+
+    private final DriverService driverService;
+
+
+    public DriverLocationWebSocketHandler(final DriverService driverService)
+    {
+        this.driverService = driverService;
+    }
+
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session)
+    {
+        LOG.debug("Location stream opened for driver {}", driverId(session));
+    }
+
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws IOException
+    {
+        ByteBuffer payload = message.getPayload();
+        if (payload.remaining() != BINARY_FRAME_SIZE)
+        {
+            session.close(CloseStatus.BAD_DATA.withReason("Expected " + BINARY_FRAME_SIZE + " bytes"));
+            return;
+        }
+        update(session, payload.getDouble(), payload.getDouble());
+    }
+
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException
+    {
+        String payload = message.getPayload();
+        int separator = payload.indexOf(',');
+        double latitude;
+        double longitude;
+        try
+        {
+            latitude = Double.parseDouble(payload.substring(0, Math.max(separator, 0)));
+            longitude = Double.parseDouble(payload.substring(separator + 1));
+        }
+        catch (NumberFormatException e)
+        {
+            session.close(CloseStatus.BAD_DATA.withReason("Expected latitude,longitude"));
+            return;
+        }
+        update(session, latitude, longitude);
+    }
+
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status)
+    {
+        LOG.debug("Location stream closed for driver {}: {}", driverId(session), status);
+    }
+
+
+    private void update(WebSocketSession session, double latitude, double longitude) throws IOException
+    {
+        GeoCoordinate coordinate;
+        try
+        {
+            coordinate = new GeoCoordinate(latitude, longitude);
+        }
+        catch (InvalidInputException e)
+        {
+            session.close(CloseStatus.BAD_DATA.withReason(e.getMessage()));
+            return;
+        }
+        driverService.updateLocation(new DriverLocation(driverId(session), coordinate, ZonedDateTime.now()));
+    }
+
+
+    private static long driverId(WebSocketSession session)
+    {
+        return (Long) session.getAttributes().get(DriverHandshakeInterceptor.DRIVER_ID_ATTRIBUTE);
+    }
+}
@@ -0,0 +1,21 @@
+package com.taxi.dataaccessobject;
+
+import com.taxi.domainvalue.CarRatingTally;
+import java.util.List;
+
+/**
+ * Bulk rating writes for the car table which bypass the persistence context.
+ * <p/>
+ */
+public interface CarRatingRepository
+{
+
+    /**
+     * Fold the given ride ratings into the stored average rating and rating count of each car as one JDBC batch.
+     * Ratings of deleted cars are not applied.
+     *
+     * @param tallies at most one tally per car
+     * @return the number of updated rows for each tally, in the same order
+     */
+    int[] batchAddRatings(List<CarRatingTally> tallies);
+}
@@ -0,0 +1,54 @@
+package com.taxi.dataaccessobject;
+
+import com.taxi.domainvalue.CarRatingTally;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * JDBC implementation of {@link CarRatingRepository}, picked up by Spring Data as fragment of {@link CarRepository}.
+ * A rating set directly or seeded is stored with a count of one and averaged like a ride rating; a rating without a
+ * count, i.e. of a car not rated yet, is replaced by the average of the new ratings.
+ * <p/>
+ */
+public class CarRatingRepositoryImpl implements CarRatingRepository
+{
+    private static final String ADD_RATINGS =
+        "update car set rating = (coalesce(rating, 0) * coalesce(rating_count, 0) + ?) / (coalesce(rating_count, 0) + ?), "
+            + "rating_count = coalesce(rating_count, 0) + ? where id = ? and deleted = false";
+
+    private final JdbcTemplate jdbcTemplate;
+
+
+    public CarRatingRepositoryImpl(final JdbcTemplate jdbcTemplate)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+
+    @Override
+    public int[] batchAddRatings(List<CarRatingTally> tallies)
+    {
+        return jdbcTemplate.batchUpdate(ADD_RATINGS, new BatchPreparedStatementSetter()
+        {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException
+            {
+                CarRatingTally tally = tallies.get(i);
+                ps.setDouble(1, tally.getSum());
+                ps.setLong(2, tally.getCount());
+                ps.setLong(3, tally.getCount());
+                ps.setLong(4, tally.getCarId());
+            }
+
+
+            @Override
+            public int getBatchSize()
+            {
+                return tallies.size();
+            }
+        });
+    }
+}
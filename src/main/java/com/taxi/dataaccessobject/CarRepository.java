@@ -1,15 +1,49 @@
 package com.taxi.dataaccessobject;
 
 import com.taxi.domainobject.CarDO;
+import com.taxi.domainvalue.CarRating;
+import com.taxi.domainvalue.CarView;
 import com.taxi.domainvalue.EngineType;
+import com.taxi.domainvalue.KeyedText;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 /**
  * Data access object for car table.
  * <p/>
  */
-public interface CarRepository extends CrudRepository<CarDO, Long>
+public interface CarRepository extends CrudRepository<CarDO, Long>, CarSearchRepository, CarRatingRepository
 {
-    List<CarDO> findByEngineType(EngineType engineType);
+    String CAR_VIEW = "select new com.taxi.domainvalue.CarView(c.id, c.licensePlate, c.seatCount, c.convertible, c.rating, c.engineType, m.id, m.name) "
+        + "from CarDO c left join c.manufacturer m";
+
+    @Override
+    @EntityGraph(attributePaths = "manufacturer")
+    Optional<CarDO> findById(Long carId);
+
+    @Query(CAR_VIEW + " where c.id = :carId")
+    Optional<CarView> findViewById(@Param("carId") long carId);
+
+    @Query(CAR_VIEW + " where c.id = :carId and c.deleted = false")
+    Optional<CarView> findViewByIdAndDeletedFalse(@Param("carId") long carId);
+
+    boolean existsByIdAndDeletedFalse(long carId);
+
+    @Query(CAR_VIEW + " where c.deleted = false")
+    List<CarView> findViewsByDeletedFalse();
+
+    @Query(CAR_VIEW + " where c.engineType = :engineType and c.id > :afterId order by c.id")
+    List<CarView> findViewsByEngineType(@Param("engineType") EngineType engineType, @Param("afterId") long afterId, Pageable pageable);
+
+    @Query("select new com.taxi.domainvalue.CarRating(c.id, c.rating) from CarDO c where c.id in :carIds and c.deleted = false")
+    List<CarRating> findRatingsByIdIn(@Param("carIds") Collection<Long> carIds);
+
+    @Query("select new com.taxi.domainvalue.KeyedText(c.id, c.licensePlate) from CarDO c")
+    List<KeyedText> findAllLicensePlates();
 }
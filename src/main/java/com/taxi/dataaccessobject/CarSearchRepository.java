@@ -0,0 +1,21 @@
+package com.taxi.dataaccessobject;
+
+import com.taxi.domainvalue.CarView;
+import com.taxi.domainvalue.EngineType;
+import java.util.function.Consumer;
+
+/**
+ * Streamed search for the car table.
+ * <p/>
+ */
+public interface CarSearchRepository
+{
+
+    /**
+     * Scroll through all cars with the engine type, ordered by id, without holding them all in memory.
+     *
+     * @param engineType
+     * @param action called for each car
+     */
+    void forEachViewByEngineType(EngineType engineType, Consumer<? super CarView> action);
+}
@@ -0,0 +1,34 @@
+package com.taxi.dataaccessobject;
+
+import com.taxi.domainvalue.CarView;
+import com.taxi.domainvalue.EngineType;
+import java.util.function.Consumer;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * JPQL implementation of {@link CarSearchRepository}, picked up by Spring Data as fragment of {@link CarRepository}.
+ * <p/>
+ */
+public class CarSearchRepositoryImpl implements CarSearchRepository
+{
+    private final EntityManager entityManager;
+
+
+    public CarSearchRepositoryImpl(final EntityManager entityManager)
+    {
+        this.entityManager = entityManager;
+    }
+
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachViewByEngineType(EngineType engineType, Consumer<? super CarView> action)
+    {
+        TypedQuery<CarView> query = entityManager
+            .createQuery(CarRepository.CAR_VIEW + " where c.engineType = :engineType order by c.id", CarView.class)
+            .setParameter("engineType", engineType);
+        QueryStreams.forEach(query, action);
+    }
+}
@@ -0,0 +1,29 @@
+package com.taxi.dataaccessobject;
+
+import com.taxi.domainvalue.DriverLocation;
+import java.util.List;
+
+/**
+ * Bulk location writes for the driver table which bypass the persistence context.
+ * <p/>
+ */
+public interface DriverLocationRepository
+{
+
+    /**
+     * Write a single location. A location older than the stored one or of a deleted driver is not applied.
+     *
+     * @param location
+     * @return the number of updated rows
+     */
+    int updateLocation(DriverLocation location);
+
+    /**
+     * Write the given locations as one JDBC batch. A location older than the stored one or of a deleted driver is not
+     * applied.
+     *
+     * @param locations at most one location per driver
+     * @return the number of updated rows for each location, in the same order
+     */
+    int[] batchUpdateLocations(List<DriverLocation> locations);
+}
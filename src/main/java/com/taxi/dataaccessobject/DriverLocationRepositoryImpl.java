@@ -0,0 +1,69 @@
+package com.taxi.dataaccessobject;
+
+import com.taxi.domainvalue.DriverLocation;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * JDBC implementation of {@link DriverLocationRepository}, picked up by Spring Data as fragment of {@link DriverRepository}.
+ * <p/>
+ */
+public class DriverLocationRepositoryImpl implements DriverLocationRepository
+{
+    private static final String UPDATE_LOCATION =
+        "update driver set latitude = ?, longitude = ?, date_coordinate_updated = ? "
+            + "where id = ? and deleted = false and (date_coordinate_updated is null or date_coordinate_updated <= ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+
+    public DriverLocationRepositoryImpl(final JdbcTemplate jdbcTemplate)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+
+    @Override
+    public int updateLocation(DriverLocation location)
+    {
+        Timestamp timestamp = Timestamp.from(location.getTimestamp().toInstant());
+        return jdbcTemplate.update(
+            UPDATE_LOCATION,
+            location.getCoordinate().getLatitude(),
+            location.getCoordinate().getLongitude(),
+            timestamp,
+            location.getDriverId(),
+            timestamp);
+    }
+
+
+    @Override
+    public int[] batchUpdateLocations(List<DriverLocation> locations)
+    {
+        return jdbcTemplate.batchUpdate(UPDATE_LOCATION, new BatchPreparedStatementSetter()
+        {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException
+            {
+                DriverLocation location = locations.get(i);
+                Timestamp timestamp = Timestamp.from(location.getTimestamp().toInstant());
+                ps.setDouble(1, location.getCoordinate().getLatitude());
+                ps.setDouble(2, location.getCoordinate().getLongitude());
+                ps.setTimestamp(3, timestamp);
+                ps.setLong(4, location.getDriverId());
+                ps.setTimestamp(5, timestamp);
+            }
+
+
+            @Override
+            public int getBatchSize()
+            {
+                return locations.size();
+            }
+        });
+    }
+}
@@ -2,19 +2,76 @@ package com.taxi.dataaccessobject;
 
 import com.taxi.domainobject.CarDO;
 import com.taxi.domainobject.DriverDO;
+import com.taxi.domainvalue.DriverAttributes;
+import com.taxi.domainvalue.DriverView;
+import com.taxi.domainvalue.KeyedText;
 import com.taxi.domainvalue.OnlineStatus;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 /**
  * Database Access Object for driver table.
  * <p/>
  */
-public interface DriverRepository extends CrudRepository<DriverDO, Long>, JpaSpecificationExecutor<DriverDO>
+public interface DriverRepository
+    extends CrudRepository<DriverDO, Long>, JpaSpecificationExecutor<DriverDO>, DriverLocationRepository, DriverSearchRepository
 {
 
+    String DRIVER_VIEW = "select new com.taxi.domainvalue.DriverView(d.id, d.username, d.password, d.coordinate.latitude, d.coordinate.longitude, "
+        + "c.id, c.licensePlate, c.seatCount, c.convertible, c.rating, c.engineType, m.id, m.name) "
+        + "from DriverDO d left join d.car c left join c.manufacturer m";
+
+    String DRIVER_ATTRIBUTES = "select new com.taxi.domainvalue.DriverAttributes(d.id, d.onlineStatus, "
+        + "c.id, c.seatCount, c.convertible, c.engineType, c.rating) "
+        + "from DriverDO d left join d.car c";
+
+    /**
+     * Loads the driver together with its car and the manufacturer of the car, which are mapped into responses.
+     */
+    @Override
+    @EntityGraph(attributePaths = {"car", "car.manufacturer"})
+    Optional<DriverDO> findById(Long driverId);
+
     List<DriverDO> findByOnlineStatus(OnlineStatus onlineStatus);
 
+    Optional<DriverDO> findByUsernameAndDeletedFalse(String username);
+
+    @Query(DRIVER_VIEW + " where d.id = :driverId")
+    Optional<DriverView> findViewById(@Param("driverId") long driverId);
+
+    @Query(DRIVER_VIEW + " where d.onlineStatus = :onlineStatus and d.id > :afterId order by d.id")
+    List<DriverView> findViewsByOnlineStatus(@Param("onlineStatus") OnlineStatus onlineStatus, @Param("afterId") long afterId, Pageable pageable);
+
+    @Query(DRIVER_VIEW + " where d.id in :driverIds order by d.id")
+    List<DriverView> findViewsByIdIn(@Param("driverIds") Collection<Long> driverIds);
+
+    @Query(DRIVER_ATTRIBUTES + " order by d.id")
+    List<DriverAttributes> findAllAttributes();
+
+    @Query(DRIVER_ATTRIBUTES + " where d.id = :driverId")
+    Optional<DriverAttributes> findAttributesById(@Param("driverId") long driverId);
+
+    @Query(DRIVER_ATTRIBUTES + " where c.id = :carId")
+    List<DriverAttributes> findAttributesByCarId(@Param("carId") long carId);
+
     DriverDO findFirstByCar(CarDO car);
+
+    @EntityGraph(attributePaths = "car")
+    List<DriverDO> findByDeletedFalseAndCarIsNotNull();
+
+    @Query("select new com.taxi.domainvalue.KeyedText(d.id, d.username) from DriverDO d")
+    List<KeyedText> findAllUsernames();
+
+    List<DriverDO> findByCoordinateLatitudeBetweenAndCoordinateLongitudeBetween(
+        double minLatitude, double maxLatitude, double minLongitude, double maxLongitude);
+
+    List<DriverDO> findByOnlineStatusAndCoordinateLatitudeBetweenAndCoordinateLongitudeBetween(
+        OnlineStatus onlineStatus, double minLatitude, double maxLatitude, double minLongitude, double maxLongitude);
 }
@@ -0,0 +1,256 @@
+package com.taxi.dataaccessobject;
+
+import com.taxi.controller.specification.DriverSpecification;
+import com.taxi.domainvalue.DriverView;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+
+/**
+ * JPQL texts of the driver view search, rendered once per query shape. The shape is the bitmask of the filters a
+ * specification sets, so searches of the same shape share one text with the values bound as parameters, and Hibernate
+ * parses and plans it once in its query plan cache instead of rendering a new Criteria tree, with the numeric values
+ * inlined, per search.
+ * <p/>
+ */
+final class DriverSearchQueries
+{
+    static final int USERNAME = 1;
+
+    static final int DRIVER_IDS = 1 << 1;
+
+    static final int ONLINE_STATUS = 1 << 2;
+
+    static final int LICENSE_PLATE = 1 << 3;
+
+    static final int CAR_IDS = 1 << 4;
+
+    static final int SEAT_COUNT = 1 << 5;
+
+    static final int CONVERTIBLE = 1 << 6;
+
+    static final int RATING = 1 << 7;
+
+    static final int ENGINE_TYPE = 1 << 8;
+
+    static final int AFTER_ID = 1 << 9;
+
+    private static final int SHAPES = 1 << 10;
+
+    private final AtomicReferenceArray<String> texts = new AtomicReferenceArray<>(SHAPES);
+
+    private final AtomicInteger shapeCount = new AtomicInteger();
+
+    private final Timer newShapeTimer;
+
+    private final Timer cachedShapeTimer;
+
+
+    DriverSearchQueries(MeterRegistry meterRegistry)
+    {
+        this.newShapeTimer = Timer.builder("driver.search.query.prepare").tag("shape", "new")
+            .description("Preparing driver searches of a shape not seen before, including parsing and planning").register(meterRegistry);
+        this.cachedShapeTimer = Timer.builder("driver.search.query.prepare").tag("shape", "cached")
+            .description("Preparing driver searches of an already planned shape").register(meterRegistry);
+        Gauge.builder("driver.search.query.shapes", shapeCount, AtomicInteger::get)
+            .description("Driver search shapes rendered so far").register(meterRegistry);
+        Gauge.builder("driver.search.query.prepare.saved", this, DriverSearchQueries::savedSeconds)
+            .description("Preparation time saved by reusing planned shapes").baseUnit("seconds").register(meterRegistry);
+    }
+
+
+    /**
+     * @param params with the username and license plate substrings either unresolved or resolved to non empty id sets
+     * @param afterId only drivers with a greater id are selected, null to select all
+     * @return
+     */
+    static int shapeOf(DriverSpecification params, Long afterId)
+    {
+        int shape = 0;
+        if (params.getDriverIds() != null)
+        {
+            shape |= DRIVER_IDS;
+        }
+        else if (params.getUsername() != null)
+        {
+            shape |= USERNAME;
+        }
+        if (params.getOnlineStatus() != null)
+        {
+            shape |= ONLINE_STATUS;
+        }
+        if (params.getCarIds() != null)
+        {
+            shape |= CAR_IDS;
+        }
+        else if (params.getLicensePlate() != null)
+        {
+            shape |= LICENSE_PLATE;
+        }
+        if (params.getSeatCount() != null)
+        {
+            shape |= SEAT_COUNT;
+        }
+        if (params.getConvertible() != null)
+        {
+            shape |= CONVERTIBLE;
+        }
+        if (params.getRating() != null)
+        {
+            shape |= RATING;
+        }
+        if (params.getEngineType() != null)
+        {
+            shape |= ENGINE_TYPE;
+        }
+        if (afterId != null)
+        {
+            shape |= AFTER_ID;
+        }
+        return shape;
+    }
+
+
+    /**
+     * Create the query of the shape of the specification with its values bound, ordered by driver id.
+     *
+     * @param entityManager
+     * @param params with the username and license plate substrings either unresolved or resolved to non empty id sets
+     * @param afterId only drivers with a greater id are selected, null to select all
+     * @return
+     */
+    TypedQuery<DriverView> create(EntityManager entityManager, DriverSpecification params, Long afterId)
+    {
+        long start = System.nanoTime();
+        int shape = shapeOf(params, afterId);
+        String text = texts.get(shape);
+        boolean cached = text != null;
+        if (!cached)
+        {
+            text = render(shape);
+            if (texts.compareAndSet(shape, null, text))
+            {
+                shapeCount.incrementAndGet();
+            }
+        }
+        TypedQuery<DriverView> query = entityManager.createQuery(text, DriverView.class);
+        (cached ? cachedShapeTimer : newShapeTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return bind(query, params, afterId);
+    }
+
+
+    static String render(int shape)
+    {
+        List<String> conditions = new ArrayList<>();
+        if ((shape & DRIVER_IDS) != 0)
+        {
+            conditions.add("d.id in :driverIds");
+        }
+        if ((shape & USERNAME) != 0)
+        {
+            conditions.add("d.username like :username escape '" + DriverSpecification.LIKE_ESCAPE + "'");
+        }
+        if ((shape & ONLINE_STATUS) != 0)
+        {
+            conditions.add("d.onlineStatus = :onlineStatus");
+        }
+        if ((shape & CAR_IDS) != 0)
+        {
+            conditions.add("c.id in :carIds");
+        }
+        if ((shape & LICENSE_PLATE) != 0)
+        {
+            conditions.add("c.licensePlate like :licensePlate escape '" + DriverSpecification.LIKE_ESCAPE + "'");
+        }
+        if ((shape & SEAT_COUNT) != 0)
+        {
+            conditions.add("c.seatCount = :seatCount");
+        }
+        if ((shape & CONVERTIBLE) != 0)
+        {
+            conditions.add("c.convertible = :convertible");
+        }
+        if ((shape & RATING) != 0)
+        {
+            conditions.add("c.rating >= :rating");
+        }
+        if ((shape & ENGINE_TYPE) != 0)
+        {
+            conditions.add("c.engineType = :engineType");
+        }
+        if ((shape & AFTER_ID) != 0)
+        {
+            conditions.add("d.id > :afterId");
+        }
+        return DriverRepository.DRIVER_VIEW + (conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions)) + " order by d.id";
+    }
+
+
+    private static TypedQuery<DriverView> bind(TypedQuery<DriverView> query, DriverSpecification params, Long afterId)
+    {
+        if (params.getDriverIds() != null)
+        {
+            query.setParameter("driverIds", params.getDriverIds());
+        }
+        else if (params.getUsername() != null)
+        {
+            query.setParameter("username", DriverSpecification.containsPattern(params.getUsername()));
+        }
+        if (params.getOnlineStatus() != null)
+        {
+            query.setParameter("onlineStatus", params.getOnlineStatus());
+        }
+        if (params.getCarIds() != null)
+        {
+            query.setParameter("carIds", params.getCarIds());
+        }
+        else if (params.getLicensePlate() != null)
+        {
+            query.setParameter("licensePlate", DriverSpecification.containsPattern(params.getLicensePlate()));
+        }
+        if (params.getSeatCount() != null)
+        {
+            query.setParameter("seatCount", params.getSeatCount());
+        }
+        if (params.getConvertible() != null)
+        {
+            query.setParameter("convertible", params.getConvertible());
+        }
+        if (params.getRating() != null)
+        {
+            query.setParameter("rating", params.getRating());
+        }
+        if (params.getEngineType() != null)
+        {
+            query.setParameter("engineType", params.getEngineType());
+        }
+        if (afterId != null)
+        {
+            query.setParameter("afterId", afterId);
+        }
+        return query;
+    }
+
+
+    int shapeCount()
+    {
+        return shapeCount.get();
+    }
+
+
+    /**
+     * @return the searches of cached shapes times the difference of the mean preparation time of new and cached shapes
+     */
+    double savedSeconds()
+    {
+        double saved = newShapeTimer.mean(TimeUnit.SECONDS) - cachedShapeTimer.mean(TimeUnit.SECONDS);
+        return Math.max(0, saved) * cachedShapeTimer.count();
+    }
+}
@@ -0,0 +1,45 @@
+package com.taxi.dataaccessobject;
+
+import com.taxi.controller.specification.DriverSpecification;
+import com.taxi.domainobject.DriverDO;
+import com.taxi.domainvalue.DriverFacets;
+import com.taxi.domainvalue.DriverView;
+import java.util.List;
+import java.util.function.Consumer;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Keyset paged and streamed search for the driver table, selecting views instead of entities, and counts of the
+ * matching drivers.
+ * <p/>
+ */
+public interface DriverSearchRepository
+{
+
+    /**
+     * Find drivers matching the specification without counting all matches, ordered by id.
+     *
+     * @param specification
+     * @param afterId only drivers with a greater id are returned
+     * @param limit maximum number of drivers to return
+     * @return matching drivers ordered by id
+     */
+    List<DriverView> findViews(DriverSpecification specification, long afterId, int limit);
+
+    /**
+     * Scroll through all drivers matching the specification, ordered by id, without holding them all in memory.
+     *
+     * @param specification
+     * @param action called for each matching driver
+     */
+    void forEachView(DriverSpecification specification, Consumer<? super DriverView> action);
+
+    /**
+     * Count the drivers matching the specification grouped by attribute value, with one grouped aggregate query per
+     * attribute.
+     *
+     * @param specification
+     * @return the counts
+     */
+    DriverFacets countFacets(Specification<DriverDO> specification);
+}
@@ -0,0 +1,139 @@
+package com.taxi.dataaccessobject;
+
+import com.taxi.controller.specification.DriverSpecification;
+import com.taxi.domainobject.CarDO;
+import com.taxi.domainobject.CarDO_;
+import com.taxi.domainobject.DriverDO;
+import com.taxi.domainobject.DriverDO_;
+import com.taxi.domainvalue.DriverFacets;
+import com.taxi.domainvalue.DriverView;
+import com.taxi.domainvalue.EngineType;
+import com.taxi.domainvalue.OnlineStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Implementation of {@link DriverSearchRepository}, picked up by Spring Data as fragment of {@link DriverRepository}.
+ * Views are selected with the JPQL of the query shape, counts with Criteria queries of the specification.
+ * <p/>
+ */
+public class DriverSearchRepositoryImpl implements DriverSearchRepository
+{
+    private final EntityManager entityManager;
+
+    private final DriverSearchQueries searchQueries;
+
+
+    public DriverSearchRepositoryImpl(final EntityManager entityManager, final ObjectProvider<MeterRegistry> meterRegistry)
+    {
+        this.entityManager = entityManager;
+        this.searchQueries = new DriverSearchQueries(meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+
+    @Override
+    public List<DriverView> findViews(DriverSpecification specification, long afterId, int limit)
+    {
+        if (matchesNothing(specification))
+        {
+            return List.of();
+        }
+        return searchQueries.create(entityManager, specification, afterId).setMaxResults(limit).getResultList();
+    }
+
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachView(DriverSpecification specification, Consumer<? super DriverView> action)
+    {
+        if (!matchesNothing(specification))
+        {
+            QueryStreams.forEach(searchQueries.create(entityManager, specification, null), action);
+        }
+    }
+
+
+    @Override
+    @Transactional(readOnly = true)
+    public DriverFacets countFacets(Specification<DriverDO> specification)
+    {
+        Map<OnlineStatus, Long> onlineStatus = countBy(specification, (root, car) -> root.get(DriverDO_.onlineStatus), new EnumMap<>(OnlineStatus.class));
+        return new DriverFacets(
+            onlineStatus.values().stream().mapToLong(Long::longValue).sum(),
+            onlineStatus,
+            countBy(specification, (root, car) -> car.get(CarDO_.engineType), new EnumMap<>(EngineType.class)),
+            countBy(specification, (root, car) -> car.get(CarDO_.seatCount), new TreeMap<>()),
+            countBy(specification, (root, car) -> car.get(CarDO_.convertible), new TreeMap<>()));
+    }
+
+
+    /**
+     * Count the matching drivers grouped by an attribute of the driver or its car, drivers without the attribute are
+     * not counted. The online status is never null, so its counts add up to all matching drivers.
+     */
+    private <K> Map<K, Long> countBy(
+        Specification<DriverDO> specification, BiFunction<Root<DriverDO>, Join<DriverDO, CarDO>, Expression<K>> attribute, Map<K, Long> counts)
+    {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<DriverDO> root = query.from(DriverDO.class);
+        Predicate predicate = specification.toPredicate(root, query, builder);
+        if (predicate != null)
+        {
+            query.where(predicate);
+        }
+        Expression<K> value = attribute.apply(root, carJoin(root));
+        Expression<Long> count = builder.count(root);
+        query.multiselect(value, count).groupBy(value);
+
+        for (Tuple row : entityManager.createQuery(query).getResultList())
+        {
+            if (row.get(value) != null)
+            {
+                counts.put(row.get(value), row.get(count));
+            }
+        }
+        return counts;
+    }
+
+
+    /**
+     * @return true if a substring resolved to no ids, which an {@code in} condition can not express
+     */
+    private static boolean matchesNothing(DriverSpecification specification)
+    {
+        return specification.getDriverIds() != null && specification.getDriverIds().isEmpty()
+            || specification.getCarIds() != null && specification.getCarIds().isEmpty();
+    }
+
+
+    /**
+     * @return the car join of the specification if it made one, otherwise a new left join
+     */
+    @SuppressWarnings("unchecked")
+    private static Join<DriverDO, CarDO> carJoin(Root<DriverDO> root)
+    {
+        return (Join<DriverDO, CarDO>) root.getJoins().stream()
+            .filter(join -> join.getAttribute().getName().equals(DriverDO_.CAR) && join.getJoinType() == JoinType.LEFT)
+            .findFirst()
+            .orElseGet(() -> root.join(DriverDO_.car, JoinType.LEFT));
+    }
+}
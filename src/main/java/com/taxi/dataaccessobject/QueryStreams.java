@@ -0,0 +1,37 @@
+package com.taxi.dataaccessobject;
+
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import javax.persistence.TypedQuery;
+import org.hibernate.jpa.QueryHints;
+
+/**
+ * Scrolls through the results of projection queries instead of loading them as a list. Projections do not enter the
+ * persistence context, so the heap does not grow with the number of rows.
+ * <p/>
+ */
+final class QueryStreams
+{
+    static final int FETCH_SIZE = 500;
+
+
+    private QueryStreams()
+    {
+    }
+
+
+    /**
+     * Must run inside a transaction, as the rows are read from an open cursor.
+     *
+     * @param query
+     * @param action
+     */
+    static <T> void forEach(TypedQuery<T> query, Consumer<? super T> action)
+    {
+        query.setHint(QueryHints.HINT_FETCH_SIZE, FETCH_SIZE).setHint(QueryHints.HINT_READONLY, true);
+        try (Stream<T> results = query.getResultStream())
+        {
+            results.forEachOrdered(action);
+        }
+    }
+}
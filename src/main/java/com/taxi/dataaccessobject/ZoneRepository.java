@@ -0,0 +1,12 @@
+package com.taxi.dataaccessobject;
+
+import com.taxi.domainobject.ZoneDO;
+import org.springframework.data.repository.CrudRepository;
+
+/**
+ * Data access object for zone table.
+ * <p/>
+ */
+public interface ZoneRepository extends CrudRepository<ZoneDO, Long>
+{
+}
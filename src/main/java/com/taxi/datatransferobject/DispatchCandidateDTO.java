@@ -0,0 +1,132 @@
+package com.taxi.datatransferobject;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.taxi.domainvalue.GeoCoordinate;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DispatchCandidateDTO
+{
+    private final Long driverId;
+
+    private final Long carId;
+
+    private final GeoCoordinate coordinate;
+
+    private final Double distance;
+
+    private final Double rating;
+
+    private final Double score;
+
+
+    private DispatchCandidateDTO(Long driverId, Long carId, GeoCoordinate coordinate, Double distance, Double rating, Double score)
+    {
+        this.driverId = driverId;
+        this.carId = carId;
+        this.coordinate = coordinate;
+        this.distance = distance;
+        this.rating = rating;
+        this.score = score;
+    }
+
+
+    public static DispatchCandidateDTOBuilder newBuilder()
+    {
+        return new DispatchCandidateDTOBuilder();
+    }
+
+
+    public Long getDriverId()
+    {
+        return driverId;
+    }
+
+
+    public Long getCarId()
+    {
+        return carId;
+    }
+
+
+    public GeoCoordinate getCoordinate()
+    {
+        return coordinate;
+    }
+
+
+    public Double getDistance()
+    {
+        return distance;
+    }
+
+
+    public Double getRating()
+    {
+        return rating;
+    }
+
+
+    public Double getScore()
+    {
+        return score;
+    }
+
+
+    public static class DispatchCandidateDTOBuilder
+    {
+        private Long driverId;
+        private Long carId;
+        private GeoCoordinate coordinate;
+        private Double distance;
+        private Double rating;
+        private Double score;
+
+
+        public DispatchCandidateDTOBuilder setDriverId(Long driverId)
+        {
+            this.driverId = driverId;
+            return this;
+        }
+
+
+        public DispatchCandidateDTOBuilder setCarId(Long carId)
+        {
+            this.carId = carId;
+            return this;
+        }
+
+
+        public DispatchCandidateDTOBuilder setCoordinate(GeoCoordinate coordinate)
+        {
+            this.coordinate = coordinate;
+            return this;
+        }
+
+
+        public DispatchCandidateDTOBuilder setDistance(Double distance)
+        {
+            this.distance = distance;
+            return this;
+        }
+
+
+        public DispatchCandidateDTOBuilder setRating(Double rating)
+        {
+            this.rating = rating;
+            return this;
+        }
+
+
+        public DispatchCandidateDTOBuilder setScore(Double score)
+        {
+            this.score = score;
+            return this;
+        }
+
+
+        public DispatchCandidateDTO createDispatchCandidateDTO()
+        {
+            return new DispatchCandidateDTO(driverId, carId, coordinate, distance, rating, score);
+        }
+    }
+}
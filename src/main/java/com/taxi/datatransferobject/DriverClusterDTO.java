@@ -0,0 +1,64 @@
+package com.taxi.datatransferobject;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.taxi.domainvalue.GeoCoordinate;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DriverClusterDTO
+{
+    private final GeoCoordinate coordinate;
+
+    private final Integer count;
+
+
+    private DriverClusterDTO(GeoCoordinate coordinate, Integer count)
+    {
+        this.coordinate = coordinate;
+        this.count = count;
+    }
+
+
+    public static DriverClusterDTOBuilder newBuilder()
+    {
+        return new DriverClusterDTOBuilder();
+    }
+
+
+    public GeoCoordinate getCoordinate()
+    {
+        return coordinate;
+    }
+
+
+    public Integer getCount()
+    {
+        return count;
+    }
+
+
+    public static class DriverClusterDTOBuilder
+    {
+        private GeoCoordinate coordinate;
+        private Integer count;
+
+
+        public DriverClusterDTOBuilder setCoordinate(GeoCoordinate coordinate)
+        {
+            this.coordinate = coordinate;
+            return this;
+        }
+
+
+        public DriverClusterDTOBuilder setCount(Integer count)
+        {
+            this.count = count;
+            return this;
+        }
+
+
+        public DriverClusterDTO createDriverClusterDTO()
+        {
+            return new DriverClusterDTO(coordinate, count);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.taxi.datatransferobject;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.taxi.domainvalue.EngineType;
+import com.taxi.domainvalue.OnlineStatus;
+import java.util.Map;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DriverFacetsDTO
+{
+    private final Long total;
+
+    private final Map<OnlineStatus, Long> onlineStatus;
+
+    private final Map<EngineType, Long> engineType;
+
+    private final Map<Integer, Long> seatCount;
+
+    private final Map<Boolean, Long> convertible;
+
+
+    private DriverFacetsDTO(
+        Long total, Map<OnlineStatus, Long> onlineStatus, Map<EngineType, Long> engineType, Map<Integer, Long> seatCount,
+        Map<Boolean, Long> convertible)
+    {
+        this.total = total;
+        this.onlineStatus = onlineStatus;
+        this.engineType = engineType;
+        this.seatCount = seatCount;
+        this.convertible = convertible;
+    }
+
+
+    public static DriverFacetsDTOBuilder newBuilder()
+    {
+        return new DriverFacetsDTOBuilder();
+    }
+
+
+    public Long getTotal()
+    {
+        return total;
+    }
+
+
+    public Map<OnlineStatus, Long> getOnlineStatus()
+    {
+        return onlineStatus;
+    }
+
+
+    public Map<EngineType, Long> getEngineType()
+    {
+        return engineType;
+    }
+
+
+    public Map<Integer, Long> getSeatCount()
+    {
+        return seatCount;
+    }
+
+
+    public Map<Boolean, Long> getConvertible()
+    {
+        return convertible;
+    }
+
+
+    public static class DriverFacetsDTOBuilder
+    {
+        private Long total;
+        private Map<OnlineStatus, Long> onlineStatus;
+        private Map<EngineType, Long> engineType;
+        private Map<Integer, Long> seatCount;
+        private Map<Boolean, Long> convertible;
+
+
+        public DriverFacetsDTOBuilder setTotal(Long total)
+        {
+            this.total = total;
+            return this;
+        }
+
+
+        public DriverFacetsDTOBuilder setOnlineStatus(Map<OnlineStatus, Long> onlineStatus)
+        {
+            this.onlineStatus = onlineStatus;
+            return this;
+        }
+
+
+        public DriverFacetsDTOBuilder setEngineType(Map<EngineType, Long> engineType)
+        {
+            this.engineType = engineType;
+            return this;
+        }
+
+
+        public DriverFacetsDTOBuilder setSeatCount(Map<Integer, Long> seatCount)
+        {
+            this.seatCount = seatCount;
+            return this;
+        }
+
+
+        public DriverFacetsDTOBuilder setConvertible(Map<Boolean, Long> convertible)
+        {
+            this.convertible = convertible;
+            return this;
+        }
+
+
+        public DriverFacetsDTO createDriverFacetsDTO()
+        {
+            return new DriverFacetsDTO(total, onlineStatus, engineType, seatCount, convertible);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.taxi.datatransferobject;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.time.ZonedDateTime;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DriverLocationDTO
+{
+    private Long driverId;
+
+    private Double latitude;
+
+    private Double longitude;
+
+    private ZonedDateTime timestamp;
+
+
+    private DriverLocationDTO()
+    {
+    }
+
+
+    private DriverLocationDTO(Long driverId, Double latitude, Double longitude, ZonedDateTime timestamp)
+    {
+        this.driverId = driverId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.timestamp = timestamp;
+    }
+
+
+    public static DriverLocationDTOBuilder newBuilder()
+    {
+        return new DriverLocationDTOBuilder();
+    }
+
+
+    public Long getDriverId()
+    {
+        return driverId;
+    }
+
+
+    public Double getLatitude()
+    {
+        return latitude;
+    }
+
+
+    public Double getLongitude()
+    {
+        return longitude;
+    }
+
+
+    public ZonedDateTime getTimestamp()
+    {
+        return timestamp;
+    }
+
+
+    public static class DriverLocationDTOBuilder
+    {
+        private Long driverId;
+        private Double latitude;
+        private Double longitude;
+        private ZonedDateTime timestamp;
+
+
+        public DriverLocationDTOBuilder setDriverId(Long driverId)
+        {
+            this.driverId = driverId;
+            return this;
+        }
+
+
+        public DriverLocationDTOBuilder setLatitude(Double latitude)
+        {
+            this.latitude = latitude;
+            return this;
+        }
+
+
+        public DriverLocationDTOBuilder setLongitude(Double longitude)
+        {
+            this.longitude = longitude;
+            return this;
+        }
+
+
+        public DriverLocationDTOBuilder setTimestamp(ZonedDateTime timestamp)
+        {
+            this.timestamp = timestamp;
+            return this;
+        }
+
+
+        public DriverLocationDTO createDriverLocationDTO()
+        {
+            return new DriverLocationDTO(driverId, latitude, longitude, timestamp);
+        }
+    }
+}
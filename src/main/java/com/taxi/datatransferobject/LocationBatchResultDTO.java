@@ -0,0 +1,32 @@
+package com.taxi.datatransferobject;
+
+import java.util.List;
+
+public class LocationBatchResultDTO
+{
+    private final int updated;
+
+    private final List<Long> skipped;
+
+
+    public LocationBatchResultDTO(int updated, List<Long> skipped)
+    {
+        this.updated = updated;
+        this.skipped = skipped;
+    }
+
+
+    public int getUpdated()
+    {
+        return updated;
+    }
+
+
+    /**
+     * @return ids of drivers which are unknown or already have a newer position
+     */
+    public List<Long> getSkipped()
+    {
+        return skipped;
+    }
+}
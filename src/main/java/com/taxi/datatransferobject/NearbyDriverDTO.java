@@ -0,0 +1,81 @@
+package com.taxi.datatransferobject;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.taxi.domainvalue.GeoCoordinate;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class NearbyDriverDTO
+{
+    private final Long driverId;
+
+    private final GeoCoordinate coordinate;
+
+    private final Double distance;
+
+
+    private NearbyDriverDTO(Long driverId, GeoCoordinate coordinate, Double distance)
+    {
+        this.driverId = driverId;
+        this.coordinate = coordinate;
+        this.distance = distance;
+    }
+
+
+    public static NearbyDriverDTOBuilder newBuilder()
+    {
+        return new NearbyDriverDTOBuilder();
+    }
+
+
+    public Long getDriverId()
+    {
+        return driverId;
+    }
+
+
+    public GeoCoordinate getCoordinate()
+    {
+        return coordinate;
+    }
+
+
+    public Double getDistance()
+    {
+        return distance;
+    }
+
+
+    public static class NearbyDriverDTOBuilder
+    {
+        private Long driverId;
+        private GeoCoordinate coordinate;
+        private Double distance;
+
+
+        public NearbyDriverDTOBuilder setDriverId(Long driverId)
+        {
+            this.driverId = driverId;
+            return this;
+        }
+
+
+        public NearbyDriverDTOBuilder setCoordinate(GeoCoordinate coordinate)
+        {
+            this.coordinate = coordinate;
+            return this;
+        }
+
+
+        public NearbyDriverDTOBuilder setDistance(Double distance)
+        {
+            this.distance = distance;
+            return this;
+        }
+
+
+        public NearbyDriverDTO createNearbyDriverDTO()
+        {
+            return new NearbyDriverDTO(driverId, coordinate, distance);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.taxi.datatransferobject;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.taxi.controller.validators.ValueOfEnum;
+import com.taxi.domainvalue.EngineType;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.PositiveOrZero;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RideRequestDTO
+{
+    @NotNull(message = "latitude can not be null!")
+    private Double latitude;
+
+    @NotNull(message = "longitude can not be null!")
+    private Double longitude;
+
+    private Integer minSeats;
+
+    private Boolean convertible;
+
+    @ValueOfEnum(enumClass = EngineType.class, message = "Please provide valid engine type!")
+    private String engineType;
+
+    @PositiveOrZero(message = "minRating can not be negative value")
+    private Double minRating;
+
+
+    private RideRequestDTO()
+    {
+    }
+
+
+    private RideRequestDTO(Double latitude, Double longitude, Integer minSeats, Boolean convertible, String engineType, Double minRating)
+    {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.minSeats = minSeats;
+        this.convertible = convertible;
+        this.engineType = engineType;
+        this.minRating = minRating;
+    }
+
+
+    public static RideRequestDTOBuilder newBuilder()
+    {
+        return new RideRequestDTOBuilder();
+    }
+
+
+    public Double getLatitude()
+    {
+        return latitude;
+    }
+
+
+    public Double getLongitude()
+    {
+        return longitude;
+    }
+
+
+    public Integer getMinSeats()
+    {
+        return minSeats;
+    }
+
+
+    public Boolean getConvertible()
+    {
+        return convertible;
+    }
+
+
+    public String getEngineType()
+    {
+        return engineType;
+    }
+
+
+    public Double getMinRating()
+    {
+        return minRating;
+    }
+
+
+    public static class RideRequestDTOBuilder
+    {
+        private Double latitude;
+        private Double longitude;
+        private Integer minSeats;
+        private Boolean convertible;
+        private String engineType;
+        private Double minRating;
+
+
+        public RideRequestDTOBuilder setLatitude(Double latitude)
+        {
+            this.latitude = latitude;
+            return this;
+        }
+
+
+        public RideRequestDTOBuilder setLongitude(Double longitude)
+        {
+            this.longitude = longitude;
+            return this;
+        }
+
+
+        public RideRequestDTOBuilder setMinSeats(Integer minSeats)
+        {
+            this.minSeats = minSeats;
+            return this;
+        }
+
+
+        public RideRequestDTOBuilder setConvertible(Boolean convertible)
+        {
+            this.convertible = convertible;
+            return this;
+        }
+
+
+        public RideRequestDTOBuilder setEngineType(String engineType)
+        {
+            this.engineType = engineType;
+            return this;
+        }
+
+
+        public RideRequestDTOBuilder setMinRating(Double minRating)
+        {
+            this.minRating = minRating;
+            return this;
+        }
+
+
+        public RideRequestDTO createRideRequestDTO()
+        {
+            return new RideRequestDTO(latitude, longitude, minSeats, convertible, engineType, minRating);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.taxi.datatransferobject;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ZoneCountDTO
+{
+    private final Long zoneId;
+
+    private final String name;
+
+    private final Integer onlineDrivers;
+
+
+    private ZoneCountDTO(Long zoneId, String name, Integer onlineDrivers)
+    {
+        this.zoneId = zoneId;
+        this.name = name;
+        this.onlineDrivers = onlineDrivers;
+    }
+
+
+    public static ZoneCountDTOBuilder newBuilder()
+    {
+        return new ZoneCountDTOBuilder();
+    }
+
+
+    public Long getZoneId()
+    {
+        return zoneId;
+    }
+
+
+    public String getName()
+    {
+        return name;
+    }
+
+
+    public Integer getOnlineDrivers()
+    {
+        return onlineDrivers;
+    }
+
+
+    public static class ZoneCountDTOBuilder
+    {
+        private Long zoneId;
+        private String name;
+        private Integer onlineDrivers;
+
+
+        public ZoneCountDTOBuilder setZoneId(Long zoneId)
+        {
+            this.zoneId = zoneId;
+            return this;
+        }
+
+
+        public ZoneCountDTOBuilder setName(String name)
+        {
+            this.name = name;
+            return this;
+        }
+
+
+        public ZoneCountDTOBuilder setOnlineDrivers(Integer onlineDrivers)
+        {
+            this.onlineDrivers = onlineDrivers;
+            return this;
+        }
+
+
+        public ZoneCountDTO createZoneCountDTO()
+        {
+            return new ZoneCountDTO(zoneId, name, onlineDrivers);
+        }
+    }
+}
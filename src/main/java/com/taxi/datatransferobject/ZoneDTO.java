@@ -0,0 +1,94 @@
+package com.taxi.datatransferobject;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.taxi.domainvalue.GeoCoordinate;
+import java.util.List;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ZoneDTO
+{
+    private Long id;
+
+    @NotNull(message = "name can not be null!")
+    private String name;
+
+    @NotNull(message = "vertices can not be null!")
+    @Size(min = 3, message = "a zone needs at least 3 vertices!")
+    private List<GeoCoordinate> vertices;
+
+
+    private ZoneDTO()
+    {
+    }
+
+
+    private ZoneDTO(Long id, String name, List<GeoCoordinate> vertices)
+    {
+        this.id = id;
+        this.name = name;
+        this.vertices = vertices;
+    }
+
+
+    public static ZoneDTOBuilder newBuilder()
+    {
+        return new ZoneDTOBuilder();
+    }
+
+
+    @JsonProperty
+    public Long getId()
+    {
+        return id;
+    }
+
+
+    public String getName()
+    {
+        return name;
+    }
+
+
+    public List<GeoCoordinate> getVertices()
+    {
+        return vertices;
+    }
+
+
+    public static class ZoneDTOBuilder
+    {
+        private Long id;
+        private String name;
+        private List<GeoCoordinate> vertices;
+
+
+        public ZoneDTOBuilder setId(Long id)
+        {
+            this.id = id;
+            return this;
+        }
+
+
+        public ZoneDTOBuilder setName(String name)
+        {
+            this.name = name;
+            return this;
+        }
+
+
+        public ZoneDTOBuilder setVertices(List<GeoCoordinate> vertices)
+        {
+            this.vertices = vertices;
+            return this;
+        }
+
+
+        public ZoneDTO createZoneDTO()
+        {
+            return new ZoneDTO(id, name, vertices);
+        }
+    }
+}
@@ -6,11 +6,12 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
-import javax.persistence.OneToOne;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.Max;
@@ -24,7 +25,8 @@ import org.springframework.format.annotation.DateTimeFormat;
 @Entity
 @Table(
     name = "car",
-    uniqueConstraints = @UniqueConstraint(name = "uc_licensePlate", columnNames = {"licensePlate"})
+    uniqueConstraints = @UniqueConstraint(name = "uc_licensePlate", columnNames = {"licensePlate"}),
+    indexes = @Index(name = "idx_car_engine_type_id", columnList = "engineType, id")
 )
 public class CarDO
 {
@@ -57,15 +59,14 @@ public class CarDO
     @Max(value = 10, message = "rating can not be more than 10")
     private Double rating = 0.0;
 
+    private Long ratingCount = 0L;
+
     @Enumerated(EnumType.STRING)
     private EngineType engineType;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private ManufacturerDO manufacturer;
 
-    @OneToOne(mappedBy = "car")
-    private DriverDO driver;
-
 
     public CarDO()
     {
@@ -79,9 +80,9 @@ public class CarDO
         this.deleted = false;
         this.convertible = false;
         this.rating = 0.0;
+        this.ratingCount = 0L;
         this.engineType = null;
         this.manufacturer = null;
-        this.driver = null;
     }
 
 
@@ -169,38 +170,41 @@ public class CarDO
     }
 
 
-    public EngineType getEngineType()
+    /**
+     * @return the number of ride ratings averaged in the rating, a rating set directly counts as one, 0 if not rated
+     */
+    public Long getRatingCount()
     {
-        return engineType;
+        return ratingCount;
     }
 
 
-    public void setEngineType(EngineType engineType)
+    public void setRatingCount(Long ratingCount)
     {
-        this.engineType = engineType;
+        this.ratingCount = ratingCount;
     }
 
 
-    public ManufacturerDO getManufacturer()
+    public EngineType getEngineType()
     {
-        return manufacturer;
+        return engineType;
     }
 
 
-    public void setManufacturer(ManufacturerDO manufacturer)
+    public void setEngineType(EngineType engineType)
     {
-        this.manufacturer = manufacturer;
+        this.engineType = engineType;
     }
 
 
-    public DriverDO getDriver()
+    public ManufacturerDO getManufacturer()
     {
-        return driver;
+        return manufacturer;
     }
 
 
-    public void setDriver(DriverDO driver)
+    public void setManufacturer(ManufacturerDO manufacturer)
     {
-        this.driver = driver;
+        this.manufacturer = manufacturer;
     }
 }
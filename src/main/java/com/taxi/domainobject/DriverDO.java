@@ -3,15 +3,19 @@ package com.taxi.domainobject;
 import com.taxi.domainvalue.GeoCoordinate;
 import com.taxi.domainvalue.OnlineStatus;
 import java.time.ZonedDateTime;
+import javax.persistence.AttributeOverride;
+import javax.persistence.AttributeOverrides;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Embedded;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.OneToOne;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
@@ -21,7 +25,10 @@ import org.springframework.format.annotation.DateTimeFormat;
 @Entity
 @Table(
     name = "driver",
-    uniqueConstraints = {@UniqueConstraint(name = "uc_username", columnNames = {"username"}), @UniqueConstraint(name = "uc_online_car", columnNames = {"onlineStatus", "car_id"})}
+    uniqueConstraints = {@UniqueConstraint(name = "uc_username", columnNames = {"username"}), @UniqueConstraint(name = "uc_online_car", columnNames = {"onlineStatus", "car_id"})},
+    indexes = {
+        @Index(name = "idx_driver_coordinate", columnList = "latitude, longitude"),
+        @Index(name = "idx_driver_online_status_id", columnList = "onlineStatus, id")}
 )
 public class DriverDO
 {
@@ -43,10 +50,17 @@ public class DriverDO
     @Column(nullable = false)
     private Boolean deleted = false;
 
+    /**
+     * Written with the driver, afterwards only by the location repository, so updating the entity never overwrites a
+     * newer location written in between.
+     */
     @Embedded
+    @AttributeOverrides({
+        @AttributeOverride(name = "latitude", column = @Column(name = "latitude", updatable = false)),
+        @AttributeOverride(name = "longitude", column = @Column(name = "longitude", updatable = false))})
     private GeoCoordinate coordinate;
 
-    @Column
+    @Column(updatable = false)
     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
     private ZonedDateTime dateCoordinateUpdated = ZonedDateTime.now();
 
@@ -54,7 +68,7 @@ public class DriverDO
     @Column(nullable = false)
     private OnlineStatus onlineStatus;
 
-    @OneToOne(cascade = CascadeType.ALL)
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private CarDO car;
 
 
@@ -130,9 +144,21 @@ public class DriverDO
 
 
     public void setCoordinate(GeoCoordinate coordinate)
+    {
+        setCoordinate(coordinate, ZonedDateTime.now());
+    }
+
+
+    public void setCoordinate(GeoCoordinate coordinate, ZonedDateTime dateCoordinateUpdated)
     {
         this.coordinate = coordinate;
-        this.dateCoordinateUpdated = ZonedDateTime.now();
+        this.dateCoordinateUpdated = dateCoordinateUpdated;
+    }
+
+
+    public ZonedDateTime getDateCoordinateUpdated()
+    {
+        return dateCoordinateUpdated;
     }
 
 
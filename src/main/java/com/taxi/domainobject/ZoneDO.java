@@ -0,0 +1,93 @@
+package com.taxi.domainobject;
+
+import com.taxi.domainvalue.GeoCoordinate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.CollectionTable;
+import javax.persistence.Column;
+import javax.persistence.ElementCollection;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.OrderColumn;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import org.springframework.format.annotation.DateTimeFormat;
+
+@Entity
+@Table(
+    name = "zone",
+    uniqueConstraints = @UniqueConstraint(name = "uc_zone_name", columnNames = {"name"})
+)
+public class ZoneDO
+{
+
+    @Column(nullable = false)
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private final ZonedDateTime dateCreated = ZonedDateTime.now();
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false)
+    @NotNull(message = "name can not be null!")
+    private String name;
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "zone_vertex", joinColumns = @JoinColumn(name = "zone_id"))
+    @OrderColumn(name = "position")
+    @Size(min = 3, message = "a zone needs at least 3 vertices!")
+    private List<GeoCoordinate> vertices = new ArrayList<>();
+
+
+    public ZoneDO()
+    {
+    }
+
+
+    public ZoneDO(String name, List<GeoCoordinate> vertices)
+    {
+        this.name = name;
+        this.vertices = new ArrayList<>(vertices);
+    }
+
+
+    public Long getId()
+    {
+        return id;
+    }
+
+
+    public void setId(Long id)
+    {
+        this.id = id;
+    }
+
+
+    public String getName()
+    {
+        return name;
+    }
+
+
+    public void setName(String name)
+    {
+        this.name = name;
+    }
+
+
+    public List<GeoCoordinate> getVertices()
+    {
+        return vertices;
+    }
+
+
+    public void setVertices(List<GeoCoordinate> vertices)
+    {
+        this.vertices = vertices;
+    }
+}
@@ -0,0 +1,86 @@
+package com.taxi.domainvalue;
+
+import com.taxi.domainobject.CarDO;
+
+/**
+ * The attributes of a car which matter when dispatching its driver, detached from the persistence context.
+ * <p/>
+ */
+public class CarAttributes
+{
+    private final long carId;
+
+    private final int seatCount;
+
+    private final boolean convertible;
+
+    private final EngineType engineType;
+
+    private final double rating;
+
+
+    public CarAttributes(long carId, int seatCount, boolean convertible, EngineType engineType, double rating)
+    {
+        this.carId = carId;
+        this.seatCount = seatCount;
+        this.convertible = convertible;
+        this.engineType = engineType;
+        this.rating = rating;
+    }
+
+
+    /**
+     * @param carId id of the car, which may not have been assigned to the entity yet
+     * @param carDO
+     * @return the attributes of the car, missing values count as not convertible and not rated
+     */
+    public static CarAttributes of(long carId, CarDO carDO)
+    {
+        return new CarAttributes(
+            carId,
+            carDO.getSeatCount(),
+            Boolean.TRUE.equals(carDO.getConvertible()),
+            carDO.getEngineType(),
+            carDO.getRating() == null ? 0 : carDO.getRating());
+    }
+
+
+    public long getCarId()
+    {
+        return carId;
+    }
+
+
+    public int getSeatCount()
+    {
+        return seatCount;
+    }
+
+
+    public boolean isConvertible()
+    {
+        return convertible;
+    }
+
+
+    public EngineType getEngineType()
+    {
+        return engineType;
+    }
+
+
+    public double getRating()
+    {
+        return rating;
+    }
+
+
+    /**
+     * @param rating
+     * @return a copy of these attributes with the given rating
+     */
+    public CarAttributes withRating(double rating)
+    {
+        return new CarAttributes(carId, seatCount, convertible, engineType, rating);
+    }
+}
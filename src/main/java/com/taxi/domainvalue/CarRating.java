@@ -0,0 +1,31 @@
+package com.taxi.domainvalue;
+
+/**
+ * The average ride rating of a car, read without loading the entity.
+ * <p/>
+ */
+public class CarRating
+{
+    private final long carId;
+
+    private final double rating;
+
+
+    public CarRating(long carId, double rating)
+    {
+        this.carId = carId;
+        this.rating = rating;
+    }
+
+
+    public long getCarId()
+    {
+        return carId;
+    }
+
+
+    public double getRating()
+    {
+        return rating;
+    }
+}
@@ -0,0 +1,51 @@
+package com.taxi.domainvalue;
+
+/**
+ * Sum and number of the ride ratings of a car which have not been written yet.
+ * <p/>
+ */
+public class CarRatingTally
+{
+    private final long carId;
+
+    private final double sum;
+
+    private final long count;
+
+
+    public CarRatingTally(long carId, double sum, long count)
+    {
+        this.carId = carId;
+        this.sum = sum;
+        this.count = count;
+    }
+
+
+    public long getCarId()
+    {
+        return carId;
+    }
+
+
+    public double getSum()
+    {
+        return sum;
+    }
+
+
+    public long getCount()
+    {
+        return count;
+    }
+
+
+    /**
+     * @param first
+     * @param second tally of the same car
+     * @return the ratings of both tallies
+     */
+    public static CarRatingTally merge(CarRatingTally first, CarRatingTally second)
+    {
+        return new CarRatingTally(first.getCarId(), first.getSum() + second.getSum(), first.getCount() + second.getCount());
+    }
+}
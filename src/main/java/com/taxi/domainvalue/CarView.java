@@ -0,0 +1,101 @@
+package com.taxi.domainvalue;
+
+/**
+ * The columns of a car and its manufacturer which are shown to clients, selected by a projection query without
+ * loading the entities.
+ * <p/>
+ */
+public class CarView
+{
+    private final long id;
+
+    private final String licensePlate;
+
+    private final Integer seatCount;
+
+    private final Boolean convertible;
+
+    private final Double rating;
+
+    private final EngineType engineType;
+
+    private final Long manufacturerId;
+
+    private final String manufacturerName;
+
+
+    public CarView(
+        long id, String licensePlate, Integer seatCount, Boolean convertible, Double rating, EngineType engineType,
+        Long manufacturerId, String manufacturerName)
+    {
+        this.id = id;
+        this.licensePlate = licensePlate;
+        this.seatCount = seatCount;
+        this.convertible = convertible;
+        this.rating = rating;
+        this.engineType = engineType;
+        this.manufacturerId = manufacturerId;
+        this.manufacturerName = manufacturerName;
+    }
+
+
+    public long getId()
+    {
+        return id;
+    }
+
+
+    public String getLicensePlate()
+    {
+        return licensePlate;
+    }
+
+
+    public Integer getSeatCount()
+    {
+        return seatCount;
+    }
+
+
+    public Boolean getConvertible()
+    {
+        return convertible;
+    }
+
+
+    public Double getRating()
+    {
+        return rating;
+    }
+
+
+    public EngineType getEngineType()
+    {
+        return engineType;
+    }
+
+
+    /**
+     * @return id of the manufacturer or null if the car has none
+     */
+    public Long getManufacturerId()
+    {
+        return manufacturerId;
+    }
+
+
+    public String getManufacturerName()
+    {
+        return manufacturerName;
+    }
+
+
+    /**
+     * @param rating
+     * @return a copy of this view with the given rating
+     */
+    public CarView withRating(Double rating)
+    {
+        return new CarView(id, licensePlate, seatCount, convertible, rating, engineType, manufacturerId, manufacturerName);
+    }
+}
@@ -0,0 +1,64 @@
+package com.taxi.domainvalue;
+
+/**
+ * A free driver matching a dispatch request, with the score it has been ranked by.
+ * <p/>
+ */
+public class DispatchCandidate
+{
+    private final long driverId;
+
+    private final CarAttributes car;
+
+    private final GeoCoordinate coordinate;
+
+    private final double distance;
+
+    private final double score;
+
+
+    public DispatchCandidate(long driverId, CarAttributes car, GeoCoordinate coordinate, double distance, double score)
+    {
+        this.driverId = driverId;
+        this.car = car;
+        this.coordinate = coordinate;
+        this.distance = distance;
+        this.score = score;
+    }
+
+
+    public long getDriverId()
+    {
+        return driverId;
+    }
+
+
+    public CarAttributes getCar()
+    {
+        return car;
+    }
+
+
+    public GeoCoordinate getCoordinate()
+    {
+        return coordinate;
+    }
+
+
+    /**
+     * @return distance to the pickup point in meters
+     */
+    public double getDistance()
+    {
+        return distance;
+    }
+
+
+    /**
+     * @return distance in meters reduced by the rating bonus, lower is better
+     */
+    public double getScore()
+    {
+        return score;
+    }
+}
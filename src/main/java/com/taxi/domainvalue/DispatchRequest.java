@@ -0,0 +1,71 @@
+package com.taxi.domainvalue;
+
+/**
+ * A pickup point together with the car attributes a passenger requires. Attributes which are null are not required.
+ * <p/>
+ */
+public class DispatchRequest
+{
+    private final GeoCoordinate pickup;
+
+    private final Integer minSeatCount;
+
+    private final Boolean convertible;
+
+    private final EngineType engineType;
+
+    private final Double minRating;
+
+
+    public DispatchRequest(GeoCoordinate pickup, Integer minSeatCount, Boolean convertible, EngineType engineType, Double minRating)
+    {
+        this.pickup = pickup;
+        this.minSeatCount = minSeatCount;
+        this.convertible = convertible;
+        this.engineType = engineType;
+        this.minRating = minRating;
+    }
+
+
+    public GeoCoordinate getPickup()
+    {
+        return pickup;
+    }
+
+
+    public Integer getMinSeatCount()
+    {
+        return minSeatCount;
+    }
+
+
+    public Boolean getConvertible()
+    {
+        return convertible;
+    }
+
+
+    public EngineType getEngineType()
+    {
+        return engineType;
+    }
+
+
+    public Double getMinRating()
+    {
+        return minRating;
+    }
+
+
+    /**
+     * @param car
+     * @return true if the car has all required attributes
+     */
+    public boolean matches(CarAttributes car)
+    {
+        return (minSeatCount == null || car.getSeatCount() >= minSeatCount)
+            && (convertible == null || car.isConvertible() == convertible)
+            && (engineType == null || car.getEngineType() == engineType)
+            && (minRating == null || car.getRating() >= minRating);
+    }
+}
@@ -0,0 +1,78 @@
+package com.taxi.domainvalue;
+
+/**
+ * The searchable attributes of a driver and its selected car, read without loading the entities.
+ * The car values are null if the driver has no car or the column is not set.
+ * <p/>
+ */
+public class DriverAttributes
+{
+    private final long driverId;
+
+    private final OnlineStatus onlineStatus;
+
+    private final Long carId;
+
+    private final Integer seatCount;
+
+    private final Boolean convertible;
+
+    private final EngineType engineType;
+
+    private final Double rating;
+
+
+    public DriverAttributes(
+        long driverId, OnlineStatus onlineStatus, Long carId, Integer seatCount, Boolean convertible, EngineType engineType, Double rating)
+    {
+        this.driverId = driverId;
+        this.onlineStatus = onlineStatus;
+        this.carId = carId;
+        this.seatCount = seatCount;
+        this.convertible = convertible;
+        this.engineType = engineType;
+        this.rating = rating;
+    }
+
+
+    public long getDriverId()
+    {
+        return driverId;
+    }
+
+
+    public OnlineStatus getOnlineStatus()
+    {
+        return onlineStatus;
+    }
+
+
+    public Long getCarId()
+    {
+        return carId;
+    }
+
+
+    public Integer getSeatCount()
+    {
+        return seatCount;
+    }
+
+
+    public Boolean getConvertible()
+    {
+        return convertible;
+    }
+
+
+    public EngineType getEngineType()
+    {
+        return engineType;
+    }
+
+
+    public Double getRating()
+    {
+        return rating;
+    }
+}
@@ -0,0 +1,34 @@
+package com.taxi.domainvalue;
+
+/**
+ * A number of online drivers drawn as one marker on a map, positioned at their centroid.
+ * <p/>
+ */
+public class DriverCluster
+{
+    private final GeoCoordinate coordinate;
+
+    private final int count;
+
+
+    public DriverCluster(GeoCoordinate coordinate, int count)
+    {
+        this.coordinate = coordinate;
+        this.count = count;
+    }
+
+
+    /**
+     * @return centroid of the drivers in the cluster
+     */
+    public GeoCoordinate getCoordinate()
+    {
+        return coordinate;
+    }
+
+
+    public int getCount()
+    {
+        return count;
+    }
+}
@@ -0,0 +1,63 @@
+package com.taxi.domainvalue;
+
+import java.util.Map;
+
+/**
+ * Number of drivers matching a search, in total and grouped by the value of each searchable attribute. Values no
+ * matching driver holds and drivers without the attribute, like drivers without a car, are not counted in a group.
+ * <p/>
+ */
+public class DriverFacets
+{
+    private final long total;
+
+    private final Map<OnlineStatus, Long> onlineStatus;
+
+    private final Map<EngineType, Long> engineType;
+
+    private final Map<Integer, Long> seatCount;
+
+    private final Map<Boolean, Long> convertible;
+
+
+    public DriverFacets(
+        long total, Map<OnlineStatus, Long> onlineStatus, Map<EngineType, Long> engineType, Map<Integer, Long> seatCount,
+        Map<Boolean, Long> convertible)
+    {
+        this.total = total;
+        this.onlineStatus = onlineStatus;
+        this.engineType = engineType;
+        this.seatCount = seatCount;
+        this.convertible = convertible;
+    }
+
+
+    public long getTotal()
+    {
+        return total;
+    }
+
+
+    public Map<OnlineStatus, Long> getOnlineStatus()
+    {
+        return onlineStatus;
+    }
+
+
+    public Map<EngineType, Long> getEngineType()
+    {
+        return engineType;
+    }
+
+
+    public Map<Integer, Long> getSeatCount()
+    {
+        return seatCount;
+    }
+
+
+    public Map<Boolean, Long> getConvertible()
+    {
+        return convertible;
+    }
+}
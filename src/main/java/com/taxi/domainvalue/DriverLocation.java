@@ -0,0 +1,60 @@
+package com.taxi.domainvalue;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+/**
+ * A position reported by a driver at a point in time.
+ * <p/>
+ */
+public class DriverLocation
+{
+    /**
+     * How far a reported timestamp may be ahead of the server clock. Stored locations are only replaced by newer ones,
+     * so a timestamp far in the future would freeze the position of the driver until then.
+     */
+    public static final Duration MAX_CLOCK_SKEW = Duration.ofSeconds(30);
+
+    private final long driverId;
+
+    private final GeoCoordinate coordinate;
+
+    private final ZonedDateTime timestamp;
+
+
+    public DriverLocation(long driverId, GeoCoordinate coordinate, ZonedDateTime timestamp)
+    {
+        this.driverId = driverId;
+        this.coordinate = coordinate;
+        this.timestamp = timestamp;
+    }
+
+
+    public long getDriverId()
+    {
+        return driverId;
+    }
+
+
+    public GeoCoordinate getCoordinate()
+    {
+        return coordinate;
+    }
+
+
+    public ZonedDateTime getTimestamp()
+    {
+        return timestamp;
+    }
+
+
+    /**
+     * @param first
+     * @param second
+     * @return the more recent of both locations, the second one if both are equally old
+     */
+    public static DriverLocation latest(DriverLocation first, DriverLocation second)
+    {
+        return second.getTimestamp().isBefore(first.getTimestamp()) ? first : second;
+    }
+}
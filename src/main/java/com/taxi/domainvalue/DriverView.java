@@ -0,0 +1,91 @@
+package com.taxi.domainvalue;
+
+/**
+ * The columns of a driver and its car which are shown to clients, selected by a projection query without loading
+ * the entities. The columns of the left joined car and manufacturer arrive flat, as JPQL constructor expressions can
+ * not be nested.
+ * <p/>
+ */
+public class DriverView
+{
+    private final long id;
+
+    private final String username;
+
+    private final String password;
+
+    private final GeoCoordinate coordinate;
+
+    private final CarView car;
+
+
+    public DriverView(long id, String username, String password, GeoCoordinate coordinate, CarView car)
+    {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.coordinate = coordinate;
+        this.car = car;
+    }
+
+
+    /**
+     * Projection constructor, all car columns are null if the driver has no car.
+     */
+    public DriverView(
+        long id, String username, String password, Double latitude, Double longitude,
+        Long carId, String licensePlate, Integer seatCount, Boolean convertible, Double rating, EngineType engineType,
+        Long manufacturerId, String manufacturerName)
+    {
+        this(
+            id, username, password,
+            latitude == null || longitude == null ? null : new GeoCoordinate(latitude, longitude),
+            carId == null ? null : new CarView(carId, licensePlate, seatCount, convertible, rating, engineType, manufacturerId, manufacturerName));
+    }
+
+
+    /**
+     * @param coordinate
+     * @return copy of this view at the given coordinate
+     */
+    public DriverView withCoordinate(GeoCoordinate coordinate)
+    {
+        return new DriverView(id, username, password, coordinate, car);
+    }
+
+
+    public long getId()
+    {
+        return id;
+    }
+
+
+    public String getUsername()
+    {
+        return username;
+    }
+
+
+    public String getPassword()
+    {
+        return password;
+    }
+
+
+    /**
+     * @return the last known coordinate or null if the driver never reported one
+     */
+    public GeoCoordinate getCoordinate()
+    {
+        return coordinate;
+    }
+
+
+    /**
+     * @return the selected car or null if the driver has none
+     */
+    public CarView getCar()
+    {
+        return car;
+    }
+}
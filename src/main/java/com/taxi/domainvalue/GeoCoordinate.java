@@ -2,7 +2,8 @@ package com.taxi.domainvalue;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.google.common.base.Preconditions;
+import com.taxi.exception.InvalidInputException;
+import com.taxi.util.GeoDistance;
 import javax.persistence.Column;
 import javax.persistence.Embeddable;
 import org.springframework.data.geo.Point;
@@ -15,13 +16,18 @@ public class GeoCoordinate
     private static final int MIN_LATITUDE = -90;
     private static final int MAX_LONGITUDE = 180;
     private static final int MIN_LONGITUDE = -180;
-    @Column(name = "coordinate")
-    private final Point point;
+
+    @Column(name = "latitude")
+    private final double latitude;
+
+    @Column(name = "longitude")
+    private final double longitude;
 
 
     protected GeoCoordinate()
     {
-        this.point = null;
+        this.latitude = 0;
+        this.longitude = 0;
     }
 
 
@@ -31,33 +37,44 @@ public class GeoCoordinate
      */
     public GeoCoordinate(final double latitude, final double longitude)
     {
-        Preconditions.checkArgument(latitude >= MIN_LATITUDE, "latitude is lower than min_latitude: " + MIN_LATITUDE);
-        Preconditions.checkArgument(latitude <= MAX_LATITUDE, "latitude is higher than max_latitude: " + MAX_LATITUDE);
-        Preconditions.checkArgument(longitude >= MIN_LONGITUDE, "longitude is lower than min_longitude: " + MIN_LONGITUDE);
-        Preconditions.checkArgument(longitude <= MAX_LONGITUDE, "longitude is higher than max_longitude: " + MAX_LONGITUDE);
+        InvalidInputException.check(latitude >= MIN_LATITUDE, "latitude is lower than min_latitude: " + MIN_LATITUDE);
+        InvalidInputException.check(latitude <= MAX_LATITUDE, "latitude is higher than max_latitude: " + MAX_LATITUDE);
+        InvalidInputException.check(longitude >= MIN_LONGITUDE, "longitude is lower than min_longitude: " + MIN_LONGITUDE);
+        InvalidInputException.check(longitude <= MAX_LONGITUDE, "longitude is higher than max_longitude: " + MAX_LONGITUDE);
 
-        this.point = new Point(longitude, latitude);
+        this.latitude = latitude;
+        this.longitude = longitude;
     }
 
 
     @JsonProperty
     public double getLatitude()
     {
-        return this.point.getY();
+        return this.latitude;
     }
 
 
     @JsonIgnore
     public Point getPoint()
     {
-        return this.point;
+        return new Point(this.longitude, this.latitude);
     }
 
 
     @JsonProperty
     public double getLongitude()
     {
-        return this.point.getX();
+        return this.longitude;
+    }
+
+
+    /**
+     * @param other
+     * @return haversine distance in meters
+     */
+    public double distanceTo(GeoCoordinate other)
+    {
+        return GeoDistance.haversine(this.latitude, this.longitude, other.latitude, other.longitude);
     }
 
 
@@ -66,7 +83,8 @@ public class GeoCoordinate
     {
         final int prime = 31;
         int result = 1;
-        result = prime * result + ((this.point == null) ? 0 : this.point.hashCode());
+        result = prime * result + Double.hashCode(this.latitude);
+        result = prime * result + Double.hashCode(this.longitude);
         return result;
     }
 
@@ -87,21 +105,14 @@ public class GeoCoordinate
             return false;
         }
         final GeoCoordinate other = (GeoCoordinate) obj;
-        if (this.point == null)
-        {
-            return other.point == null;
-        }
-        else
-        {
-            return this.point.equals(other.point);
-        }
+        return Double.compare(this.latitude, other.latitude) == 0 && Double.compare(this.longitude, other.longitude) == 0;
     }
 
 
     @Override
     public String toString()
     {
-        return this.point.toString();
+        return "GeoCoordinate [latitude=" + this.latitude + ", longitude=" + this.longitude + "]";
     }
 
 }
@@ -0,0 +1,85 @@
+package com.taxi.domainvalue;
+
+import com.taxi.exception.InvalidInputException;
+import java.util.List;
+
+/**
+ * A simple polygon on latitude/longitude, used for geofences. Edges are straight lines in degrees,
+ * which is accurate enough for city-sized zones. Polygons crossing the antimeridian are not supported.
+ * <p/>
+ */
+public class GeoPolygon
+{
+    private final double[] latitudes;
+
+    private final double[] longitudes;
+
+    private final double minLatitude;
+
+    private final double maxLatitude;
+
+    private final double minLongitude;
+
+    private final double maxLongitude;
+
+
+    /**
+     * @param vertices at least three vertices, the polygon is closed implicitly
+     */
+    public GeoPolygon(List<GeoCoordinate> vertices)
+    {
+        InvalidInputException.check(vertices != null && vertices.size() >= 3, "a polygon needs at least 3 vertices");
+        int size = vertices.size();
+        latitudes = new double[size];
+        longitudes = new double[size];
+        double minLat = Double.MAX_VALUE;
+        double maxLat = -Double.MAX_VALUE;
+        double minLon = Double.MAX_VALUE;
+        double maxLon = -Double.MAX_VALUE;
+        for (int i = 0; i < size; i++)
+        {
+            latitudes[i] = vertices.get(i).getLatitude();
+            longitudes[i] = vertices.get(i).getLongitude();
+            minLat = Math.min(minLat, latitudes[i]);
+            maxLat = Math.max(maxLat, latitudes[i]);
+            minLon = Math.min(minLon, longitudes[i]);
+            maxLon = Math.max(maxLon, longitudes[i]);
+        }
+        minLatitude = minLat;
+        maxLatitude = maxLat;
+        minLongitude = minLon;
+        maxLongitude = maxLon;
+    }
+
+
+    /**
+     * Point-in-polygon test by ray casting, after a bounding box check.
+     *
+     * @param latitude
+     * @param longitude
+     * @return true if the point is inside the polygon
+     */
+    public boolean contains(double latitude, double longitude)
+    {
+        if (latitude < minLatitude || latitude > maxLatitude || longitude < minLongitude || longitude > maxLongitude)
+        {
+            return false;
+        }
+        boolean inside = false;
+        for (int i = 0, j = latitudes.length - 1; i < latitudes.length; j = i++)
+        {
+            if ((latitudes[i] > latitude) != (latitudes[j] > latitude)
+                && longitude < (longitudes[j] - longitudes[i]) * (latitude - latitudes[i]) / (latitudes[j] - latitudes[i]) + longitudes[i])
+            {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+
+    public boolean contains(GeoCoordinate coordinate)
+    {
+        return contains(coordinate.getLatitude(), coordinate.getLongitude());
+    }
+}
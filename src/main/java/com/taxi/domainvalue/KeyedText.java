@@ -0,0 +1,31 @@
+package com.taxi.domainvalue;
+
+/**
+ * A text column of an entity together with the entity id, read without loading the entity.
+ * <p/>
+ */
+public class KeyedText
+{
+    private final long id;
+
+    private final String text;
+
+
+    public KeyedText(long id, String text)
+    {
+        this.id = id;
+        this.text = text;
+    }
+
+
+    public long getId()
+    {
+        return id;
+    }
+
+
+    public String getText()
+    {
+        return text;
+    }
+}
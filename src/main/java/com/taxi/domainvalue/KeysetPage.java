@@ -0,0 +1,55 @@
+package com.taxi.domainvalue;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * One page of a listing ordered by id. The next page starts after the cursor, so pages stay stable while entities are
+ * added or removed and the database can seek to the cursor instead of skipping an offset.
+ * <p/>
+ */
+public class KeysetPage<T>
+{
+    private final List<T> content;
+
+    private final Long nextCursor;
+
+
+    public KeysetPage(List<T> content, Long nextCursor)
+    {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+
+    /**
+     * @param fetched up to limit + 1 entities ordered by key, the one beyond the limit only tells that there is a next page
+     * @param limit page size
+     * @param key of an entity
+     * @return the first limit entities with the key of the last one as cursor if more entities were fetched
+     */
+    public static <T> KeysetPage<T> of(List<T> fetched, int limit, ToLongFunction<T> key)
+    {
+        if (fetched.size() <= limit)
+        {
+            return new KeysetPage<>(fetched, null);
+        }
+        List<T> content = fetched.subList(0, limit);
+        return new KeysetPage<>(content, key.applyAsLong(content.get(limit - 1)));
+    }
+
+
+    public List<T> getContent()
+    {
+        return content;
+    }
+
+
+    /**
+     * @return cursor of the next page or null if this is the last page
+     */
+    public Long getNextCursor()
+    {
+        return nextCursor;
+    }
+}
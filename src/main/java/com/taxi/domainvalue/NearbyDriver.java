@@ -0,0 +1,43 @@
+package com.taxi.domainvalue;
+
+/**
+ * A driver found by a proximity query together with its distance to the query point.
+ * <p/>
+ */
+public class NearbyDriver
+{
+    private final long driverId;
+
+    private final GeoCoordinate coordinate;
+
+    private final double distance;
+
+
+    public NearbyDriver(long driverId, GeoCoordinate coordinate, double distance)
+    {
+        this.driverId = driverId;
+        this.coordinate = coordinate;
+        this.distance = distance;
+    }
+
+
+    public long getDriverId()
+    {
+        return driverId;
+    }
+
+
+    public GeoCoordinate getCoordinate()
+    {
+        return coordinate;
+    }
+
+
+    /**
+     * @return distance to the query point in meters
+     */
+    public double getDistance()
+    {
+        return distance;
+    }
+}
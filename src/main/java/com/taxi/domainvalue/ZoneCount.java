@@ -0,0 +1,40 @@
+package com.taxi.domainvalue;
+
+/**
+ * The number of online drivers inside a zone.
+ * <p/>
+ */
+public class ZoneCount
+{
+    private final long zoneId;
+
+    private final String name;
+
+    private final int onlineDrivers;
+
+
+    public ZoneCount(long zoneId, String name, int onlineDrivers)
+    {
+        this.zoneId = zoneId;
+        this.name = name;
+        this.onlineDrivers = onlineDrivers;
+    }
+
+
+    public long getZoneId()
+    {
+        return zoneId;
+    }
+
+
+    public String getName()
+    {
+        return name;
+    }
+
+
+    public int getOnlineDrivers()
+    {
+        return onlineDrivers;
+    }
+}
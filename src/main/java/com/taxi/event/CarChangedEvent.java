@@ -0,0 +1,36 @@
+package com.taxi.event;
+
+import com.taxi.domainvalue.CarAttributes;
+
+/**
+ * Published after the attributes of a car have changed or the car has been (soft) deleted.
+ * <p/>
+ */
+public class CarChangedEvent
+{
+    private final long carId;
+
+    private final CarAttributes car;
+
+
+    public CarChangedEvent(long carId, CarAttributes car)
+    {
+        this.carId = carId;
+        this.car = car;
+    }
+
+
+    public long getCarId()
+    {
+        return carId;
+    }
+
+
+    /**
+     * @return the current attributes or null if the car has been deleted
+     */
+    public CarAttributes getCar()
+    {
+        return car;
+    }
+}
@@ -0,0 +1,31 @@
+package com.taxi.event;
+
+/**
+ * Published after a car has been created.
+ * <p/>
+ */
+public class CarCreatedEvent
+{
+    private final long carId;
+
+    private final String licensePlate;
+
+
+    public CarCreatedEvent(long carId, String licensePlate)
+    {
+        this.carId = carId;
+        this.licensePlate = licensePlate;
+    }
+
+
+    public long getCarId()
+    {
+        return carId;
+    }
+
+
+    public String getLicensePlate()
+    {
+        return licensePlate;
+    }
+}
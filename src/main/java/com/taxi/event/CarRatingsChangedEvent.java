@@ -0,0 +1,28 @@
+package com.taxi.event;
+
+import java.util.Map;
+
+/**
+ * Published after a batch of ride ratings has been folded into the average rating of the rated cars, carrying the new
+ * averages so listeners do not read the cars again.
+ * <p/>
+ */
+public class CarRatingsChangedEvent
+{
+    private final Map<Long, Double> ratings;
+
+
+    public CarRatingsChangedEvent(Map<Long, Double> ratings)
+    {
+        this.ratings = Map.copyOf(ratings);
+    }
+
+
+    /**
+     * @return the new average rating by car id, deleted cars are left out
+     */
+    public Map<Long, Double> getRatings()
+    {
+        return ratings;
+    }
+}
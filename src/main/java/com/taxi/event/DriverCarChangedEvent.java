@@ -0,0 +1,36 @@
+package com.taxi.event;
+
+import com.taxi.domainvalue.CarAttributes;
+
+/**
+ * Published after a driver has selected or deselected a car.
+ * <p/>
+ */
+public class DriverCarChangedEvent
+{
+    private final long driverId;
+
+    private final CarAttributes car;
+
+
+    public DriverCarChangedEvent(long driverId, CarAttributes car)
+    {
+        this.driverId = driverId;
+        this.car = car;
+    }
+
+
+    public long getDriverId()
+    {
+        return driverId;
+    }
+
+
+    /**
+     * @return the selected car or null if the driver has no car anymore
+     */
+    public CarAttributes getCar()
+    {
+        return car;
+    }
+}
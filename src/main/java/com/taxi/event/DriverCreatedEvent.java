@@ -0,0 +1,31 @@
+package com.taxi.event;
+
+/**
+ * Published after a driver has been created.
+ * <p/>
+ */
+public class DriverCreatedEvent
+{
+    private final long driverId;
+
+    private final String username;
+
+
+    public DriverCreatedEvent(long driverId, String username)
+    {
+        this.driverId = driverId;
+        this.username = username;
+    }
+
+
+    public long getDriverId()
+    {
+        return driverId;
+    }
+
+
+    public String getUsername()
+    {
+        return username;
+    }
+}
@@ -0,0 +1,22 @@
+package com.taxi.event;
+
+/**
+ * Published after a driver has been (soft) deleted.
+ * <p/>
+ */
+public class DriverDeletedEvent
+{
+    private final long driverId;
+
+
+    public DriverDeletedEvent(long driverId)
+    {
+        this.driverId = driverId;
+    }
+
+
+    public long getDriverId()
+    {
+        return driverId;
+    }
+}
@@ -0,0 +1,43 @@
+package com.taxi.event;
+
+import com.taxi.domainvalue.GeoCoordinate;
+import java.time.ZonedDateTime;
+
+/**
+ * Published after the location of a driver has been accepted.
+ * <p/>
+ */
+public class DriverLocationUpdatedEvent
+{
+    private final long driverId;
+
+    private final GeoCoordinate coordinate;
+
+    private final ZonedDateTime timestamp;
+
+
+    public DriverLocationUpdatedEvent(long driverId, GeoCoordinate coordinate, ZonedDateTime timestamp)
+    {
+        this.driverId = driverId;
+        this.coordinate = coordinate;
+        this.timestamp = timestamp;
+    }
+
+
+    public long getDriverId()
+    {
+        return driverId;
+    }
+
+
+    public GeoCoordinate getCoordinate()
+    {
+        return coordinate;
+    }
+
+
+    public ZonedDateTime getTimestamp()
+    {
+        return timestamp;
+    }
+}
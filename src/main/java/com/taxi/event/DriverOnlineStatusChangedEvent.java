@@ -0,0 +1,59 @@
+package com.taxi.event;
+
+import com.taxi.domainvalue.GeoCoordinate;
+import com.taxi.domainvalue.OnlineStatus;
+import java.time.ZonedDateTime;
+
+/**
+ * Published after a driver went online or offline.
+ * <p/>
+ */
+public class DriverOnlineStatusChangedEvent
+{
+    private final long driverId;
+
+    private final OnlineStatus onlineStatus;
+
+    private final GeoCoordinate coordinate;
+
+    private final ZonedDateTime dateCoordinateUpdated;
+
+
+    /**
+     * @param driverId
+     * @param onlineStatus the new status
+     * @param coordinate the last known position of the driver, may be null
+     * @param dateCoordinateUpdated when the position has been reported, may be null
+     */
+    public DriverOnlineStatusChangedEvent(long driverId, OnlineStatus onlineStatus, GeoCoordinate coordinate, ZonedDateTime dateCoordinateUpdated)
+    {
+        this.driverId = driverId;
+        this.onlineStatus = onlineStatus;
+        this.coordinate = coordinate;
+        this.dateCoordinateUpdated = dateCoordinateUpdated;
+    }
+
+
+    public long getDriverId()
+    {
+        return driverId;
+    }
+
+
+    public OnlineStatus getOnlineStatus()
+    {
+        return onlineStatus;
+    }
+
+
+    public GeoCoordinate getCoordinate()
+    {
+        return coordinate;
+    }
+
+
+    public ZonedDateTime getDateCoordinateUpdated()
+    {
+        return dateCoordinateUpdated;
+    }
+}
@@ -0,0 +1,82 @@
+package com.taxi.event;
+
+import com.taxi.domainvalue.GeoCoordinate;
+
+/**
+ * Published by the driver location index whenever the indexed position of an online driver changes.
+ * A driver entering the index has no previous position, a driver leaving it (offline, deleted, stale)
+ * has no current position. Events may be delivered out of order, the later change of a driver has the higher
+ * sequence, so listeners drop events with a lower sequence than the last one they applied for the driver.
+ * <p/>
+ */
+public class DriverPositionChangedEvent
+{
+    private final long driverId;
+
+    private final GeoCoordinate previous;
+
+    private final GeoCoordinate current;
+
+    private final long timestamp;
+
+    private final long sequence;
+
+
+    /**
+     * @param driverId
+     * @param previous
+     * @param current
+     * @param timestamp epoch millis when the current position has been reported, 0 without current position
+     * @param sequence increases with every change of the index
+     */
+    public DriverPositionChangedEvent(long driverId, GeoCoordinate previous, GeoCoordinate current, long timestamp, long sequence)
+    {
+        this.driverId = driverId;
+        this.previous = previous;
+        this.current = current;
+        this.timestamp = timestamp;
+        this.sequence = sequence;
+    }
+
+
+    public long getDriverId()
+    {
+        return driverId;
+    }
+
+
+    /**
+     * @return the position before the change or null if the driver has not been indexed
+     */
+    public GeoCoordinate getPrevious()
+    {
+        return previous;
+    }
+
+
+    /**
+     * @return the position after the change or null if the driver has been removed from the index
+     */
+    public GeoCoordinate getCurrent()
+    {
+        return current;
+    }
+
+
+    /**
+     * @return epoch millis when the current position has been reported, 0 without current position
+     */
+    public long getTimestamp()
+    {
+        return timestamp;
+    }
+
+
+    /**
+     * @return the number of the change, higher than the numbers of all earlier changes
+     */
+    public long getSequence()
+    {
+        return sequence;
+    }
+}
@@ -0,0 +1,35 @@
+package com.taxi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Client input which is rejected outside of bean validation, e.g. out of range coordinates. Unchecked, as it is
+ * raised while mapping and constructing values, other {@link IllegalArgumentException}s stay server errors.
+ * <p/>
+ */
+@ResponseStatus(value = HttpStatus.BAD_REQUEST, reason = "Invalid input ...")
+public class InvalidInputException extends IllegalArgumentException
+{
+    static final long serialVersionUID = -3387516993224229950L;
+
+
+    public InvalidInputException(String message)
+    {
+        super(message);
+    }
+
+
+    /**
+     * @param valid
+     * @param message
+     * @throws InvalidInputException with the message if the input is not valid
+     */
+    public static void check(boolean valid, String message)
+    {
+        if (!valid)
+        {
+            throw new InvalidInputException(message);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.taxi.security;
+
+import com.taxi.dataaccessobject.DriverRepository;
+import com.taxi.domainobject.DriverDO;
+import java.util.List;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Authenticates drivers with their own username and password, so a driver can only act as itself.
+ * <p/>
+ */
+@Component
+public class DriverUserDetailsService implements UserDetailsService
+{
+    public static final String DRIVER_ROLE = "DRIVER";
+
+    private final DriverRepository driverRepository;
+
+
+    public DriverUserDetailsService(final DriverRepository driverRepository)
+    {
+        this.driverRepository = driverRepository;
+    }
+
+
+    @Override
+    public UserDetails loadUserByUsername(String username)
+    {
+        DriverDO driverDO = driverRepository.findByUsernameAndDeletedFalse(username)
+            .orElseThrow(() -> new UsernameNotFoundException("Could not find driver with username: " + username));
+        return new DriverUser(driverDO.getId(), driverDO.getUsername(), driverDO.getPassword());
+    }
+
+
+    /**
+     * An authenticated driver, carrying its id.
+     */
+    public static final class DriverUser extends User
+    {
+        private final long driverId;
+
+
+        DriverUser(long driverId, String username, String password)
+        {
+            super(username, "{noop}" + password, List.of(new SimpleGrantedAuthority("ROLE_" + DRIVER_ROLE)));
+            this.driverId = driverId;
+        }
+
+
+        public long getDriverId()
+        {
+            return driverId;
+        }
+    }
+}
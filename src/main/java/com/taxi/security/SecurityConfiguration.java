@@ -1,14 +1,18 @@
 package com.taxi.security;
 
+import com.taxi.controller.websocket.DriverLocationWebSocketConfiguration;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.annotation.ObjectPostProcessor;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.web.header.HeaderWriterFilter;
 
 /**
- * Configuration for Basic security.
+ * Configuration for Basic security. The configured user may use the whole API, drivers authenticated by
+ * {@link DriverUserDetailsService} only the location stream.
  */
 @Configuration
 @EnableWebSecurity
@@ -23,6 +27,14 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter
     @Value("${user.role}")
     private String role;
 
+    private final DriverUserDetailsService driverUserDetailsService;
+
+
+    public SecurityConfiguration(final DriverUserDetailsService driverUserDetailsService)
+    {
+        this.driverUserDetailsService = driverUserDetailsService;
+    }
+
 
     @Override
     protected void configure(AuthenticationManagerBuilder auth) throws Exception
@@ -31,6 +43,7 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter
             .withUser(username)
             .password("{noop}" + password)
             .roles(role);
+        auth.userDetailsService(driverUserDetailsService);
     }
 
 
@@ -39,10 +52,26 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter
     {
         http.csrf().disable()
             .authorizeRequests()
-            .anyRequest().authenticated()
+            .antMatchers(DriverLocationWebSocketConfiguration.ENDPOINT).hasAnyRole(role, DriverUserDetailsService.DRIVER_ROLE)
+            .anyRequest().hasRole(role)
             .and()
             .formLogin()
             .and()
-            .httpBasic();
+            .httpBasic()
+            .and()
+            .headers()
+            .addObjectPostProcessor(new ObjectPostProcessor<HeaderWriterFilter>()
+            {
+                /**
+                 * Write the security headers before the request is handled, not when the response is done. Streamed
+                 * responses are written on another thread which would otherwise race with the filter for the headers.
+                 */
+                @Override
+                public <O extends HeaderWriterFilter> O postProcess(O filter)
+                {
+                    filter.setShouldWriteHeadersEagerly(true);
+                    return filter;
+                }
+            });
     }
 }
@@ -0,0 +1,237 @@
+package com.taxi.service.car;
+
+import com.taxi.dataaccessobject.CarRepository;
+import com.taxi.dataaccessobject.DriverRepository;
+import com.taxi.domainvalue.CarView;
+import com.taxi.domainvalue.DriverAttributes;
+import com.taxi.domainvalue.EngineType;
+import com.taxi.domainvalue.OnlineStatus;
+import com.taxi.event.CarChangedEvent;
+import com.taxi.event.CarCreatedEvent;
+import com.taxi.event.CarRatingsChangedEvent;
+import com.taxi.event.DriverCarChangedEvent;
+import com.taxi.event.DriverOnlineStatusChangedEvent;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * In-memory set of the cars which are free right now: not deleted and not selected by an online driver, like
+ * selecting a car requires. A car selected by an offline driver counts as free, as selecting it moves it to the new
+ * driver. The set is read without locking, changes are applied one at a time after the change of the car, its selection
+ * or the online status of its driver has been committed. Rows are re-read while holding the monitor, so of two
+ * refreshes of the same car or driver the later one always reads and applies the later state.
+ * <p/>
+ */
+@Component
+public class AvailableCarIndex
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(AvailableCarIndex.class);
+
+    private final CarRepository carRepository;
+
+    private final DriverRepository driverRepository;
+
+    private final ConcurrentMap<Long, CarView> available = new ConcurrentHashMap<>();
+
+    private final Map<Long, CarView> cars = new HashMap<>();
+
+    private final Map<Long, Long> carByDriver = new HashMap<>();
+
+    private final Map<Long, OnlineStatus> statusByDriver = new HashMap<>();
+
+    private final Map<Long, Integer> onlineDriversByCar = new HashMap<>();
+
+
+    public AvailableCarIndex(final CarRepository carRepository, final DriverRepository driverRepository)
+    {
+        this.carRepository = carRepository;
+        this.driverRepository = driverRepository;
+    }
+
+
+    /**
+     * Reads the cars which are not deleted and the car selected by each driver, once on startup. Whatever listeners
+     * applied before is replaced, as the read already contains their changes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load()
+    {
+        cars.clear();
+        carByDriver.clear();
+        statusByDriver.clear();
+        onlineDriversByCar.clear();
+        for (CarView car : carRepository.findViewsByDeletedFalse())
+        {
+            cars.put(car.getId(), car);
+        }
+        for (DriverAttributes driver : driverRepository.findAllAttributes())
+        {
+            if (driver.getCarId() != null)
+            {
+                select(driver.getDriverId(), driver.getCarId(), driver.getOnlineStatus());
+            }
+        }
+        available.keySet().retainAll(cars.keySet());
+        cars.keySet().forEach(this::update);
+        LOG.info("Available car index loaded with {} of {} cars available", available.size(), cars.size());
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarCreated(CarCreatedEvent event)
+    {
+        refreshCar(event.getCarId());
+    }
+
+
+    /**
+     * A deleted car is published without attributes, other changes are read again as the rating may have changed.
+     *
+     * @param event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarChanged(CarChangedEvent event)
+    {
+        refreshCar(event.getCarId());
+    }
+
+
+    /**
+     * The new averages of a rating flush are applied to the known cars without reading them again.
+     *
+     * @param event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onCarRatingsChanged(CarRatingsChangedEvent event)
+    {
+        event.getRatings().forEach((carId, rating) -> {
+            if (cars.computeIfPresent(carId, (id, car) -> car.withRating(rating)) != null)
+            {
+                update(carId);
+            }
+        });
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverCarChanged(DriverCarChangedEvent event)
+    {
+        refreshDriver(event.getDriverId());
+    }
+
+
+    /**
+     * The driver is read again instead of trusting the status of the event, so status changes applied out of order
+     * still end with the committed status.
+     *
+     * @param event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOnlineStatusChanged(DriverOnlineStatusChangedEvent event)
+    {
+        refreshDriver(event.getDriverId());
+    }
+
+
+    /**
+     * @param engineType only cars with this engine type, null for any
+     * @param minSeats only cars with at least this many seats, null for any
+     * @param convertible only convertible or only not convertible cars, null for any
+     * @return the free cars matching the filters ordered by id
+     */
+    public List<CarView> find(EngineType engineType, Integer minSeats, Boolean convertible)
+    {
+        return available.values().stream()
+            .filter(car -> engineType == null || car.getEngineType() == engineType)
+            .filter(car -> minSeats == null || car.getSeatCount() != null && car.getSeatCount() >= minSeats)
+            .filter(car -> convertible == null || convertible.equals(car.getConvertible()))
+            .sorted(Comparator.comparingLong(CarView::getId))
+            .collect(Collectors.toList());
+    }
+
+
+    public boolean isAvailable(long carId)
+    {
+        return available.containsKey(carId);
+    }
+
+
+    private synchronized void refreshCar(long carId)
+    {
+        CarView car = carRepository.findViewByIdAndDeletedFalse(carId).orElse(null);
+        if (car == null)
+        {
+            cars.remove(carId);
+        }
+        else
+        {
+            cars.put(carId, car);
+        }
+        update(carId);
+    }
+
+
+    private synchronized void refreshDriver(long driverId)
+    {
+        DriverAttributes driver = driverRepository.findAttributesById(driverId).orElse(null);
+        deselect(driverId);
+        if (driver != null && driver.getCarId() != null)
+        {
+            select(driver.getDriverId(), driver.getCarId(), driver.getOnlineStatus());
+        }
+    }
+
+
+    private void select(long driverId, long carId, OnlineStatus onlineStatus)
+    {
+        carByDriver.put(driverId, carId);
+        statusByDriver.put(driverId, onlineStatus);
+        if (onlineStatus == OnlineStatus.ONLINE)
+        {
+            onlineDriversByCar.merge(carId, 1, Integer::sum);
+        }
+        update(carId);
+    }
+
+
+    private void deselect(long driverId)
+    {
+        Long carId = carByDriver.remove(driverId);
+        OnlineStatus onlineStatus = statusByDriver.remove(driverId);
+        if (carId == null)
+        {
+            return;
+        }
+        if (onlineStatus == OnlineStatus.ONLINE)
+        {
+            onlineDriversByCar.computeIfPresent(carId, (id, count) -> count == 1 ? null : count - 1);
+        }
+        update(carId);
+    }
+
+
+    private void update(long carId)
+    {
+        CarView car = cars.get(carId);
+        if (car != null && !onlineDriversByCar.containsKey(carId))
+        {
+            available.put(carId, car);
+        }
+        else
+        {
+            available.remove(carId);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.taxi.service.car;
+
+import com.google.common.base.Preconditions;
+import com.taxi.dataaccessobject.CarRepository;
+import com.taxi.domainvalue.CarRating;
+import com.taxi.domainvalue.CarRatingTally;
+import com.taxi.event.CarRatingsChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Collects ride ratings in memory and folds them into the average rating of each car periodically, as one JDBC batch
+ * with one row update per rated car instead of one contended row update per rating. Like the cells of a LongAdder the
+ * sums and counts are spread over stripes picked by the recording thread, so threads rating the same car rarely wait
+ * for each other; a flush drains every stripe under its lock, so no rating is lost or counted twice. The new averages
+ * are read back with one select and published as one event. A batch which cannot be written or committed, whether the
+ * database or the transaction fails, is kept apart from the ratings recorded since and retried first with the next
+ * flush; once it has failed {@code maxAttempts} times it is dropped and counted, the newer ratings stay pending.
+ * <p/>
+ */
+@Component
+public class CarRatingAggregator
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(CarRatingAggregator.class);
+
+    private final CarRepository carRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Stripe[] stripes;
+
+    private final int maxAttempts;
+
+    private final Counter droppedCounter;
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private volatile List<CarRatingTally> failedBatch;
+
+    private int failedAttempts;
+
+
+    public CarRatingAggregator(
+        final CarRepository carRepository, PlatformTransactionManager transactionManager, ApplicationEventPublisher eventPublisher,
+        MeterRegistry meterRegistry,
+        @Value("${car.rating.stripes:16}") int stripes,
+        @Value("${car.rating.max-attempts:5}") int maxAttempts)
+    {
+        Preconditions.checkArgument(stripes > 0 && Integer.bitCount(stripes) == 1, "stripes must be a power of two: " + stripes);
+        Preconditions.checkArgument(maxAttempts > 0, "max attempts must be positive: " + maxAttempts);
+        this.carRepository = carRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.maxAttempts = maxAttempts;
+        this.droppedCounter = Counter.builder("car.rating.dropped")
+            .description("Ride ratings dropped after their batch failed max-attempts times").register(meterRegistry);
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++)
+        {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+
+    /**
+     * Add a ride rating of a car to the ratings written with the next flush.
+     *
+     * @param carId
+     * @param rating
+     */
+    public void record(long carId, double rating)
+    {
+        stripes[(int) Thread.currentThread().getId() & (stripes.length - 1)].add(new CarRatingTally(carId, rating, 1));
+    }
+
+
+    /**
+     * @param carId
+     * @return the ratings of the car which have not been written yet, null if there are none
+     */
+    public CarRatingTally pendingRatings(long carId)
+    {
+        CarRatingTally pending = null;
+        List<CarRatingTally> failed = failedBatch;
+        if (failed != null)
+        {
+            for (CarRatingTally tally : failed)
+            {
+                if (tally.getCarId() == carId)
+                {
+                    pending = tally;
+                }
+            }
+        }
+        for (Stripe stripe : stripes)
+        {
+            CarRatingTally tally = stripe.get(carId);
+            if (tally != null)
+            {
+                pending = pending == null ? tally : CarRatingTally.merge(pending, tally);
+            }
+        }
+        return pending;
+    }
+
+
+    /**
+     * Write the ratings of all stripes, unless another flush is already running. A failed batch is retried on its own
+     * with the next flush up to {@code maxAttempts} times before newer ratings are written. The new averages are
+     * published after the batch has been committed.
+     */
+    @Scheduled(fixedDelayString = "${car.rating.flush-interval:1000}")
+    public void flush()
+    {
+        if (!flushLock.tryLock())
+        {
+            return;
+        }
+        try
+        {
+            writePending();
+        }
+        finally
+        {
+            flushLock.unlock();
+        }
+    }
+
+
+    /**
+     * Write the remaining ratings on shutdown, waiting for a running flush.
+     */
+    @PreDestroy
+    public void close()
+    {
+        flushLock.lock();
+        try
+        {
+            writePending();
+        }
+        finally
+        {
+            flushLock.unlock();
+        }
+    }
+
+
+    private void writePending()
+    {
+        List<CarRatingTally> failed = failedBatch;
+        if (failed != null)
+        {
+            if (!write(failed))
+            {
+                retryOrDrop(failed);
+                return;
+            }
+            failedBatch = null;
+            failedAttempts = 0;
+        }
+
+        Map<Long, CarRatingTally> drained = new HashMap<>();
+        for (Stripe stripe : stripes)
+        {
+            stripe.drainTo(drained);
+        }
+        if (drained.isEmpty())
+        {
+            return;
+        }
+        List<CarRatingTally> batch = List.copyOf(drained.values());
+        if (!write(batch))
+        {
+            failedBatch = batch;
+            retryOrDrop(batch);
+        }
+    }
+
+
+    /**
+     * @param batch
+     * @return true if the batch has been committed
+     */
+    private boolean write(List<CarRatingTally> batch)
+    {
+        try
+        {
+            transactionTemplate.executeWithoutResult(status -> {
+                carRepository.batchAddRatings(batch);
+                Map<Long, Double> ratings = new HashMap<>();
+                for (CarRating rating : carRepository.findRatingsByIdIn(batch.stream().map(CarRatingTally::getCarId).collect(Collectors.toSet())))
+                {
+                    ratings.put(rating.getCarId(), rating.getRating());
+                }
+                if (!ratings.isEmpty())
+                {
+                    eventPublisher.publishEvent(new CarRatingsChangedEvent(ratings));
+                }
+            });
+        }
+        catch (RuntimeException e)
+        {
+            LOG.warn("Could not flush the ratings of {} cars", batch.size(), e);
+            return false;
+        }
+        LOG.debug("Flushed the ratings of {} cars", batch.size());
+        return true;
+    }
+
+
+    private void retryOrDrop(List<CarRatingTally> batch)
+    {
+        if (++failedAttempts < maxAttempts)
+        {
+            return;
+        }
+        LOG.error("Dropping the ratings of {} cars after {} failed flushes", batch.size(), failedAttempts);
+        droppedCounter.increment(batch.stream().mapToLong(CarRatingTally::getCount).sum());
+        failedBatch = null;
+        failedAttempts = 0;
+    }
+
+
+    private static final class Stripe
+    {
+        private Map<Long, CarRatingTally> tallies = new HashMap<>();
+
+
+        synchronized void add(CarRatingTally tally)
+        {
+            tallies.merge(tally.getCarId(), tally, CarRatingTally::merge);
+        }
+
+
+        synchronized CarRatingTally get(long carId)
+        {
+            return tallies.get(carId);
+        }
+
+
+        void drainTo(Map<Long, CarRatingTally> drained)
+        {
+            Map<Long, CarRatingTally> taken;
+            synchronized (this)
+            {
+                if (tallies.isEmpty())
+                {
+                    return;
+                }
+                taken = tallies;
+                tallies = new HashMap<>();
+            }
+            taken.values().forEach(tally -> drained.merge(tally.getCarId(), tally, CarRatingTally::merge));
+        }
+    }
+}
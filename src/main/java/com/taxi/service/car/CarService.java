@@ -1,22 +1,33 @@
 package com.taxi.service.car;
 
 import com.taxi.domainobject.CarDO;
+import com.taxi.domainvalue.CarView;
 import com.taxi.domainvalue.EngineType;
+import com.taxi.domainvalue.KeysetPage;
 import com.taxi.exception.ConstraintsViolationException;
 import com.taxi.exception.EntityNotFoundException;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface CarService
 {
     CarDO find(Long carId) throws EntityNotFoundException;
 
+    CarView findView(long carId) throws EntityNotFoundException;
+
     CarDO create(CarDO carDO) throws ConstraintsViolationException;
 
     CarDO delete(Long carId) throws EntityNotFoundException;
 
     CarDO updateRating(Long carId, double rating) throws EntityNotFoundException;
 
+    void addRating(long carId, double rating) throws EntityNotFoundException, ConstraintsViolationException;
+
     CarDO findCarChecked(Long carId) throws EntityNotFoundException;
 
-    List<CarDO> find(EngineType engineType);
+    KeysetPage<CarView> find(EngineType engineType, long cursor, int limit) throws ConstraintsViolationException;
+
+    void stream(EngineType engineType, Consumer<CarView> action);
+
+    List<CarView> findAvailable(EngineType engineType, Integer minSeats, Boolean convertible);
 }
@@ -2,13 +2,21 @@ package com.taxi.service.car;
 
 import com.taxi.dataaccessobject.CarRepository;
 import com.taxi.domainobject.CarDO;
+import com.taxi.domainvalue.CarAttributes;
+import com.taxi.domainvalue.CarView;
 import com.taxi.domainvalue.EngineType;
+import com.taxi.domainvalue.KeysetPage;
+import com.taxi.event.CarChangedEvent;
+import com.taxi.event.CarCreatedEvent;
 import com.taxi.exception.ConstraintsViolationException;
 import com.taxi.exception.EntityNotFoundException;
 import java.util.List;
+import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,12 +30,27 @@ public class DefaultCarService implements CarService
 
     private static final Logger LOG = LoggerFactory.getLogger(DefaultCarService.class);
 
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private static final double MAX_RATING = 10;
+
     private final CarRepository carRepository;
 
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AvailableCarIndex availableCarIndex;
+
+    private final CarRatingAggregator ratingAggregator;
 
-    public DefaultCarService(final CarRepository carRepository)
+
+    public DefaultCarService(
+        final CarRepository carRepository, ApplicationEventPublisher eventPublisher, AvailableCarIndex availableCarIndex,
+        CarRatingAggregator ratingAggregator)
     {
         this.carRepository = carRepository;
+        this.eventPublisher = eventPublisher;
+        this.availableCarIndex = availableCarIndex;
+        this.ratingAggregator = ratingAggregator;
     }
 
 
@@ -45,6 +68,21 @@ public class DefaultCarService implements CarService
     }
 
 
+    /**
+     * Selects the view of a car by id without loading the entity.
+     *
+     * @param carId
+     * @return found car
+     * @throws EntityNotFoundException if no car with the given id was found.
+     */
+    @Override
+    public CarView findView(long carId) throws EntityNotFoundException
+    {
+        return carRepository.findViewById(carId)
+            .orElseThrow(() -> new EntityNotFoundException("Could not find entity car with id: " + carId));
+    }
+
+
     /**
      * create a new car.
      *
@@ -65,6 +103,7 @@ public class DefaultCarService implements CarService
             LOG.warn("ConstraintsViolationException while creating a car: {}", carDO, e);
             throw new ConstraintsViolationException(e.getMessage());
         }
+        eventPublisher.publishEvent(new CarCreatedEvent(car.getId(), car.getLicensePlate()));
         return car;
     }
 
@@ -82,12 +121,14 @@ public class DefaultCarService implements CarService
     {
         CarDO carDO = findCarChecked(carId);
         carDO.setDeleted(true);
+        eventPublisher.publishEvent(new CarChangedEvent(carId, null));
         return carDO;
     }
 
 
     /**
-     * Update the rating for a car.
+     * Update the rating for a car. The rating replaces the average of the ride ratings and counts as one ride rating,
+     * later ride ratings are averaged with it.
      *
      * @param carId
      * @param rating
@@ -100,20 +141,82 @@ public class DefaultCarService implements CarService
     {
         CarDO carDO = findCarChecked(carId);
         carDO.setRating(rating);
+        carDO.setRatingCount(1L);
+        eventPublisher.publishEvent(new CarChangedEvent(carId, CarAttributes.of(carId, carDO)));
         return carDO;
     }
 
 
     /**
-     * Find all cars by engine type.
+     * Record the rating of one ride with a car. It is averaged into the rating of the car with the next flush of the
+     * rating aggregator, together with the other ride ratings of the car since the last flush.
+     *
+     * @param carId
+     * @param rating
+     * @throws EntityNotFoundException if no car with the given id was found or it has been deleted.
+     * @throws ConstraintsViolationException if the rating is out of range
+     */
+    @Override
+    public void addRating(long carId, double rating) throws EntityNotFoundException, ConstraintsViolationException
+    {
+        if (!(rating >= 0 && rating <= MAX_RATING))
+        {
+            throw new ConstraintsViolationException("rating must be between 0 and " + MAX_RATING);
+        }
+        if (!carRepository.existsByIdAndDeletedFalse(carId))
+        {
+            throw new EntityNotFoundException("Could not find entity car with id: " + carId);
+        }
+        ratingAggregator.record(carId, rating);
+    }
+
+
+    /**
+     * Find one page of cars by engine type.
      *
      * @param engineType
-     * @return
+     * @param cursor id of the last car of the previous page, 0 for the first page
+     * @param limit maximum number of cars to return
+     * @return cars ordered by id
+     * @throws ConstraintsViolationException if the limit is out of range
+     */
+    @Override
+    public KeysetPage<CarView> find(EngineType engineType, long cursor, int limit) throws ConstraintsViolationException
+    {
+        if (limit < 1 || limit > MAX_PAGE_SIZE)
+        {
+            throw new ConstraintsViolationException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        List<CarView> cars = carRepository.findViewsByEngineType(engineType, cursor, PageRequest.of(0, limit + 1));
+        return KeysetPage.of(cars, limit, CarView::getId);
+    }
+
+
+    /**
+     * Hand all cars with the engine type to the action, ordered by id, without loading them all at once.
+     *
+     * @param engineType
+     * @param action
+     */
+    @Override
+    public void stream(EngineType engineType, Consumer<CarView> action)
+    {
+        carRepository.forEachViewByEngineType(engineType, action);
+    }
+
+
+    /**
+     * Find the cars which are not deleted and not selected by an online driver, from the in-memory index.
+     *
+     * @param engineType null for any
+     * @param minSeats null for any
+     * @param convertible null for any
+     * @return free cars ordered by id
      */
     @Override
-    public List<CarDO> find(EngineType engineType)
+    public List<CarView> findAvailable(EngineType engineType, Integer minSeats, Boolean convertible)
     {
-        return carRepository.findByEngineType(engineType);
+        return availableCarIndex.find(engineType, minSeats, convertible);
     }
 
 
@@ -0,0 +1,328 @@
+package com.taxi.service.dispatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Minimum cost assignment of requests to drivers over a sparse candidate graph, solved with the Hungarian method
+ * using shortest augmenting paths. Every request may stay unassigned at a fixed cost, so there is always a solution
+ * even with more requests than drivers. Requests which do not share any candidate driver are independent, so the
+ * graph is split into connected components which are solved in parallel on a fork/join pool.
+ * <p/>
+ */
+public class AssignmentSolver
+{
+
+    public static final int UNASSIGNED = -1;
+
+    private static final int NONE = -1;
+
+    private final ForkJoinPool forkJoinPool;
+
+
+    public AssignmentSolver(ForkJoinPool forkJoinPool)
+    {
+        this.forkJoinPool = forkJoinPool;
+    }
+
+
+    /**
+     * @param candidates ids of the candidate drivers of each request, without duplicates per request
+     * @param costs cost of each candidate driver of each request
+     * @param unassignedCost cost of leaving a request without driver
+     * @return for each request the index of the chosen candidate or {@link #UNASSIGNED}
+     */
+    public int[] solve(long[][] candidates, double[][] costs, double unassignedCost)
+    {
+        int[] choices = new int[candidates.length];
+        Arrays.fill(choices, UNASSIGNED);
+        List<int[]> components = components(candidates);
+        forkJoinPool.invoke(new SolveComponents(components, 0, components.size(), candidates, costs, unassignedCost, choices));
+        return choices;
+    }
+
+
+    /**
+     * Group the requests into sets which share candidate drivers, using union-find over the requests.
+     */
+    private static List<int[]> components(long[][] candidates)
+    {
+        int[] parent = new int[candidates.length];
+        for (int request = 0; request < parent.length; request++)
+        {
+            parent[request] = request;
+        }
+        Map<Long, Integer> firstRequest = new HashMap<>();
+        for (int request = 0; request < candidates.length; request++)
+        {
+            for (long driverId : candidates[request])
+            {
+                Integer other = firstRequest.putIfAbsent(driverId, request);
+                if (other != null)
+                {
+                    parent[find(parent, request)] = find(parent, other);
+                }
+            }
+        }
+
+        Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+        for (int request = 0; request < candidates.length; request++)
+        {
+            if (candidates[request].length > 0)
+            {
+                groups.computeIfAbsent(find(parent, request), root -> new ArrayList<>()).add(request);
+            }
+        }
+        List<int[]> components = new ArrayList<>(groups.size());
+        for (List<Integer> group : groups.values())
+        {
+            components.add(group.stream().mapToInt(Integer::intValue).toArray());
+        }
+        return components;
+    }
+
+
+    private static int find(int[] parent, int request)
+    {
+        int root = request;
+        while (parent[root] != root)
+        {
+            root = parent[root];
+        }
+        while (parent[request] != root)
+        {
+            int next = parent[request];
+            parent[request] = root;
+            request = next;
+        }
+        return root;
+    }
+
+
+    /**
+     * Hungarian method on one component: requests are added one by one, each along the shortest augmenting path
+     * found with Dijkstra over reduced costs, which may move already assigned requests to other drivers. Leaving a
+     * request unassigned is modelled as a private driver of that request, so a path always exists.
+     */
+    private static void solveComponent(int[] requests, long[][] candidates, double[][] costs, double unassignedCost, int[] choices)
+    {
+        Map<Long, Integer> driverIndex = new HashMap<>();
+        int[][] objects = new int[requests.length][];
+        double[][] edgeCosts = new double[requests.length][];
+        for (int person = 0; person < requests.length; person++)
+        {
+            long[] driverIds = candidates[requests[person]];
+            objects[person] = new int[driverIds.length + 1];
+            edgeCosts[person] = new double[driverIds.length + 1];
+            for (int candidate = 0; candidate < driverIds.length; candidate++)
+            {
+                objects[person][candidate] = driverIndex.computeIfAbsent(driverIds[candidate], id -> driverIndex.size());
+                edgeCosts[person][candidate] = costs[requests[person]][candidate];
+            }
+            edgeCosts[person][driverIds.length] = unassignedCost;
+        }
+        int drivers = driverIndex.size();
+        for (int person = 0; person < requests.length; person++)
+        {
+            objects[person][objects[person].length - 1] = drivers + person;
+        }
+
+        int objectCount = drivers + requests.length;
+        double[] personPotentials = new double[requests.length];
+        double[] objectPotentials = new double[objectCount];
+        int[] owners = new int[objectCount];
+        int[] assigned = new int[requests.length];
+        double[] distances = new double[objectCount];
+        int[] predecessors = new int[objectCount];
+        boolean[] scanned = new boolean[objectCount];
+        Arrays.fill(owners, NONE);
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        for (int person = 0; person < requests.length; person++)
+        {
+            personPotentials[person] = Arrays.stream(edgeCosts[person]).min().orElseThrow();
+        }
+
+        List<Integer> touched = new ArrayList<>();
+        PriorityQueue<Label> queue = new PriorityQueue<>();
+        for (int source = 0; source < requests.length; source++)
+        {
+            relax(source, 0, objects, edgeCosts, personPotentials, objectPotentials, distances, predecessors, touched, queue);
+            int target = NONE;
+            double length = 0;
+            List<Integer> path = new ArrayList<>();
+            while (target == NONE)
+            {
+                Label label = queue.poll();
+                if (scanned[label.object] || label.distance > distances[label.object])
+                {
+                    continue;
+                }
+                scanned[label.object] = true;
+                path.add(label.object);
+                if (owners[label.object] == NONE)
+                {
+                    target = label.object;
+                    length = label.distance;
+                }
+                else
+                {
+                    relax(owners[label.object], label.distance, objects, edgeCosts, personPotentials, objectPotentials, distances,
+                        predecessors, touched, queue);
+                }
+            }
+
+            personPotentials[source] += length;
+            for (int object : path)
+            {
+                double delta = length - distances[object];
+                objectPotentials[object] -= delta;
+                if (owners[object] != NONE)
+                {
+                    personPotentials[owners[object]] += delta;
+                }
+            }
+
+            for (int object = target; ; )
+            {
+                int person = predecessors[object];
+                int previous = assigned[person];
+                assigned[person] = object;
+                owners[object] = person;
+                if (person == source)
+                {
+                    break;
+                }
+                object = previous;
+            }
+
+            for (int object : touched)
+            {
+                distances[object] = Double.POSITIVE_INFINITY;
+                scanned[object] = false;
+            }
+            touched.clear();
+            queue.clear();
+        }
+
+        for (int person = 0; person < requests.length; person++)
+        {
+            int candidate = indexOf(objects[person], assigned[person]);
+            choices[requests[person]] = candidate == objects[person].length - 1 ? UNASSIGNED : candidate;
+        }
+    }
+
+
+    private static void relax(
+        int person, double distance, int[][] objects, double[][] edgeCosts, double[] personPotentials, double[] objectPotentials,
+        double[] distances, int[] predecessors, List<Integer> touched, PriorityQueue<Label> queue)
+    {
+        for (int edge = 0; edge < objects[person].length; edge++)
+        {
+            int object = objects[person][edge];
+            double reduced = edgeCosts[person][edge] - personPotentials[person] - objectPotentials[object];
+            double candidate = distance + Math.max(0, reduced);
+            if (candidate < distances[object])
+            {
+                if (distances[object] == Double.POSITIVE_INFINITY)
+                {
+                    touched.add(object);
+                }
+                distances[object] = candidate;
+                predecessors[object] = person;
+                queue.add(new Label(object, candidate));
+            }
+        }
+    }
+
+
+    private static int indexOf(int[] objects, int object)
+    {
+        for (int index = 0; index < objects.length; index++)
+        {
+            if (objects[index] == object)
+            {
+                return index;
+            }
+        }
+        throw new IllegalStateException("object " + object + " is not a candidate");
+    }
+
+
+    private static final class Label implements Comparable<Label>
+    {
+        private final int object;
+
+        private final double distance;
+
+
+        private Label(int object, double distance)
+        {
+            this.object = object;
+            this.distance = distance;
+        }
+
+
+        @Override
+        public int compareTo(Label other)
+        {
+            return Double.compare(distance, other.distance);
+        }
+    }
+
+
+    /**
+     * Splits the components in halves until a single component is left to solve.
+     */
+    private static final class SolveComponents extends RecursiveAction
+    {
+        private final List<int[]> components;
+
+        private final int from;
+
+        private final int to;
+
+        private final long[][] candidates;
+
+        private final double[][] costs;
+
+        private final double unassignedCost;
+
+        private final int[] choices;
+
+
+        private SolveComponents(List<int[]> components, int from, int to, long[][] candidates, double[][] costs, double unassignedCost, int[] choices)
+        {
+            this.components = components;
+            this.from = from;
+            this.to = to;
+            this.candidates = candidates;
+            this.costs = costs;
+            this.unassignedCost = unassignedCost;
+            this.choices = choices;
+        }
+
+
+        @Override
+        protected void compute()
+        {
+            if (to - from == 1)
+            {
+                solveComponent(components.get(from), candidates, costs, unassignedCost, choices);
+            }
+            else if (to - from > 1)
+            {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                    new SolveComponents(components, from, middle, candidates, costs, unassignedCost, choices),
+                    new SolveComponents(components, middle, to, candidates, costs, unassignedCost, choices));
+            }
+        }
+    }
+}
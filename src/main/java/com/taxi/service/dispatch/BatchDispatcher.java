@@ -0,0 +1,218 @@
+package com.taxi.service.dispatch;
+
+import com.google.common.base.Preconditions;
+import com.taxi.domainvalue.CarAttributes;
+import com.taxi.domainvalue.DispatchCandidate;
+import com.taxi.domainvalue.DispatchRequest;
+import com.taxi.domainvalue.NearbyDriver;
+import com.taxi.service.location.DriverLocationIndex;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Collects ride requests for a short window and assigns the whole batch to free drivers at once, minimizing the
+ * total cost instead of giving every request the best driver left when it arrives. The cost of a driver is ranked
+ * like in {@link DefaultDispatchService}: distance to the pickup reduced by the rating bonus of its car.
+ * Assigned drivers are reserved so that later batches do not assign them again. Requests still waiting on shutdown
+ * are cancelled.
+ * <p/>
+ */
+@Component
+public class BatchDispatcher
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchDispatcher.class);
+
+    private final DriverLocationIndex driverLocationIndex;
+
+    private final DriverCarIndex driverCarIndex;
+
+    private final DriverReservations driverReservations;
+
+    private final AssignmentSolver assignmentSolver = new AssignmentSolver(ForkJoinPool.commonPool());
+
+    private final double ratingWeight;
+
+    private final int candidatesPerRequest;
+
+    private final double radius;
+
+    private final Queue<PendingRequest> pending = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean closed;
+
+
+    public BatchDispatcher(
+        final DriverLocationIndex driverLocationIndex, final DriverCarIndex driverCarIndex, final DriverReservations driverReservations,
+        @Value("${dispatch.rating-weight:100}") double ratingWeight,
+        @Value("${dispatch.batch.candidates-per-request:8}") int candidatesPerRequest,
+        @Value("${dispatch.batch.radius:5000}") double radius)
+    {
+        Preconditions.checkArgument(candidatesPerRequest > 0, "candidates per request must be positive: " + candidatesPerRequest);
+        Preconditions.checkArgument(radius > 0, "radius must be positive: " + radius);
+        this.driverLocationIndex = driverLocationIndex;
+        this.driverCarIndex = driverCarIndex;
+        this.driverReservations = driverReservations;
+        this.ratingWeight = ratingWeight;
+        this.candidatesPerRequest = candidatesPerRequest;
+        this.radius = radius;
+    }
+
+
+    /**
+     * @param request
+     * @return completed with the assigned driver, or with null if no driver could be assigned, after the next batch
+     */
+    public CompletableFuture<DispatchCandidate> submit(DispatchRequest request)
+    {
+        PendingRequest pendingRequest = new PendingRequest(request);
+        pending.add(pendingRequest);
+        if (closed)
+        {
+            cancelPending();
+        }
+        return pendingRequest.result;
+    }
+
+
+    public int pendingCount()
+    {
+        return pending.size();
+    }
+
+
+    /**
+     * Assign all requests collected since the previous batch.
+     */
+    @Scheduled(fixedDelayString = "${dispatch.batch.window:1000}")
+    public void dispatchBatch()
+    {
+        List<PendingRequest> batch = new ArrayList<>();
+        for (PendingRequest request = pending.poll(); request != null; request = pending.poll())
+        {
+            batch.add(request);
+        }
+        if (batch.isEmpty())
+        {
+            return;
+        }
+        try
+        {
+            dispatch(batch);
+        }
+        catch (RuntimeException e)
+        {
+            LOG.error("Could not dispatch a batch of {} requests", batch.size(), e);
+            batch.forEach(request -> request.result.completeExceptionally(e));
+        }
+    }
+
+
+    /**
+     * Cancel the requests which have not been dispatched yet, and every request submitted later.
+     */
+    @PreDestroy
+    public void close()
+    {
+        closed = true;
+        cancelPending();
+    }
+
+
+    private void cancelPending()
+    {
+        for (PendingRequest request = pending.poll(); request != null; request = pending.poll())
+        {
+            request.result.cancel(false);
+        }
+    }
+
+
+    private void dispatch(List<PendingRequest> batch)
+    {
+        long start = System.nanoTime();
+        List<List<DispatchCandidate>> options = new ArrayList<>(batch.size());
+        long[][] candidates = new long[batch.size()][];
+        double[][] costs = new double[batch.size()][];
+        for (int i = 0; i < batch.size(); i++)
+        {
+            List<DispatchCandidate> requestOptions = candidatesOf(batch.get(i).request);
+            options.add(requestOptions);
+            candidates[i] = new long[requestOptions.size()];
+            costs[i] = new double[requestOptions.size()];
+            for (int j = 0; j < requestOptions.size(); j++)
+            {
+                candidates[i][j] = requestOptions.get(j).getDriverId();
+                costs[i][j] = requestOptions.get(j).getScore();
+            }
+        }
+
+        int[] choices = assignmentSolver.solve(candidates, costs, radius + 1);
+
+        int assigned = 0;
+        for (int i = 0; i < batch.size(); i++)
+        {
+            DispatchCandidate choice = choices[i] == AssignmentSolver.UNASSIGNED ? null : options.get(i).get(choices[i]);
+            if (choice != null && driverReservations.reserve(choice.getDriverId()))
+            {
+                assigned++;
+                batch.get(i).result.complete(choice);
+            }
+            else
+            {
+                batch.get(i).result.complete(null);
+            }
+        }
+        LOG.debug("Assigned {} of {} requests in {} ms", assigned, batch.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+
+    private List<DispatchCandidate> candidatesOf(DispatchRequest request)
+    {
+        List<NearbyDriver> nearest = driverLocationIndex.findNearest(
+            request.getPickup().getLatitude(), request.getPickup().getLongitude(), candidatesPerRequest, radius,
+            driverId -> isFree(request, driverId));
+        List<DispatchCandidate> candidates = new ArrayList<>(nearest.size());
+        for (NearbyDriver driver : nearest)
+        {
+            CarAttributes car = driverCarIndex.carOf(driver.getDriverId());
+            if (car != null)
+            {
+                double score = driver.getDistance() - ratingWeight * car.getRating();
+                candidates.add(new DispatchCandidate(driver.getDriverId(), car, driver.getCoordinate(), driver.getDistance(), score));
+            }
+        }
+        return candidates;
+    }
+
+
+    private boolean isFree(DispatchRequest request, long driverId)
+    {
+        CarAttributes car = driverCarIndex.carOf(driverId);
+        return car != null && request.matches(car) && !driverReservations.isReserved(driverId);
+    }
+
+
+    private static final class PendingRequest
+    {
+        private final DispatchRequest request;
+
+        private final CompletableFuture<DispatchCandidate> result = new CompletableFuture<>();
+
+
+        private PendingRequest(DispatchRequest request)
+        {
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.taxi.service.dispatch;
+
+import com.google.common.base.Preconditions;
+import com.taxi.domainvalue.CarAttributes;
+import com.taxi.domainvalue.DispatchCandidate;
+import com.taxi.domainvalue.DispatchRequest;
+import com.taxi.domainvalue.NearbyDriver;
+import com.taxi.exception.ConstraintsViolationException;
+import com.taxi.service.location.DriverLocationIndex;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service to find the best free drivers for a pickup, entirely from the in-memory location and car indexes.
+ * A driver is free if it is online, has a known position, has selected a car and has not just been assigned. Candidates are ranked by their
+ * distance to the pickup, reduced by {@code ratingWeight} meters per rating point of their car.
+ * <p/>
+ */
+@Service
+public class DefaultDispatchService implements DispatchService
+{
+
+    private static final int MAX_LIMIT = 100;
+
+    private static final double MAX_RADIUS = 50_000;
+
+    private static final double MAX_RATING = 10;
+
+    private static final int POOL_FACTOR = 4;
+
+    private static final int MAX_POOL = 1_600;
+
+    private static final Comparator<DispatchCandidate> BY_SCORE = Comparator.comparingDouble(DispatchCandidate::getScore);
+
+    private final DriverLocationIndex driverLocationIndex;
+
+    private final DriverCarIndex driverCarIndex;
+
+    private final DriverReservations driverReservations;
+
+    private final BatchDispatcher batchDispatcher;
+
+    private final double ratingWeight;
+
+
+    public DefaultDispatchService(
+        final DriverLocationIndex driverLocationIndex, final DriverCarIndex driverCarIndex, final DriverReservations driverReservations,
+        final BatchDispatcher batchDispatcher, @Value("${dispatch.rating-weight:100}") double ratingWeight)
+    {
+        Preconditions.checkArgument(ratingWeight >= 0, "rating weight must not be negative: " + ratingWeight);
+        this.driverLocationIndex = driverLocationIndex;
+        this.driverCarIndex = driverCarIndex;
+        this.driverReservations = driverReservations;
+        this.batchDispatcher = batchDispatcher;
+        this.ratingWeight = ratingWeight;
+    }
+
+
+    /**
+     * Find the best free drivers whose car has the required attributes. The nearest matching drivers are fetched in
+     * growing pools until no driver outside the pool could beat the ranking with the best possible rating.
+     *
+     * @param request pickup point and required car attributes
+     * @param limit maximum number of candidates to return
+     * @param radius maximum distance to the pickup in meters
+     * @return candidates ordered by score, best first
+     * @throws ConstraintsViolationException if the limit or radius are out of range
+     */
+    @Override
+    public List<DispatchCandidate> findCandidates(DispatchRequest request, int limit, double radius) throws ConstraintsViolationException
+    {
+        if (limit < 1 || limit > MAX_LIMIT)
+        {
+            throw new ConstraintsViolationException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        if (radius <= 0 || radius > MAX_RADIUS)
+        {
+            throw new ConstraintsViolationException("radius must be between 0 and " + MAX_RADIUS + " meters");
+        }
+
+        double maxBonus = MAX_RATING * ratingWeight;
+        int pool = Math.min(limit * POOL_FACTOR, MAX_POOL);
+        while (true)
+        {
+            List<NearbyDriver> nearest = driverLocationIndex.findNearest(
+                request.getPickup().getLatitude(), request.getPickup().getLongitude(), pool, radius, driverId -> isMatching(request, driverId));
+            List<DispatchCandidate> candidates = rank(request, nearest);
+
+            boolean exhausted = nearest.size() < pool || pool == MAX_POOL;
+            if (exhausted || candidates.size() >= limit
+                && candidates.get(limit - 1).getScore() <= nearest.get(nearest.size() - 1).getDistance() - maxBonus)
+            {
+                return candidates.subList(0, Math.min(limit, candidates.size()));
+            }
+            pool = Math.min(pool * POOL_FACTOR, MAX_POOL);
+        }
+    }
+
+
+    /**
+     * Assign a driver to a ride request together with all other requests of the current batch.
+     *
+     * @param request pickup point and required car attributes
+     * @return completed with the assigned driver, which is reserved for the ride, or with null if none is free
+     */
+    @Override
+    public CompletableFuture<DispatchCandidate> assign(DispatchRequest request)
+    {
+        return batchDispatcher.submit(request);
+    }
+
+
+    private boolean isMatching(DispatchRequest request, long driverId)
+    {
+        CarAttributes car = driverCarIndex.carOf(driverId);
+        return car != null && request.matches(car) && !driverReservations.isReserved(driverId);
+    }
+
+
+    private List<DispatchCandidate> rank(DispatchRequest request, List<NearbyDriver> nearest)
+    {
+        List<DispatchCandidate> candidates = new ArrayList<>(nearest.size());
+        for (NearbyDriver driver : nearest)
+        {
+            CarAttributes car = driverCarIndex.carOf(driver.getDriverId());
+            if (car != null && request.matches(car))
+            {
+                double score = driver.getDistance() - ratingWeight * car.getRating();
+                candidates.add(new DispatchCandidate(driver.getDriverId(), car, driver.getCoordinate(), driver.getDistance(), score));
+            }
+        }
+        candidates.sort(BY_SCORE);
+        return candidates;
+    }
+}
@@ -0,0 +1,14 @@
+package com.taxi.service.dispatch;
+
+import com.taxi.domainvalue.DispatchCandidate;
+import com.taxi.domainvalue.DispatchRequest;
+import com.taxi.exception.ConstraintsViolationException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public interface DispatchService
+{
+    List<DispatchCandidate> findCandidates(DispatchRequest request, int limit, double radius) throws ConstraintsViolationException;
+
+    CompletableFuture<DispatchCandidate> assign(DispatchRequest request);
+}
@@ -0,0 +1,149 @@
+package com.taxi.service.dispatch;
+
+import com.taxi.dataaccessobject.DriverRepository;
+import com.taxi.domainobject.DriverDO;
+import com.taxi.domainvalue.CarAttributes;
+import com.taxi.event.CarChangedEvent;
+import com.taxi.event.CarRatingsChangedEvent;
+import com.taxi.event.DriverCarChangedEvent;
+import com.taxi.event.DriverDeletedEvent;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * In-memory index of the car selected by each driver, kept in sync with car selection and car updates,
+ * so dispatching can check car attributes without reading the database. Changes are applied once their transaction
+ * has committed, so a rolled back selection is never visible.
+ * <p/>
+ */
+@Component
+public class DriverCarIndex
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(DriverCarIndex.class);
+
+    private final DriverRepository driverRepository;
+
+    private final ConcurrentMap<Long, CarAttributes> carsByDriver = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Long, Long> driversByCar = new ConcurrentHashMap<>();
+
+
+    public DriverCarIndex(final DriverRepository driverRepository)
+    {
+        this.driverRepository = driverRepository;
+    }
+
+
+    /**
+     * Fills the index with the drivers which have selected a car, once on startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load()
+    {
+        for (DriverDO driverDO : driverRepository.findByDeletedFalseAndCarIsNotNull())
+        {
+            if (!Boolean.TRUE.equals(driverDO.getCar().getDeleted()))
+            {
+                select(driverDO.getId(), CarAttributes.of(driverDO.getCar().getId(), driverDO.getCar()));
+            }
+        }
+        LOG.info("Driver car index loaded with {} drivers", carsByDriver.size());
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverCarChanged(DriverCarChangedEvent event)
+    {
+        if (event.getCar() == null)
+        {
+            deselect(event.getDriverId());
+        }
+        else
+        {
+            select(event.getDriverId(), event.getCar());
+        }
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarChanged(CarChangedEvent event)
+    {
+        Long driverId = driversByCar.get(event.getCarId());
+        if (driverId == null)
+        {
+            return;
+        }
+        if (event.getCar() == null)
+        {
+            deselect(driverId);
+        }
+        else
+        {
+            carsByDriver.computeIfPresent(driverId, (id, car) -> car.getCarId() == event.getCarId() ? event.getCar() : car);
+        }
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarRatingsChanged(CarRatingsChangedEvent event)
+    {
+        event.getRatings().forEach((carId, rating) -> {
+            Long driverId = driversByCar.get(carId);
+            if (driverId != null)
+            {
+                carsByDriver.computeIfPresent(driverId, (id, car) -> car.getCarId() == carId ? car.withRating(rating) : car);
+            }
+        });
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverDeleted(DriverDeletedEvent event)
+    {
+        deselect(event.getDriverId());
+    }
+
+
+    /**
+     * @param driverId
+     * @return the car selected by the driver or null
+     */
+    public CarAttributes carOf(long driverId)
+    {
+        return carsByDriver.get(driverId);
+    }
+
+
+    public int size()
+    {
+        return carsByDriver.size();
+    }
+
+
+    private void select(long driverId, CarAttributes car)
+    {
+        CarAttributes previous = carsByDriver.put(driverId, car);
+        if (previous != null && previous.getCarId() != car.getCarId())
+        {
+            driversByCar.remove(previous.getCarId(), driverId);
+        }
+        driversByCar.put(car.getCarId(), driverId);
+    }
+
+
+    private void deselect(long driverId)
+    {
+        CarAttributes previous = carsByDriver.remove(driverId);
+        if (previous != null)
+        {
+            driversByCar.remove(previous.getCarId(), driverId);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.taxi.service.dispatch;
+
+import com.google.common.base.Preconditions;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drivers which have just been assigned to a ride and are therefore not free for a while.
+ * <p/>
+ */
+@Component
+public class DriverReservations
+{
+
+    private final long hold;
+
+    private final ConcurrentMap<Long, Long> reservedUntil = new ConcurrentHashMap<>();
+
+
+    public DriverReservations(@Value("${dispatch.reservation-hold:60000}") long hold)
+    {
+        Preconditions.checkArgument(hold > 0, "reservation hold must be positive: " + hold);
+        this.hold = hold;
+    }
+
+
+    /**
+     * @param driverId
+     * @return true if the driver has been reserved, false if it already is
+     */
+    public boolean reserve(long driverId)
+    {
+        long now = System.currentTimeMillis();
+        boolean[] reserved = new boolean[1];
+        reservedUntil.compute(driverId, (id, until) -> {
+            if (until != null && until > now)
+            {
+                return until;
+            }
+            reserved[0] = true;
+            return now + hold;
+        });
+        return reserved[0];
+    }
+
+
+    public boolean isReserved(long driverId)
+    {
+        Long until = reservedUntil.get(driverId);
+        return until != null && until > System.currentTimeMillis();
+    }
+
+
+    public void release(long driverId)
+    {
+        reservedUntil.remove(driverId);
+    }
+
+
+    @Scheduled(fixedDelayString = "${dispatch.reservation-hold:60000}")
+    public void removeExpired()
+    {
+        long now = System.currentTimeMillis();
+        reservedUntil.values().removeIf(until -> until <= now);
+    }
+}
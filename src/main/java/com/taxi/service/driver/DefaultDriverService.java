@@ -4,16 +4,47 @@ import com.taxi.controller.specification.DriverSpecification;
 import com.taxi.dataaccessobject.DriverRepository;
 import com.taxi.domainobject.CarDO;
 import com.taxi.domainobject.DriverDO;
+import com.taxi.domainvalue.CarAttributes;
+import com.taxi.domainvalue.DriverCluster;
+import com.taxi.domainvalue.DriverFacets;
+import com.taxi.domainvalue.DriverLocation;
+import com.taxi.domainvalue.DriverView;
 import com.taxi.domainvalue.GeoCoordinate;
+import com.taxi.domainvalue.KeysetPage;
+import com.taxi.domainvalue.NearbyDriver;
 import com.taxi.domainvalue.OnlineStatus;
+import com.taxi.event.DriverCarChangedEvent;
+import com.taxi.event.DriverCreatedEvent;
+import com.taxi.event.DriverDeletedEvent;
+import com.taxi.event.DriverLocationUpdatedEvent;
+import com.taxi.event.DriverOnlineStatusChangedEvent;
 import com.taxi.exception.CarAlreadyInUseException;
 import com.taxi.exception.ConstraintsViolationException;
 import com.taxi.exception.EntityNotFoundException;
 import com.taxi.service.car.CarService;
+import com.taxi.service.history.LocationHistoryStore;
+import com.taxi.service.history.TraceSimplifier;
+import com.taxi.service.location.DriverClusterIndex;
+import com.taxi.service.location.DriverLocationIndex;
+import com.taxi.service.location.DriverLocationWriteBehindBuffer;
+import com.taxi.service.location.LocationWriteSuppressor;
+import com.taxi.service.search.DriverAttributeSnapshot;
+import com.taxi.service.search.DriverSearchCache;
+import com.taxi.service.search.SubstringSearchIndex;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -27,20 +58,61 @@ public class DefaultDriverService implements DriverService
 
     private static final Logger LOG = LoggerFactory.getLogger(DefaultDriverService.class);
 
+    private static final int MAX_NEARBY_LIMIT = 100;
+
+    private static final double MAX_NEARBY_RADIUS = 50_000;
+
+    private static final long MAX_CLUSTER_CELLS = 16_384;
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private static final Duration MAX_TRACK_RANGE = Duration.ofDays(31);
+
     private final DriverRepository driverRepository;
 
     private final CarService carService;
 
+    private final DriverLocationIndex driverLocationIndex;
+
+    private final DriverClusterIndex driverClusterIndex;
+
+    private final DriverLocationWriteBehindBuffer writeBehindBuffer;
+
+    private final LocationWriteSuppressor writeSuppressor;
+
+    private final LocationHistoryStore locationHistoryStore;
+
+    private final SubstringSearchIndex substringSearchIndex;
+
+    private final DriverAttributeSnapshot attributeSnapshot;
+
+    private final DriverSearchCache searchCache;
 
-    public DefaultDriverService(final DriverRepository driverRepository, CarService carService)
+    private final ApplicationEventPublisher eventPublisher;
+
+
+    public DefaultDriverService(
+        final DriverRepository driverRepository, CarService carService, DriverLocationIndex driverLocationIndex,
+        DriverClusterIndex driverClusterIndex, DriverLocationWriteBehindBuffer writeBehindBuffer, LocationWriteSuppressor writeSuppressor,
+        LocationHistoryStore locationHistoryStore, SubstringSearchIndex substringSearchIndex, DriverAttributeSnapshot attributeSnapshot,
+        DriverSearchCache searchCache, ApplicationEventPublisher eventPublisher)
     {
         this.driverRepository = driverRepository;
         this.carService = carService;
+        this.driverLocationIndex = driverLocationIndex;
+        this.driverClusterIndex = driverClusterIndex;
+        this.writeBehindBuffer = writeBehindBuffer;
+        this.writeSuppressor = writeSuppressor;
+        this.locationHistoryStore = locationHistoryStore;
+        this.substringSearchIndex = substringSearchIndex;
+        this.attributeSnapshot = attributeSnapshot;
+        this.searchCache = searchCache;
+        this.eventPublisher = eventPublisher;
     }
 
 
     /**
-     * Selects a driver by id.
+     * Selects a driver by id. A location which is still buffered for write-behind is applied to the returned driver.
      *
      * @param driverId
      * @return found driver
@@ -49,7 +121,31 @@ public class DefaultDriverService implements DriverService
     @Override
     public DriverDO find(Long driverId) throws EntityNotFoundException
     {
-        return findDriverChecked(driverId);
+        DriverDO driverDO = findDriverChecked(driverId);
+        DriverLocation pending = writeBehindBuffer.pendingLocation(driverId);
+        if (pending != null)
+        {
+            driverDO.setCoordinate(pending.getCoordinate(), pending.getTimestamp());
+        }
+        return driverDO;
+    }
+
+
+    /**
+     * Selects the view of a driver by id without loading the entity. A location which is still buffered for
+     * write-behind is applied to the returned view.
+     *
+     * @param driverId
+     * @return found driver
+     * @throws EntityNotFoundException if no driver with the given id was found.
+     */
+    @Override
+    public DriverView findView(long driverId) throws EntityNotFoundException
+    {
+        DriverView driverView = driverRepository.findViewById(driverId)
+            .orElseThrow(() -> new EntityNotFoundException("Could not find entity with id: " + driverId));
+        DriverLocation pending = writeBehindBuffer.pendingLocation(driverId);
+        return pending == null ? driverView : driverView.withCoordinate(pending.getCoordinate());
     }
 
 
@@ -73,6 +169,7 @@ public class DefaultDriverService implements DriverService
             LOG.warn("ConstraintsViolationException while creating a driver: {}", driverDO, e);
             throw new ConstraintsViolationException(e.getMessage());
         }
+        eventPublisher.publishEvent(new DriverCreatedEvent(driver.getId(), driver.getUsername()));
         return driver;
     }
 
@@ -89,36 +186,224 @@ public class DefaultDriverService implements DriverService
     {
         DriverDO driverDO = findDriverChecked(driverId);
         driverDO.setDeleted(true);
+        eventPublisher.publishEvent(new DriverDeletedEvent(driverId));
     }
 
 
     /**
      * Update the location for a driver.
+     * The returned driver carries the new location only if it has been accepted, a location which is not applied by
+     * the database leaves the driver as stored.
      *
      * @param driverId
      * @param longitude
      * @param latitude
-     * @throws EntityNotFoundException
+     * @return the driver with its current location
+     * @throws EntityNotFoundException if no driver with the given id was found.
+     * @throws ConstraintsViolationException if the driver has been deleted.
+     */
+    @Override
+    public DriverDO updateLocation(long driverId, double longitude, double latitude) throws EntityNotFoundException, ConstraintsViolationException
+    {
+        DriverDO driverDO = findDriverChecked(driverId);
+        if (Boolean.TRUE.equals(driverDO.getDeleted()))
+        {
+            throw new ConstraintsViolationException("A deleted driver can not update its location");
+        }
+        DriverLocation location = new DriverLocation(driverId, new GeoCoordinate(latitude, longitude), ZonedDateTime.now());
+        if (writeLocation(location))
+        {
+            driverDO.setCoordinate(location.getCoordinate(), location.getTimestamp());
+        }
+        return driverDO;
+    }
+
+
+    /**
+     * Update the location of a known driver without loading it.
+     * The location is written with a single column update instead of a dirty-checked entity, or handed to the
+     * write-behind buffer if enabled, which reports the location as written once its batch has been applied. A location
+     * which does not differ enough from the last written one is acknowledged without being written, a location which
+     * is not applied by the database is dropped.
+     *
+     * @param location
+     */
+    @Override
+    public void updateLocation(DriverLocation location)
+    {
+        writeLocation(location);
+    }
+
+
+    private boolean writeLocation(DriverLocation location)
+    {
+        if (!writeSuppressor.shouldWrite(location))
+        {
+            writeSuppressor.recordSuppressed(location);
+            return true;
+        }
+        if (writeBehindBuffer.isEnabled())
+        {
+            writeBehindBuffer.offer(location);
+        }
+        else if (driverRepository.updateLocation(location) > 0)
+        {
+            writeSuppressor.recordWritten(location);
+        }
+        else
+        {
+            return false;
+        }
+        eventPublisher.publishEvent(new DriverLocationUpdatedEvent(location.getDriverId(), location.getCoordinate(), location.getTimestamp()));
+        return true;
+    }
+
+
+    /**
+     * Let a driver go online or offline.
+     *
+     * @param driverId
+     * @param onlineStatus
+     * @return the updated driver
+     * @throws EntityNotFoundException if no driver with the given id was found.
+     * @throws ConstraintsViolationException if the driver has been deleted.
      */
     @Override
     @Transactional
-    public DriverDO updateLocation(long driverId, double longitude, double latitude) throws EntityNotFoundException
+    public DriverDO updateOnlineStatus(long driverId, OnlineStatus onlineStatus) throws EntityNotFoundException, ConstraintsViolationException
     {
         DriverDO driverDO = findDriverChecked(driverId);
-        driverDO.setCoordinate(new GeoCoordinate(latitude, longitude));
+        if (Boolean.TRUE.equals(driverDO.getDeleted()))
+        {
+            throw new ConstraintsViolationException("A deleted driver can not change its online status");
+        }
+        if (driverDO.getOnlineStatus() != onlineStatus)
+        {
+            driverDO.setOnlineStatus(onlineStatus);
+            DriverLocation pending = writeBehindBuffer.pendingLocation(driverId);
+            eventPublisher.publishEvent(pending == null
+                ? new DriverOnlineStatusChangedEvent(driverId, onlineStatus, driverDO.getCoordinate(), driverDO.getDateCoordinateUpdated())
+                : new DriverOnlineStatusChangedEvent(driverId, onlineStatus, pending.getCoordinate(), pending.getTimestamp()));
+        }
         return driverDO;
     }
 
 
     /**
-     * Find all drivers by online state.
+     * Update the locations of many drivers with one JDBC batch in a single transaction.
+     * Only the newest location per driver is written, locations older than the stored one are skipped.
+     * Locations of drivers which did not move since their last confirmed write are applied without being written.
+     *
+     * @param locations
+     * @return the locations which have been applied
+     * @throws ConstraintsViolationException if the batch is larger than allowed
+     */
+    @Override
+    @Transactional
+    public List<DriverLocation> updateLocations(List<DriverLocation> locations) throws ConstraintsViolationException
+    {
+        if (locations.size() > MAX_LOCATION_BATCH_SIZE)
+        {
+            throw new ConstraintsViolationException("A location batch can contain at most " + MAX_LOCATION_BATCH_SIZE + " locations");
+        }
+
+        Map<Long, DriverLocation> latest = new LinkedHashMap<>();
+        for (DriverLocation location : locations)
+        {
+            latest.merge(location.getDriverId(), location, DriverLocation::latest);
+        }
+        List<DriverLocation> batch = new ArrayList<>(latest.size());
+        List<DriverLocation> applied = new ArrayList<>(latest.size());
+        for (DriverLocation location : latest.values())
+        {
+            if (writeSuppressor.shouldWrite(location))
+            {
+                batch.add(location);
+            }
+            else
+            {
+                writeSuppressor.recordSuppressed(location);
+                applied.add(location);
+            }
+        }
+        int[] updateCounts = batch.isEmpty() ? new int[0] : driverRepository.batchUpdateLocations(batch);
+
+        for (int i = 0; i < batch.size(); i++)
+        {
+            if (updateCounts[i] > 0 || updateCounts[i] == Statement.SUCCESS_NO_INFO)
+            {
+                DriverLocation location = batch.get(i);
+                if (updateCounts[i] > 0)
+                {
+                    writeSuppressor.recordWritten(location);
+                }
+                applied.add(location);
+                eventPublisher.publishEvent(new DriverLocationUpdatedEvent(location.getDriverId(), location.getCoordinate(), location.getTimestamp()));
+            }
+        }
+        return applied;
+    }
+
+
+    /**
+     * Read the recorded locations of a driver from the location history.
+     *
+     * @param driverId
+     * @param from inclusive
+     * @param to exclusive
+     * @param tolerance simplify the track so that no dropped point is farther than this many meters away, 0 to disable
+     * @return the locations in timestamp order, empty for unknown drivers
+     * @throws ConstraintsViolationException if the range is empty or longer than allowed
+     */
+    @Override
+    public List<DriverLocation> findTrack(long driverId, ZonedDateTime from, ZonedDateTime to, double tolerance) throws ConstraintsViolationException
+    {
+        if (!from.isBefore(to))
+        {
+            throw new ConstraintsViolationException("from must be before to");
+        }
+        if (Duration.between(from, to).compareTo(MAX_TRACK_RANGE) > 0)
+        {
+            throw new ConstraintsViolationException("A track can span at most " + MAX_TRACK_RANGE.toDays() + " days");
+        }
+        if (tolerance < 0)
+        {
+            throw new ConstraintsViolationException("tolerance can not be negative");
+        }
+        return TraceSimplifier.simplify(locationHistoryStore.read(driverId, from.toInstant(), to.toInstant()), tolerance);
+    }
+
+
+    /**
+     * Find one page of drivers by online state.
+     *
+     * @param onlineStatus
+     * @param cursor id of the last driver of the previous page, 0 for the first page
+     * @param limit maximum number of drivers to return
+     * @return drivers ordered by id
+     * @throws ConstraintsViolationException if the limit is out of range
+     */
+    @Override
+    public KeysetPage<DriverView> find(OnlineStatus onlineStatus, long cursor, int limit) throws ConstraintsViolationException
+    {
+        checkPageLimit(limit);
+        List<DriverView> drivers = driverRepository.findViewsByOnlineStatus(onlineStatus, cursor, PageRequest.of(0, limit + 1));
+        return KeysetPage.of(drivers, limit, DriverView::getId);
+    }
+
+
+    /**
+     * Hand all drivers with the online state to the action, ordered by id, without loading them all at once.
      *
      * @param onlineStatus
+     * @param action
      */
     @Override
-    public List<DriverDO> find(OnlineStatus onlineStatus)
+    public void stream(OnlineStatus onlineStatus, Consumer<DriverView> action)
     {
-        return driverRepository.findByOnlineStatus(onlineStatus);
+        DriverSpecification params = new DriverSpecification();
+        params.setOnlineStatus(onlineStatus);
+        driverRepository.forEachView(params, action);
     }
 
 
@@ -149,9 +434,11 @@ public class DefaultDriverService implements DriverService
         else if (currentDriver != null)
         {
             currentDriver.setCar(null);
+            eventPublisher.publishEvent(new DriverCarChangedEvent(currentDriver.getId(), null));
         }
 
         driverDO.setCar(carDO);
+        eventPublisher.publishEvent(new DriverCarChangedEvent(driverId, CarAttributes.of(carId, carDO)));
 
         return driverDO;
     }
@@ -169,20 +456,128 @@ public class DefaultDriverService implements DriverService
     {
         DriverDO driverDO = findDriverChecked(driverId);
         driverDO.setCar(null);
+        eventPublisher.publishEvent(new DriverCarChangedEvent(driverId, null));
         return driverDO;
     }
 
 
     /**
-     * Find all driver by DriverSpecification.
+     * Find one page of drivers by DriverSpecification. The matching driver ids are found in the attribute snapshot
+     * and only the drivers of the page are read, unless the snapshot can not answer the specification and the database
+     * is searched. Pages are served from the search cache for a short time.
      *
      * @param params
-     * @return
+     * @param cursor id of the last driver of the previous page, 0 for the first page
+     * @param limit maximum number of drivers to return
+     * @return drivers ordered by id
+     * @throws ConstraintsViolationException if the limit is out of range
      */
     @Override
-    public List<DriverDO> search(DriverSpecification params)
+    public KeysetPage<DriverView> search(DriverSpecification params, long cursor, int limit) throws ConstraintsViolationException
     {
-        return driverRepository.findAll(params);
+        checkPageLimit(limit);
+        return searchCache.get(params, cursor, limit, () -> {
+            DriverSpecification resolved = resolveSubstrings(params);
+            long[] driverIds = attributeSnapshot.find(resolved, cursor, limit + 1);
+            if (driverIds == null)
+            {
+                return KeysetPage.of(driverRepository.findViews(resolved, cursor, limit + 1), limit, DriverView::getId);
+            }
+            return hydrate(driverIds, limit);
+        });
+    }
+
+
+    /**
+     * Hand all drivers matching the DriverSpecification to the action, ordered by id, without loading them all at once.
+     *
+     * @param params
+     * @param action
+     */
+    @Override
+    public void streamSearch(DriverSpecification params, Consumer<DriverView> action)
+    {
+        driverRepository.forEachView(resolveSubstrings(params), action);
+    }
+
+
+    /**
+     * Count the drivers matching the DriverSpecification grouped by attribute value, from the bitmaps of the attribute
+     * snapshot or, if it can not answer the specification, with grouped aggregate queries.
+     *
+     * @param params
+     * @return the counts
+     */
+    @Override
+    public DriverFacets countFacets(DriverSpecification params)
+    {
+        DriverSpecification resolved = resolveSubstrings(params);
+        DriverFacets facets = attributeSnapshot.facets(resolved);
+        return facets == null ? driverRepository.countFacets(resolved) : facets;
+    }
+
+
+    /**
+     * Find the online drivers closest to the given point, served from the in-memory location index.
+     *
+     * @param latitude
+     * @param longitude
+     * @param limit maximum number of drivers to return
+     * @param radius maximum distance in meters
+     * @return drivers ordered by distance, closest first
+     * @throws ConstraintsViolationException if the limit or radius are out of range
+     */
+    @Override
+    public List<NearbyDriver> findNearby(double latitude, double longitude, int limit, double radius) throws ConstraintsViolationException
+    {
+        if (limit < 1 || limit > MAX_NEARBY_LIMIT)
+        {
+            throw new ConstraintsViolationException("k must be between 1 and " + MAX_NEARBY_LIMIT);
+        }
+        if (radius <= 0 || radius > MAX_NEARBY_RADIUS)
+        {
+            throw new ConstraintsViolationException("radius must be between 0 and " + MAX_NEARBY_RADIUS + " meters");
+        }
+        GeoCoordinate center = new GeoCoordinate(latitude, longitude);
+        return driverLocationIndex.findNearest(center.getLatitude(), center.getLongitude(), limit, radius);
+    }
+
+
+    /**
+     * Cluster the online drivers inside a box for display on a map. Zoom levels beyond the finest level of the index
+     * are served from the finest level.
+     *
+     * @param bbox min longitude, min latitude, max longitude, max latitude
+     * @param zoom map zoom level
+     * @return one cluster per occupied cell of the zoom level
+     * @throws ConstraintsViolationException if the box is malformed or covers too many cells for the zoom level
+     */
+    @Override
+    public List<DriverCluster> findClusters(List<Double> bbox, int zoom) throws ConstraintsViolationException
+    {
+        if (bbox.size() != 4)
+        {
+            throw new ConstraintsViolationException("bbox must consist of min longitude, min latitude, max longitude and max latitude");
+        }
+        if (zoom < 0)
+        {
+            throw new ConstraintsViolationException("zoom must not be negative");
+        }
+        GeoCoordinate southWest = new GeoCoordinate(bbox.get(1), bbox.get(0));
+        GeoCoordinate northEast = new GeoCoordinate(bbox.get(3), bbox.get(2));
+        if (southWest.getLatitude() > northEast.getLatitude() || southWest.getLongitude() > northEast.getLongitude())
+        {
+            throw new ConstraintsViolationException("bbox minimum must not be greater than its maximum");
+        }
+        int level = Math.min(zoom, DriverClusterIndex.MAX_ZOOM);
+        long cells = driverClusterIndex.cellCount(
+            southWest.getLatitude(), southWest.getLongitude(), northEast.getLatitude(), northEast.getLongitude(), level);
+        if (cells > MAX_CLUSTER_CELLS)
+        {
+            throw new ConstraintsViolationException("bbox covers " + cells + " cells at zoom " + zoom + ", at most " + MAX_CLUSTER_CELLS + " are allowed");
+        }
+        return driverClusterIndex.clusters(
+            southWest.getLatitude(), southWest.getLongitude(), northEast.getLatitude(), northEast.getLongitude(), level);
     }
 
 
@@ -197,4 +592,45 @@ public class DefaultDriverService implements DriverService
             .orElseThrow(() -> new EntityNotFoundException("Could not find entity with id: " + driverId));
     }
 
+
+    /**
+     * Resolve the username and license plate substrings to id sets through the trigram index, where it can answer them.
+     */
+    private DriverSpecification resolveSubstrings(DriverSpecification params)
+    {
+        Set<Long> driverIds = params.getUsername() == null ? null : substringSearchIndex.findDriverIdsByUsername(params.getUsername());
+        Set<Long> carIds = params.getLicensePlate() == null ? null : substringSearchIndex.findCarIdsByLicensePlate(params.getLicensePlate());
+        return params.resolvedBy(driverIds, carIds);
+    }
+
+
+    /**
+     * Read the drivers of a page found by id.
+     *
+     * @param driverIds up to limit + 1 ids in ascending order, the one beyond the limit only tells that there is a next page
+     * @param limit page size
+     */
+    private KeysetPage<DriverView> hydrate(long[] driverIds, int limit)
+    {
+        int count = Math.min(driverIds.length, limit);
+        if (count == 0)
+        {
+            return new KeysetPage<>(List.of(), null);
+        }
+        List<Long> pageIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            pageIds.add(driverIds[i]);
+        }
+        return new KeysetPage<>(driverRepository.findViewsByIdIn(pageIds), driverIds.length > limit ? driverIds[limit - 1] : null);
+    }
+
+
+    private static void checkPageLimit(int limit) throws ConstraintsViolationException
+    {
+        if (limit < 1 || limit > MAX_PAGE_SIZE)
+        {
+            throw new ConstraintsViolationException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
 }
@@ -2,29 +2,59 @@ package com.taxi.service.driver;
 
 import com.taxi.controller.specification.DriverSpecification;
 import com.taxi.domainobject.DriverDO;
+import com.taxi.domainvalue.DriverCluster;
+import com.taxi.domainvalue.DriverFacets;
+import com.taxi.domainvalue.DriverLocation;
+import com.taxi.domainvalue.DriverView;
+import com.taxi.domainvalue.KeysetPage;
+import com.taxi.domainvalue.NearbyDriver;
 import com.taxi.domainvalue.OnlineStatus;
 import com.taxi.exception.CarAlreadyInUseException;
 import com.taxi.exception.ConstraintsViolationException;
 import com.taxi.exception.EntityNotFoundException;
+import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface DriverService
 {
 
+    int MAX_LOCATION_BATCH_SIZE = 10_000;
+
     DriverDO find(Long driverId) throws EntityNotFoundException;
 
+    DriverView findView(long driverId) throws EntityNotFoundException;
+
     DriverDO create(DriverDO driverDO) throws ConstraintsViolationException;
 
     void delete(Long driverId) throws EntityNotFoundException;
 
-    DriverDO updateLocation(long driverId, double longitude, double latitude) throws EntityNotFoundException;
+    DriverDO updateLocation(long driverId, double longitude, double latitude) throws EntityNotFoundException, ConstraintsViolationException;
+
+    void updateLocation(DriverLocation location);
+
+    DriverDO updateOnlineStatus(long driverId, OnlineStatus onlineStatus) throws EntityNotFoundException, ConstraintsViolationException;
+
+    List<DriverLocation> findTrack(long driverId, ZonedDateTime from, ZonedDateTime to, double tolerance) throws ConstraintsViolationException;
+
+    List<DriverLocation> updateLocations(List<DriverLocation> locations) throws ConstraintsViolationException;
 
-    List<DriverDO> find(OnlineStatus onlineStatus);
+    KeysetPage<DriverView> find(OnlineStatus onlineStatus, long cursor, int limit) throws ConstraintsViolationException;
+
+    void stream(OnlineStatus onlineStatus, Consumer<DriverView> action);
 
     DriverDO selectCar(Long driverId, Long carId) throws EntityNotFoundException, CarAlreadyInUseException;
 
     DriverDO deselectCar(Long driverId) throws EntityNotFoundException;
 
-    List<DriverDO> search(DriverSpecification params);
+    KeysetPage<DriverView> search(DriverSpecification params, long cursor, int limit) throws ConstraintsViolationException;
+
+    void streamSearch(DriverSpecification params, Consumer<DriverView> action);
+
+    DriverFacets countFacets(DriverSpecification params);
+
+    List<NearbyDriver> findNearby(double latitude, double longitude, int limit, double radius) throws ConstraintsViolationException;
+
+    List<DriverCluster> findClusters(List<Double> bbox, int zoom) throws ConstraintsViolationException;
 
 }
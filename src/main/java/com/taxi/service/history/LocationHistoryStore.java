@@ -0,0 +1,520 @@
+package com.taxi.service.history;
+
+import com.google.common.base.Preconditions;
+import com.taxi.domainvalue.DriverLocation;
+import com.taxi.domainvalue.GeoCoordinate;
+import com.taxi.event.DriverLocationUpdatedEvent;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Append-only history of accepted driver locations, stored outside the database.
+ * Every driver has its own file of compressed blocks of locations in timestamp order, see {@link TraceCodec}.
+ * Files are written through memory-mapped chunks and a time range is found by binary search over the blocks,
+ * so reading a track only decodes the blocks overlapping the range. At most {@code max-open-files} files are kept
+ * open, the least recently used one is closed when another is opened. The history is off unless enabled together
+ * with a directory.
+ * <p/>
+ */
+@Component
+public class LocationHistoryStore
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(LocationHistoryStore.class);
+
+    private static final int BLOCK_POINTS = 256;
+
+    private static final int BLOCK_HEADER_SIZE = Long.BYTES + 4 * Integer.BYTES;
+
+    private static final long CHUNK_SIZE = 256 * 1024;
+
+    private final Path directory;
+
+    private final boolean enabled;
+
+    private final long idleTimeout;
+
+    private final int maxOpenFiles;
+
+    private final ConcurrentMap<Long, Track> tracks = new ConcurrentHashMap<>();
+
+
+    public LocationHistoryStore(
+        @Value("${driver.location.history.directory:}") String directory,
+        @Value("${driver.location.history.enabled:false}") boolean enabled,
+        @Value("${driver.location.history.idle-timeout:60000}") long idleTimeout,
+        @Value("${driver.location.history.max-open-files:256}") int maxOpenFiles) throws IOException
+    {
+        Preconditions.checkArgument(!enabled || !directory.isBlank(), "driver.location.history.directory must be set to enable the history");
+        Preconditions.checkArgument(maxOpenFiles > 0, "max open files must be positive: " + maxOpenFiles);
+        this.directory = enabled ? Paths.get(directory) : null;
+        this.enabled = enabled;
+        this.idleTimeout = idleTimeout;
+        this.maxOpenFiles = maxOpenFiles;
+        if (enabled)
+        {
+            Files.createDirectories(this.directory);
+        }
+    }
+
+
+    /**
+     * Records a location once the transaction which accepted it has committed.
+     *
+     * @param event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLocationUpdated(DriverLocationUpdatedEvent event)
+    {
+        if (!enabled)
+        {
+            return;
+        }
+        try
+        {
+            append(new DriverLocation(event.getDriverId(), event.getCoordinate(), event.getTimestamp()));
+        }
+        catch (UncheckedIOException e)
+        {
+            LOG.warn("Could not record location of driver {}", event.getDriverId(), e);
+        }
+    }
+
+
+    /**
+     * Append a location to the history of its driver.
+     *
+     * @param location
+     * @return false if the location is not newer than the last recorded location of the driver
+     */
+    public boolean append(DriverLocation location)
+    {
+        long timestamp = location.getTimestamp().toInstant().toEpochMilli();
+        Preconditions.checkArgument(timestamp > 0, "timestamp must be after the epoch: " + location.getTimestamp());
+        while (true)
+        {
+            Track track = track(location.getDriverId());
+            synchronized (track)
+            {
+                if (!track.closed)
+                {
+                    return track.append(timestamp, location.getCoordinate());
+                }
+            }
+            tracks.remove(location.getDriverId(), track);
+        }
+    }
+
+
+    /**
+     * Read the recorded locations of a driver.
+     *
+     * @param driverId
+     * @param from inclusive
+     * @param to exclusive
+     * @return the locations in timestamp order, empty if the history is disabled
+     */
+    public List<DriverLocation> read(long driverId, Instant from, Instant to)
+    {
+        if (!enabled || !from.isBefore(to))
+        {
+            return Collections.emptyList();
+        }
+        while (true)
+        {
+            if (!tracks.containsKey(driverId) && !Files.exists(fileOf(driverId)))
+            {
+                return Collections.emptyList();
+            }
+            Track track = track(driverId);
+            synchronized (track)
+            {
+                if (!track.closed)
+                {
+                    return track.read(driverId, from.toEpochMilli(), to.toEpochMilli());
+                }
+            }
+            tracks.remove(driverId, track);
+        }
+    }
+
+
+    /**
+     * Close files which have not been written for a while. Their tracks are reopened on the next access.
+     */
+    @Scheduled(fixedDelayString = "${driver.location.history.idle-timeout:60000}")
+    public void closeIdle()
+    {
+        long idleSince = System.currentTimeMillis() - idleTimeout;
+        tracks.values().removeIf(track -> track.closeIfIdle(idleSince));
+    }
+
+
+    @PreDestroy
+    public void close()
+    {
+        tracks.values().removeIf(track -> track.closeIfIdle(Long.MAX_VALUE));
+    }
+
+
+    /**
+     * @return the number of open history files
+     */
+    int openFiles()
+    {
+        return tracks.size();
+    }
+
+
+    private Track track(long driverId)
+    {
+        Track track = tracks.get(driverId);
+        if (track == null)
+        {
+            track = tracks.computeIfAbsent(driverId, id -> new Track(fileOf(id)));
+            closeLeastRecentlyUsed(track);
+        }
+        return track;
+    }
+
+
+    /**
+     * Close the least recently used tracks until at most {@code maxOpenFiles} are open, sparing the track just opened.
+     */
+    private void closeLeastRecentlyUsed(Track opened)
+    {
+        while (tracks.size() > maxOpenFiles)
+        {
+            Map.Entry<Long, Track> eldest = null;
+            for (Map.Entry<Long, Track> entry : tracks.entrySet())
+            {
+                if (entry.getValue() != opened && (eldest == null || entry.getValue().lastAccess < eldest.getValue().lastAccess))
+                {
+                    eldest = entry;
+                }
+            }
+            if (eldest == null)
+            {
+                return;
+            }
+            eldest.getValue().closeIfIdle(Long.MAX_VALUE);
+            tracks.remove(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+
+    private Path fileOf(long driverId)
+    {
+        return directory.resolve(driverId + ".track");
+    }
+
+
+    /**
+     * The history file of one driver, a sequence of blocks of up to {@link #BLOCK_POINTS} points encoded with
+     * {@link TraceCodec}. A block starts with a header holding its first point raw, the number of points and the
+     * length of the encoded points, and never crosses a chunk, so the rest of a chunk may be zero padding.
+     * The first timestamp of every block is kept in memory to find the blocks of a time range.
+     * Callers hold the monitor of the track and check that it has not been closed.
+     */
+    private static final class Track
+    {
+        private final FileChannel channel;
+
+        private final TraceCodec.Encoder encoder = new TraceCodec.Encoder();
+
+        private MappedByteBuffer chunk;
+
+        private long chunkIndex = -1;
+
+        private long[] blockOffsets = new long[16];
+
+        private long[] blockTimestamps = new long[16];
+
+        private int blocks;
+
+        private int blockPoints;
+
+        private int blockLength;
+
+        private long lastTimestamp;
+
+        private volatile long lastAccess;
+
+        private boolean closed;
+
+
+        private Track(Path file)
+        {
+            try
+            {
+                channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                scanBlocks();
+                lastAccess = System.currentTimeMillis();
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException("Could not open location history " + file, e);
+            }
+        }
+
+
+        private boolean append(long timestamp, GeoCoordinate coordinate)
+        {
+            if (timestamp <= lastTimestamp)
+            {
+                return false;
+            }
+            int latitude = TraceCodec.quantize(coordinate.getLatitude());
+            int longitude = TraceCodec.quantize(coordinate.getLongitude());
+            try
+            {
+                long tail = blocks == 0 ? 0 : blockOffsets[blocks - 1] + BLOCK_HEADER_SIZE + blockLength;
+                if (blocks == 0 || blockPoints == BLOCK_POINTS || tail % CHUNK_SIZE + TraceCodec.MAX_POINT_BYTES > CHUNK_SIZE)
+                {
+                    startBlock(tail, timestamp, latitude, longitude);
+                }
+                else
+                {
+                    int header = mapChunk(blockOffsets[blocks - 1]);
+                    blockLength += encoder.encode(chunk, header + BLOCK_HEADER_SIZE + blockLength, timestamp, latitude, longitude);
+                    blockPoints++;
+                    chunk.putInt(header + Long.BYTES + Integer.BYTES, blockLength);
+                    chunk.putInt(header + Long.BYTES, blockPoints);
+                }
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+            lastTimestamp = timestamp;
+            lastAccess = System.currentTimeMillis();
+            return true;
+        }
+
+
+        private List<DriverLocation> read(long driverId, long from, long to)
+        {
+            int first = Math.max(0, lastBlockStartingAtOrBefore(from));
+            int end = lastBlockStartingAtOrBefore(to - 1) + 1;
+            if (first >= end)
+            {
+                return Collections.emptyList();
+            }
+            lastAccess = System.currentTimeMillis();
+            try
+            {
+                long offset = blockOffsets[first];
+                long length = end == blocks ? blockOffsets[end - 1] + BLOCK_HEADER_SIZE + blockLength - offset : blockOffsets[end] - offset;
+                ByteBuffer records = ByteBuffer.allocate(Math.toIntExact(length));
+                while (records.hasRemaining() && channel.read(records, offset + records.position()) >= 0)
+                {
+                    // read the whole range, the written chunk is shared through the page cache
+                }
+                records.flip();
+                List<DriverLocation> locations = new ArrayList<>();
+                TraceCodec.Encoder decoder = new TraceCodec.Encoder();
+                for (int block = first; block < end; block++)
+                {
+                    records.position((int) (blockOffsets[block] - offset));
+                    int points = readHeader(records, decoder);
+                    for (int point = 0; point < points && decoder.timestamp() < to; point++)
+                    {
+                        if (point > 0)
+                        {
+                            decoder.decode(records);
+                        }
+                        if (decoder.timestamp() >= from && decoder.timestamp() < to)
+                        {
+                            GeoCoordinate coordinate = new GeoCoordinate(TraceCodec.dequantize(decoder.latitude()), TraceCodec.dequantize(decoder.longitude()));
+                            ZonedDateTime timestamp = ZonedDateTime.ofInstant(Instant.ofEpochMilli(decoder.timestamp()), ZoneOffset.UTC);
+                            locations.add(new DriverLocation(driverId, coordinate, timestamp));
+                        }
+                    }
+                }
+                return locations;
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+
+        private synchronized boolean closeIfIdle(long idleSince)
+        {
+            if (lastAccess > idleSince)
+            {
+                return false;
+            }
+            try
+            {
+                if (chunk != null)
+                {
+                    chunk.force();
+                }
+                channel.close();
+            }
+            catch (IOException e)
+            {
+                LOG.warn("Could not close location history", e);
+            }
+            chunk = null;
+            closed = true;
+            return true;
+        }
+
+
+        private void startBlock(long offset, long timestamp, int latitude, int longitude) throws IOException
+        {
+            if (offset % CHUNK_SIZE + BLOCK_HEADER_SIZE + TraceCodec.MAX_POINT_BYTES > CHUNK_SIZE)
+            {
+                offset = (offset / CHUNK_SIZE + 1) * CHUNK_SIZE;
+            }
+            int header = mapChunk(offset);
+            chunk.putInt(header + Long.BYTES, 1);
+            chunk.putInt(header + Long.BYTES + Integer.BYTES, 0);
+            chunk.putInt(header + Long.BYTES + 2 * Integer.BYTES, latitude);
+            chunk.putInt(header + Long.BYTES + 3 * Integer.BYTES, longitude);
+            chunk.putLong(header, timestamp);
+
+            addBlock(offset, timestamp);
+            encoder.reset(timestamp, latitude, longitude);
+            blockPoints = 1;
+            blockLength = 0;
+        }
+
+
+        /**
+         * Rebuild the block index and the encoder state from the file when it is opened.
+         */
+        private void scanBlocks() throws IOException
+        {
+            ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+            long offset = 0;
+            while (offset + BLOCK_HEADER_SIZE <= channel.size())
+            {
+                channel.read(header.clear(), offset);
+                long timestamp = header.getLong(0);
+                if (timestamp != 0)
+                {
+                    addBlock(offset, timestamp);
+                    offset += BLOCK_HEADER_SIZE + header.getInt(Long.BYTES + Integer.BYTES);
+                }
+                else if (offset % CHUNK_SIZE != 0)
+                {
+                    offset = (offset / CHUNK_SIZE + 1) * CHUNK_SIZE;
+                }
+                else
+                {
+                    break;
+                }
+            }
+            if (blocks > 0)
+            {
+                long last = blockOffsets[blocks - 1];
+                channel.read(header.clear(), last);
+                blockLength = header.getInt(Long.BYTES + Integer.BYTES);
+                ByteBuffer block = ByteBuffer.allocate(BLOCK_HEADER_SIZE + blockLength);
+                channel.read(block, last);
+                blockPoints = readHeader(block.flip(), encoder);
+                for (int point = 1; point < blockPoints; point++)
+                {
+                    encoder.decode(block);
+                }
+                lastTimestamp = encoder.timestamp();
+            }
+        }
+
+
+        /**
+         * Read a block header and reset the decoder to the first point of the block.
+         *
+         * @return the number of points in the block
+         */
+        private static int readHeader(ByteBuffer buffer, TraceCodec.Encoder decoder)
+        {
+            long timestamp = buffer.getLong();
+            int points = buffer.getInt();
+            buffer.getInt();
+            decoder.reset(timestamp, buffer.getInt(), buffer.getInt());
+            return points;
+        }
+
+
+        private void addBlock(long offset, long timestamp)
+        {
+            if (blocks == blockOffsets.length)
+            {
+                blockOffsets = Arrays.copyOf(blockOffsets, blocks * 2);
+                blockTimestamps = Arrays.copyOf(blockTimestamps, blocks * 2);
+            }
+            blockOffsets[blocks] = offset;
+            blockTimestamps[blocks] = timestamp;
+            blocks++;
+        }
+
+
+        /**
+         * @return the index of the last block starting at or before the timestamp, or -1
+         */
+        private int lastBlockStartingAtOrBefore(long timestamp)
+        {
+            int low = 0;
+            int high = blocks;
+            while (low < high)
+            {
+                int middle = (low + high) >>> 1;
+                if (blockTimestamps[middle] <= timestamp)
+                {
+                    low = middle + 1;
+                }
+                else
+                {
+                    high = middle;
+                }
+            }
+            return low - 1;
+        }
+
+
+        /**
+         * Map the chunk containing the offset for writing.
+         *
+         * @return the position of the offset inside the chunk
+         */
+        private int mapChunk(long offset) throws IOException
+        {
+            long index = offset / CHUNK_SIZE;
+            if (chunk == null || chunkIndex != index)
+            {
+                chunk = channel.map(FileChannel.MapMode.READ_WRITE, index * CHUNK_SIZE, CHUNK_SIZE);
+                chunkIndex = index;
+            }
+            return (int) (offset % CHUNK_SIZE);
+        }
+    }
+}
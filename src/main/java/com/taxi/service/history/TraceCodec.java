@@ -0,0 +1,158 @@
+package com.taxi.service.history;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compact encoding of location traces.
+ * Coordinates are quantized to 1e-7 degrees (about 1 cm) and stored as deltas to the previous point,
+ * timestamps as the change of the delta to the previous point (delta-of-delta). Both are zigzag encoded
+ * variable length integers, so a vehicle reporting at a steady interval costs a few bytes per point
+ * instead of the 24 bytes of a raw timestamp and two doubles.
+ * <p/>
+ */
+final class TraceCodec
+{
+    /**
+     * Upper bound of the bytes one encoded point can take.
+     */
+    static final int MAX_POINT_BYTES = 10 + 5 + 5;
+
+    private static final double SCALE = 1e7;
+
+
+    private TraceCodec()
+    {
+    }
+
+
+    static int quantize(double degrees)
+    {
+        return (int) Math.round(degrees * SCALE);
+    }
+
+
+    static double dequantize(int value)
+    {
+        return value / SCALE;
+    }
+
+
+    /**
+     * Write a signed value as zigzag variable length integer.
+     *
+     * @param buffer
+     * @param position absolute position to write at
+     * @param value
+     * @return the number of bytes written
+     */
+    static int putVarLong(ByteBuffer buffer, int position, long value)
+    {
+        long zigzag = (value << 1) ^ (value >> 63);
+        int written = 0;
+        while ((zigzag & ~0x7FL) != 0)
+        {
+            buffer.put(position + written++, (byte) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        buffer.put(position + written++, (byte) zigzag);
+        return written;
+    }
+
+
+    /**
+     * Read a zigzag variable length integer at the position of the buffer.
+     *
+     * @param buffer
+     * @return the signed value
+     */
+    static long getVarLong(ByteBuffer buffer)
+    {
+        long zigzag = 0;
+        int shift = 0;
+        byte current;
+        do
+        {
+            current = buffer.get();
+            zigzag |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        }
+        while (current < 0);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+
+    /**
+     * State of the trace encoder, the last point written and the last timestamp delta.
+     */
+    static final class Encoder
+    {
+        private long timestamp;
+
+        private long delta;
+
+        private int latitude;
+
+        private int longitude;
+
+
+        /**
+         * Start encoding from a raw point, as at the beginning of a block.
+         */
+        void reset(long timestamp, int latitude, int longitude)
+        {
+            this.timestamp = timestamp;
+            this.delta = 0;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+
+        /**
+         * Encode the next point.
+         *
+         * @return the number of bytes written, at most {@link #MAX_POINT_BYTES}
+         */
+        int encode(ByteBuffer buffer, int position, long timestamp, int latitude, int longitude)
+        {
+            long nextDelta = timestamp - this.timestamp;
+            int written = putVarLong(buffer, position, nextDelta - delta);
+            written += putVarLong(buffer, position + written, (long) latitude - this.latitude);
+            written += putVarLong(buffer, position + written, (long) longitude - this.longitude);
+            this.timestamp = timestamp;
+            this.delta = nextDelta;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            return written;
+        }
+
+
+        /**
+         * Decode the next point at the position of the buffer.
+         */
+        void decode(ByteBuffer buffer)
+        {
+            delta += getVarLong(buffer);
+            timestamp += delta;
+            latitude += (int) getVarLong(buffer);
+            longitude += (int) getVarLong(buffer);
+        }
+
+
+        long timestamp()
+        {
+            return timestamp;
+        }
+
+
+        int latitude()
+        {
+            return latitude;
+        }
+
+
+        int longitude()
+        {
+            return longitude;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.taxi.service.history;
+
+import com.taxi.domainvalue.DriverLocation;
+import com.taxi.domainvalue.GeoCoordinate;
+import com.taxi.util.GeoDistance;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Douglas-Peucker simplification of location traces.
+ * Distances are measured on a local equirectangular projection around the first point, which is accurate
+ * enough for the extent of a single trace.
+ * <p/>
+ */
+public final class TraceSimplifier
+{
+
+    private TraceSimplifier()
+    {
+    }
+
+
+    /**
+     * Drop the points which are closer than the tolerance to the simplified line. The first and last point are kept.
+     *
+     * @param trace locations in timestamp order
+     * @param tolerance maximum distance in meters between a dropped point and the simplified line
+     * @return the simplified trace
+     */
+    public static List<DriverLocation> simplify(List<DriverLocation> trace, double tolerance)
+    {
+        int size = trace.size();
+        if (size < 3 || tolerance <= 0)
+        {
+            return trace;
+        }
+
+        double scaleX = GeoDistance.METERS_PER_DEGREE * Math.cos(Math.toRadians(trace.get(0).getCoordinate().getLatitude()));
+        double[] x = new double[size];
+        double[] y = new double[size];
+        for (int i = 0; i < size; i++)
+        {
+            GeoCoordinate coordinate = trace.get(i).getCoordinate();
+            x[i] = coordinate.getLongitude() * scaleX;
+            y[i] = coordinate.getLatitude() * GeoDistance.METERS_PER_DEGREE;
+        }
+
+        BitSet kept = new BitSet(size);
+        kept.set(0);
+        kept.set(size - 1);
+        Deque<int[]> segments = new ArrayDeque<>();
+        segments.push(new int[] {0, size - 1});
+        double squaredTolerance = tolerance * tolerance;
+        while (!segments.isEmpty())
+        {
+            int[] segment = segments.pop();
+            int first = segment[0];
+            int last = segment[1];
+            int farthest = -1;
+            double farthestDistance = squaredTolerance;
+            for (int i = first + 1; i < last; i++)
+            {
+                double distance = squaredSegmentDistance(x[i], y[i], x[first], y[first], x[last], y[last]);
+                if (distance > farthestDistance)
+                {
+                    farthest = i;
+                    farthestDistance = distance;
+                }
+            }
+            if (farthest >= 0)
+            {
+                kept.set(farthest);
+                segments.push(new int[] {first, farthest});
+                segments.push(new int[] {farthest, last});
+            }
+        }
+
+        List<DriverLocation> simplified = new ArrayList<>(kept.cardinality());
+        for (int i = kept.nextSetBit(0); i >= 0; i = kept.nextSetBit(i + 1))
+        {
+            simplified.add(trace.get(i));
+        }
+        return simplified;
+    }
+
+
+    private static double squaredSegmentDistance(double x, double y, double x1, double y1, double x2, double y2)
+    {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double squaredLength = dx * dx + dy * dy;
+        double t = squaredLength == 0 ? 0 : Math.max(0, Math.min(1, ((x - x1) * dx + (y - y1) * dy) / squaredLength));
+        double px = x1 + t * dx - x;
+        double py = y1 + t * dy - y;
+        return px * px + py * py;
+    }
+}
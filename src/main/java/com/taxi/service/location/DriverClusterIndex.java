@@ -0,0 +1,264 @@
+package com.taxi.service.location;
+
+import com.taxi.domainvalue.DriverCluster;
+import com.taxi.domainvalue.GeoCoordinate;
+import com.taxi.event.DriverPositionChangedEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Hierarchical grid of driver clusters for map display, one level per zoom level.
+ * Positions are projected to Web Mercator like map tiles, a tile of zoom level z is split into
+ * {@code 2^CELL_BITS x 2^CELL_BITS} cells and every cell keeps the number and the coordinate sums of the drivers
+ * inside it. A position change adjusts one cell per level, so a query only reads the cells inside the requested
+ * box and costs as much as the resolution of the map, independent of the number of drivers.
+ * <p/>
+ */
+@Component
+public class DriverClusterIndex
+{
+
+    public static final int MAX_ZOOM = 18;
+
+    /** Cells per tile and axis as power of two, 4 x 4 cells of 64 pixels on a 256 pixel tile. */
+    static final int CELL_BITS = 2;
+
+    private static final int FINEST_BITS = MAX_ZOOM + CELL_BITS;
+
+    private static final double MAX_LATITUDE = 85.05112878;
+
+    private static final double E7 = 1e7;
+
+    private final List<ConcurrentMap<Long, Cell>> levels;
+
+    private final ConcurrentMap<Long, Position> positions = new ConcurrentHashMap<>();
+
+
+    public DriverClusterIndex()
+    {
+        levels = new ArrayList<>(MAX_ZOOM + 1);
+        for (int zoom = 0; zoom <= MAX_ZOOM; zoom++)
+        {
+            levels.add(new ConcurrentHashMap<>());
+        }
+    }
+
+
+    /**
+     * Moves the driver from the position it has been counted at, unless a later change has been applied already.
+     * The last position and sequence of a driver are kept after it left the index to recognize late changes.
+     *
+     * @param event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPositionChanged(DriverPositionChangedEvent event)
+    {
+        positions.compute(event.getDriverId(), (driverId, position) -> {
+            if (position != null && position.sequence > event.getSequence())
+            {
+                return position;
+            }
+            move(position == null ? null : position.coordinate, event.getCurrent());
+            return new Position(event.getCurrent(), event.getSequence());
+        });
+    }
+
+
+    private void move(GeoCoordinate previous, GeoCoordinate current)
+    {
+        if (previous == null && current == null)
+        {
+            return;
+        }
+        int previousX = previous == null ? 0 : x(previous.getLongitude());
+        int previousY = previous == null ? 0 : y(previous.getLatitude());
+        int currentX = current == null ? 0 : x(current.getLongitude());
+        int currentY = current == null ? 0 : y(current.getLatitude());
+        for (int zoom = 0; zoom <= MAX_ZOOM; zoom++)
+        {
+            ConcurrentMap<Long, Cell> cells = levels.get(zoom);
+            int shift = MAX_ZOOM - zoom;
+            if (previous != null)
+            {
+                cells.computeIfPresent(key(previousX >>> shift, previousY >>> shift), (key, cell) -> cell.minus(previous));
+            }
+            if (current != null)
+            {
+                cells.merge(key(currentX >>> shift, currentY >>> shift), Cell.of(current), Cell::plus);
+            }
+        }
+    }
+
+
+    /**
+     * Number of cells a query of the given box at the given zoom level would read.
+     *
+     * @param minLatitude
+     * @param minLongitude
+     * @param maxLatitude
+     * @param maxLongitude
+     * @param zoom between 0 and {@link #MAX_ZOOM}
+     * @return number of cells
+     */
+    public long cellCount(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude, int zoom)
+    {
+        int shift = MAX_ZOOM - zoom;
+        long columns = (x(maxLongitude) >>> shift) - (x(minLongitude) >>> shift) + 1L;
+        long rows = (y(minLatitude) >>> shift) - (y(maxLatitude) >>> shift) + 1L;
+        return columns * rows;
+    }
+
+
+    /**
+     * Clusters of the drivers inside a box, one per occupied cell of the zoom level.
+     *
+     * @param minLatitude
+     * @param minLongitude
+     * @param maxLatitude
+     * @param maxLongitude
+     * @param zoom between 0 and {@link #MAX_ZOOM}
+     * @return the clusters, in no particular order
+     */
+    public List<DriverCluster> clusters(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude, int zoom)
+    {
+        ConcurrentMap<Long, Cell> cells = levels.get(zoom);
+        int shift = MAX_ZOOM - zoom;
+        int minX = x(minLongitude) >>> shift;
+        int maxX = x(maxLongitude) >>> shift;
+        int minY = y(maxLatitude) >>> shift;
+        int maxY = y(minLatitude) >>> shift;
+
+        List<DriverCluster> clusters = new ArrayList<>();
+        if ((long) (maxX - minX + 1) * (maxY - minY + 1) <= cells.size())
+        {
+            for (int cellX = minX; cellX <= maxX; cellX++)
+            {
+                for (int cellY = minY; cellY <= maxY; cellY++)
+                {
+                    addCluster(cells.get(key(cellX, cellY)), clusters);
+                }
+            }
+        }
+        else
+        {
+            for (Map.Entry<Long, Cell> entry : cells.entrySet())
+            {
+                int cellX = (int) (entry.getKey() >>> 32);
+                int cellY = (int) (long) entry.getKey();
+                if (cellX >= minX && cellX <= maxX && cellY >= minY && cellY <= maxY)
+                {
+                    addCluster(entry.getValue(), clusters);
+                }
+            }
+        }
+        return clusters;
+    }
+
+
+    private static void addCluster(Cell cell, List<DriverCluster> clusters)
+    {
+        if (cell != null)
+        {
+            GeoCoordinate centroid = new GeoCoordinate(cell.latitudeSum / (cell.count * E7), cell.longitudeSum / (cell.count * E7));
+            clusters.add(new DriverCluster(centroid, cell.count));
+        }
+    }
+
+
+    /**
+     * @param longitude
+     * @return column of the finest level
+     */
+    private static int x(double longitude)
+    {
+        return toCell((longitude + 180) / 360);
+    }
+
+
+    /**
+     * @param latitude
+     * @return row of the finest level, counted from the north like map tiles
+     */
+    private static int y(double latitude)
+    {
+        double sinLatitude = Math.sin(Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude))));
+        return toCell(0.5 - Math.log((1 + sinLatitude) / (1 - sinLatitude)) / (4 * Math.PI));
+    }
+
+
+    private static int toCell(double fraction)
+    {
+        int cells = 1 << FINEST_BITS;
+        return (int) Math.max(0, Math.min(cells - 1, Math.floor(fraction * cells)));
+    }
+
+
+    private static long key(int x, int y)
+    {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+
+    private static final class Position
+    {
+        private final GeoCoordinate coordinate;
+
+        private final long sequence;
+
+
+        private Position(GeoCoordinate coordinate, long sequence)
+        {
+            this.coordinate = coordinate;
+            this.sequence = sequence;
+        }
+    }
+
+
+    /**
+     * Immutable aggregate of one cell, coordinates are summed as integers of 1e-7 degrees so that removing a driver
+     * restores the sums exactly.
+     */
+    private static final class Cell
+    {
+        private final int count;
+
+        private final long latitudeSum;
+
+        private final long longitudeSum;
+
+
+        private Cell(int count, long latitudeSum, long longitudeSum)
+        {
+            this.count = count;
+            this.latitudeSum = latitudeSum;
+            this.longitudeSum = longitudeSum;
+        }
+
+
+        private static Cell of(GeoCoordinate coordinate)
+        {
+            return new Cell(1, Math.round(coordinate.getLatitude() * E7), Math.round(coordinate.getLongitude() * E7));
+        }
+
+
+        private Cell plus(Cell other)
+        {
+            return new Cell(count + other.count, latitudeSum + other.latitudeSum, longitudeSum + other.longitudeSum);
+        }
+
+
+        private Cell minus(GeoCoordinate coordinate)
+        {
+            if (count == 1)
+            {
+                return null;
+            }
+            return new Cell(count - 1, latitudeSum - Math.round(coordinate.getLatitude() * E7), longitudeSum - Math.round(coordinate.getLongitude() * E7));
+        }
+    }
+}
@@ -0,0 +1,513 @@
+package com.taxi.service.location;
+
+import com.google.common.base.Preconditions;
+import com.taxi.dataaccessobject.DriverRepository;
+import com.taxi.domainobject.DriverDO;
+import com.taxi.domainvalue.GeoCoordinate;
+import com.taxi.domainvalue.NearbyDriver;
+import com.taxi.domainvalue.OnlineStatus;
+import com.taxi.event.DriverDeletedEvent;
+import com.taxi.event.DriverLocationUpdatedEvent;
+import com.taxi.event.DriverOnlineStatusChangedEvent;
+import com.taxi.event.DriverPositionChangedEvent;
+import com.taxi.util.GeoDistance;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.LongPredicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Concurrent in-memory grid index over the positions of online drivers.
+ * The world is divided into cells of {@code cellSize} degrees, each holding the ids of the drivers inside it,
+ * so a nearest-k query only visits the cells around the query point instead of every online driver. The distances
+ * of the drivers in a visited cell are computed in one batch over packed coordinate arrays.
+ * Every change of an indexed position is published as {@link DriverPositionChangedEvent} once the update of the
+ * driver's entry is done. The event is numbered inside the update, so listeners can restore the order of the events
+ * of one driver.
+ * <p/>
+ */
+@Component
+public class DriverLocationIndex
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(DriverLocationIndex.class);
+
+    private static final Comparator<NearbyDriver> BY_DISTANCE = Comparator.comparingDouble(NearbyDriver::getDistance);
+
+    private final DriverRepository driverRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final double cellSize;
+
+    private final int rows;
+
+    private final int columns;
+
+    private final Set<Long> onlineDrivers = ConcurrentHashMap.newKeySet();
+
+    private final ConcurrentMap<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+
+    public DriverLocationIndex(
+        final DriverRepository driverRepository, ApplicationEventPublisher eventPublisher,
+        @Value("${driver.location.index.cell-size:0.01}") double cellSize)
+    {
+        Preconditions.checkArgument(cellSize > 0 && cellSize <= 1, "cell size must be in (0, 1] degrees: " + cellSize);
+        this.driverRepository = driverRepository;
+        this.eventPublisher = eventPublisher;
+        this.cellSize = cellSize;
+        this.rows = (int) Math.ceil(180 / cellSize) + 1;
+        this.columns = (int) Math.ceil(360 / cellSize);
+    }
+
+
+    /**
+     * Fills the index with the online drivers stored in the database, once on startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load()
+    {
+        for (DriverDO driverDO : driverRepository.findByOnlineStatus(OnlineStatus.ONLINE))
+        {
+            if (!Boolean.TRUE.equals(driverDO.getDeleted()))
+            {
+                markOnline(driverDO.getId(), driverDO.getCoordinate(), driverDO.getDateCoordinateUpdated());
+            }
+        }
+        LOG.info("Driver location index loaded with {} online drivers, {} positioned", onlineDrivers.size(), entries.size());
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLocationUpdated(DriverLocationUpdatedEvent event)
+    {
+        update(event.getDriverId(), event.getCoordinate(), event.getTimestamp().toInstant().toEpochMilli());
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverDeleted(DriverDeletedEvent event)
+    {
+        markOffline(event.getDriverId());
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOnlineStatusChanged(DriverOnlineStatusChangedEvent event)
+    {
+        if (event.getOnlineStatus() == OnlineStatus.ONLINE)
+        {
+            markOnline(event.getDriverId(), event.getCoordinate(), event.getDateCoordinateUpdated());
+        }
+        else
+        {
+            markOffline(event.getDriverId());
+        }
+    }
+
+
+    /**
+     * Start tracking a driver, optionally with its last known position.
+     *
+     * @param driverId
+     * @param coordinate may be null if the driver has not reported a position yet
+     * @param dateCoordinateUpdated when the position has been reported, null counts as now
+     */
+    public void markOnline(long driverId, GeoCoordinate coordinate, ZonedDateTime dateCoordinateUpdated)
+    {
+        onlineDrivers.add(driverId);
+        if (coordinate != null)
+        {
+            update(driverId, coordinate, dateCoordinateUpdated == null ? System.currentTimeMillis() : dateCoordinateUpdated.toInstant().toEpochMilli());
+        }
+    }
+
+
+    /**
+     * Start tracking a driver at a position reported now.
+     *
+     * @param driverId
+     * @param coordinate
+     */
+    public void markOnline(long driverId, GeoCoordinate coordinate)
+    {
+        markOnline(driverId, coordinate, null);
+    }
+
+
+    /**
+     * Stop tracking a driver and remove it from its cell.
+     *
+     * @param driverId
+     */
+    public void markOffline(long driverId)
+    {
+        onlineDrivers.remove(driverId);
+        DriverPositionChangedEvent[] removed = new DriverPositionChangedEvent[1];
+        entries.computeIfPresent(driverId, (id, previous) -> {
+            removeFromCell(previous.cell, id);
+            removed[0] = new DriverPositionChangedEvent(id, previous.coordinate, null, 0, sequence.incrementAndGet());
+            return null;
+        });
+        publish(removed[0]);
+    }
+
+
+    /**
+     * Move a driver to a position reported now.
+     *
+     * @param driverId
+     * @param coordinate
+     * @return true if the driver is online and its position has been indexed
+     */
+    public boolean update(long driverId, GeoCoordinate coordinate)
+    {
+        return update(driverId, coordinate, System.currentTimeMillis());
+    }
+
+
+    /**
+     * Move a driver to the given position. Positions of drivers which are not online are ignored,
+     * as well as positions older than the indexed one.
+     *
+     * @param driverId
+     * @param coordinate
+     * @param timestamp epoch millis when the position has been reported
+     * @return true if the driver is online and its position has been indexed
+     */
+    public boolean update(long driverId, GeoCoordinate coordinate, long timestamp)
+    {
+        long cell = cellOf(coordinate.getLatitude(), coordinate.getLongitude());
+        DriverPositionChangedEvent[] changed = new DriverPositionChangedEvent[1];
+        Entry updated = entries.compute(driverId, (id, previous) -> {
+            if (!onlineDrivers.contains(id))
+            {
+                if (previous != null)
+                {
+                    removeFromCell(previous.cell, id);
+                    changed[0] = new DriverPositionChangedEvent(id, previous.coordinate, null, 0, sequence.incrementAndGet());
+                }
+                return null;
+            }
+            if (previous != null && previous.timestamp > timestamp)
+            {
+                return previous;
+            }
+            if (previous == null || previous.cell != cell)
+            {
+                if (previous != null)
+                {
+                    removeFromCell(previous.cell, id);
+                }
+                addToCell(cell, id);
+            }
+            changed[0] = new DriverPositionChangedEvent(id, previous == null ? null : previous.coordinate, coordinate, timestamp, sequence.incrementAndGet());
+            return new Entry(coordinate, cell, timestamp);
+        });
+        publish(changed[0]);
+        return updated != null && updated.timestamp == timestamp;
+    }
+
+
+    /**
+     * Remove the position of a driver which has not been updated since the given time. The driver stays online,
+     * so its next position is indexed again.
+     *
+     * @param driverId
+     * @param timestamp epoch millis of the stale position
+     * @return true if the position has been removed
+     */
+    public boolean expire(long driverId, long timestamp)
+    {
+        DriverPositionChangedEvent[] expired = new DriverPositionChangedEvent[1];
+        entries.computeIfPresent(driverId, (id, previous) -> {
+            if (previous.timestamp > timestamp)
+            {
+                return previous;
+            }
+            removeFromCell(previous.cell, id);
+            expired[0] = new DriverPositionChangedEvent(id, previous.coordinate, null, 0, sequence.incrementAndGet());
+            return null;
+        });
+        publish(expired[0]);
+        return expired[0] != null;
+    }
+
+
+    /**
+     * Find the nearest online drivers around a point.
+     *
+     * @param latitude
+     * @param longitude
+     * @param limit maximum number of drivers to return
+     * @param radius maximum distance in meters
+     * @return up to {@code limit} drivers within {@code radius}, closest first
+     */
+    public List<NearbyDriver> findNearest(double latitude, double longitude, int limit, double radius)
+    {
+        return findNearest(latitude, longitude, limit, radius, driverId -> true);
+    }
+
+
+    /**
+     * Find the nearest online drivers around a point which pass a filter. The filter is only asked for drivers
+     * which are close enough to be returned.
+     *
+     * @param latitude
+     * @param longitude
+     * @param limit maximum number of drivers to return
+     * @param radius maximum distance in meters
+     * @param filter accepting the ids of drivers which may be returned
+     * @return up to {@code limit} drivers within {@code radius}, closest first
+     */
+    public List<NearbyDriver> findNearest(double latitude, double longitude, int limit, double radius, LongPredicate filter)
+    {
+        PriorityQueue<NearbyDriver> best = new PriorityQueue<>(limit, BY_DISTANCE.reversed());
+        CellBuffer buffer = new CellBuffer();
+
+        double latitudeRadius = radius / GeoDistance.METERS_PER_DEGREE;
+        double farthestLatitude = Math.min(90, Math.abs(latitude) + latitudeRadius);
+        double minCellMeters = cellSize * GeoDistance.METERS_PER_DEGREE * Math.cos(Math.toRadians(farthestLatitude));
+
+        int maxRowOffset = (int) Math.ceil(latitudeRadius / cellSize);
+        int maxColumnOffset = (columns - 1) / 2;
+        if (minCellMeters > 0)
+        {
+            maxColumnOffset = (int) Math.min(maxColumnOffset, Math.ceil(radius / minCellMeters));
+        }
+
+        int row = rowOf(latitude);
+        int column = columnOf(longitude);
+        int maxRing = Math.max(maxRowOffset, maxColumnOffset);
+        for (int ring = 0; ring <= maxRing; ring++)
+        {
+            if (best.size() == limit && (ring - 1) * minCellMeters > best.peek().getDistance())
+            {
+                break;
+            }
+            for (int rowOffset = -Math.min(ring, maxRowOffset); rowOffset <= Math.min(ring, maxRowOffset); rowOffset++)
+            {
+                if (Math.abs(rowOffset) == ring)
+                {
+                    for (int columnOffset = -Math.min(ring, maxColumnOffset); columnOffset <= Math.min(ring, maxColumnOffset); columnOffset++)
+                    {
+                        visit(row + rowOffset, column + columnOffset, latitude, longitude, limit, radius, filter, best, buffer);
+                    }
+                }
+                else if (ring <= maxColumnOffset)
+                {
+                    visit(row + rowOffset, column - ring, latitude, longitude, limit, radius, filter, best, buffer);
+                    visit(row + rowOffset, column + ring, latitude, longitude, limit, radius, filter, best, buffer);
+                }
+            }
+        }
+
+        List<NearbyDriver> result = new ArrayList<>(best);
+        result.sort(BY_DISTANCE);
+        return result;
+    }
+
+
+    /**
+     * @param driverId
+     * @return the indexed position of an online driver or null
+     */
+    public GeoCoordinate positionOf(long driverId)
+    {
+        Entry entry = entries.get(driverId);
+        return entry == null ? null : entry.coordinate;
+    }
+
+
+    /**
+     * Visit the indexed position of every online driver.
+     *
+     * @param consumer called with driver id and position
+     */
+    public void forEachPosition(BiConsumer<Long, GeoCoordinate> consumer)
+    {
+        entries.forEach((driverId, entry) -> consumer.accept(driverId, entry.coordinate));
+    }
+
+
+    public boolean isOnline(long driverId)
+    {
+        return onlineDrivers.contains(driverId);
+    }
+
+
+    public int size()
+    {
+        return entries.size();
+    }
+
+
+    private void visit(
+        int row, int column, double latitude, double longitude, int limit, double radius, LongPredicate filter, PriorityQueue<NearbyDriver> best,
+        CellBuffer buffer)
+    {
+        if (row < 0 || row >= rows)
+        {
+            return;
+        }
+        Set<Long> driverIds = cells.get(key(row, Math.floorMod(column, columns)));
+        if (driverIds == null)
+        {
+            return;
+        }
+        buffer.clear();
+        for (Long driverId : driverIds)
+        {
+            Entry entry = entries.get(driverId);
+            if (entry != null)
+            {
+                buffer.add(driverId, entry.coordinate);
+            }
+        }
+        GeoDistance.haversine(latitude, longitude, buffer.latitudes, buffer.longitudes, buffer.size, buffer.distances);
+        for (int i = 0; i < buffer.size; i++)
+        {
+            long driverId = buffer.driverIds[i];
+            double distance = buffer.distances[i];
+            if (distance > radius || best.size() == limit && distance >= best.peek().getDistance() || !filter.test(driverId))
+            {
+                continue;
+            }
+            if (best.size() == limit)
+            {
+                best.poll();
+            }
+            best.add(new NearbyDriver(driverId, buffer.coordinates[i], distance));
+        }
+    }
+
+
+    private void publish(DriverPositionChangedEvent event)
+    {
+        if (event != null)
+        {
+            eventPublisher.publishEvent(event);
+        }
+    }
+
+
+    private void addToCell(long cell, long driverId)
+    {
+        cells.compute(cell, (key, driverIds) -> {
+            Set<Long> ids = driverIds == null ? ConcurrentHashMap.newKeySet() : driverIds;
+            ids.add(driverId);
+            return ids;
+        });
+    }
+
+
+    private void removeFromCell(long cell, long driverId)
+    {
+        cells.computeIfPresent(cell, (key, driverIds) -> {
+            driverIds.remove(driverId);
+            return driverIds.isEmpty() ? null : driverIds;
+        });
+    }
+
+
+    private long cellOf(double latitude, double longitude)
+    {
+        return key(rowOf(latitude), columnOf(longitude));
+    }
+
+
+    private int rowOf(double latitude)
+    {
+        return (int) Math.floor((latitude + 90) / cellSize);
+    }
+
+
+    private int columnOf(double longitude)
+    {
+        return Math.floorMod((int) Math.floor((longitude + 180) / cellSize), columns);
+    }
+
+
+    private long key(int row, int column)
+    {
+        return (long) row * columns + column;
+    }
+
+
+    private static final class Entry
+    {
+        private final GeoCoordinate coordinate;
+        private final long cell;
+        private final long timestamp;
+
+
+        private Entry(GeoCoordinate coordinate, long cell, long timestamp)
+        {
+            this.coordinate = coordinate;
+            this.cell = cell;
+            this.timestamp = timestamp;
+        }
+    }
+
+
+    /**
+     * Positions of the drivers of one cell packed into arrays, so their distances are computed in one batch.
+     * Reused for every cell visited by a query.
+     */
+    private static final class CellBuffer
+    {
+        private long[] driverIds = new long[16];
+        private GeoCoordinate[] coordinates = new GeoCoordinate[16];
+        private double[] latitudes = new double[16];
+        private double[] longitudes = new double[16];
+        private double[] distances = new double[16];
+        private int size;
+
+
+        private void clear()
+        {
+            Arrays.fill(coordinates, 0, size, null);
+            size = 0;
+        }
+
+
+        private void add(long driverId, GeoCoordinate coordinate)
+        {
+            if (size == driverIds.length)
+            {
+                int capacity = 2 * size;
+                driverIds = Arrays.copyOf(driverIds, capacity);
+                coordinates = Arrays.copyOf(coordinates, capacity);
+                latitudes = Arrays.copyOf(latitudes, capacity);
+                longitudes = Arrays.copyOf(longitudes, capacity);
+                distances = new double[capacity];
+            }
+            driverIds[size] = driverId;
+            coordinates[size] = coordinate;
+            latitudes[size] = coordinate.getLatitude();
+            longitudes[size] = coordinate.getLongitude();
+            size++;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.taxi.service.location;
+
+import com.google.common.base.Preconditions;
+import com.taxi.dataaccessobject.DriverRepository;
+import com.taxi.domainvalue.DriverLocation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Write-behind buffer for driver locations. Keeps only the latest pending location per driver and writes
+ * all pending locations as one JDBC batch, either periodically or, handed to the scheduler, as soon as too many
+ * drivers are pending. A batch which fails {@code maxAttempts} times in a row is dropped and counted. Only the
+ * locations the database has applied are handed to the {@link LocationWriteSuppressor} as written.
+ * <p/>
+ */
+@Component
+public class DriverLocationWriteBehindBuffer
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(DriverLocationWriteBehindBuffer.class);
+
+    private final DriverRepository driverRepository;
+
+    private final LocationWriteSuppressor writeSuppressor;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+
+    private final int maxPending;
+
+    private final int maxAttempts;
+
+    private final TaskScheduler taskScheduler;
+
+    private final Counter droppedCounter;
+
+    private final ConcurrentMap<Long, DriverLocation> pending = new ConcurrentHashMap<>();
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private int failedAttempts;
+
+
+    public DriverLocationWriteBehindBuffer(
+        final DriverRepository driverRepository, final LocationWriteSuppressor writeSuppressor, PlatformTransactionManager transactionManager, @Qualifier("taskScheduler") TaskScheduler taskScheduler,
+        MeterRegistry meterRegistry,
+        @Value("${driver.location.write-behind.enabled:false}") boolean enabled,
+        @Value("${driver.location.write-behind.max-pending:5000}") int maxPending,
+        @Value("${driver.location.write-behind.max-attempts:5}") int maxAttempts)
+    {
+        Preconditions.checkArgument(maxPending > 0, "max pending must be positive: " + maxPending);
+        Preconditions.checkArgument(maxAttempts > 0, "max attempts must be positive: " + maxAttempts);
+        this.driverRepository = driverRepository;
+        this.writeSuppressor = writeSuppressor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.taskScheduler = taskScheduler;
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+        this.maxAttempts = maxAttempts;
+        this.droppedCounter = Counter.builder("driver.location.write-behind.dropped")
+            .description("Driver locations dropped after their batch failed max-attempts times").register(meterRegistry);
+    }
+
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+
+    /**
+     * Buffer a location, replacing an older pending location of the same driver. If too many drivers are pending a
+     * flush is handed to the scheduler, so the caller does not wait for the batch.
+     *
+     * @param location
+     */
+    public void offer(DriverLocation location)
+    {
+        pending.merge(location.getDriverId(), location, DriverLocation::latest);
+        if (pending.size() >= maxPending && flushScheduled.compareAndSet(false, true))
+        {
+            taskScheduler.schedule(() -> {
+                flushScheduled.set(false);
+                flush();
+            }, Instant.now());
+        }
+    }
+
+
+    /**
+     * @param driverId
+     * @return the location of the driver which has not been written yet or null
+     */
+    public DriverLocation pendingLocation(long driverId)
+    {
+        return pending.get(driverId);
+    }
+
+
+    public int size()
+    {
+        return pending.size();
+    }
+
+
+    /**
+     * Write all pending locations, unless another flush is already running. Locations which are replaced while
+     * the batch is written stay pending, a failed batch is retried with the next flush up to {@code maxAttempts}
+     * times.
+     */
+    @Scheduled(fixedDelayString = "${driver.location.write-behind.flush-interval:1000}")
+    public void flush()
+    {
+        if (pending.isEmpty() || !flushLock.tryLock())
+        {
+            return;
+        }
+        try
+        {
+            writePending();
+        }
+        finally
+        {
+            flushLock.unlock();
+        }
+    }
+
+
+    /**
+     * Write the remaining locations on shutdown, waiting for a running flush.
+     */
+    @PreDestroy
+    public void close()
+    {
+        flushLock.lock();
+        try
+        {
+            writePending();
+        }
+        finally
+        {
+            flushLock.unlock();
+        }
+    }
+
+
+    private void writePending()
+    {
+        if (pending.isEmpty())
+        {
+            return;
+        }
+        List<DriverLocation> batch = new ArrayList<>(pending.values());
+        int[] updateCounts;
+        try
+        {
+            updateCounts = transactionTemplate.execute(status -> driverRepository.batchUpdateLocations(batch));
+        }
+        catch (DataAccessException e)
+        {
+            if (++failedAttempts < maxAttempts)
+            {
+                LOG.warn("Could not flush {} pending driver locations, retrying with next flush", batch.size(), e);
+                return;
+            }
+            LOG.error("Could not flush {} pending driver locations {} times, dropping them", batch.size(), failedAttempts, e);
+            droppedCounter.increment(removeAll(batch));
+            failedAttempts = 0;
+            return;
+        }
+        failedAttempts = 0;
+        removeAll(batch);
+        for (int i = 0; i < batch.size(); i++)
+        {
+            if (updateCounts[i] > 0)
+            {
+                writeSuppressor.recordWritten(batch.get(i));
+            }
+        }
+        LOG.debug("Flushed {} driver locations", batch.size());
+    }
+
+
+    /**
+     * @param batch
+     * @return the number of locations which had not been replaced in the meantime and have been removed
+     */
+    private int removeAll(List<DriverLocation> batch)
+    {
+        int removed = 0;
+        for (DriverLocation location : batch)
+        {
+            if (pending.remove(location.getDriverId(), location))
+            {
+                removed++;
+            }
+        }
+        return removed;
+    }
+}
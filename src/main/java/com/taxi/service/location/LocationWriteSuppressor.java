@@ -0,0 +1,154 @@
+package com.taxi.service.location;
+
+import com.google.common.base.Preconditions;
+import com.taxi.domainvalue.DriverLocation;
+import com.taxi.event.DriverDeletedEvent;
+import com.taxi.util.GeoDistance;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Decides whether a reported location is worth writing. A location closer than the distance threshold to the last
+ * written location of the same driver is acknowledged without a write, unless the last write is older than the
+ * maximum silence. Only locations whose write has been confirmed count as written, so a location is never suppressed
+ * in favour of a write which did not happen. Every location, written or suppressed, moves the in-memory last seen
+ * time of its driver, so a parked driver which keeps reporting is known to be alive.
+ * <p/>
+ */
+@Component
+public class LocationWriteSuppressor
+{
+
+    private final double distanceThreshold;
+
+    private final long maxSilence;
+
+    private final ConcurrentMap<Long, Accepted> accepted = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Long, Long> lastSeen = new ConcurrentHashMap<>();
+
+    private final Counter writtenCounter;
+
+    private final Counter suppressedCounter;
+
+
+    public LocationWriteSuppressor(
+        final MeterRegistry meterRegistry,
+        @Value("${driver.location.suppression.distance-threshold:10}") double distanceThreshold,
+        @Value("${driver.location.suppression.max-silence:30000}") long maxSilence)
+    {
+        Preconditions.checkArgument(distanceThreshold >= 0, "distance threshold must not be negative: " + distanceThreshold);
+        Preconditions.checkArgument(maxSilence >= 0, "max silence must not be negative: " + maxSilence);
+        this.distanceThreshold = distanceThreshold;
+        this.maxSilence = maxSilence;
+        this.writtenCounter = Counter.builder("driver.location.writes").tag("outcome", "written")
+            .description("Driver locations passed on to be written").register(meterRegistry);
+        this.suppressedCounter = Counter.builder("driver.location.writes").tag("outcome", "suppressed")
+            .description("Driver locations acknowledged without a write because the driver did not move").register(meterRegistry);
+    }
+
+
+    /**
+     * @param location
+     * @return true if the location has to be written, false if it is close enough to the last written location
+     */
+    public boolean shouldWrite(DriverLocation location)
+    {
+        Accepted previous = accepted.get(location.getDriverId());
+        return previous == null || !isRedundant(previous, location, location.getTimestamp().toInstant().toEpochMilli());
+    }
+
+
+    /**
+     * Remember a location whose write has been confirmed, later locations are compared with it.
+     *
+     * @param location
+     */
+    public void recordWritten(DriverLocation location)
+    {
+        long timestamp = location.getTimestamp().toInstant().toEpochMilli();
+        accepted.merge(location.getDriverId(), new Accepted(location, timestamp), Accepted::latest);
+        lastSeen.merge(location.getDriverId(), timestamp, Math::max);
+        writtenCounter.increment();
+    }
+
+
+    /**
+     * Count a location which has been acknowledged without a write, it only moves the last seen time of its driver.
+     *
+     * @param location
+     */
+    public void recordSuppressed(DriverLocation location)
+    {
+        lastSeen.merge(location.getDriverId(), location.getTimestamp().toInstant().toEpochMilli(), Math::max);
+        suppressedCounter.increment();
+    }
+
+
+    /**
+     * @param driverId
+     * @return epoch millis of the latest location reported by the driver, written or not, 0 if unknown
+     */
+    public long lastSeen(long driverId)
+    {
+        return lastSeen.getOrDefault(driverId, 0L);
+    }
+
+
+    public long getSuppressedCount()
+    {
+        return (long) suppressedCounter.count();
+    }
+
+
+    public long getWrittenCount()
+    {
+        return (long) writtenCounter.count();
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverDeleted(DriverDeletedEvent event)
+    {
+        accepted.remove(event.getDriverId());
+        lastSeen.remove(event.getDriverId());
+    }
+
+
+    private boolean isRedundant(Accepted previous, DriverLocation location, long timestamp)
+    {
+        return timestamp >= previous.acceptedAt
+            && timestamp - previous.acceptedAt < maxSilence
+            && GeoDistance.equirectangular(previous.latitude, previous.longitude,
+            location.getCoordinate().getLatitude(), location.getCoordinate().getLongitude()) < distanceThreshold;
+    }
+
+
+    private static final class Accepted
+    {
+        private final double latitude;
+
+        private final double longitude;
+
+        private final long acceptedAt;
+
+
+        private Accepted(DriverLocation location, long timestamp)
+        {
+            this.latitude = location.getCoordinate().getLatitude();
+            this.longitude = location.getCoordinate().getLongitude();
+            this.acceptedAt = timestamp;
+        }
+
+
+        private static Accepted latest(Accepted first, Accepted second)
+        {
+            return second.acceptedAt < first.acceptedAt ? first : second;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.taxi.service.location;
+
+import com.google.common.base.Preconditions;
+import com.taxi.event.DriverPositionChangedEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Removes driver positions from the location index which have not been updated for longer than the time to live,
+ * e.g. because the driver app died. Positions are kept in a timing wheel by their expiry time: every slot covers
+ * one tick and one revolution covers the time to live, so a tick only visits the drivers expiring in it.
+ * An updated position moves its driver to a later slot. A driver whose position is due but who has been seen since,
+ * with a location that was not written because the driver did not move, is moved to the slot of its last seen time
+ * instead. The deadline of a driver is kept with the sequence of its last position change, also after the position
+ * has been removed, so a late older change is dropped.
+ * <p/>
+ */
+@Component
+public class StalePositionExpiry
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(StalePositionExpiry.class);
+
+    private final DriverLocationIndex driverLocationIndex;
+
+    private final LocationWriteSuppressor writeSuppressor;
+
+    private final long timeToLive;
+
+    private final long tick;
+
+    private final List<Set<Long>> slots;
+
+    private final ConcurrentMap<Long, Deadline> deadlines = new ConcurrentHashMap<>();
+
+    private final AtomicLong expiredCount = new AtomicLong();
+
+    private volatile long processedTick;
+
+
+    public StalePositionExpiry(
+        final DriverLocationIndex driverLocationIndex, final LocationWriteSuppressor writeSuppressor,
+        @Value("${driver.location.stale-after:120000}") long timeToLive,
+        @Value("${driver.location.stale-check-interval:1000}") long tick)
+    {
+        Preconditions.checkArgument(tick > 0, "tick must be positive: " + tick);
+        Preconditions.checkArgument(timeToLive >= tick, "time to live must not be shorter than a tick: " + timeToLive);
+        this.driverLocationIndex = driverLocationIndex;
+        this.writeSuppressor = writeSuppressor;
+        this.timeToLive = timeToLive;
+        this.tick = tick;
+        int slotCount = (int) (timeToLive / tick) + 2;
+        this.slots = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++)
+        {
+            slots.add(ConcurrentHashMap.newKeySet());
+        }
+        this.processedTick = System.currentTimeMillis() / tick;
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPositionChanged(DriverPositionChangedEvent event)
+    {
+        long tickNumber = event.getCurrent() == null ? Deadline.NONE : Math.max(ceilDiv(event.getTimestamp() + timeToLive, tick), processedTick + 1);
+        deadlines.compute(event.getDriverId(), (driverId, previous) -> {
+            if (previous != null && previous.sequence > event.getSequence())
+            {
+                return previous;
+            }
+            if (previous != null && previous.tick != Deadline.NONE)
+            {
+                slotOf(previous.tick).remove(driverId);
+            }
+            if (tickNumber != Deadline.NONE)
+            {
+                slotOf(tickNumber).add(driverId);
+            }
+            return new Deadline(tickNumber, event.getSequence());
+        });
+    }
+
+
+    @Scheduled(fixedRateString = "${driver.location.stale-check-interval:1000}")
+    public void tick()
+    {
+        expire(System.currentTimeMillis());
+    }
+
+
+    /**
+     * Remove the positions which expired up to the given time from the location index, unless their drivers have
+     * been seen within the time to live.
+     *
+     * @param now epoch millis
+     * @return the number of removed positions
+     */
+    synchronized int expire(long now)
+    {
+        long nowTick = now / tick;
+        long firstTick = Math.max(processedTick + 1, nowTick - slots.size() + 1);
+        int expired = 0;
+        for (long current = firstTick; current <= nowTick; current++)
+        {
+            for (Long driverId : slotOf(current))
+            {
+                long[] stale = {-1};
+                deadlines.computeIfPresent(driverId, (id, deadline) -> {
+                    if (deadline.tick == Deadline.NONE || deadline.tick > nowTick)
+                    {
+                        return deadline;
+                    }
+                    slotOf(deadline.tick).remove(id);
+                    long seenTick = Math.min(ceilDiv(writeSuppressor.lastSeen(id) + timeToLive, tick), nowTick + slots.size() - 1);
+                    if (seenTick > nowTick)
+                    {
+                        slotOf(seenTick).add(id);
+                        return new Deadline(seenTick, deadline.sequence);
+                    }
+                    stale[0] = deadline.tick;
+                    return new Deadline(Deadline.NONE, deadline.sequence);
+                });
+                if (stale[0] >= 0 && driverLocationIndex.expire(driverId, stale[0] * tick - timeToLive))
+                {
+                    expired++;
+                }
+            }
+            processedTick = current;
+        }
+        if (expired > 0)
+        {
+            expiredCount.addAndGet(expired);
+            LOG.debug("Removed {} stale driver positions", expired);
+        }
+        return expired;
+    }
+
+
+    /**
+     * @return the number of positions removed since startup
+     */
+    public long getExpiredCount()
+    {
+        return expiredCount.get();
+    }
+
+
+    private Set<Long> slotOf(long tickNumber)
+    {
+        return slots.get((int) Math.floorMod(tickNumber, (long) slots.size()));
+    }
+
+
+    private static long ceilDiv(long dividend, long divisor)
+    {
+        return -Math.floorDiv(-dividend, divisor);
+    }
+
+
+    private static final class Deadline
+    {
+        /** Tick of a driver without position. */
+        private static final long NONE = -1;
+
+        private final long tick;
+
+        private final long sequence;
+
+
+        private Deadline(long tick, long sequence)
+        {
+            this.tick = tick;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,819 @@
+package com.taxi.service.search;
+
+import com.taxi.controller.specification.DriverSpecification;
+import com.taxi.dataaccessobject.DriverRepository;
+import com.taxi.domainvalue.DriverAttributes;
+import com.taxi.domainvalue.DriverFacets;
+import com.taxi.domainvalue.EngineType;
+import com.taxi.domainvalue.OnlineStatus;
+import com.taxi.event.CarChangedEvent;
+import com.taxi.event.CarRatingsChangedEvent;
+import com.taxi.event.DriverCarChangedEvent;
+import com.taxi.event.DriverCreatedEvent;
+import com.taxi.event.DriverOnlineStatusChangedEvent;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * In-memory snapshot of the searchable driver and car attributes, so driver searches are answered by intersecting
+ * bitmaps instead of scanning the driver and car tables, and counted by attribute value from the same bitmaps. The
+ * attributes are stored column by column with one row per driver in id order, every attribute value has a bitmap of the
+ * rows holding it and the rated rows are kept ordered by rating. Rows are re-read after a change of the driver or its
+ * car has been committed, before the search cache drops its pages, while flushed ride ratings are applied from their
+ * event. Rows are read and applied one refresh at a time, so of two refreshes of the same driver the later one always
+ * wins. Changes committed while the snapshot is loaded are remembered and replayed on the loaded table, so none is
+ * lost between reading all drivers and swapping the table in. Like the database search, soft deleted drivers and cars
+ * stay searchable.
+ * <p/>
+ */
+@Component
+public class DriverAttributeSnapshot
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(DriverAttributeSnapshot.class);
+
+    private final DriverRepository driverRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Serializes loads and row refreshes, so each applies what it read before the next one reads. */
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private final Object pendingMonitor = new Object();
+
+    private Table table = new Table();
+
+    private volatile boolean loaded;
+
+    private boolean loading;
+
+    private Set<Long> pendingDriverIds = new HashSet<>();
+
+    private Set<Long> pendingCarIds = new HashSet<>();
+
+    private Map<Long, Double> pendingRatings = new HashMap<>();
+
+
+    public DriverAttributeSnapshot(final DriverRepository driverRepository)
+    {
+        this.driverRepository = driverRepository;
+    }
+
+
+    /**
+     * Reads the attributes of all drivers, on startup and whenever a driver shows up out of id order. Changes committed
+     * meanwhile are replayed once the table is swapped in, the snapshot answers searches only after that.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load()
+    {
+        refreshLock.lock();
+        try
+        {
+            synchronized (pendingMonitor)
+            {
+                loading = true;
+            }
+            Table loadedTable = Table.of(driverRepository.findAllAttributes());
+            lock.writeLock().lock();
+            try
+            {
+                table = loadedTable;
+            }
+            finally
+            {
+                lock.writeLock().unlock();
+            }
+            LOG.info("Driver attribute snapshot loaded with {} drivers", loadedTable.size);
+            replayPending();
+        }
+        finally
+        {
+            synchronized (pendingMonitor)
+            {
+                loading = false;
+            }
+            refreshLock.unlock();
+        }
+    }
+
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverCreated(DriverCreatedEvent event)
+    {
+        refreshDriver(event.getDriverId());
+    }
+
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOnlineStatusChanged(DriverOnlineStatusChangedEvent event)
+    {
+        refreshDriver(event.getDriverId());
+    }
+
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverCarChanged(DriverCarChangedEvent event)
+    {
+        refreshDriver(event.getDriverId());
+    }
+
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarChanged(CarChangedEvent event)
+    {
+        if (!isDeferred(() -> pendingCarIds.add(event.getCarId())))
+        {
+            refreshCar(event.getCarId());
+        }
+    }
+
+
+    /**
+     * The new averages of a rating flush are applied to the rows of the drivers of the rated cars without reading them
+     * again.
+     *
+     * @param event
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarRatingsChanged(CarRatingsChangedEvent event)
+    {
+        if (!isDeferred(() -> pendingRatings.putAll(event.getRatings())))
+        {
+            putRatings(event.getRatings());
+        }
+    }
+
+
+    /**
+     * Find the ids of the drivers matching a specification whose username and license plate substrings have been
+     * resolved to id sets.
+     *
+     * @param params
+     * @param afterId only drivers with a greater id are returned
+     * @param limit maximum number of ids to return
+     * @return matching driver ids in ascending order, or null if the snapshot can not answer the specification because
+     * it is not loaded yet or a substring has not been resolved
+     */
+    public long[] find(DriverSpecification params, long afterId, int limit)
+    {
+        if (!canAnswer(params))
+        {
+            return null;
+        }
+        lock.readLock().lock();
+        try
+        {
+            return table.find(params, afterId, limit);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Count the drivers matching a specification whose username and license plate substrings have been resolved to
+     * id sets, grouped by attribute value.
+     *
+     * @param params
+     * @return the counts, or null if the snapshot can not answer the specification because it is not loaded yet or a
+     * substring has not been resolved
+     */
+    public DriverFacets facets(DriverSpecification params)
+    {
+        if (!canAnswer(params))
+        {
+            return null;
+        }
+        lock.readLock().lock();
+        try
+        {
+            return table.facets(params);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    public int size()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return table.size;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    private boolean canAnswer(DriverSpecification params)
+    {
+        return loaded
+            && (params.getUsername() == null || params.getDriverIds() != null)
+            && (params.getLicensePlate() == null || params.getCarIds() != null);
+    }
+
+
+    /**
+     * @param remember stores a change to be replayed after the running load, called under the pending monitor
+     * @return true if the change is left to a load, because one is running or because none has run yet, so the first
+     * one reads the change anyway
+     */
+    private boolean isDeferred(Runnable remember)
+    {
+        synchronized (pendingMonitor)
+        {
+            if (loading)
+            {
+                remember.run();
+                return true;
+            }
+            return !loaded;
+        }
+    }
+
+
+    /**
+     * Re-read the rows of the drivers and cars changed during a load until no further changes come in, then let the
+     * snapshot answer searches.
+     */
+    private void replayPending()
+    {
+        while (true)
+        {
+            Set<Long> driverIds;
+            Set<Long> carIds;
+            Map<Long, Double> ratings;
+            synchronized (pendingMonitor)
+            {
+                if (pendingDriverIds.isEmpty() && pendingCarIds.isEmpty() && pendingRatings.isEmpty())
+                {
+                    loading = false;
+                    loaded = true;
+                    return;
+                }
+                driverIds = pendingDriverIds;
+                carIds = pendingCarIds;
+                ratings = pendingRatings;
+                pendingDriverIds = new HashSet<>();
+                pendingCarIds = new HashSet<>();
+                pendingRatings = new HashMap<>();
+            }
+            putRatings(ratings);
+            driverIds.forEach(this::readDriver);
+            carIds.forEach(this::refreshCar);
+        }
+    }
+
+
+    private void refreshDriver(long driverId)
+    {
+        if (!isDeferred(() -> pendingDriverIds.add(driverId)))
+        {
+            readDriver(driverId);
+        }
+    }
+
+
+    private void readDriver(long driverId)
+    {
+        refreshLock.lock();
+        try
+        {
+            driverRepository.findAttributesById(driverId).ifPresent(attributes -> refresh(List.of(attributes)));
+        }
+        finally
+        {
+            refreshLock.unlock();
+        }
+    }
+
+
+    private void refreshCar(long carId)
+    {
+        refreshLock.lock();
+        try
+        {
+            refresh(driverRepository.findAttributesByCarId(carId));
+        }
+        finally
+        {
+            refreshLock.unlock();
+        }
+    }
+
+
+    private void putRatings(Map<Long, Double> ratings)
+    {
+        if (ratings.isEmpty())
+        {
+            return;
+        }
+        lock.writeLock().lock();
+        try
+        {
+            table.putRatings(ratings);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    private void refresh(List<DriverAttributes> rows)
+    {
+        boolean inOrder = true;
+        lock.writeLock().lock();
+        try
+        {
+            for (DriverAttributes attributes : rows)
+            {
+                inOrder &= table.put(attributes);
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+        if (!inOrder)
+        {
+            load();
+        }
+    }
+
+
+    /**
+     * The attribute columns and their bitmaps. Not thread safe.
+     */
+    private static final class Table
+    {
+        private static final int INITIAL_CAPACITY = 64;
+
+        private static final long NO_CAR = 0;
+
+        private static final byte NO_VALUE = -1;
+
+        private static final BitSet NO_ROWS = new BitSet();
+
+        private static final OnlineStatus[] ONLINE_STATUSES = OnlineStatus.values();
+
+        private static final EngineType[] ENGINE_TYPES = EngineType.values();
+
+        private int size;
+
+        private long[] driverIds = new long[INITIAL_CAPACITY];
+
+        private byte[] onlineStatuses = new byte[INITIAL_CAPACITY];
+
+        private long[] carIds = new long[INITIAL_CAPACITY];
+
+        private int[] seatCounts = new int[INITIAL_CAPACITY];
+
+        private byte[] convertibles = new byte[INITIAL_CAPACITY];
+
+        private byte[] engineTypes = new byte[INITIAL_CAPACITY];
+
+        private double[] ratings = new double[INITIAL_CAPACITY];
+
+        private final Map<OnlineStatus, BitSet> byOnlineStatus = new EnumMap<>(OnlineStatus.class);
+
+        private final Map<Integer, BitSet> bySeatCount = new HashMap<>();
+
+        private final BitSet[] byConvertible = {new BitSet(), new BitSet()};
+
+        private final Map<EngineType, BitSet> byEngineType = new EnumMap<>(EngineType.class);
+
+        private final BitSet withCar = new BitSet();
+
+        private double[] sortedRatings = new double[INITIAL_CAPACITY];
+
+        private int[] rowsByRating = new int[INITIAL_CAPACITY];
+
+        private int ratedCount;
+
+
+        private Table()
+        {
+            for (OnlineStatus onlineStatus : ONLINE_STATUSES)
+            {
+                byOnlineStatus.put(onlineStatus, new BitSet());
+            }
+            for (EngineType engineType : ENGINE_TYPES)
+            {
+                byEngineType.put(engineType, new BitSet());
+            }
+        }
+
+
+        /**
+         * @param rows attributes ordered by driver id
+         * @return the table of the rows, the rating order is sorted once instead of row by row, the stable sort keeps
+         * rows of equal rating ordered by row
+         */
+        private static Table of(List<DriverAttributes> rows)
+        {
+            Table table = new Table();
+            for (DriverAttributes attributes : rows)
+            {
+                table.append(attributes, false);
+            }
+            Integer[] rated = new Integer[table.size];
+            int count = 0;
+            for (int row = 0; row < table.size; row++)
+            {
+                if (!Double.isNaN(table.ratings[row]))
+                {
+                    rated[count++] = row;
+                }
+            }
+            Arrays.sort(rated, 0, count, (a, b) -> Double.compare(table.ratings[a], table.ratings[b]));
+            table.sortedRatings = new double[Math.max(count, INITIAL_CAPACITY)];
+            table.rowsByRating = new int[table.sortedRatings.length];
+            for (int i = 0; i < count; i++)
+            {
+                table.rowsByRating[i] = rated[i];
+                table.sortedRatings[i] = table.ratings[rated[i]];
+            }
+            table.ratedCount = count;
+            return table;
+        }
+
+
+        /**
+         * Update the row of a known driver or append the row of a driver with a greater id than all others.
+         *
+         * @param attributes
+         * @return false if the driver is unknown and not in id order, so it could not be stored
+         */
+        private boolean put(DriverAttributes attributes)
+        {
+            int row = Arrays.binarySearch(driverIds, 0, size, attributes.getDriverId());
+            if (row >= 0)
+            {
+                clear(row);
+                set(row, attributes, true);
+                return true;
+            }
+            if (-row - 1 != size)
+            {
+                return false;
+            }
+            append(attributes, true);
+            return true;
+        }
+
+
+        /**
+         * Update the rating of the rows whose car has a new rating, keeping the rating order.
+         *
+         * @param ratingsByCar
+         */
+        private void putRatings(Map<Long, Double> ratingsByCar)
+        {
+            for (int row = withCar.nextSetBit(0); row >= 0 && row < size; row = withCar.nextSetBit(row + 1))
+            {
+                Double rating = ratingsByCar.get(carIds[row]);
+                if (rating == null)
+                {
+                    continue;
+                }
+                if (!Double.isNaN(ratings[row]))
+                {
+                    removeRating(row);
+                }
+                ratings[row] = rating;
+                insertRating(row);
+            }
+        }
+
+
+        private long[] find(DriverSpecification params, long afterId, int limit)
+        {
+            BitSet matches = matching(params);
+            int from = Arrays.binarySearch(driverIds, 0, size, afterId);
+            from = from >= 0 ? from + 1 : -from - 1;
+            long[] found = new long[Math.min(limit, size - from)];
+            int count = 0;
+            for (int row = matches == null ? from : matches.nextSetBit(from);
+                 row >= 0 && row < size && count < found.length;
+                 row = matches == null ? row + 1 : matches.nextSetBit(row + 1))
+            {
+                found[count++] = driverIds[row];
+            }
+            return count == found.length ? found : Arrays.copyOf(found, count);
+        }
+
+
+        private DriverFacets facets(DriverSpecification params)
+        {
+            BitSet matches = matching(params);
+            Map<Integer, Long> seatCount = new TreeMap<>();
+            bySeatCount.forEach((value, rows) -> putCount(seatCount, value, matches, rows));
+            Map<Boolean, Long> convertible = new LinkedHashMap<>();
+            putCount(convertible, false, matches, byConvertible[0]);
+            putCount(convertible, true, matches, byConvertible[1]);
+            return new DriverFacets(
+                matches == null ? size : matches.cardinality(),
+                counts(OnlineStatus.class, byOnlineStatus, matches),
+                counts(EngineType.class, byEngineType, matches),
+                seatCount,
+                convertible);
+        }
+
+
+        private static <E extends Enum<E>> Map<E, Long> counts(Class<E> type, Map<E, BitSet> bitmaps, BitSet matches)
+        {
+            Map<E, Long> counts = new EnumMap<>(type);
+            bitmaps.forEach((value, rows) -> putCount(counts, value, matches, rows));
+            return counts;
+        }
+
+
+        private static <K> void putCount(Map<K, Long> counts, K value, BitSet matches, BitSet rows)
+        {
+            long count;
+            if (matches == null)
+            {
+                count = rows.cardinality();
+            }
+            else
+            {
+                BitSet matching = (BitSet) rows.clone();
+                matching.and(matches);
+                count = matching.cardinality();
+            }
+            if (count > 0)
+            {
+                counts.put(value, count);
+            }
+        }
+
+
+        /**
+         * @return the rows matching the specification, null if it does not filter at all
+         */
+        private BitSet matching(DriverSpecification params)
+        {
+            BitSet matches = null;
+            if (params.getDriverIds() != null)
+            {
+                matches = and(matches, rowsOfDrivers(params.getDriverIds()));
+            }
+            if (params.getOnlineStatus() != null)
+            {
+                matches = and(matches, byOnlineStatus.get(params.getOnlineStatus()));
+            }
+            if (params.getCarIds() != null)
+            {
+                matches = and(matches, rowsOfCars(params.getCarIds()));
+            }
+            if (params.getSeatCount() != null)
+            {
+                matches = and(matches, bySeatCount.getOrDefault(params.getSeatCount(), NO_ROWS));
+            }
+            if (params.getConvertible() != null)
+            {
+                matches = and(matches, byConvertible[params.getConvertible() ? 1 : 0]);
+            }
+            if (params.getEngineType() != null)
+            {
+                matches = and(matches, byEngineType.get(params.getEngineType()));
+            }
+            if (params.getRating() != null)
+            {
+                matches = and(matches, ratedAtLeast(params.getRating()));
+            }
+            return matches;
+        }
+
+
+        private static BitSet and(BitSet matches, BitSet rows)
+        {
+            if (matches == null)
+            {
+                return (BitSet) rows.clone();
+            }
+            matches.and(rows);
+            return matches;
+        }
+
+
+        private BitSet rowsOfDrivers(Set<Long> ids)
+        {
+            BitSet rows = new BitSet(size);
+            for (long id : ids)
+            {
+                int row = Arrays.binarySearch(driverIds, 0, size, id);
+                if (row >= 0)
+                {
+                    rows.set(row);
+                }
+            }
+            return rows;
+        }
+
+
+        private BitSet rowsOfCars(Set<Long> ids)
+        {
+            BitSet rows = new BitSet(size);
+            for (int row = withCar.nextSetBit(0); row >= 0; row = withCar.nextSetBit(row + 1))
+            {
+                if (ids.contains(carIds[row]))
+                {
+                    rows.set(row);
+                }
+            }
+            return rows;
+        }
+
+
+        private BitSet ratedAtLeast(double rating)
+        {
+            BitSet rows = new BitSet(size);
+            for (int i = ratingPosition(rating, -1); i < ratedCount; i++)
+            {
+                rows.set(rowsByRating[i]);
+            }
+            return rows;
+        }
+
+
+        private void append(DriverAttributes attributes, boolean orderRating)
+        {
+            if (size == driverIds.length)
+            {
+                int capacity = size * 2;
+                driverIds = Arrays.copyOf(driverIds, capacity);
+                onlineStatuses = Arrays.copyOf(onlineStatuses, capacity);
+                carIds = Arrays.copyOf(carIds, capacity);
+                seatCounts = Arrays.copyOf(seatCounts, capacity);
+                convertibles = Arrays.copyOf(convertibles, capacity);
+                engineTypes = Arrays.copyOf(engineTypes, capacity);
+                ratings = Arrays.copyOf(ratings, capacity);
+            }
+            set(size++, attributes, orderRating);
+        }
+
+
+        private void set(int row, DriverAttributes attributes, boolean orderRating)
+        {
+            driverIds[row] = attributes.getDriverId();
+            onlineStatuses[row] = NO_VALUE;
+            if (attributes.getOnlineStatus() != null)
+            {
+                onlineStatuses[row] = (byte) attributes.getOnlineStatus().ordinal();
+                byOnlineStatus.get(attributes.getOnlineStatus()).set(row);
+            }
+
+            carIds[row] = NO_CAR;
+            seatCounts[row] = NO_VALUE;
+            convertibles[row] = NO_VALUE;
+            engineTypes[row] = NO_VALUE;
+            ratings[row] = Double.NaN;
+            if (attributes.getCarId() == null)
+            {
+                return;
+            }
+            carIds[row] = attributes.getCarId();
+            withCar.set(row);
+            if (attributes.getSeatCount() != null)
+            {
+                seatCounts[row] = attributes.getSeatCount();
+                bySeatCount.computeIfAbsent(attributes.getSeatCount(), seatCount -> new BitSet()).set(row);
+            }
+            if (attributes.getConvertible() != null)
+            {
+                convertibles[row] = (byte) (attributes.getConvertible() ? 1 : 0);
+                byConvertible[convertibles[row]].set(row);
+            }
+            if (attributes.getEngineType() != null)
+            {
+                engineTypes[row] = (byte) attributes.getEngineType().ordinal();
+                byEngineType.get(attributes.getEngineType()).set(row);
+            }
+            if (attributes.getRating() != null)
+            {
+                ratings[row] = attributes.getRating();
+                if (orderRating)
+                {
+                    insertRating(row);
+                }
+            }
+        }
+
+
+        private void clear(int row)
+        {
+            if (onlineStatuses[row] != NO_VALUE)
+            {
+                byOnlineStatus.get(ONLINE_STATUSES[onlineStatuses[row]]).clear(row);
+            }
+            if (carIds[row] == NO_CAR)
+            {
+                return;
+            }
+            withCar.clear(row);
+            if (seatCounts[row] != NO_VALUE)
+            {
+                BitSet rows = bySeatCount.get(seatCounts[row]);
+                rows.clear(row);
+                if (rows.isEmpty())
+                {
+                    bySeatCount.remove(seatCounts[row]);
+                }
+            }
+            if (convertibles[row] != NO_VALUE)
+            {
+                byConvertible[convertibles[row]].clear(row);
+            }
+            if (engineTypes[row] != NO_VALUE)
+            {
+                byEngineType.get(ENGINE_TYPES[engineTypes[row]]).clear(row);
+            }
+            if (!Double.isNaN(ratings[row]))
+            {
+                removeRating(row);
+            }
+        }
+
+
+        private void insertRating(int row)
+        {
+            if (ratedCount == sortedRatings.length)
+            {
+                sortedRatings = Arrays.copyOf(sortedRatings, ratedCount * 2);
+                rowsByRating = Arrays.copyOf(rowsByRating, ratedCount * 2);
+            }
+            int position = ratingPosition(ratings[row], row);
+            System.arraycopy(sortedRatings, position, sortedRatings, position + 1, ratedCount - position);
+            System.arraycopy(rowsByRating, position, rowsByRating, position + 1, ratedCount - position);
+            sortedRatings[position] = ratings[row];
+            rowsByRating[position] = row;
+            ratedCount++;
+        }
+
+
+        private void removeRating(int row)
+        {
+            int position = ratingPosition(ratings[row], row);
+            System.arraycopy(sortedRatings, position + 1, sortedRatings, position, ratedCount - position - 1);
+            System.arraycopy(rowsByRating, position + 1, rowsByRating, position, ratedCount - position - 1);
+            ratedCount--;
+        }
+
+
+        /**
+         * @return position of the first rated row which orders at or after the rating and row
+         */
+        private int ratingPosition(double rating, int row)
+        {
+            int low = 0;
+            int high = ratedCount;
+            while (low < high)
+            {
+                int middle = (low + high) >>> 1;
+                if (sortedRatings[middle] < rating || sortedRatings[middle] == rating && rowsByRating[middle] < row)
+                {
+                    low = middle + 1;
+                }
+                else
+                {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.taxi.service.search;
+
+import com.google.common.base.Preconditions;
+import com.taxi.controller.specification.DriverSpecification;
+import com.taxi.domainvalue.DriverView;
+import com.taxi.domainvalue.KeysetPage;
+import com.taxi.event.CarChangedEvent;
+import com.taxi.event.CarRatingsChangedEvent;
+import com.taxi.event.DriverCarChangedEvent;
+import com.taxi.event.DriverCreatedEvent;
+import com.taxi.event.DriverOnlineStatusChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Keeps recently searched pages of drivers for a short time, keyed by the search specification, cursor and limit, so
+ * that clients polling the same search do not run the same query again. The least recently used page is dropped when
+ * the cache is full. A committed change drops the pages whose specification filters on the changed value, changes of
+ * values not filtered on show up in the cached drivers once their time to live is over.
+ * <p/>
+ */
+@Component
+public class DriverSearchCache
+{
+
+    private final int maxEntries;
+
+    private final long timeToLive;
+
+    private final LongSupplier nanoClock;
+
+    private final Map<Key, Entry> entries;
+
+    private long invalidations;
+
+    private final Counter hitCounter;
+
+    private final Counter missCounter;
+
+
+    @Autowired
+    public DriverSearchCache(
+        final MeterRegistry meterRegistry,
+        @Value("${search.cache.max-entries:1024}") int maxEntries,
+        @Value("${search.cache.ttl:2000}") long timeToLive)
+    {
+        this(meterRegistry, maxEntries, timeToLive, System::nanoTime);
+    }
+
+
+    DriverSearchCache(MeterRegistry meterRegistry, int maxEntries, long timeToLive, LongSupplier nanoClock)
+    {
+        Preconditions.checkArgument(maxEntries >= 0, "max entries must not be negative: " + maxEntries);
+        Preconditions.checkArgument(timeToLive >= 0, "time to live must not be negative: " + timeToLive);
+        this.maxEntries = maxEntries;
+        this.timeToLive = TimeUnit.MILLISECONDS.toNanos(timeToLive);
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest)
+            {
+                return size() > DriverSearchCache.this.maxEntries;
+            }
+        };
+        this.hitCounter = Counter.builder("driver.search.cache").tag("result", "hit")
+            .description("Driver searches answered from the cache").register(meterRegistry);
+        this.missCounter = Counter.builder("driver.search.cache").tag("result", "miss")
+            .description("Driver searches which had to be queried").register(meterRegistry);
+        Gauge.builder("driver.search.cache.size", this, DriverSearchCache::size)
+            .description("Pages of drivers in the search cache").register(meterRegistry);
+    }
+
+
+    /**
+     * Answer a search from the cache or from the loader. A page loaded while the cache got invalidated is not kept, as
+     * it may have been read before the invalidating change was committed.
+     *
+     * @param params
+     * @param cursor
+     * @param limit
+     * @param loader queries the page if it is not cached
+     * @return the cached or loaded page
+     */
+    public KeysetPage<DriverView> get(DriverSpecification params, long cursor, int limit, Supplier<KeysetPage<DriverView>> loader)
+    {
+        Key key = new Key(params.copy(), cursor, limit);
+        long generation;
+        synchronized (this)
+        {
+            Entry entry = entries.get(key);
+            if (entry != null && nanoClock.getAsLong() - entry.loadedAt < timeToLive)
+            {
+                hitCounter.increment();
+                return entry.page;
+            }
+            if (entry != null)
+            {
+                entries.remove(key);
+            }
+            generation = invalidations;
+        }
+        missCounter.increment();
+
+        long loadedAt = nanoClock.getAsLong();
+        KeysetPage<DriverView> page = loader.get();
+        synchronized (this)
+        {
+            if (generation == invalidations && maxEntries > 0 && timeToLive > 0)
+            {
+                entries.put(key, new Entry(page, loadedAt));
+            }
+        }
+        return page;
+    }
+
+
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+
+    public long getHitCount()
+    {
+        return (long) hitCounter.count();
+    }
+
+
+    public long getMissCount()
+    {
+        return (long) missCounter.count();
+    }
+
+
+    /**
+     * A new driver can show up in any search.
+     *
+     * @param event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverCreated(DriverCreatedEvent event)
+    {
+        invalidate(params -> true);
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOnlineStatusChanged(DriverOnlineStatusChangedEvent event)
+    {
+        invalidate(params -> params.getOnlineStatus() != null);
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverCarChanged(DriverCarChangedEvent event)
+    {
+        invalidate(DriverSpecification::filtersCar);
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarChanged(CarChangedEvent event)
+    {
+        invalidate(DriverSpecification::filtersCar);
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarRatingsChanged(CarRatingsChangedEvent event)
+    {
+        invalidate(DriverSpecification::filtersCar);
+    }
+
+
+    private synchronized void invalidate(Predicate<DriverSpecification> affected)
+    {
+        invalidations++;
+        Iterator<Key> keys = entries.keySet().iterator();
+        while (keys.hasNext())
+        {
+            if (affected.test(keys.next().params))
+            {
+                keys.remove();
+            }
+        }
+    }
+
+
+    private static final class Key
+    {
+        private final DriverSpecification params;
+
+        private final long cursor;
+
+        private final int limit;
+
+
+        private Key(DriverSpecification params, long cursor, int limit)
+        {
+            this.params = params;
+            this.cursor = cursor;
+            this.limit = limit;
+        }
+
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass())
+            {
+                return false;
+            }
+            Key that = (Key) o;
+            return cursor == that.cursor && limit == that.limit && params.equals(that.params);
+        }
+
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(params, cursor, limit);
+        }
+    }
+
+
+    private static final class Entry
+    {
+        private final KeysetPage<DriverView> page;
+
+        private final long loadedAt;
+
+
+        private Entry(KeysetPage<DriverView> page, long loadedAt)
+        {
+            this.page = page;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.taxi.service.search;
+
+import com.taxi.dataaccessobject.CarRepository;
+import com.taxi.dataaccessobject.DriverRepository;
+import com.taxi.domainvalue.KeyedText;
+import com.taxi.event.CarCreatedEvent;
+import com.taxi.event.DriverCreatedEvent;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Trigram indexes of driver usernames and car license plates, so substring searches on them resolve to id sets
+ * instead of {@code LIKE '%x%'} scans. Soft deleted drivers and cars keep their rows and stay searchable, so they
+ * stay indexed as well.
+ * <p/>
+ */
+@Component
+public class SubstringSearchIndex
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(SubstringSearchIndex.class);
+
+    private final DriverRepository driverRepository;
+
+    private final CarRepository carRepository;
+
+    private final int maxMatches;
+
+    private final TrigramIndex usernames = new TrigramIndex();
+
+    private final TrigramIndex licensePlates = new TrigramIndex();
+
+    private volatile boolean loaded;
+
+
+    public SubstringSearchIndex(
+        final DriverRepository driverRepository, final CarRepository carRepository,
+        @Value("${search.substring.max-matches:1000}") int maxMatches)
+    {
+        this.driverRepository = driverRepository;
+        this.carRepository = carRepository;
+        this.maxMatches = maxMatches;
+    }
+
+
+    /**
+     * Fills the indexes with all usernames and license plates, once on startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load()
+    {
+        for (KeyedText username : driverRepository.findAllUsernames())
+        {
+            usernames.put(username.getId(), username.getText());
+        }
+        for (KeyedText licensePlate : carRepository.findAllLicensePlates())
+        {
+            licensePlates.put(licensePlate.getId(), licensePlate.getText());
+        }
+        loaded = true;
+        LOG.info("Substring search index loaded with {} usernames and {} license plates", usernames.size(), licensePlates.size());
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverCreated(DriverCreatedEvent event)
+    {
+        usernames.put(event.getDriverId(), event.getUsername());
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarCreated(CarCreatedEvent event)
+    {
+        licensePlates.put(event.getCarId(), event.getLicensePlate());
+    }
+
+
+    /**
+     * @param query
+     * @return ids of the drivers whose username contains the query, or null if the index can not answer it because
+     * it is not loaded yet or too many drivers match
+     */
+    public Set<Long> findDriverIdsByUsername(String query)
+    {
+        return loaded ? usernames.find(query, maxMatches) : null;
+    }
+
+
+    /**
+     * @param query
+     * @return ids of the cars whose license plate contains the query, or null if the index can not answer it because
+     * it is not loaded yet or too many cars match
+     */
+    public Set<Long> findCarIdsByLicensePlate(String query)
+    {
+        return loaded ? licensePlates.find(query, maxMatches) : null;
+    }
+}
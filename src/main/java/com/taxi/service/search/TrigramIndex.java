@@ -0,0 +1,118 @@
+package com.taxi.service.search;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Inverted index from every three character substring (trigram) of a text to the ids of the texts containing it.
+ * A substring query only looks at the texts sharing its rarest trigram and checks them exactly, so the result is the
+ * same as a case-sensitive {@code LIKE '%query%'} without scanning all texts. Queries shorter than a trigram scan the
+ * indexed texts in memory.
+ * <p/>
+ */
+public class TrigramIndex
+{
+    private static final int GRAM_LENGTH = 3;
+
+    private final ConcurrentMap<Long, String> texts = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Long, Set<Long>> postings = new ConcurrentHashMap<>();
+
+
+    /**
+     * Index the text of an id, replacing its previous text.
+     *
+     * @param id
+     * @param text null removes the id
+     */
+    public synchronized void put(long id, String text)
+    {
+        String previous = text == null ? texts.remove(id) : texts.put(id, text);
+        if (text != null && text.equals(previous))
+        {
+            return;
+        }
+        if (previous != null)
+        {
+            for (long gram : grams(previous))
+            {
+                postings.computeIfPresent(gram, (key, ids) -> ids.remove(id) && ids.isEmpty() ? null : ids);
+            }
+        }
+        if (text != null)
+        {
+            for (long gram : grams(text))
+            {
+                postings.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+        }
+    }
+
+
+    public void remove(long id)
+    {
+        put(id, null);
+    }
+
+
+    public int size()
+    {
+        return texts.size();
+    }
+
+
+    /**
+     * @param query substring to look for
+     * @param maxMatches upper bound of matches the caller can handle
+     * @return ids of all texts containing the query, or null if there are more than maxMatches
+     */
+    public Set<Long> find(String query, int maxMatches)
+    {
+        if (query.length() < GRAM_LENGTH)
+        {
+            return collect(texts.keySet(), query, maxMatches);
+        }
+        Set<Long> rarest = null;
+        for (long gram : grams(query))
+        {
+            Set<Long> ids = postings.get(gram);
+            if (ids == null)
+            {
+                return Set.of();
+            }
+            if (rarest == null || ids.size() < rarest.size())
+            {
+                rarest = ids;
+            }
+        }
+        return collect(rarest, query, maxMatches);
+    }
+
+
+    private Set<Long> collect(Set<Long> candidates, String query, int maxMatches)
+    {
+        Set<Long> matches = new HashSet<>();
+        for (Long id : candidates)
+        {
+            String text = texts.get(id);
+            if (text != null && text.contains(query) && matches.add(id) && matches.size() > maxMatches)
+            {
+                return null;
+            }
+        }
+        return matches;
+    }
+
+
+    private static Set<Long> grams(String text)
+    {
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++)
+        {
+            grams.add((long) text.charAt(i) << 32 | (long) text.charAt(i + 1) << 16 | text.charAt(i + 2));
+        }
+        return grams;
+    }
+}
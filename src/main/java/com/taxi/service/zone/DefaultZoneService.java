@@ -0,0 +1,85 @@
+package com.taxi.service.zone;
+
+import com.taxi.dataaccessobject.ZoneRepository;
+import com.taxi.domainobject.ZoneDO;
+import com.taxi.domainvalue.ZoneCount;
+import com.taxi.exception.ConstraintsViolationException;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service to encapsulate the link between DAO and controller and to have business logic for geofence zones.
+ * <p/>
+ */
+@Service
+public class DefaultZoneService implements ZoneService
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(DefaultZoneService.class);
+
+    private final ZoneRepository zoneRepository;
+
+    private final ZoneOccupancyIndex zoneOccupancyIndex;
+
+
+    public DefaultZoneService(final ZoneRepository zoneRepository, final ZoneOccupancyIndex zoneOccupancyIndex)
+    {
+        this.zoneRepository = zoneRepository;
+        this.zoneOccupancyIndex = zoneOccupancyIndex;
+    }
+
+
+    /**
+     * Creates a new zone and starts counting the online drivers inside it.
+     *
+     * @param zoneDO
+     * @return
+     * @throws ConstraintsViolationException if a zone already exists with the given name.
+     */
+    @Override
+    public ZoneDO create(ZoneDO zoneDO) throws ConstraintsViolationException
+    {
+        ZoneDO zone;
+        try
+        {
+            zone = zoneRepository.save(zoneDO);
+        }
+        catch (DataIntegrityViolationException e)
+        {
+            LOG.warn("ConstraintsViolationException while creating a zone: {}", zoneDO.getName(), e);
+            throw new ConstraintsViolationException(e.getMessage());
+        }
+        zoneOccupancyIndex.addZone(zone);
+        return zone;
+    }
+
+
+    /**
+     * Find all zones.
+     *
+     * @return
+     */
+    @Override
+    public List<ZoneDO> findAll()
+    {
+        List<ZoneDO> zones = new ArrayList<>();
+        zoneRepository.findAll().forEach(zones::add);
+        return zones;
+    }
+
+
+    /**
+     * The number of online drivers per zone, served from the incrementally maintained occupancy index.
+     *
+     * @return
+     */
+    @Override
+    public List<ZoneCount> findOnlineDriverCounts()
+    {
+        return zoneOccupancyIndex.counts();
+    }
+}
@@ -0,0 +1,218 @@
+package com.taxi.service.zone;
+
+import com.taxi.dataaccessobject.ZoneRepository;
+import com.taxi.domainobject.ZoneDO;
+import com.taxi.domainvalue.GeoCoordinate;
+import com.taxi.domainvalue.GeoPolygon;
+import com.taxi.domainvalue.ZoneCount;
+import com.taxi.event.DriverPositionChangedEvent;
+import com.taxi.service.location.DriverLocationIndex;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Live number of online drivers per zone.
+ * Counters are adjusted when a driver of the location index crosses a zone boundary, goes online or offline,
+ * so reading the counts costs O(zones) and never looks at drivers. The zones of a driver are kept with the sequence
+ * of the position change they belong to, also after the driver left the index, so a late older change is dropped.
+ * <p/>
+ */
+@Component
+public class ZoneOccupancyIndex
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(ZoneOccupancyIndex.class);
+
+    private static final Zone[] NO_ZONES = new Zone[0];
+
+    private final ZoneRepository zoneRepository;
+
+    private final DriverLocationIndex driverLocationIndex;
+
+    private final ConcurrentMap<Long, Placement> driverZones = new ConcurrentHashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile Zone[] zones = NO_ZONES;
+
+
+    public ZoneOccupancyIndex(final ZoneRepository zoneRepository, final DriverLocationIndex driverLocationIndex)
+    {
+        this.zoneRepository = zoneRepository;
+        this.driverLocationIndex = driverLocationIndex;
+    }
+
+
+    /**
+     * Loads the zones stored in the database, once on startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load()
+    {
+        for (ZoneDO zoneDO : zoneRepository.findAll())
+        {
+            addZone(zoneDO);
+        }
+        LOG.info("Zone occupancy index loaded with {} zones", zones.length);
+    }
+
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPositionChanged(DriverPositionChangedEvent event)
+    {
+        lock.readLock().lock();
+        try
+        {
+            Zone[] current = event.getCurrent() == null ? NO_ZONES : zonesContaining(event.getCurrent());
+            driverZones.compute(event.getDriverId(), (driverId, placement) -> {
+                if (placement != null && placement.sequence > event.getSequence())
+                {
+                    return placement;
+                }
+                Zone[] previous = placement == null ? NO_ZONES : placement.zones;
+                for (Zone zone : previous)
+                {
+                    if (!contains(current, zone))
+                    {
+                        zone.count.decrementAndGet();
+                    }
+                }
+                for (Zone zone : current)
+                {
+                    if (!contains(previous, zone))
+                    {
+                        zone.count.incrementAndGet();
+                    }
+                }
+                return new Placement(current, event.getSequence());
+            });
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Start counting the online drivers inside a zone. The current drivers inside the zone are counted once.
+     *
+     * @param zoneDO
+     */
+    public void addZone(ZoneDO zoneDO)
+    {
+        Zone zone = new Zone(zoneDO.getId(), zoneDO.getName(), new GeoPolygon(zoneDO.getVertices()));
+        lock.writeLock().lock();
+        try
+        {
+            Zone[] updated = Arrays.copyOf(zones, zones.length + 1);
+            updated[zones.length] = zone;
+            zones = updated;
+            driverLocationIndex.forEachPosition((driverId, coordinate) -> {
+                if (zone.polygon.contains(coordinate))
+                {
+                    driverZones.merge(driverId, new Placement(new Zone[] {zone}, 0),
+                        (placement, added) -> new Placement(concat(placement.zones, added.zones), placement.sequence));
+                    zone.count.incrementAndGet();
+                }
+            });
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * @return the number of online drivers per zone, in the order the zones have been added
+     */
+    public List<ZoneCount> counts()
+    {
+        Zone[] snapshot = zones;
+        List<ZoneCount> counts = new ArrayList<>(snapshot.length);
+        for (Zone zone : snapshot)
+        {
+            counts.add(new ZoneCount(zone.id, zone.name, zone.count.get()));
+        }
+        return counts;
+    }
+
+
+    private Zone[] zonesContaining(GeoCoordinate coordinate)
+    {
+        Zone[] containing = NO_ZONES;
+        for (Zone zone : zones)
+        {
+            if (zone.polygon.contains(coordinate))
+            {
+                containing = concat(containing, new Zone[] {zone});
+            }
+        }
+        return containing;
+    }
+
+
+    private static boolean contains(Zone[] zones, Zone zone)
+    {
+        for (Zone candidate : zones)
+        {
+            if (candidate == zone)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private static Zone[] concat(Zone[] first, Zone[] second)
+    {
+        Zone[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+
+    private static final class Placement
+    {
+        private final Zone[] zones;
+        private final long sequence;
+
+
+        private Placement(Zone[] zones, long sequence)
+        {
+            this.zones = zones;
+            this.sequence = sequence;
+        }
+    }
+
+
+    private static final class Zone
+    {
+        private final long id;
+        private final String name;
+        private final GeoPolygon polygon;
+        private final AtomicInteger count = new AtomicInteger();
+
+
+        private Zone(long id, String name, GeoPolygon polygon)
+        {
+            this.id = id;
+            this.name = name;
+            this.polygon = polygon;
+        }
+    }
+}
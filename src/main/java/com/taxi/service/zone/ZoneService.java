@@ -0,0 +1,15 @@
+package com.taxi.service.zone;
+
+import com.taxi.domainobject.ZoneDO;
+import com.taxi.domainvalue.ZoneCount;
+import com.taxi.exception.ConstraintsViolationException;
+import java.util.List;
+
+public interface ZoneService
+{
+    ZoneDO create(ZoneDO zoneDO) throws ConstraintsViolationException;
+
+    List<ZoneDO> findAll();
+
+    List<ZoneCount> findOnlineDriverCounts();
+}
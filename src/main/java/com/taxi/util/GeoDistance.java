@@ -0,0 +1,135 @@
+package com.taxi.util;
+
+/**
+ * Great-circle distance calculations on raw latitude/longitude values in degrees. The batch variants work on packed
+ * arrays of latitudes and longitudes and do not allocate, so candidates can be scored in a tight loop.
+ * <p/>
+ */
+public final class GeoDistance
+{
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    public static final double METERS_PER_DEGREE = Math.toRadians(EARTH_RADIUS_METERS);
+
+    private static final double RADIANS_PER_DEGREE = Math.PI / 180;
+
+
+    private GeoDistance()
+    {
+    }
+
+
+    /**
+     * Haversine distance between two points.
+     *
+     * @param latitude1
+     * @param longitude1
+     * @param latitude2
+     * @param longitude2
+     * @return distance in meters
+     */
+    public static double haversine(double latitude1, double longitude1, double latitude2, double longitude2)
+    {
+        double phi1 = Math.toRadians(latitude1);
+        double phi2 = Math.toRadians(latitude2);
+        double sinHalfDeltaPhi = Math.sin((phi2 - phi1) / 2);
+        double sinHalfDeltaLambda = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+
+        double a = sinHalfDeltaPhi * sinHalfDeltaPhi + Math.cos(phi1) * Math.cos(phi2) * sinHalfDeltaLambda * sinHalfDeltaLambda;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+
+    /**
+     * Equirectangular approximation of the distance between two points. Much cheaper than {@link #haversine} and
+     * accurate to a fraction of a percent for the few kilometers relevant to dispatch, but not for long distances or
+     * close to the poles.
+     *
+     * @param latitude1
+     * @param longitude1
+     * @param latitude2
+     * @param longitude2
+     * @return distance in meters
+     */
+    public static double equirectangular(double latitude1, double longitude1, double latitude2, double longitude2)
+    {
+        double x = wrapLongitude(longitude2 - longitude1) * Math.cos((latitude1 + latitude2) * (RADIANS_PER_DEGREE / 2));
+        double y = latitude2 - latitude1;
+        return METERS_PER_DEGREE * Math.sqrt(x * x + y * y);
+    }
+
+
+    /**
+     * Haversine distances from one point to many.
+     *
+     * @param latitude     of the reference point
+     * @param longitude    of the reference point
+     * @param latitudes    of the candidates
+     * @param longitudes   of the candidates
+     * @param count        number of candidates to score
+     * @param distances    receives the distance in meters of each candidate, must hold at least count values
+     */
+    public static void haversine(double latitude, double longitude, double[] latitudes, double[] longitudes, int count, double[] distances)
+    {
+        checkBatch(latitudes, longitudes, count, distances);
+        double phi1 = latitude * RADIANS_PER_DEGREE;
+        double cosPhi1 = Math.cos(phi1);
+        for (int i = 0; i < count; i++)
+        {
+            double phi2 = latitudes[i] * RADIANS_PER_DEGREE;
+            double sinHalfDeltaPhi = Math.sin((phi2 - phi1) / 2);
+            double sinHalfDeltaLambda = Math.sin((longitudes[i] - longitude) * (RADIANS_PER_DEGREE / 2));
+
+            double a = sinHalfDeltaPhi * sinHalfDeltaPhi + cosPhi1 * Math.cos(phi2) * sinHalfDeltaLambda * sinHalfDeltaLambda;
+            distances[i] = 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+        }
+    }
+
+
+    /**
+     * Equirectangular distances from one point to many, scaling longitudes with the latitude of the reference point.
+     * Meant for ranking nearby candidates, see {@link #equirectangular(double, double, double, double)} for the accuracy.
+     *
+     * @param latitude     of the reference point
+     * @param longitude    of the reference point
+     * @param latitudes    of the candidates
+     * @param longitudes   of the candidates
+     * @param count        number of candidates to score
+     * @param distances    receives the distance in meters of each candidate, must hold at least count values
+     */
+    public static void equirectangular(double latitude, double longitude, double[] latitudes, double[] longitudes, int count, double[] distances)
+    {
+        checkBatch(latitudes, longitudes, count, distances);
+        double scaleX = Math.cos(latitude * RADIANS_PER_DEGREE);
+        for (int i = 0; i < count; i++)
+        {
+            double x = wrapLongitude(longitudes[i] - longitude) * scaleX;
+            double y = latitudes[i] - latitude;
+            distances[i] = METERS_PER_DEGREE * Math.sqrt(x * x + y * y);
+        }
+    }
+
+
+    private static double wrapLongitude(double deltaLongitude)
+    {
+        if (deltaLongitude > 180)
+        {
+            return deltaLongitude - 360;
+        }
+        if (deltaLongitude < -180)
+        {
+            return deltaLongitude + 360;
+        }
+        return deltaLongitude;
+    }
+
+
+    private static void checkBatch(double[] latitudes, double[] longitudes, int count, double[] distances)
+    {
+        if (count < 0 || latitudes.length < count || longitudes.length < count || distances.length < count)
+        {
+            throw new IllegalArgumentException("count " + count + " does not fit " + latitudes.length + " latitudes, "
+                + longitudes.length + " longitudes and " + distances.length + " distances");
+        }
+    }
+}
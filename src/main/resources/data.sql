@@ -8,14 +8,14 @@ insert into manufacturer (id, date_created, name) values (2, now(), 'BMW');
 
 -- create 2 Cars with manufacturer
 
-insert into car (id, date_created, deleted, license_plate, seat_count, rating, manufacturer_id, convertible)
+insert into car (id, date_created, deleted, license_plate, seat_count, rating, rating_count, manufacturer_id, convertible)
 values
- (1, now(), false, 'car01', 4, 7.0, 1, false);
+ (1, now(), false, 'car01', 4, 7.0, 1, 1, false);
 
 
-insert into car (id, date_created, deleted, license_plate, seat_count, rating, manufacturer_id, convertible)
+insert into car (id, date_created, deleted, license_plate, seat_count, rating, rating_count, manufacturer_id, convertible)
 values
- (2, now(), false, 'car02', 3, 6.0, 2, true);
+ (2, now(), false, 'car02', 3, 6.0, 1, 2, true);
 
 -- create 2 electric cars
 insert into car (id, date_created, deleted, license_plate, seat_count, engine_type)
@@ -61,18 +61,29 @@ insert into driver (id, date_created, deleted, online_status, password, username
 
 -- Create 1 OFFLINE driver with coordinate(longitude=9.5&latitude=55.954)
 
-insert into driver (id, coordinate, date_coordinate_updated, date_created, deleted, online_status, password, username, car_id)
+insert into driver (id, latitude, longitude, date_coordinate_updated, date_created, deleted, online_status, password, username, car_id)
 values
- (7,
- 'aced0005737200226f72672e737072696e676672616d65776f726b2e646174612e67656f2e506f696e7431b9e90ef11a4006020002440001784400017978704023000000000000404bfa1cac083127', now(), now(), false, 'OFFLINE',
+ (7, 55.954, 9.5, now(), now(), false, 'OFFLINE',
 'driver07pw', 'driver07', 3);
 
 -- Create 1 ONLINE driver with coordinate(longitude=9.5&latitude=55.954)
 
-insert into driver (id, coordinate, date_coordinate_updated, date_created, deleted, online_status, password, username, car_id)
+insert into driver (id, latitude, longitude, date_coordinate_updated, date_created, deleted, online_status, password, username, car_id)
 values
- (8,
- 'aced0005737200226f72672e737072696e676672616d65776f726b2e646174612e67656f2e506f696e7431b9e90ef11a4006020002440001784400017978704023000000000000404bfa1cac083127', now(), now(), false, 'ONLINE',
+ (8, 55.954, 9.5, now(), now(), false, 'ONLINE',
 'driver08pw', 'driver08', null);
 
 
+
+-- Create 2 zones, the first one around driver 8
+
+insert into zone (id, date_created, name) values (1, now(), 'CENTRAL_STATION');
+insert into zone_vertex (zone_id, position, latitude, longitude) values (1, 0, 55.95, 9.49);
+insert into zone_vertex (zone_id, position, latitude, longitude) values (1, 1, 55.95, 9.51);
+insert into zone_vertex (zone_id, position, latitude, longitude) values (1, 2, 55.96, 9.51);
+insert into zone_vertex (zone_id, position, latitude, longitude) values (1, 3, 55.96, 9.49);
+
+insert into zone (id, date_created, name) values (2, now(), 'AIRPORT');
+insert into zone_vertex (zone_id, position, latitude, longitude) values (2, 0, 55.735, 9.13);
+insert into zone_vertex (zone_id, position, latitude, longitude) values (2, 1, 55.735, 9.17);
+insert into zone_vertex (zone_id, position, latitude, longitude) values (2, 2, 55.75, 9.15);
@@ -0,0 +1,35 @@
+package com.taxi.common;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+/**
+ * Counts the JDBC statements an action prepares, to detect N+1 selects. Needs
+ * {@code spring.jpa.properties.hibernate.generate_statistics=true}.
+ * <p/>
+ */
+public final class StatementCounts
+{
+    private StatementCounts()
+    {
+    }
+
+
+    /**
+     * Flush and clear the persistence context, so that nothing is served from it, and run the action.
+     *
+     * @param entityManager
+     * @param action
+     * @return number of statements prepared by the action
+     */
+    public static long count(TestEntityManager entityManager, Runnable action)
+    {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+}
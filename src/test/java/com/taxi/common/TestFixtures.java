@@ -3,11 +3,16 @@ package com.taxi.common;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.taxi.datatransferobject.CarDTO;
 import com.taxi.datatransferobject.DriverDTO;
+import com.taxi.datatransferobject.ZoneDTO;
 import com.taxi.domainobject.CarDO;
 import com.taxi.domainobject.DriverDO;
+import com.taxi.domainobject.ZoneDO;
+import com.taxi.domainvalue.CarView;
+import com.taxi.domainvalue.DriverView;
 import com.taxi.domainvalue.EngineType;
 import com.taxi.domainvalue.GeoCoordinate;
 import com.taxi.domainvalue.OnlineStatus;
+import java.util.List;
 
 /**
  * Defines drivers and cars fixtures to be used for test cases.
@@ -17,6 +22,7 @@ public class TestFixtures
 {
     public static final Long DRIVER_ID = 1L;
     public static final Long CAR_ID = 1L;
+    public static final Long ZONE_ID = 1L;
 
     public static final String username = "driver_username";
     public static final String password = "password";
@@ -117,11 +123,28 @@ public class TestFixtures
     }
 
 
+    public static DriverDTO aStoredDriverDTO()
+    {
+        return DriverDTO.newBuilder()
+            .setId(DRIVER_ID)
+            .setPassword(password)
+            .setUsername(username).createDriverDTO();
+    }
+
+
     public static DriverDTO anInvalidDriverDTO()
     {
         return DriverDTO.newBuilder().createDriverDTO();
     }
 
+    // DriverViews:
+
+
+    public static DriverView aDriverView()
+    {
+        return new DriverView(DRIVER_ID, username, password, null, null);
+    }
+
     //CarDOs:
 
 
@@ -191,6 +214,31 @@ public class TestFixtures
     }
 
 
+    public static CarDTO aStoredCarDTO()
+    {
+        return CarDTO.newBuilder()
+            .setId(CAR_ID)
+            .setLicensePlate(licensePlate)
+            .setSeatCount(seatCount)
+            .setRating(0.0)
+            .setConvertible(false)
+            .createCarDTO();
+    }
+
+
+    public static CarDTO aStoredElectricCarDTO()
+    {
+        return CarDTO.newBuilder()
+            .setId(CAR_ID)
+            .setLicensePlate(licensePlate)
+            .setSeatCount(seatCount)
+            .setEngineType(String.valueOf(EngineType.ELECTRIC))
+            .setRating(0.0)
+            .setConvertible(false)
+            .createCarDTO();
+    }
+
+
     public static CarDTO anInvalidCarDTO()
     {
         String longLicensePlate = "longLicensePlateNumberMoreThan14Chars";
@@ -206,6 +254,48 @@ public class TestFixtures
     }
 
 
+    // CarViews:
+
+
+    public static CarView aCarView()
+    {
+        return new CarView(CAR_ID, licensePlate, seatCount, false, 0.0, null, null, null);
+    }
+
+
+    public static CarView anElectricCarView()
+    {
+        return new CarView(CAR_ID, licensePlate, seatCount, false, 0.0, EngineType.ELECTRIC, null, null);
+    }
+
+
+    // Zones:
+
+
+    public static ZoneDO aZoneDO()
+    {
+        ZoneDO zoneDO = new ZoneDO("STATION", zoneVertices());
+        zoneDO.setId(ZONE_ID);
+        return zoneDO;
+    }
+
+
+    public static ZoneDTO aZoneDTO()
+    {
+        return ZoneDTO.newBuilder()
+            .setId(ZONE_ID)
+            .setName("STATION")
+            .setVertices(zoneVertices()).createZoneDTO();
+    }
+
+
+    private static List<GeoCoordinate> zoneVertices()
+    {
+        return List.of(new GeoCoordinate(latitude, longitude), new GeoCoordinate(latitude, longitude + 0.01),
+            new GeoCoordinate(latitude + 0.01, longitude + 0.01));
+    }
+
+
     /**
      * Convert an object to Json string format.
      *
@@ -1,12 +1,17 @@
 package com.taxi.controller;
 
+import com.taxi.controller.mapper.KeysetPageMapper;
+import com.taxi.domainvalue.CarView;
 import com.taxi.domainvalue.EngineType;
+import com.taxi.domainvalue.KeysetPage;
 import com.taxi.exception.ConstraintsViolationException;
 import com.taxi.exception.EntityNotFoundException;
+import com.taxi.security.DriverUserDetailsService;
 import com.taxi.service.car.CarService;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -16,29 +21,39 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import static com.taxi.common.TestFixtures.CAR_ID;
 import static com.taxi.common.TestFixtures.aCarDO;
 import static com.taxi.common.TestFixtures.aCarDTO;
+import static com.taxi.common.TestFixtures.aCarView;
 import static com.taxi.common.TestFixtures.aCarWithRatingDO;
 import static com.taxi.common.TestFixtures.aCarWithRatingDTO;
 import static com.taxi.common.TestFixtures.aDeletedCarDO;
-import static com.taxi.common.TestFixtures.anElectricCarDO;
-import static com.taxi.common.TestFixtures.anElectricCarDTO;
+import static com.taxi.common.TestFixtures.aStoredCarDTO;
+import static com.taxi.common.TestFixtures.aStoredElectricCarDTO;
+import static com.taxi.common.TestFixtures.anElectricCarView;
 import static com.taxi.common.TestFixtures.anInvalidCarDTO;
 import static com.taxi.common.TestFixtures.asJsonString;
 import static com.taxi.common.TestFixtures.rating;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -56,6 +71,9 @@ class CarControllerTest
     @MockBean
     private CarService carService;
 
+    @MockBean
+    private DriverUserDetailsService driverUserDetailsService;
+
 
     /**
      * Find car by id.
@@ -66,8 +84,8 @@ class CarControllerTest
     @Test
     void get_car_by_id() throws Exception
     {
-        when(carService.find(CAR_ID)).thenReturn(aCarDO());
-        var expected = aCarDTO();
+        when(carService.findView(CAR_ID)).thenReturn(aCarView());
+        var expected = aStoredCarDTO();
 
         mockMvc.perform(get(API_CAR + "/{carId}", CAR_ID)).
             andDo(print()).
@@ -85,7 +103,7 @@ class CarControllerTest
     void get_non_existing_car_by_id_not_possible() throws Exception
     {
         var message = "Could not find entity with id: " + CAR_ID;
-        when(carService.find(anyLong())).thenThrow(new EntityNotFoundException(message));
+        when(carService.findView(anyLong())).thenThrow(new EntityNotFoundException(message));
 
         mockMvc.perform(get(API_CAR + "/{carId}", CAR_ID)).
             andDo(print()).
@@ -185,6 +203,23 @@ class CarControllerTest
     }
 
 
+    /**
+     * Record the rating of a ride.
+     * Expect status 202.
+     *
+     * @throws Exception
+     */
+    @Test
+    void add_rating() throws Exception
+    {
+        mockMvc.perform(post(API_CAR + "/{carId}/ratings", CAR_ID).param("rating", "4.5")).
+            andDo(print()).
+            andExpect(status().isAccepted());
+
+        verify(carService).addRating(CAR_ID, 4.5);
+    }
+
+
     /**
      * Find cars by engine type.
      * Expect status 200.
@@ -195,12 +230,56 @@ class CarControllerTest
     void find_by_engine_type() throws Exception
     {
         EngineType type = EngineType.ELECTRIC;
-        when(carService.find(type)).thenReturn(List.of(anElectricCarDO()));
-        var expected = List.of(anElectricCarDTO());
+        when(carService.find(type, 0L, 100)).thenReturn(new KeysetPage<>(List.of(anElectricCarView()), null));
+        var expected = List.of(aStoredElectricCarDTO());
 
         mockMvc.perform(get(API_CAR).param("engineType", String.valueOf(type))).
+            andDo(print()).
+            andExpect(status().isOk()).andExpect(content().string(asJsonString(expected))).
+            andExpect(header().doesNotExist(KeysetPageMapper.NEXT_CURSOR_HEADER));
+    }
+
+
+    /**
+     * Find free cars by attributes.
+     * Expect status 200.
+     *
+     * @throws Exception
+     */
+    @Test
+    void find_available_cars() throws Exception
+    {
+        when(carService.findAvailable(EngineType.ELECTRIC, 4, null)).thenReturn(List.of(anElectricCarView()));
+        var expected = List.of(aStoredElectricCarDTO());
+
+        mockMvc.perform(get(API_CAR + "/available").param("engineType", "ELECTRIC").param("minSeats", "4")).
             andDo(print()).
             andExpect(status().isOk()).andExpect(content().string(asJsonString(expected)));
     }
 
+
+    /**
+     * Export all cars by engine type as NDJSON, one car per line.
+     * Expect status 200.
+     *
+     * @throws Exception
+     */
+    @Test
+    void export_by_engine_type_as_ndjson() throws Exception
+    {
+        EngineType type = EngineType.ELECTRIC;
+        doAnswer(invocation -> {
+            Consumer<CarView> action = invocation.getArgument(1);
+            action.accept(anElectricCarView());
+            return null;
+        }).when(carService).stream(eq(type), any());
+
+        MvcResult result = mockMvc.perform(get(API_CAR + "/export").param("engineType", String.valueOf(type)).accept(APPLICATION_NDJSON)).
+            andExpect(request().asyncStarted()).
+            andReturn();
+
+        mockMvc.perform(asyncDispatch(result)).
+            andDo(print()).
+            andExpect(status().isOk()).andExpect(content().string(asJsonString(aStoredElectricCarDTO()) + "\n"));
+    }
 }
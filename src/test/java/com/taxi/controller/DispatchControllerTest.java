@@ -0,0 +1,176 @@
+package com.taxi.controller;
+
+import com.taxi.datatransferobject.RideRequestDTO;
+import com.taxi.domainvalue.CarAttributes;
+import com.taxi.domainvalue.DispatchCandidate;
+import com.taxi.domainvalue.EngineType;
+import com.taxi.domainvalue.GeoCoordinate;
+import com.taxi.exception.ConstraintsViolationException;
+import com.taxi.security.DriverUserDetailsService;
+import com.taxi.service.dispatch.DispatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static com.taxi.common.TestFixtures.CAR_ID;
+import static com.taxi.common.TestFixtures.DRIVER_ID;
+import static com.taxi.common.TestFixtures.asJsonString;
+import static com.taxi.common.TestFixtures.latitude;
+import static com.taxi.common.TestFixtures.longitude;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test the dispatch web layer.
+ * <p/>
+ */
+@ExtendWith(MockitoExtension.class)
+@WebMvcTest(DispatchController.class)
+@WithMockUser(roles = "USER")
+class DispatchControllerTest
+{
+    private static final String API_DISPATCH = "/v1/dispatch";
+    @Autowired
+    private MockMvc mockMvc;
+    @MockBean
+    private DispatchService dispatchService;
+
+    @MockBean
+    private DriverUserDetailsService driverUserDetailsService;
+
+
+    /**
+     * Find dispatch candidates for a pickup with required car attributes.
+     * Expect status 200.
+     *
+     * @throws Exception
+     */
+    @Test
+    void find_candidates() throws Exception
+    {
+        GeoCoordinate coordinate = new GeoCoordinate(latitude, longitude);
+        CarAttributes car = new CarAttributes(CAR_ID, 5, false, EngineType.ELECTRIC, 8.0);
+        when(dispatchService.findCandidates(argThat(request -> request.getMinSeatCount() == 5 && request.getEngineType() == EngineType.ELECTRIC
+            && request.getConvertible() == null), eq(3), eq(5000.0))).thenReturn(List.of(new DispatchCandidate(DRIVER_ID, car, coordinate, 120, -680)));
+        var expected = List.of(Map.of("driverId", DRIVER_ID, "carId", CAR_ID, "coordinate", coordinate, "distance", 120.0, "rating", 8.0, "score", -680.0));
+
+        mockMvc.perform(get(API_DISPATCH + "/candidates").param("lat", String.valueOf(latitude))
+            .param("lon", String.valueOf(longitude))
+            .param("minSeats", "5")
+            .param("engineType", "ELECTRIC")
+            .param("limit", "3")).
+            andDo(print()).
+            andExpect(status().isOk()).andExpect(content().json(asJsonString(expected)));
+    }
+
+
+    /**
+     * Find dispatch candidates with invalid parameters.
+     * Expect status 400.
+     *
+     * @throws Exception
+     */
+    @Test
+    void find_candidates_not_allowed_with_invalid_input() throws Exception
+    {
+        when(dispatchService.findCandidates(any(), anyInt(), anyDouble())).thenThrow(ConstraintsViolationException.class);
+
+        mockMvc.perform(get(API_DISPATCH + "/candidates").param("lat", String.valueOf(latitude))
+            .param("lon", String.valueOf(longitude))
+            .param("limit", "0")).
+            andDo(print()).
+            andExpect(status().isBadRequest());
+
+        mockMvc.perform(get(API_DISPATCH + "/candidates").param("lat", "91")
+            .param("lon", String.valueOf(longitude))).
+            andDo(print()).
+            andExpect(status().isBadRequest());
+    }
+
+
+    /**
+     * Assign a driver to a ride request once its batch has been dispatched.
+     * Expect status 200.
+     *
+     * @throws Exception
+     */
+    @Test
+    void assign_driver() throws Exception
+    {
+        GeoCoordinate coordinate = new GeoCoordinate(latitude, longitude);
+        CarAttributes car = new CarAttributes(CAR_ID, 5, false, EngineType.GAS, 8.0);
+        when(dispatchService.assign(argThat(request -> request.getEngineType() == EngineType.GAS)))
+            .thenReturn(CompletableFuture.completedFuture(new DispatchCandidate(DRIVER_ID, car, coordinate, 120, -680)));
+        var rideRequest = RideRequestDTO.newBuilder().setLatitude(latitude).setLongitude(longitude).setEngineType("GAS").createRideRequestDTO();
+
+        MvcResult result = mockMvc.perform(post(API_DISPATCH + "/assignments").contentType(APPLICATION_JSON)
+            .content(asJsonString(rideRequest))).
+            andExpect(request().asyncStarted()).
+            andReturn();
+
+        mockMvc.perform(asyncDispatch(result)).
+            andDo(print()).
+            andExpect(status().isOk()).andExpect(content().json(asJsonString(Map.of("driverId", DRIVER_ID, "carId", CAR_ID))));
+    }
+
+
+    /**
+     * Assign a driver when no driver is free.
+     * Expect status 204.
+     *
+     * @throws Exception
+     */
+    @Test
+    void assign_driver_without_free_driver() throws Exception
+    {
+        when(dispatchService.assign(any())).thenReturn(CompletableFuture.completedFuture(null));
+        var rideRequest = RideRequestDTO.newBuilder().setLatitude(latitude).setLongitude(longitude).createRideRequestDTO();
+
+        MvcResult result = mockMvc.perform(post(API_DISPATCH + "/assignments").contentType(APPLICATION_JSON)
+            .content(asJsonString(rideRequest))).
+            andReturn();
+
+        mockMvc.perform(asyncDispatch(result)).
+            andDo(print()).
+            andExpect(status().isNoContent());
+    }
+
+
+    /**
+     * Assign a driver to a ride request without pickup point.
+     * Expect status 400.
+     *
+     * @throws Exception
+     */
+    @Test
+    void assign_driver_not_allowed_without_pickup() throws Exception
+    {
+        var rideRequest = RideRequestDTO.newBuilder().setLatitude(latitude).createRideRequestDTO();
+
+        mockMvc.perform(post(API_DISPATCH + "/assignments").contentType(APPLICATION_JSON)
+            .content(asJsonString(rideRequest))).
+            andDo(print()).
+            andExpect(status().isBadRequest());
+    }
+}
@@ -1,14 +1,28 @@
 package com.taxi.controller;
 
+import com.taxi.controller.mapper.KeysetPageMapper;
 import com.taxi.controller.specification.DriverSpecification;
+import com.taxi.datatransferobject.DriverFacetsDTO;
+import com.taxi.datatransferobject.DriverLocationDTO;
+import com.taxi.domainvalue.DriverCluster;
+import com.taxi.domainvalue.DriverFacets;
+import com.taxi.domainvalue.DriverLocation;
+import com.taxi.domainvalue.DriverView;
+import com.taxi.domainvalue.EngineType;
+import com.taxi.domainvalue.GeoCoordinate;
+import com.taxi.domainvalue.KeysetPage;
+import com.taxi.domainvalue.NearbyDriver;
 import com.taxi.domainvalue.OnlineStatus;
 import com.taxi.exception.CarAlreadyInUseException;
 import com.taxi.exception.ConstraintsViolationException;
 import com.taxi.exception.EntityNotFoundException;
+import com.taxi.security.DriverUserDetailsService;
 import com.taxi.service.driver.DriverService;
+import java.time.ZonedDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -18,15 +32,18 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import static com.taxi.common.TestFixtures.CAR_ID;
 import static com.taxi.common.TestFixtures.DRIVER_ID;
 import static com.taxi.common.TestFixtures.aDriverDO;
 import static com.taxi.common.TestFixtures.aDriverDTO;
+import static com.taxi.common.TestFixtures.aDriverView;
 import static com.taxi.common.TestFixtures.aDriverWithCarDO;
 import static com.taxi.common.TestFixtures.aDriverWithCarDTO;
 import static com.taxi.common.TestFixtures.aDriverWithCoordinateDO;
 import static com.taxi.common.TestFixtures.aDriverWithCoordinateDTO;
+import static com.taxi.common.TestFixtures.aStoredDriverDTO;
 import static com.taxi.common.TestFixtures.anInvalidDriverDTO;
 import static com.taxi.common.TestFixtures.anOnlineDriverDO;
 import static com.taxi.common.TestFixtures.asJsonString;
@@ -35,16 +52,25 @@ import static com.taxi.common.TestFixtures.longitude;
 import static com.taxi.common.TestFixtures.username;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyDouble;
+import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.anyLong;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -62,6 +88,9 @@ class DriverControllerTest
     @MockBean
     private DriverService driverService;
 
+    @MockBean
+    private DriverUserDetailsService driverUserDetailsService;
+
     /**
      * Find driver by id.
      * Expect status code 200.
@@ -71,8 +100,8 @@ class DriverControllerTest
     @Test
     void get_driver_by_id() throws Exception
     {
-        when(driverService.find(DRIVER_ID)).thenReturn(aDriverDO());
-        var expected = aDriverDTO();
+        when(driverService.findView(DRIVER_ID)).thenReturn(aDriverView());
+        var expected = aStoredDriverDTO();
 
         mockMvc.perform(get(API_DRIVER + "/{driverId}", DRIVER_ID)).
             andDo(print()).
@@ -91,7 +120,7 @@ class DriverControllerTest
     void get_non_existing_driver_by_id() throws Exception
     {
         var message = "Could not find entity with id: " + DRIVER_ID;
-        when(driverService.find(anyLong())).thenThrow(new EntityNotFoundException(message));
+        when(driverService.findView(anyLong())).thenThrow(new EntityNotFoundException(message));
 
         mockMvc.perform(get(API_DRIVER + "/{driverId}", DRIVER_ID)).
             andDo(print()).
@@ -201,12 +230,131 @@ class DriverControllerTest
     void find_by_online_status() throws Exception
     {
         OnlineStatus status = OnlineStatus.ONLINE;
-        when(driverService.find(status)).thenReturn(List.of(anOnlineDriverDO()));
-        var expected = List.of(aDriverDTO());
+        when(driverService.find(status, 0L, 100)).thenReturn(new KeysetPage<>(List.of(aDriverView()), null));
+        var expected = List.of(aStoredDriverDTO());
 
         mockMvc.perform(get(API_DRIVER).param("onlineStatus", String.valueOf(status))).
             andDo(print()).
-            andExpect(status().isOk()).andExpect(content().string(asJsonString(expected)));
+            andExpect(status().isOk()).andExpect(content().string(asJsonString(expected))).
+            andExpect(header().doesNotExist(KeysetPageMapper.NEXT_CURSOR_HEADER));
+    }
+
+
+    /**
+     * Find a page of drivers by online status which is followed by another page.
+     * Expect status 200 and the cursor of the next page.
+     *
+     * @throws Exception
+     */
+    @Test
+    void find_by_online_status_with_next_page() throws Exception
+    {
+        OnlineStatus status = OnlineStatus.ONLINE;
+        when(driverService.find(status, 10L, 1)).thenReturn(new KeysetPage<>(List.of(aDriverView()), 11L));
+
+        mockMvc.perform(get(API_DRIVER).param("onlineStatus", String.valueOf(status)).param("cursor", "10").param("limit", "1")).
+            andDo(print()).
+            andExpect(status().isOk()).andExpect(header().string(KeysetPageMapper.NEXT_CURSOR_HEADER, "11"));
+    }
+
+
+    /**
+     * Export all drivers by online status as one streamed JSON array.
+     * Expect status 200.
+     *
+     * @throws Exception
+     */
+    @Test
+    void export_by_online_status() throws Exception
+    {
+        OnlineStatus status = OnlineStatus.ONLINE;
+        doAnswer(invocation -> {
+            Consumer<DriverView> action = invocation.getArgument(1);
+            action.accept(aDriverView());
+            action.accept(aDriverView());
+            return null;
+        }).when(driverService).stream(eq(status), any());
+
+        MvcResult result = mockMvc.perform(get(API_DRIVER + "/export").param("onlineStatus", String.valueOf(status))).
+            andExpect(request().asyncStarted()).
+            andReturn();
+
+        mockMvc.perform(asyncDispatch(result)).
+            andDo(print()).
+            andExpect(status().isOk()).
+            andExpect(content().contentTypeCompatibleWith(APPLICATION_JSON)).
+            andExpect(content().string(asJsonString(List.of(aStoredDriverDTO(), aStoredDriverDTO()))));
+    }
+
+
+    /**
+     * Count searched drivers grouped by attribute value.
+     * Expect status 200.
+     *
+     * @throws Exception
+     */
+    @Test
+    void count_search_facets() throws Exception
+    {
+        when(driverService.countFacets(any())).thenReturn(new DriverFacets(
+            2, Map.of(OnlineStatus.ONLINE, 2L), Map.of(EngineType.ELECTRIC, 1L), Map.of(4, 1L), Map.of(true, 1L)));
+        DriverFacetsDTO facets = DriverFacetsDTO.newBuilder()
+            .setTotal(2L)
+            .setOnlineStatus(Map.of(OnlineStatus.ONLINE, 2L))
+            .setEngineType(Map.of(EngineType.ELECTRIC, 1L))
+            .setSeatCount(Map.of(4, 1L))
+            .setConvertible(Map.of(true, 1L))
+            .createDriverFacetsDTO();
+
+        mockMvc.perform(get(API_DRIVER + "/search/facets").param("onlineStatus", String.valueOf(OnlineStatus.ONLINE))).
+            andDo(print()).
+            andExpect(status().isOk()).
+            andExpect(content().string(asJsonString(facets)));
+    }
+
+
+    /**
+     * Export searched drivers as NDJSON, one driver per line.
+     * Expect status 200.
+     *
+     * @throws Exception
+     */
+    @Test
+    void export_searched_drivers_as_ndjson() throws Exception
+    {
+        doAnswer(invocation -> {
+            Consumer<DriverView> action = invocation.getArgument(1);
+            action.accept(aDriverView());
+            action.accept(aDriverView());
+            return null;
+        }).when(driverService).streamSearch(any(), any());
+
+        MvcResult result = mockMvc.perform(get(API_DRIVER + "/search/export").param("username", username).accept(APPLICATION_NDJSON)).
+            andReturn();
+
+        String line = asJsonString(aStoredDriverDTO());
+        mockMvc.perform(asyncDispatch(result)).
+            andDo(print()).
+            andExpect(status().isOk()).
+            andExpect(content().contentTypeCompatibleWith(APPLICATION_NDJSON)).
+            andExpect(content().string(line + "\n" + line + "\n"));
+    }
+
+
+    /**
+     * Find drivers by online status with a page size out of range.
+     * Expect status 400.
+     *
+     * @throws Exception
+     */
+    @Test
+    void find_by_online_status_not_allowed_with_invalid_limit() throws Exception
+    {
+        when(driverService.find(any(), anyLong(), anyInt())).thenThrow(ConstraintsViolationException.class);
+
+        mockMvc.perform(get(API_DRIVER).param("onlineStatus", "ONLINE").param("limit", "0")).
+            andDo(print()).
+            andExpect(status().isBadRequest());
     }
 
 
@@ -274,11 +422,223 @@ class DriverControllerTest
     {
         DriverSpecification params = new DriverSpecification();
         params.setUsername(username);
-        when(driverService.search(any())).thenReturn(List.of(aDriverDO()));
-        var expected = List.of(aDriverDTO());
+        when(driverService.search(any(), eq(0L), eq(100))).thenReturn(new KeysetPage<>(List.of(aDriverView()), null));
+        var expected = List.of(aStoredDriverDTO());
 
         mockMvc.perform(get(API_DRIVER + "/search").contentType(APPLICATION_JSON).content(asJsonString(params))).
             andDo(print()).
             andExpect(status().isOk()).andExpect(content().string(asJsonString(expected)));
     }
+
+
+    /**
+     * Find the nearest online drivers around a point.
+     * Expect status 200.
+     *
+     * @throws Exception
+     */
+    @Test
+    void find_nearby_drivers() throws Exception
+    {
+        GeoCoordinate coordinate = new GeoCoordinate(latitude, longitude);
+        when(driverService.findNearby(anyDouble(), anyDouble(), anyInt(), anyDouble())).thenReturn(List.of(new NearbyDriver(DRIVER_ID, coordinate, 12.5)));
+        var expected = List.of(Map.of("driverId", DRIVER_ID, "coordinate", coordinate, "distance", 12.5));
+
+        mockMvc.perform(get(API_DRIVER + "/nearby").param("lat", String.valueOf(latitude))
+            .param("lon", String.valueOf(longitude))
+            .param("k", "3")).
+            andDo(print()).
+            andExpect(status().isOk()).andExpect(content().json(asJsonString(expected)));
+    }
+
+
+    /**
+     * Find nearby drivers with invalid parameters throws ConstraintsViolationException.
+     * Expect status 400.
+     *
+     * @throws Exception
+     */
+    @Test
+    void find_nearby_drivers_not_allowed_with_invalid_input() throws Exception
+    {
+        when(driverService.findNearby(anyDouble(), anyDouble(), anyInt(), anyDouble())).thenThrow(ConstraintsViolationException.class);
+
+        mockMvc.perform(get(API_DRIVER + "/nearby").param("lat", String.valueOf(latitude))
+            .param("lon", String.valueOf(longitude))
+            .param("k", "0")).
+            andDo(print()).
+            andExpect(status().isBadRequest());
+    }
+
+
+    /**
+     * Find driver clusters inside a box.
+     * Expect status 200.
+     *
+     * @throws Exception
+     */
+    @Test
+    void find_driver_clusters() throws Exception
+    {
+        GeoCoordinate coordinate = new GeoCoordinate(latitude, longitude);
+        when(driverService.findClusters(List.of(13.3, 52.4, 13.5, 52.6), 12)).thenReturn(List.of(new DriverCluster(coordinate, 4)));
+        var expected = List.of(Map.of("coordinate", coordinate, "count", 4));
+
+        mockMvc.perform(get(API_DRIVER + "/clusters").param("bbox", "13.3,52.4,13.5,52.6")
+            .param("zoom", "12")).
+            andDo(print()).
+            andExpect(status().isOk()).andExpect(content().json(asJsonString(expected)));
+    }
+
+
+    /**
+     * Update the locations of many drivers from a JSON array.
+     * Expect status 200.
+     *
+     * @throws Exception
+     */
+    @Test
+    void update_locations() throws Exception
+    {
+        var location = DriverLocationDTO.newBuilder().setDriverId(DRIVER_ID).setLatitude(latitude).setLongitude(longitude).createDriverLocationDTO();
+        var unknown = DriverLocationDTO.newBuilder().setDriverId(2L).setLatitude(latitude).setLongitude(longitude).createDriverLocationDTO();
+        when(driverService.updateLocations(any()))
+            .thenReturn(List.of(new DriverLocation(DRIVER_ID, new GeoCoordinate(latitude, longitude), ZonedDateTime.now())));
+        var expected = Map.of("updated", 1, "skipped", List.of(2));
+
+        mockMvc.perform(put(API_DRIVER + "/locations").contentType(APPLICATION_JSON).content(asJsonString(List.of(location, unknown)))).
+            andDo(print()).
+            andExpect(status().isOk()).andExpect(content().json(asJsonString(expected)));
+    }
+
+
+    /**
+     * Update the locations of many drivers from newline delimited JSON.
+     * Expect status 200.
+     *
+     * @throws Exception
+     */
+    @Test
+    void update_locations_from_ndjson() throws Exception
+    {
+        var location = DriverLocationDTO.newBuilder().setDriverId(DRIVER_ID).setLatitude(latitude).setLongitude(longitude).createDriverLocationDTO();
+        when(driverService.updateLocations(any()))
+            .thenReturn(List.of(new DriverLocation(DRIVER_ID, new GeoCoordinate(latitude, longitude), ZonedDateTime.now())));
+        var expected = Map.of("updated", 1, "skipped", List.of());
+
+        mockMvc.perform(put(API_DRIVER + "/locations").contentType(APPLICATION_NDJSON).content(asJsonString(location) + "\n" + asJsonString(location) + "\n")).
+            andDo(print()).
+            andExpect(status().isOk()).andExpect(content().json(asJsonString(expected)));
+    }
+
+
+    /**
+     * Update locations from a NDJSON stream with more lines than a batch can hold is not allowed.
+     * Expect status 400.
+     *
+     * @throws Exception
+     */
+    @Test
+    void update_locations_from_ndjson_not_allowed_above_batch_limit() throws Exception
+    {
+        var location = DriverLocationDTO.newBuilder().setDriverId(DRIVER_ID).setLatitude(latitude).setLongitude(longitude).createDriverLocationDTO();
+        var content = (asJsonString(location) + "\n").repeat(DriverService.MAX_LOCATION_BATCH_SIZE + 1);
+
+        mockMvc.perform(put(API_DRIVER + "/locations").contentType(APPLICATION_NDJSON).content(content)).
+            andExpect(status().isBadRequest());
+
+        verify(driverService, never()).updateLocations(any());
+    }
+
+
+    /**
+     * Update locations with an out of range coordinate is not allowed.
+     * Expect status 400.
+     *
+     * @throws Exception
+     */
+    @Test
+    void update_locations_not_allowed_with_invalid_input() throws Exception
+    {
+        var location = DriverLocationDTO.newBuilder().setDriverId(DRIVER_ID).setLatitude(91.0).setLongitude(longitude).createDriverLocationDTO();
+
+        mockMvc.perform(put(API_DRIVER + "/locations").contentType(APPLICATION_JSON).content(asJsonString(List.of(location)))).
+            andDo(print()).
+            andExpect(status().isBadRequest());
+    }
+
+
+    /**
+     * Update locations with a timestamp too far in the future is not allowed.
+     * Expect status 400.
+     *
+     * @throws Exception
+     */
+    @Test
+    void update_locations_not_allowed_with_future_timestamp() throws Exception
+    {
+        var location = "[{\"driverId\":" + DRIVER_ID + ",\"latitude\":" + latitude + ",\"longitude\":" + longitude
+            + ",\"timestamp\":\"" + ZonedDateTime.now().plusHours(1).toOffsetDateTime() + "\"}]";
+
+        mockMvc.perform(put(API_DRIVER + "/locations").contentType(APPLICATION_JSON).content(location)).
+            andDo(print()).
+            andExpect(status().isBadRequest());
+        verify(driverService, never()).updateLocations(any());
+    }
+
+
+    /**
+     * Get the recorded track of a driver.
+     * Expect status 200.
+     *
+     * @throws Exception
+     */
+    @Test
+    void get_track() throws Exception
+    {
+        var timestamp = ZonedDateTime.parse("2021-06-01T10:00:00Z");
+        when(driverService.findTrack(anyLong(), any(), any(), anyDouble()))
+            .thenReturn(List.of(new DriverLocation(DRIVER_ID, new GeoCoordinate(latitude, longitude), timestamp)));
+        var expected = List.of(Map.of("driverId", DRIVER_ID, "latitude", latitude, "longitude", longitude));
+
+        mockMvc.perform(get(API_DRIVER + "/" + DRIVER_ID + "/track").param("from", "2021-06-01T00:00:00Z")
+            .param("to", "2021-06-02T00:00:00Z")).
+            andDo(print()).
+            andExpect(status().isOk()).andExpect(content().json(asJsonString(expected)));
+    }
+
+
+    /**
+     * Get a track with an invalid range throws ConstraintsViolationException.
+     * Expect status 400.
+     *
+     * @throws Exception
+     */
+    @Test
+    void get_track_not_allowed_with_invalid_range() throws Exception
+    {
+        when(driverService.findTrack(anyLong(), any(), any(), anyDouble())).thenThrow(ConstraintsViolationException.class);
+
+        mockMvc.perform(get(API_DRIVER + "/" + DRIVER_ID + "/track").param("from", "2021-06-02T00:00:00Z")
+            .param("to", "2021-06-01T00:00:00Z")).
+            andDo(print()).
+            andExpect(status().isBadRequest());
+    }
+
+
+    /**
+     * Let a driver go online.
+     * Expect status 200.
+     *
+     * @throws Exception
+     */
+    @Test
+    void update_online_status() throws Exception
+    {
+        when(driverService.updateOnlineStatus(DRIVER_ID, OnlineStatus.ONLINE)).thenReturn(anOnlineDriverDO());
+
+        mockMvc.perform(put(API_DRIVER + "/" + DRIVER_ID + "/status").param("onlineStatus", "ONLINE")).
+            andDo(print()).
+            andExpect(status().isOk());
+    }
 }
@@ -0,0 +1,102 @@
+package com.taxi.controller;
+
+import com.taxi.datatransferobject.ZoneDTO;
+import com.taxi.domainvalue.GeoCoordinate;
+import com.taxi.domainvalue.ZoneCount;
+import com.taxi.security.DriverUserDetailsService;
+import com.taxi.service.zone.ZoneService;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static com.taxi.common.TestFixtures.aZoneDO;
+import static com.taxi.common.TestFixtures.aZoneDTO;
+import static com.taxi.common.TestFixtures.asJsonString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test the zone web layer.
+ * <p/>
+ */
+@ExtendWith(MockitoExtension.class)
+@WebMvcTest(ZoneController.class)
+@WithMockUser(roles = "USER")
+class ZoneControllerTest
+{
+    private static final String API_ZONE = "/v1/zones";
+    @Autowired
+    private MockMvc mockMvc;
+    @MockBean
+    private ZoneService zoneService;
+
+    @MockBean
+    private DriverUserDetailsService driverUserDetailsService;
+
+
+    /**
+     * Create a zone.
+     * Expect status code 201.
+     *
+     * @throws Exception
+     */
+    @Test
+    void create_zone() throws Exception
+    {
+        when(zoneService.create(any())).thenReturn(aZoneDO());
+
+        mockMvc.perform(post(API_ZONE).contentType(APPLICATION_JSON).
+            content(asJsonString(aZoneDTO()))).
+            andDo(print()).
+            andExpect(status().isCreated()).andExpect(content().json(asJsonString(aZoneDTO())));
+    }
+
+
+    /**
+     * Create a zone with less than 3 vertices.
+     * Expect status code 400.
+     *
+     * @throws Exception
+     */
+    @Test
+    void create_invalid_zone_not_allowed() throws Exception
+    {
+        var zone = ZoneDTO.newBuilder().setName("LINE").setVertices(List.of(new GeoCoordinate(1, 1), new GeoCoordinate(2, 2))).createZoneDTO();
+
+        mockMvc.perform(post(API_ZONE).contentType(APPLICATION_JSON).
+            content(asJsonString(zone))).
+            andDo(print()).
+            andExpect(status().isBadRequest());
+    }
+
+
+    /**
+     * Find the online driver counts per zone.
+     * Expect status code 200.
+     *
+     * @throws Exception
+     */
+    @Test
+    void find_online_driver_counts() throws Exception
+    {
+        when(zoneService.findOnlineDriverCounts()).thenReturn(List.of(new ZoneCount(1L, "STATION", 3)));
+        var expected = List.of(Map.of("zoneId", 1, "name", "STATION", "onlineDrivers", 3));
+
+        mockMvc.perform(get(API_ZONE + "/counts")).
+            andDo(print()).
+            andExpect(status().isOk()).andExpect(content().json(asJsonString(expected)));
+    }
+}
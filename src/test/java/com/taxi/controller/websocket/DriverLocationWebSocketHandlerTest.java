@@ -0,0 +1,96 @@
+package com.taxi.controller.websocket;
+
+import com.taxi.domainvalue.GeoCoordinate;
+import com.taxi.service.driver.DriverService;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import static com.taxi.common.TestFixtures.DRIVER_ID;
+import static com.taxi.common.TestFixtures.latitude;
+import static com.taxi.common.TestFixtures.longitude;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test the WebSocket handler for driver location streams.
+ * <p/>
+ */
+@ExtendWith(MockitoExtension.class)
+class DriverLocationWebSocketHandlerTest
+{
+
+    @Mock
+    private DriverService driverService;
+    @Mock
+    private WebSocketSession session;
+    @InjectMocks
+    private DriverLocationWebSocketHandler handler;
+
+
+    /**
+     * A binary frame updates the location of the session's driver.
+     */
+    @Test
+    void binary_frame_updates_location() throws Exception
+    {
+        givenDriverSession();
+        ByteBuffer frame = ByteBuffer.allocate(DriverLocationWebSocketHandler.BINARY_FRAME_SIZE).putDouble(latitude).putDouble(longitude).flip();
+
+        handler.handleMessage(session, new BinaryMessage(frame));
+
+        verify(driverService, times(1)).updateLocation(argThat(location -> location.getDriverId() == DRIVER_ID
+            && location.getCoordinate().equals(new GeoCoordinate(latitude, longitude))));
+    }
+
+
+    /**
+     * A text frame updates the location of the session's driver.
+     */
+    @Test
+    void text_frame_updates_location() throws Exception
+    {
+        givenDriverSession();
+        handler.handleMessage(session, new TextMessage(latitude + "," + longitude));
+
+        verify(driverService, times(1)).updateLocation(argThat(location -> location.getDriverId() == DRIVER_ID
+            && location.getCoordinate().equals(new GeoCoordinate(latitude, longitude))));
+    }
+
+
+    /**
+     * Malformed frames close the session without updating the location.
+     */
+    @Test
+    void malformed_frames_close_session() throws Exception
+    {
+        handler.handleMessage(session, new BinaryMessage(new byte[] {1, 2, 3}));
+        handler.handleMessage(session, new TextMessage("not a position"));
+        handler.handleMessage(session, new TextMessage("91.0,10.0"));
+
+        verify(session, times(3)).close(isA(CloseStatus.class));
+        verify(driverService, never()).updateLocation(any());
+    }
+
+
+    private void givenDriverSession()
+    {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(DriverHandshakeInterceptor.DRIVER_ID_ATTRIBUTE, DRIVER_ID);
+        when(session.getAttributes()).thenReturn(attributes);
+    }
+}
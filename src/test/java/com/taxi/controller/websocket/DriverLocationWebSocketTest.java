@@ -0,0 +1,116 @@
+package com.taxi.controller.websocket;
+
+import com.taxi.domainvalue.GeoCoordinate;
+import com.taxi.service.driver.DriverService;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test the driver location stream end to end, including the authenticated handshake.
+ * <p/>
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class DriverLocationWebSocketTest
+{
+    private static final long DRIVER_ID = 2L;
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${user.username}")
+    private String username;
+
+    @Value("${user.password}")
+    private String password;
+
+    @Autowired
+    private DriverService driverService;
+
+
+    /**
+     * Streamed positions are written like regular location updates.
+     */
+    @Test
+    void stream_locations() throws Exception
+    {
+        WebSocketSession session = connect(username, password, DRIVER_ID);
+        session.sendMessage(new BinaryMessage(ByteBuffer.allocate(16).putDouble(52.0).putDouble(13.0).flip()));
+        session.sendMessage(new BinaryMessage(ByteBuffer.allocate(16).putDouble(52.5).putDouble(13.5).flip()));
+
+        GeoCoordinate expected = new GeoCoordinate(52.5, 13.5);
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!expected.equals(driverService.find(DRIVER_ID).getCoordinate()) && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(20);
+        }
+        session.close();
+
+        assertEquals(expected, driverService.find(DRIVER_ID).getCoordinate());
+    }
+
+
+    /**
+     * A driver authenticating with its own credentials streams its own positions without naming itself.
+     */
+    @Test
+    void stream_locations_as_driver() throws Exception
+    {
+        WebSocketSession session = connect("driver03", "driver03pw", "");
+        session.sendMessage(new TextMessage("48.1,11.5"));
+
+        GeoCoordinate expected = new GeoCoordinate(48.1, 11.5);
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!expected.equals(driverService.find(3L).getCoordinate()) && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(20);
+        }
+        session.close();
+
+        assertEquals(expected, driverService.find(3L).getCoordinate());
+    }
+
+
+    /**
+     * Handshakes without valid credentials, for unknown drivers or by a driver for another driver are rejected.
+     */
+    @Test
+    void reject_invalid_handshakes()
+    {
+        assertThrows(ExecutionException.class, () -> connect(username, "wrong", DRIVER_ID));
+        assertThrows(ExecutionException.class, () -> connect(username, password, 404L));
+        assertThrows(ExecutionException.class, () -> connect("driver03", "driver03pw", DRIVER_ID));
+    }
+
+
+    private WebSocketSession connect(String user, String pass, long driverId) throws Exception
+    {
+        return connect(user, pass, "?driverId=" + driverId);
+    }
+
+
+    private WebSocketSession connect(String user, String pass, String query) throws Exception
+    {
+        WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+        headers.setBasicAuth(user, pass);
+        URI uri = URI.create("ws://localhost:" + port + DriverLocationWebSocketConfiguration.ENDPOINT + query);
+        return new StandardWebSocketClient().doHandshake(new AbstractWebSocketHandler()
+        {
+        }, headers, uri).get(5, TimeUnit.SECONDS);
+    }
+}
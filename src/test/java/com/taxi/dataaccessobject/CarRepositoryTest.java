@@ -1,15 +1,23 @@
 package com.taxi.dataaccessobject;
 
 import com.taxi.domainobject.CarDO;
+import com.taxi.domainobject.ManufacturerDO;
+import com.taxi.domainvalue.CarRating;
+import com.taxi.domainvalue.CarRatingTally;
+import com.taxi.domainvalue.CarView;
 import com.taxi.domainvalue.EngineType;
+import java.util.ArrayList;
 import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import static com.taxi.common.StatementCounts.count;
 import static com.taxi.common.TestFixtures.aCarDO;
 import static com.taxi.common.TestFixtures.licensePlate;
 import static com.taxi.common.TestFixtures.seatCount;
@@ -22,12 +30,15 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
  * <p/>
  */
 @ExtendWith(SpringExtension.class)
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 class CarRepositoryTest
 {
     @Autowired
     private CarRepository carRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
 
     /**
      * Find car by id.
@@ -80,9 +91,130 @@ class CarRepositoryTest
         var type = EngineType.ELECTRIC;
         var expected = EngineType.ELECTRIC;
 
-        List<CarDO> fetchedCars = carRepository.findByEngineType(type);
+        List<CarView> fetchedCars = carRepository.findViewsByEngineType(type, 0, PageRequest.of(0, 100));
 
         assertTrue(fetchedCars.size() > 0);
         assertEquals(expected, fetchedCars.get(0).getEngineType());
     }
+
+
+    /**
+     * Ride ratings are averaged with the counted ones, including the seeded rating, deleted cars are skipped and left
+     * out when reading the averages back.
+     */
+    @Test
+    void batch_add_ratings()
+    {
+        CarDO deleted = carRepository.findById(3L).orElseThrow();
+        deleted.setDeleted(true);
+        entityManager.flush();
+
+        int[] updated = carRepository.batchAddRatings(List.of(
+            new CarRatingTally(1L, 9, 2), new CarRatingTally(3L, 5, 1)));
+        carRepository.batchAddRatings(List.of(new CarRatingTally(1L, 4, 1)));
+        entityManager.clear();
+
+        assertEquals(1, updated[0]);
+        assertEquals(0, updated[1]);
+        CarDO rated = carRepository.findById(1L).orElseThrow();
+        assertEquals(5, rated.getRating());
+        assertEquals(4L, rated.getRatingCount());
+        List<CarRating> ratings = carRepository.findRatingsByIdIn(List.of(1L, 3L));
+        assertEquals(1, ratings.size());
+        assertEquals(5, ratings.get(0).getRating());
+    }
+
+
+    /**
+     * A rating set directly is averaged with the ride ratings flushed afterwards, a car without rating takes their
+     * average.
+     */
+    @Test
+    void batch_add_ratings_after_direct_rating()
+    {
+        CarDO carDO = carRepository.findById(2L).orElseThrow();
+        carDO.setRating(8.0);
+        carDO.setRatingCount(1L);
+        entityManager.flush();
+
+        carRepository.batchAddRatings(List.of(new CarRatingTally(2L, 4, 1), new CarRatingTally(4L, 7, 2)));
+        entityManager.clear();
+
+        CarDO rated = carRepository.findById(2L).orElseThrow();
+        assertEquals(6, rated.getRating());
+        assertEquals(2L, rated.getRatingCount());
+        assertEquals(3.5, carRepository.findById(4L).orElseThrow().getRating());
+    }
+
+
+    /**
+     * Deleted cars are left out of the views of cars not deleted.
+     */
+    @Test
+    void find_views_not_deleted()
+    {
+        int notDeleted = carRepository.findViewsByDeletedFalse().size();
+        CarDO carDO = carRepository.findById(2L).orElseThrow();
+        carDO.setDeleted(true);
+        entityManager.flush();
+
+        List<CarView> cars = carRepository.findViewsByDeletedFalse();
+
+        assertEquals(notDeleted - 1, cars.size());
+        assertTrue(cars.stream().noneMatch(car -> car.getId() == 2L));
+        assertTrue(carRepository.findViewByIdAndDeletedFalse(1L).isPresent());
+        assertTrue(carRepository.findViewByIdAndDeletedFalse(2L).isEmpty());
+    }
+
+
+    /**
+     * Find cars by engine type after a cursor, ordered by id and limited.
+     */
+    @Test
+    void find_by_engine_type_after_id()
+    {
+        List<CarView> firstPage = carRepository.findViewsByEngineType(EngineType.GAS, 0, PageRequest.of(0, 1));
+        List<CarView> secondPage = carRepository.findViewsByEngineType(EngineType.GAS, firstPage.get(0).getId(), PageRequest.of(0, 10));
+
+        assertEquals(1, firstPage.size());
+        assertEquals(1, secondPage.size());
+        assertTrue(secondPage.get(0).getId() > firstPage.get(0).getId());
+        assertEquals(EngineType.GAS, secondPage.get(0).getEngineType());
+    }
+
+
+    /**
+     * Scroll through cars by engine type in id order.
+     */
+    @Test
+    void for_each_by_engine_type()
+    {
+        List<CarView> streamed = new ArrayList<>();
+
+        carRepository.forEachViewByEngineType(EngineType.GAS, streamed::add);
+
+        assertEquals(2, streamed.size());
+        assertTrue(streamed.get(0).getId() < streamed.get(1).getId());
+        assertTrue(streamed.stream().allMatch(car -> car.getEngineType() == EngineType.GAS));
+    }
+
+
+    /**
+     * A car by id and the cars by engine type take one statement, their manufacturers are fetched with them.
+     */
+    @Test
+    void find_with_constant_statement_count()
+    {
+        ManufacturerDO manufacturer = entityManager.find(ManufacturerDO.class, 2L);
+        for (int i = 0; i < 20; i++)
+        {
+            CarDO car = new CarDO("plate" + i, 4);
+            car.setEngineType(EngineType.GAS);
+            car.setManufacturer(manufacturer);
+            carRepository.save(car);
+        }
+
+        assertEquals(1, count(entityManager, () -> carRepository.findById(1L).get().getManufacturer().getName()));
+        assertEquals(1, count(entityManager, () -> carRepository.findViewsByEngineType(EngineType.GAS, 0, PageRequest.of(0, 100))));
+    }
 }
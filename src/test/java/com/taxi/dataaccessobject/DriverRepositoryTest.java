@@ -3,16 +3,34 @@ package com.taxi.dataaccessobject;
 import com.taxi.controller.specification.DriverSpecification;
 import com.taxi.domainobject.CarDO;
 import com.taxi.domainobject.DriverDO;
+import com.taxi.domainobject.ManufacturerDO;
+import com.taxi.domainvalue.DriverAttributes;
+import com.taxi.domainvalue.DriverFacets;
+import com.taxi.domainvalue.DriverLocation;
+import com.taxi.domainvalue.DriverView;
+import com.taxi.domainvalue.EngineType;
+import com.taxi.domainvalue.GeoCoordinate;
 import com.taxi.domainvalue.OnlineStatus;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import static com.taxi.common.StatementCounts.count;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -20,12 +38,15 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
  * <p/>
  */
 @ExtendWith(SpringExtension.class)
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 class DriverRepositoryTest
 {
     @Autowired
     private DriverRepository driverRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
 
     /**
      * Find driver by id.
@@ -88,4 +109,259 @@ class DriverRepositoryTest
         assertNotNull(fetchedDriver);
         assertEquals(1, fetchedDriver.get(0).getCar().getId());
     }
+
+
+    /**
+     * LIKE wildcards in username and license plate filters match literally, by criteria and by JPQL alike.
+     */
+    @Test
+    void find_by_specs_with_wildcards()
+    {
+        DriverSpecification specs = new DriverSpecification();
+        specs.setUsername("driver_1");
+
+        assertEquals(List.of(), driverRepository.findAll(specs));
+        assertEquals(List.of(), driverRepository.findViews(specs, 0, 100));
+
+        specs.setUsername("%");
+        assertEquals(List.of(), driverRepository.findViews(specs, 0, 100));
+
+        specs.setUsername("river01");
+        assertEquals(1, driverRepository.findAll(specs).size());
+        assertEquals(1, driverRepository.findViews(specs, 0, 100).size());
+    }
+
+
+    /**
+     * Find drivers inside a latitude/longitude bounding box.
+     */
+    @Test
+    void find_by_bounding_box()
+    {
+        List<DriverDO> fetchedDrivers = driverRepository.findByCoordinateLatitudeBetweenAndCoordinateLongitudeBetween(55.9, 56.0, 9.4, 9.6);
+
+        assertEquals(2, fetchedDrivers.size());
+        assertEquals(55.954, fetchedDrivers.get(0).getCoordinate().getLatitude());
+        assertEquals(9.5, fetchedDrivers.get(0).getCoordinate().getLongitude());
+    }
+
+
+    /**
+     * Find online drivers inside a latitude/longitude bounding box.
+     */
+    @Test
+    void find_by_online_status_and_bounding_box()
+    {
+        List<DriverDO> fetchedDrivers =
+            driverRepository.findByOnlineStatusAndCoordinateLatitudeBetweenAndCoordinateLongitudeBetween(OnlineStatus.ONLINE, 55.9, 56.0, 9.4, 9.6);
+        List<DriverDO> outsideDrivers =
+            driverRepository.findByOnlineStatusAndCoordinateLatitudeBetweenAndCoordinateLongitudeBetween(OnlineStatus.ONLINE, 50.0, 51.0, 9.4, 9.6);
+
+        assertEquals(1, fetchedDrivers.size());
+        assertEquals(8, fetchedDrivers.get(0).getId());
+        assertTrue(outsideDrivers.isEmpty());
+    }
+
+
+    /**
+     * Update the locations of several drivers with one batch, skipping unknown drivers and outdated locations.
+     */
+    @Test
+    void batch_update_locations()
+    {
+        ZonedDateTime now = ZonedDateTime.now();
+        List<DriverLocation> locations = List.of(
+            new DriverLocation(1L, new GeoCoordinate(52.52, 13.405), now),
+            new DriverLocation(8L, new GeoCoordinate(52.52, 13.405), now.minusYears(1)),
+            new DriverLocation(999L, new GeoCoordinate(52.52, 13.405), now));
+
+        int[] updateCounts = driverRepository.batchUpdateLocations(locations);
+
+        assertArrayEquals(new int[] {1, 0, 0}, updateCounts);
+        assertEquals(new GeoCoordinate(52.52, 13.405), driverRepository.findById(1L).get().getCoordinate());
+        assertEquals(new GeoCoordinate(55.954, 9.5), driverRepository.findById(8L).get().getCoordinate());
+    }
+
+
+    /**
+     * Locations of deleted drivers are not written.
+     */
+    @Test
+    void update_location_of_deleted_driver_not_applied()
+    {
+        DriverDO driverDO = driverRepository.findById(2L).get();
+        GeoCoordinate stored = driverDO.getCoordinate();
+        driverDO.setDeleted(true);
+        entityManager.flush();
+
+        int updated = driverRepository.updateLocation(new DriverLocation(2L, new GeoCoordinate(52.52, 13.405), ZonedDateTime.now()));
+        entityManager.clear();
+
+        assertEquals(0, updated);
+        assertEquals(stored, driverRepository.findById(2L).get().getCoordinate());
+    }
+
+
+    /**
+     * The view of a driver carries the columns of its car and manufacturer, without loading any entity.
+     */
+    @Test
+    void find_view_by_id()
+    {
+        DriverView driverView = driverRepository.findViewById(1L).get();
+
+        assertEquals("driver01", driverView.getUsername());
+        assertEquals("car01", driverView.getCar().getLicensePlate());
+        assertEquals(7.0, driverView.getCar().getRating());
+        assertEquals("PORSCHE", driverView.getCar().getManufacturerName());
+        assertTrue(driverRepository.findViewById(2L).isPresent());
+        assertEquals(0, entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+
+    /**
+     * Read the searchable attributes of all drivers in id order and the views of a set of drivers.
+     */
+    @Test
+    void find_attributes_and_views_by_ids()
+    {
+        List<DriverAttributes> attributes = driverRepository.findAllAttributes();
+
+        assertEquals(8, attributes.size());
+        assertEquals(1L, attributes.get(0).getDriverId());
+        assertEquals(1L, attributes.get(0).getCarId());
+        assertEquals(7.0, attributes.get(0).getRating());
+        assertNull(attributes.get(1).getCarId());
+        assertEquals(EngineType.ELECTRIC, driverRepository.findAttributesByCarId(3L).get(0).getEngineType());
+
+        List<DriverView> drivers = driverRepository.findViewsByIdIn(List.of(3L, 1L));
+
+        assertEquals(List.of(1L, 3L), drivers.stream().map(DriverView::getId).collect(Collectors.toList()));
+    }
+
+
+    /**
+     * Pages of drivers by online status continue after the cursor and together contain all matching drivers.
+     */
+    @Test
+    void find_by_online_status_after_id()
+    {
+        List<Long> expected = driverRepository.findByOnlineStatus(OnlineStatus.ONLINE).stream().map(DriverDO::getId).sorted().collect(Collectors.toList());
+
+        List<DriverView> firstPage = driverRepository.findViewsByOnlineStatus(OnlineStatus.ONLINE, 0, PageRequest.of(0, 2));
+        List<DriverView> secondPage = driverRepository.findViewsByOnlineStatus(OnlineStatus.ONLINE, firstPage.get(1).getId(), PageRequest.of(0, expected.size()));
+
+        assertEquals(expected.subList(0, 2), firstPage.stream().map(DriverView::getId).collect(Collectors.toList()));
+        assertEquals(expected.subList(2, expected.size()), secondPage.stream().map(DriverView::getId).collect(Collectors.toList()));
+    }
+
+
+    /**
+     * Search drivers by specification after a cursor, ordered by id and limited.
+     */
+    @Test
+    void find_by_specs_after_id()
+    {
+        DriverSpecification specs = new DriverSpecification();
+        specs.setOnlineStatus(OnlineStatus.OFFLINE);
+        List<Long> expected = driverRepository.findAll(specs).stream().map(DriverDO::getId).sorted().collect(Collectors.toList());
+
+        List<DriverView> fetchedDrivers = driverRepository.findViews(specs, expected.get(0), 2);
+
+        assertEquals(expected.subList(1, 3), fetchedDrivers.stream().map(DriverView::getId).collect(Collectors.toList()));
+    }
+
+
+    /**
+     * Scroll through drivers matching a specification in id order.
+     */
+    @Test
+    void for_each_by_specs()
+    {
+        for (int i = 0; i < 1_200; i++)
+        {
+            driverRepository.save(new DriverDO("streamed" + i, "password"));
+        }
+        DriverSpecification specs = new DriverSpecification();
+        specs.setOnlineStatus(OnlineStatus.OFFLINE);
+        List<Long> expected = driverRepository.findAll(specs).stream().map(DriverDO::getId).sorted().collect(Collectors.toList());
+        List<DriverView> streamed = new ArrayList<>();
+
+        driverRepository.forEachView(specs, streamed::add);
+
+        assertEquals(expected, streamed.stream().map(DriverView::getId).collect(Collectors.toList()));
+    }
+
+
+    /**
+     * A specification resolved by id sets matches the same drivers as by LIKE, an empty id set matches no driver.
+     */
+    @Test
+    void find_by_specs_resolved_by_ids()
+    {
+        DriverSpecification specs = new DriverSpecification();
+        specs.setUsername("driver01");
+        specs.setLicensePlate("car01");
+
+        List<DriverDO> fetchedDrivers = driverRepository.findAll(specs.resolvedBy(Set.of(1L, 2L), Set.of(1L)));
+        List<DriverDO> noDrivers = driverRepository.findAll(specs.resolvedBy(Set.of(), Set.of(1L)));
+
+        assertEquals(driverRepository.findAll(specs).stream().map(DriverDO::getId).collect(Collectors.toList()),
+            fetchedDrivers.stream().map(DriverDO::getId).collect(Collectors.toList()));
+        assertTrue(noDrivers.isEmpty());
+    }
+
+
+    /**
+     * Count the matching drivers grouped by attribute value, drivers without a car or value are not counted in the car
+     * attributes.
+     */
+    @Test
+    void count_facets()
+    {
+        DriverFacets facets = driverRepository.countFacets(new DriverSpecification());
+
+        assertEquals(8, facets.getTotal());
+        assertEquals(Map.of(OnlineStatus.OFFLINE, 4L, OnlineStatus.ONLINE, 4L), facets.getOnlineStatus());
+        assertEquals(Map.of(EngineType.ELECTRIC, 1L), facets.getEngineType());
+        assertEquals(Map.of(3, 1L, 4, 2L), facets.getSeatCount());
+        assertEquals(Map.of(false, 1L, true, 1L), facets.getConvertible());
+
+        DriverSpecification offline = new DriverSpecification();
+        offline.setOnlineStatus(OnlineStatus.OFFLINE);
+        DriverFacets offlineFacets = driverRepository.countFacets(offline);
+
+        assertEquals(4, offlineFacets.getTotal());
+        assertEquals(Map.of(OnlineStatus.OFFLINE, 4L), offlineFacets.getOnlineStatus());
+        assertEquals(Map.of(4, 2L), offlineFacets.getSeatCount());
+        assertEquals(Map.of(false, 1L), offlineFacets.getConvertible());
+    }
+
+
+    /**
+     * Lists of drivers take one statement however many drivers have cars, as each query fetches what its callers use
+     * and leaves the rest lazy.
+     */
+    @Test
+    void find_lists_with_constant_statement_count()
+    {
+        ManufacturerDO manufacturer = entityManager.find(ManufacturerDO.class, 1L);
+        for (int i = 0; i < 20; i++)
+        {
+            CarDO car = new CarDO("plate" + i, 4);
+            car.setManufacturer(manufacturer);
+            DriverDO driver = new DriverDO("counted" + i, "password");
+            driver.setCar(car);
+            driverRepository.save(driver);
+        }
+        DriverSpecification specs = new DriverSpecification();
+        specs.setSeatCount(4);
+
+        assertEquals(1, count(entityManager, () -> driverRepository.findByOnlineStatus(OnlineStatus.OFFLINE)));
+        assertEquals(1, count(entityManager, () -> driverRepository.findByDeletedFalseAndCarIsNotNull()
+            .forEach(driver -> driver.getCar().getSeatCount())));
+        assertEquals(1, count(entityManager, () -> driverRepository.findById(1L).get().getCar().getManufacturer().getName()));
+        assertEquals(1, count(entityManager, () -> driverRepository.findViewsByOnlineStatus(OnlineStatus.OFFLINE, 0, PageRequest.of(0, 100))));
+        assertEquals(1, count(entityManager, () -> driverRepository.findViews(specs, 0, 100)));
+    }
 }
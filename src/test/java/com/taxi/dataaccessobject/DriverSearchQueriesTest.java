@@ -0,0 +1,107 @@
+package com.taxi.dataaccessobject;
+
+import com.taxi.controller.specification.DriverSpecification;
+import com.taxi.domainvalue.DriverView;
+import com.taxi.domainvalue.EngineType;
+import com.taxi.domainvalue.OnlineStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Set;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import org.junit.jupiter.api.Test;
+
+import static com.taxi.dataaccessobject.DriverSearchQueries.AFTER_ID;
+import static com.taxi.dataaccessobject.DriverSearchQueries.CAR_IDS;
+import static com.taxi.dataaccessobject.DriverSearchQueries.ENGINE_TYPE;
+import static com.taxi.dataaccessobject.DriverSearchQueries.ONLINE_STATUS;
+import static com.taxi.dataaccessobject.DriverSearchQueries.RATING;
+import static com.taxi.dataaccessobject.DriverSearchQueries.USERNAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.Answers.RETURNS_SELF;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test the driver search queries rendered per query shape.
+ * <p/>
+ */
+class DriverSearchQueriesTest
+{
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final DriverSearchQueries searchQueries = new DriverSearchQueries(meterRegistry);
+
+
+    /**
+     * The shape depends on which filters are set, not on their values, and resolved substrings differ from LIKE.
+     */
+    @Test
+    void shape_of_filters_set()
+    {
+        assertEquals(ONLINE_STATUS | RATING, DriverSearchQueries.shapeOf(spec(OnlineStatus.ONLINE, 4.0, null), null));
+        assertEquals(
+            DriverSearchQueries.shapeOf(spec(OnlineStatus.ONLINE, 4.0, null), 0L),
+            DriverSearchQueries.shapeOf(spec(OnlineStatus.OFFLINE, 2.5, null), 10L));
+
+        DriverSpecification byUsernameAndPlate = spec(null, null, EngineType.GAS);
+        byUsernameAndPlate.setUsername("driver");
+        byUsernameAndPlate.setLicensePlate("AB");
+        assertEquals(USERNAME | CAR_IDS | ENGINE_TYPE, DriverSearchQueries.shapeOf(byUsernameAndPlate.resolvedBy(null, Set.of(1L)), null));
+        assertNotEquals(
+            DriverSearchQueries.shapeOf(byUsernameAndPlate.resolvedBy(null, Set.of(1L)), null),
+            DriverSearchQueries.shapeOf(byUsernameAndPlate, null));
+    }
+
+
+    /**
+     * A shape renders one parameterized condition per filter.
+     */
+    @Test
+    void render_shape()
+    {
+        assertEquals(
+            DriverRepository.DRIVER_VIEW + " where d.onlineStatus = :onlineStatus and c.rating >= :rating and d.id > :afterId order by d.id",
+            DriverSearchQueries.render(ONLINE_STATUS | RATING | AFTER_ID));
+        assertEquals(DriverRepository.DRIVER_VIEW + " order by d.id", DriverSearchQueries.render(0));
+    }
+
+
+    /**
+     * Searches of a known shape reuse its text and are counted as cached.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void create_reuses_shape()
+    {
+        EntityManager entityManager = mock(EntityManager.class);
+        TypedQuery<DriverView> query = mock(TypedQuery.class, RETURNS_SELF);
+        when(entityManager.createQuery(anyString(), eq(DriverView.class))).thenReturn(query);
+
+        searchQueries.create(entityManager, spec(OnlineStatus.ONLINE, 4.0, null), 0L);
+        searchQueries.create(entityManager, spec(OnlineStatus.OFFLINE, 3.0, null), 5L);
+        searchQueries.create(entityManager, spec(null, null, EngineType.GAS), null);
+
+        verify(entityManager, times(2)).createQuery(DriverSearchQueries.render(ONLINE_STATUS | RATING | AFTER_ID), DriverView.class);
+        verify(query).setParameter("onlineStatus", OnlineStatus.OFFLINE);
+        verify(query).setParameter("rating", 3.0);
+        verify(query).setParameter("afterId", 5L);
+        assertEquals(2, searchQueries.shapeCount());
+        assertEquals(1, meterRegistry.get("driver.search.query.prepare").tag("shape", "cached").timer().count());
+        assertEquals(2, meterRegistry.get("driver.search.query.prepare").tag("shape", "new").timer().count());
+    }
+
+
+    private static DriverSpecification spec(OnlineStatus onlineStatus, Double rating, EngineType engineType)
+    {
+        DriverSpecification params = new DriverSpecification();
+        params.setOnlineStatus(onlineStatus);
+        params.setRating(rating);
+        params.setEngineType(engineType);
+        return params;
+    }
+}
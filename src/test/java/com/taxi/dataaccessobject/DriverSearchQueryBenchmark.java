@@ -0,0 +1,136 @@
+package com.taxi.dataaccessobject;
+
+import com.taxi.TaxiServerApplicantTestApplication;
+import com.taxi.controller.specification.DriverSpecification;
+import com.taxi.domainobject.CarDO;
+import com.taxi.domainobject.CarDO_;
+import com.taxi.domainobject.DriverDO;
+import com.taxi.domainobject.DriverDO_;
+import com.taxi.domainobject.ManufacturerDO;
+import com.taxi.domainobject.ManufacturerDO_;
+import com.taxi.domainvalue.DriverView;
+import com.taxi.domainvalue.EngineType;
+import com.taxi.domainvalue.GeoCoordinate_;
+import com.taxi.domainvalue.OnlineStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Root;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Time of one driver search page against the seeded in-memory database, comparing the Criteria tree built from the
+ * specification per search with the JPQL text rendered once per query shape. The rating changes with every search,
+ * as it does between clients. Not run by the build, start it with the main method from the test classpath.
+ * <p/>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DriverSearchQueryBenchmark
+{
+    private static final int LIMIT = 100;
+
+    @Param({"status", "status-rating-engine"})
+    private String filters;
+
+    private ConfigurableApplicationContext context;
+
+    private EntityManager entityManager;
+
+    private DriverSearchQueries searchQueries;
+
+    private int searches;
+
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(DriverSearchQueryBenchmark.class.getSimpleName()).build()).run();
+    }
+
+
+    @Setup
+    public void setUp()
+    {
+        context = SpringApplication.run(
+            TaxiServerApplicantTestApplication.class,
+            "--server.port=0", "--spring.jpa.show-sql=false", "--driver.location.history.enabled=false", "--logging.level.root=WARN");
+        entityManager = context.getBean(EntityManagerFactory.class).createEntityManager();
+        searchQueries = new DriverSearchQueries(new SimpleMeterRegistry());
+    }
+
+
+    @TearDown
+    public void tearDown()
+    {
+        entityManager.close();
+        context.close();
+    }
+
+
+    @Benchmark
+    public List<DriverView> criteriaTree()
+    {
+        DriverSpecification params = nextSpecification();
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<DriverView> query = builder.createQuery(DriverView.class);
+        Root<DriverDO> root = query.from(DriverDO.class);
+        query.where(params.toPredicate(root, query, builder), builder.greaterThan(root.get(DriverDO_.id), 0L));
+        @SuppressWarnings("unchecked")
+        Join<DriverDO, CarDO> car = (Join<DriverDO, CarDO>) root.getJoins().iterator().next();
+        Join<CarDO, ManufacturerDO> manufacturer = car.join(CarDO_.manufacturer, JoinType.LEFT);
+        query.select(builder.construct(
+            DriverView.class,
+            root.get(DriverDO_.id), root.get(DriverDO_.username), root.get(DriverDO_.password),
+            root.get(DriverDO_.coordinate).get(GeoCoordinate_.latitude), root.get(DriverDO_.coordinate).get(GeoCoordinate_.longitude),
+            car.get(CarDO_.id), car.get(CarDO_.licensePlate), car.get(CarDO_.seatCount), car.get(CarDO_.convertible), car.get(CarDO_.rating),
+            car.get(CarDO_.engineType), manufacturer.get(ManufacturerDO_.id), manufacturer.get(ManufacturerDO_.name)));
+        query.orderBy(builder.asc(root.get(DriverDO_.id)));
+        return entityManager.createQuery(query).setMaxResults(LIMIT).getResultList();
+    }
+
+
+    @Benchmark
+    public List<DriverView> queryShape()
+    {
+        return searchQueries.create(entityManager, nextSpecification(), 0L).setMaxResults(LIMIT).getResultList();
+    }
+
+
+    private DriverSpecification nextSpecification()
+    {
+        DriverSpecification params = new DriverSpecification();
+        params.setOnlineStatus(OnlineStatus.ONLINE);
+        if (filters.equals("status-rating-engine"))
+        {
+            params.setRating((searches++ % 1000) / 100.0);
+            params.setEngineType(EngineType.GAS);
+        }
+        return params;
+    }
+}
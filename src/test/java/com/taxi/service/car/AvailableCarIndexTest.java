@@ -0,0 +1,198 @@
+package com.taxi.service.car;
+
+import com.taxi.dataaccessobject.CarRepository;
+import com.taxi.dataaccessobject.DriverRepository;
+import com.taxi.domainvalue.CarView;
+import com.taxi.domainvalue.DriverAttributes;
+import com.taxi.domainvalue.EngineType;
+import com.taxi.domainvalue.OnlineStatus;
+import com.taxi.event.CarChangedEvent;
+import com.taxi.event.CarCreatedEvent;
+import com.taxi.event.CarRatingsChangedEvent;
+import com.taxi.event.DriverCarChangedEvent;
+import com.taxi.event.DriverOnlineStatusChangedEvent;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test the in-memory set of free cars.
+ * <p/>
+ */
+@ExtendWith(MockitoExtension.class)
+class AvailableCarIndexTest
+{
+    @Mock
+    private CarRepository carRepository;
+
+    @Mock
+    private DriverRepository driverRepository;
+
+    private AvailableCarIndex availableCarIndex;
+
+
+    @BeforeEach
+    void setUp()
+    {
+        availableCarIndex = new AvailableCarIndex(carRepository, driverRepository);
+        when(carRepository.findViewsByDeletedFalse()).thenReturn(List.of(
+            car(1L, 4, false, EngineType.GAS), car(2L, 3, true, null), car(3L, 5, null, EngineType.ELECTRIC)));
+        when(driverRepository.findAllAttributes()).thenReturn(List.of(
+            driver(10L, OnlineStatus.ONLINE, 1L), driver(11L, OnlineStatus.OFFLINE, 2L), driver(12L, OnlineStatus.ONLINE, null)));
+        availableCarIndex.load();
+    }
+
+
+    /**
+     * Startup load leaves out the cars of online drivers, a car of an offline driver may be taken over.
+     */
+    @Test
+    void load_free_cars()
+    {
+        assertEquals(List.of(2L, 3L), ids(availableCarIndex.find(null, null, null)));
+        assertFalse(availableCarIndex.isAvailable(1L));
+    }
+
+
+    /**
+     * Changes applied by listeners before the startup load are replaced by the load, so a selection is not counted
+     * twice and its car is free again once it is deselected.
+     */
+    @Test
+    void load_replaces_earlier_changes()
+    {
+        AvailableCarIndex index = new AvailableCarIndex(carRepository, driverRepository);
+        when(driverRepository.findAttributesById(12L)).thenReturn(Optional.of(driver(12L, OnlineStatus.ONLINE, 3L)));
+        index.onDriverCarChanged(new DriverCarChangedEvent(12L, null));
+        when(driverRepository.findAllAttributes()).thenReturn(List.of(driver(12L, OnlineStatus.ONLINE, 3L)));
+        index.load();
+
+        assertFalse(index.isAvailable(3L));
+
+        when(driverRepository.findAttributesById(12L)).thenReturn(Optional.of(driver(12L, OnlineStatus.ONLINE, null)));
+        index.onDriverCarChanged(new DriverCarChangedEvent(12L, null));
+
+        assertEquals(List.of(1L, 2L, 3L), ids(index.find(null, null, null)));
+    }
+
+
+    /**
+     * The filters are combined, cars without a value only match if the filter is not given.
+     */
+    @Test
+    void find_by_attributes()
+    {
+        assertEquals(List.of(3L), ids(availableCarIndex.find(EngineType.ELECTRIC, null, null)));
+        assertEquals(List.of(3L), ids(availableCarIndex.find(null, 4, null)));
+        assertEquals(List.of(2L), ids(availableCarIndex.find(null, 3, true)));
+        assertEquals(List.of(), ids(availableCarIndex.find(null, null, false)));
+    }
+
+
+    /**
+     * Selecting a car takes it, deselecting or going offline frees it again.
+     */
+    @Test
+    void select_deselect_and_status_change()
+    {
+        when(driverRepository.findAttributesById(12L)).thenReturn(Optional.of(driver(12L, OnlineStatus.ONLINE, 3L)));
+        availableCarIndex.onDriverCarChanged(new DriverCarChangedEvent(12L, null));
+
+        assertFalse(availableCarIndex.isAvailable(3L));
+
+        when(driverRepository.findAttributesById(12L)).thenReturn(Optional.of(driver(12L, OnlineStatus.OFFLINE, 3L)));
+        availableCarIndex.onOnlineStatusChanged(new DriverOnlineStatusChangedEvent(12L, OnlineStatus.OFFLINE, null, null));
+
+        assertTrue(availableCarIndex.isAvailable(3L));
+
+        when(driverRepository.findAttributesById(11L)).thenReturn(Optional.of(driver(11L, OnlineStatus.ONLINE, 2L)));
+        availableCarIndex.onOnlineStatusChanged(new DriverOnlineStatusChangedEvent(11L, OnlineStatus.ONLINE, null, null));
+        when(driverRepository.findAttributesById(10L)).thenReturn(Optional.of(driver(10L, OnlineStatus.ONLINE, null)));
+        availableCarIndex.onDriverCarChanged(new DriverCarChangedEvent(10L, null));
+
+        assertEquals(List.of(1L, 3L), ids(availableCarIndex.find(null, null, null)));
+    }
+
+
+    /**
+     * Status changes applied out of order end with the committed status, as the driver is read again.
+     */
+    @Test
+    void status_changes_out_of_order()
+    {
+        when(driverRepository.findAttributesById(10L)).thenReturn(Optional.of(driver(10L, OnlineStatus.OFFLINE, 1L)));
+
+        availableCarIndex.onOnlineStatusChanged(new DriverOnlineStatusChangedEvent(10L, OnlineStatus.OFFLINE, null, null));
+        availableCarIndex.onOnlineStatusChanged(new DriverOnlineStatusChangedEvent(10L, OnlineStatus.ONLINE, null, null));
+
+        assertTrue(availableCarIndex.isAvailable(1L));
+    }
+
+
+    /**
+     * Created cars are added, deleted cars are removed, changed cars are read again.
+     */
+    @Test
+    void create_change_and_delete_car()
+    {
+        when(carRepository.findViewByIdAndDeletedFalse(4L)).thenReturn(Optional.of(car(4L, 7, false, EngineType.GAS)));
+        availableCarIndex.onCarCreated(new CarCreatedEvent(4L, "XX-4"));
+        when(carRepository.findViewByIdAndDeletedFalse(2L)).thenReturn(Optional.empty());
+        availableCarIndex.onCarChanged(new CarChangedEvent(2L, null));
+        when(carRepository.findViewByIdAndDeletedFalse(1L)).thenReturn(Optional.of(car(1L, 6, false, EngineType.GAS)));
+        availableCarIndex.onCarChanged(new CarChangedEvent(1L, null));
+
+        assertEquals(List.of(3L, 4L), ids(availableCarIndex.find(null, null, null)));
+
+        when(driverRepository.findAttributesById(10L)).thenReturn(Optional.of(driver(10L, OnlineStatus.ONLINE, null)));
+        availableCarIndex.onDriverCarChanged(new DriverCarChangedEvent(10L, null));
+
+        assertEquals(List.of(1L, 4L), ids(availableCarIndex.find(EngineType.GAS, 6, null)));
+    }
+
+
+    /**
+     * Flushed ride ratings are applied to the known cars without reading them, taken cars stay taken.
+     */
+    @Test
+    void apply_flushed_ratings()
+    {
+        availableCarIndex.onCarRatingsChanged(new CarRatingsChangedEvent(Map.of(1L, 4.5, 2L, 3.5, 9L, 1.0)));
+
+        assertEquals(3.5, availableCarIndex.find(null, 3, true).get(0).getRating());
+        assertEquals(List.of(2L, 3L), ids(availableCarIndex.find(null, null, null)));
+        verify(carRepository, never()).findViewByIdAndDeletedFalse(anyLong());
+    }
+
+
+    private static CarView car(long carId, int seatCount, Boolean convertible, EngineType engineType)
+    {
+        return new CarView(carId, "XX-" + carId, seatCount, convertible, null, engineType, null, null);
+    }
+
+
+    private static DriverAttributes driver(long driverId, OnlineStatus onlineStatus, Long carId)
+    {
+        return new DriverAttributes(driverId, onlineStatus, carId, null, null, null, null);
+    }
+
+
+    private static List<Long> ids(List<CarView> cars)
+    {
+        return cars.stream().map(CarView::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,206 @@
+package com.taxi.service.car;
+
+import com.taxi.dataaccessobject.CarRepository;
+import com.taxi.domainvalue.CarRating;
+import com.taxi.domainvalue.CarRatingTally;
+import com.taxi.event.CarRatingsChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test the in-memory aggregation of ride ratings.
+ * <p/>
+ */
+@ExtendWith(MockitoExtension.class)
+class CarRatingAggregatorTest
+{
+    @Mock
+    private CarRepository carRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CarRatingAggregator aggregator;
+
+
+    @BeforeEach
+    void setUp()
+    {
+        meterRegistry = new SimpleMeterRegistry();
+        aggregator = new CarRatingAggregator(carRepository, transactionManager, eventPublisher, meterRegistry, 4, 2);
+    }
+
+
+    /**
+     * Ratings recorded concurrently are all summed and counted before the flush.
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    void record_concurrently() throws InterruptedException
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++)
+        {
+            double rating = i % 2 == 0 ? 4 : 5;
+            executor.execute(() -> aggregator.record(1L, rating));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        CarRatingTally pending = aggregator.pendingRatings(1L);
+
+        assertEquals(1000, pending.getCount());
+        assertEquals(4500, pending.getSum());
+        assertNull(aggregator.pendingRatings(2L));
+        verify(carRepository, never()).batchAddRatings(anyList());
+    }
+
+
+    /**
+     * A flush writes one tally per car in one batch, reads the new averages with one select, publishes them as one event
+     * and empties the stripes.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_writes_one_tally_per_car()
+    {
+        when(carRepository.findRatingsByIdIn(Set.of(1L, 2L))).thenReturn(List.of(new CarRating(1L, 4.5)));
+        aggregator.record(1L, 4);
+        aggregator.record(1L, 5);
+        aggregator.record(2L, 3);
+
+        aggregator.flush();
+
+        ArgumentCaptor<List<CarRatingTally>> batch = ArgumentCaptor.forClass(List.class);
+        verify(carRepository).batchAddRatings(batch.capture());
+        assertEquals(2, batch.getValue().size());
+        CarRatingTally first = batch.getValue().stream().filter(tally -> tally.getCarId() == 1L).findFirst().orElseThrow();
+        assertEquals(9, first.getSum());
+        assertEquals(2, first.getCount());
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof CarRatingsChangedEvent
+            && ((CarRatingsChangedEvent) event).getRatings().equals(Map.of(1L, 4.5))));
+        assertNull(aggregator.pendingRatings(1L));
+    }
+
+
+    /**
+     * Ratings of a failed flush stay pending together with the ratings recorded since.
+     */
+    @Test
+    void failed_flush_keeps_ratings()
+    {
+        when(carRepository.batchAddRatings(anyList())).thenThrow(new DataAccessResourceFailureException("down"));
+        aggregator.record(1L, 4);
+
+        aggregator.flush();
+        aggregator.record(1L, 2);
+
+        CarRatingTally pending = aggregator.pendingRatings(1L);
+        assertEquals(6, pending.getSum());
+        assertEquals(2, pending.getCount());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+
+    /**
+     * A batch failing max-attempts times in a row is dropped and counted, ratings recorded after its first attempt stay
+     * pending and are written once the database is back.
+     */
+    @Test
+    void failed_flush_drops_only_the_failed_batch()
+    {
+        when(carRepository.batchAddRatings(anyList())).thenThrow(new DataAccessResourceFailureException("down"));
+        aggregator.record(1L, 4);
+        aggregator.record(2L, 3);
+
+        aggregator.flush();
+        aggregator.record(1L, 5);
+        aggregator.flush();
+
+        assertEquals(5, aggregator.pendingRatings(1L).getSum());
+        assertEquals(1, aggregator.pendingRatings(1L).getCount());
+        assertNull(aggregator.pendingRatings(2L));
+        assertEquals(2, meterRegistry.counter("car.rating.dropped").count());
+
+        doReturn(new int[] {1}).when(carRepository).batchAddRatings(anyList());
+        aggregator.flush();
+
+        verify(carRepository).batchAddRatings(argThat(batch -> batch.size() == 1 && batch.get(0).getSum() == 5));
+        assertNull(aggregator.pendingRatings(1L));
+        assertEquals(2, meterRegistry.counter("car.rating.dropped").count());
+    }
+
+
+    /**
+     * Ratings stay pending if no transaction can be started or committed, and are dropped and counted after
+     * max-attempts failures.
+     */
+    @Test
+    void failed_transaction_keeps_ratings()
+    {
+        when(transactionManager.getTransaction(any())).thenThrow(new CannotCreateTransactionException("down"));
+        aggregator.record(1L, 4);
+
+        aggregator.flush();
+
+        assertEquals(4, aggregator.pendingRatings(1L).getSum());
+        verify(carRepository, never()).batchAddRatings(anyList());
+
+        aggregator.flush();
+
+        assertNull(aggregator.pendingRatings(1L));
+        assertEquals(1, meterRegistry.counter("car.rating.dropped").count());
+    }
+
+
+    /**
+     * Ratings of a batch whose commit fails stay pending.
+     */
+    @Test
+    void failed_commit_keeps_ratings()
+    {
+        doThrow(new TransactionSystemException("commit failed")).when(transactionManager).commit(any());
+        aggregator.record(1L, 4);
+
+        aggregator.flush();
+
+        verify(carRepository).batchAddRatings(anyList());
+        assertEquals(4, aggregator.pendingRatings(1L).getSum());
+        assertEquals(0, meterRegistry.counter("car.rating.dropped").count());
+    }
+}
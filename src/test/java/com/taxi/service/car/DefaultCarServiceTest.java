@@ -1,7 +1,10 @@
 package com.taxi.service.car;
 
 import com.taxi.dataaccessobject.CarRepository;
+import com.taxi.domainobject.CarDO;
 import com.taxi.domainvalue.EngineType;
+import com.taxi.event.CarChangedEvent;
+import com.taxi.event.CarCreatedEvent;
 import com.taxi.exception.ConstraintsViolationException;
 import com.taxi.exception.EntityNotFoundException;
 import java.util.List;
@@ -11,18 +14,25 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 
 import static com.taxi.common.TestFixtures.CAR_ID;
 import static com.taxi.common.TestFixtures.aCarDO;
-import static com.taxi.common.TestFixtures.anElectricCarDO;
+import static com.taxi.common.TestFixtures.aCarView;
+import static com.taxi.common.TestFixtures.anElectricCarView;
 import static com.taxi.common.TestFixtures.licensePlate;
 import static com.taxi.common.TestFixtures.seatCount;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -37,6 +47,12 @@ class DefaultCarServiceTest
 
     @Mock
     private CarRepository carRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private AvailableCarIndex availableCarIndex;
+    @Mock
+    private CarRatingAggregator ratingAggregator;
     @InjectMocks
     private DefaultCarService defaultCarService;
 
@@ -58,6 +74,23 @@ class DefaultCarServiceTest
     }
 
 
+    /**
+     * Find the view of a car by id.
+     *
+     * @throws EntityNotFoundException
+     */
+    @Test
+    void find_car_view_by_id() throws EntityNotFoundException
+    {
+        when(carRepository.findViewById(CAR_ID)).thenReturn(Optional.of(aCarView()));
+
+        var car = defaultCarService.findView(CAR_ID);
+
+        assertEquals(licensePlate, car.getLicensePlate());
+        assertEquals(seatCount, car.getSeatCount());
+    }
+
+
     /**
      * Find a non-existing car by id throws an EntityNotFoundException
      */
@@ -74,19 +107,23 @@ class DefaultCarServiceTest
 
 
     /**
-     * Create a car.
+     * Create a car and publish its license plate.
      *
      * @throws ConstraintsViolationException
      */
     @Test
     void create_car() throws ConstraintsViolationException
     {
-        when(carRepository.save(any())).thenReturn(aCarDO());
+        CarDO saved = aCarDO();
+        saved.setId(CAR_ID);
+        when(carRepository.save(any())).thenReturn(saved);
 
         var car = defaultCarService.create(aCarDO());
 
         assertEquals(licensePlate, car.getLicensePlate());
         assertEquals(seatCount, car.getSeatCount());
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof CarCreatedEvent
+            && ((CarCreatedEvent) event).getCarId() == CAR_ID && licensePlate.equals(((CarCreatedEvent) event).getLicensePlate())));
     }
 
 
@@ -134,6 +171,9 @@ class DefaultCarServiceTest
         var car = defaultCarService.updateRating(CAR_ID, rating);
 
         assertEquals(5, car.getRating());
+        assertEquals(1L, car.getRatingCount());
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) -> event instanceof CarChangedEvent
+            && ((CarChangedEvent) event).getCar().getRating() == rating));
     }
 
 
@@ -141,14 +181,61 @@ class DefaultCarServiceTest
      * Find cars by engine type.
      */
     @Test
-    void find_by_engine_type()
+    void find_by_engine_type() throws ConstraintsViolationException
     {
         EngineType type = EngineType.ELECTRIC;
-        when(carRepository.findByEngineType(any())).thenReturn(List.of(anElectricCarDO()));
+        when(carRepository.findViewsByEngineType(eq(type), eq(0L), any())).thenReturn(List.of(anElectricCarView()));
+
+        var page = defaultCarService.find(type, 0L, 100);
 
-        var driver = defaultCarService.find(type);
+        assertEquals(1, page.getContent().size());
+        assertEquals(EngineType.ELECTRIC, page.getContent().get(0).getEngineType());
+        assertNull(page.getNextCursor());
+    }
+
+
+    /**
+     * Find free cars from the available car index.
+     */
+    @Test
+    void find_available_cars()
+    {
+        when(availableCarIndex.find(EngineType.ELECTRIC, 4, null)).thenReturn(List.of(anElectricCarView()));
+
+        var cars = defaultCarService.findAvailable(EngineType.ELECTRIC, 4, null);
+
+        assertEquals(1, cars.size());
+        assertEquals(CAR_ID, cars.get(0).getId());
+    }
+
+
+    /**
+     * A ride rating of an existing car is handed to the rating aggregator.
+     *
+     * @throws Exception
+     */
+    @Test
+    void add_rating() throws Exception
+    {
+        when(carRepository.existsByIdAndDeletedFalse(CAR_ID)).thenReturn(true);
+
+        defaultCarService.addRating(CAR_ID, 4.5);
+
+        verify(ratingAggregator).record(CAR_ID, 4.5);
+    }
+
+
+    /**
+     * A ride rating out of range or of a missing car is rejected.
+     */
+    @Test
+    void add_rating_not_possible()
+    {
+        when(carRepository.existsByIdAndDeletedFalse(CAR_ID)).thenReturn(false);
 
-        assertEquals(1, driver.size());
-        assertEquals(EngineType.ELECTRIC, driver.get(0).getEngineType());
+        assertThrows(ConstraintsViolationException.class, () -> defaultCarService.addRating(CAR_ID, 11));
+        assertThrows(ConstraintsViolationException.class, () -> defaultCarService.addRating(CAR_ID, Double.NaN));
+        assertThrows(EntityNotFoundException.class, () -> defaultCarService.addRating(CAR_ID, 5));
+        verify(ratingAggregator, never()).record(anyLong(), anyDouble());
     }
 }
@@ -0,0 +1,109 @@
+package com.taxi.service.dispatch;
+
+import com.taxi.util.GeoDistance;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Solve time of one dispatch batch by batch size, with as many drivers as requests spread over a city and the
+ * nearest drivers within the radius as candidates of each request. Compares solving the components on the common
+ * pool with a single thread. Not run by the build, start it with the main method from the test classpath.
+ * <p/>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssignmentSolverBenchmark
+{
+    private static final double LATITUDE = 52.52;
+    private static final double LONGITUDE = 13.405;
+    private static final double RADIUS = 5000;
+    private static final int CANDIDATES_PER_REQUEST = 8;
+
+    @Param({"100", "1000", "5000"})
+    private int batchSize;
+
+    private long[][] candidates;
+
+    private double[][] costs;
+
+    private ForkJoinPool singleThread;
+
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(AssignmentSolverBenchmark.class.getSimpleName()).build()).run();
+    }
+
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(42);
+        double[][] drivers = new double[batchSize][];
+        for (int driver = 0; driver < batchSize; driver++)
+        {
+            drivers[driver] = new double[] {LATITUDE + random.nextGaussian() * 0.05, LONGITUDE + random.nextGaussian() * 0.05};
+        }
+        candidates = new long[batchSize][];
+        costs = new double[batchSize][];
+        for (int request = 0; request < batchSize; request++)
+        {
+            double latitude = LATITUDE + random.nextGaussian() * 0.05;
+            double longitude = LONGITUDE + random.nextGaussian() * 0.05;
+            double[] distances = Arrays.stream(drivers).mapToDouble(driver -> GeoDistance.haversine(latitude, longitude, driver[0], driver[1])).toArray();
+            int[] nearest = IntStream.range(0, batchSize).boxed()
+                .filter(driver -> distances[driver] <= RADIUS)
+                .sorted(Comparator.comparingDouble(driver -> distances[driver]))
+                .limit(CANDIDATES_PER_REQUEST)
+                .mapToInt(Integer::intValue)
+                .toArray();
+            candidates[request] = Arrays.stream(nearest).asLongStream().toArray();
+            costs[request] = Arrays.stream(nearest).mapToDouble(driver -> distances[driver]).toArray();
+        }
+        singleThread = new ForkJoinPool(1);
+    }
+
+
+    @TearDown
+    public void tearDown()
+    {
+        singleThread.shutdown();
+    }
+
+
+    @Benchmark
+    public int[] solve()
+    {
+        return new AssignmentSolver(ForkJoinPool.commonPool()).solve(candidates, costs, RADIUS + 1);
+    }
+
+
+    @Benchmark
+    public int[] solveSingleThread()
+    {
+        return new AssignmentSolver(singleThread).solve(candidates, costs, RADIUS + 1);
+    }
+}
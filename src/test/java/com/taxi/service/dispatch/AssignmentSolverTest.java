@@ -0,0 +1,119 @@
+package com.taxi.service.dispatch;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test the sparse assignment solver.
+ * <p/>
+ */
+class AssignmentSolverTest
+{
+    private static final int UNASSIGNED = AssignmentSolver.UNASSIGNED;
+
+    private final AssignmentSolver assignmentSolver = new AssignmentSolver(ForkJoinPool.commonPool());
+
+
+    /**
+     * The globally cheapest assignment is found where greedy matching in arrival order would take the shared driver
+     * for the first request.
+     */
+    @Test
+    void solve_better_than_greedy()
+    {
+        long[][] candidates = {{1L, 2L}, {1L}};
+        double[][] costs = {{100, 150}, {120}};
+
+        int[] choices = assignmentSolver.solve(candidates, costs, 1_000);
+
+        assertArrayEquals(new int[] {1, 0}, choices);
+    }
+
+
+    /**
+     * Requests stay unassigned when drivers run out or leaving them unassigned is cheaper.
+     */
+    @Test
+    void solve_with_unassigned_requests()
+    {
+        long[][] candidates = {{1L}, {1L}, {}, {2L}};
+        double[][] costs = {{10}, {20}, {}, {2_000}};
+
+        int[] choices = assignmentSolver.solve(candidates, costs, 1_000);
+
+        assertArrayEquals(new int[] {0, UNASSIGNED, UNASSIGNED, UNASSIGNED}, choices);
+    }
+
+
+    /**
+     * Random sparse instances are solved as cheap as an exhaustive search, with every driver assigned at most once.
+     */
+    @Test
+    void solve_matches_brute_force()
+    {
+        Random random = new Random(42);
+        for (int instance = 0; instance < 200; instance++)
+        {
+            int requests = 1 + random.nextInt(6);
+            int drivers = 1 + random.nextInt(6);
+            long[][] candidates = new long[requests][];
+            double[][] costs = new double[requests][];
+            for (int request = 0; request < requests; request++)
+            {
+                int count = random.nextInt(drivers + 1);
+                candidates[request] = random.ints(0, drivers).distinct().limit(count).asLongStream().toArray();
+                costs[request] = random.doubles(candidates[request].length, -500, 1_500).map(Math::rint).toArray();
+            }
+
+            int[] choices = assignmentSolver.solve(candidates, costs, 1_000);
+
+            boolean[] used = new boolean[drivers];
+            for (int request = 0; request < requests; request++)
+            {
+                if (choices[request] != UNASSIGNED)
+                {
+                    int driver = (int) candidates[request][choices[request]];
+                    assertEquals(false, used[driver]);
+                    used[driver] = true;
+                }
+            }
+            assertEquals(bruteForce(candidates, costs, 1_000, 0, new boolean[drivers]), cost(candidates, costs, 1_000, choices), 1e-9);
+        }
+    }
+
+
+    private static double cost(long[][] candidates, double[][] costs, double unassignedCost, int[] choices)
+    {
+        double total = 0;
+        for (int request = 0; request < candidates.length; request++)
+        {
+            total += choices[request] == UNASSIGNED ? unassignedCost : costs[request][choices[request]];
+        }
+        return total;
+    }
+
+
+    private static double bruteForce(long[][] candidates, double[][] costs, double unassignedCost, int request, boolean[] used)
+    {
+        if (request == candidates.length)
+        {
+            return 0;
+        }
+        double best = unassignedCost + bruteForce(candidates, costs, unassignedCost, request + 1, used);
+        for (int candidate = 0; candidate < candidates[request].length; candidate++)
+        {
+            int driver = (int) candidates[request][candidate];
+            if (!used[driver])
+            {
+                used[driver] = true;
+                best = Math.min(best, costs[request][candidate] + bruteForce(candidates, costs, unassignedCost, request + 1, used));
+                used[driver] = false;
+            }
+        }
+        return best;
+    }
+}
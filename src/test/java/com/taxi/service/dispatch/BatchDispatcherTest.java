@@ -0,0 +1,130 @@
+package com.taxi.service.dispatch;
+
+import com.taxi.dataaccessobject.DriverRepository;
+import com.taxi.domainvalue.CarAttributes;
+import com.taxi.domainvalue.DispatchCandidate;
+import com.taxi.domainvalue.DispatchRequest;
+import com.taxi.domainvalue.EngineType;
+import com.taxi.domainvalue.GeoCoordinate;
+import com.taxi.event.DriverCarChangedEvent;
+import com.taxi.service.location.DriverLocationIndex;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test assigning batches of ride requests.
+ * <p/>
+ */
+@ExtendWith(MockitoExtension.class)
+class BatchDispatcherTest
+{
+    private static final double LATITUDE = 52.52;
+    private static final double LONGITUDE = 13.405;
+
+    @Mock
+    private DriverRepository driverRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private DriverLocationIndex driverLocationIndex;
+
+    private DriverCarIndex driverCarIndex;
+
+    private DriverReservations driverReservations;
+
+    private BatchDispatcher batchDispatcher;
+
+
+    @BeforeEach
+    void setUp()
+    {
+        driverLocationIndex = new DriverLocationIndex(driverRepository, eventPublisher, 0.01);
+        driverCarIndex = new DriverCarIndex(driverRepository);
+        driverReservations = new DriverReservations(60_000);
+        batchDispatcher = new BatchDispatcher(driverLocationIndex, driverCarIndex, driverReservations, 0, 8, 5000);
+    }
+
+
+    /**
+     * The batch is assigned as a whole: the first request leaves the shared driver to the second one which has no
+     * other option. Assigned drivers are reserved and not assigned by the next batch.
+     */
+    @Test
+    void dispatch_batch_globally()
+    {
+        addDriver(1L, LATITUDE, LONGITUDE);
+        addDriver(2L, LATITUDE + 0.002, LONGITUDE);
+        CompletableFuture<DispatchCandidate> first = batchDispatcher.submit(request(LATITUDE + 0.0005, null));
+        CompletableFuture<DispatchCandidate> second = batchDispatcher.submit(request(LATITUDE - 0.0005, EngineType.ELECTRIC));
+        driverCarIndex.onDriverCarChanged(new DriverCarChangedEvent(1L, new CarAttributes(1L, 4, false, EngineType.ELECTRIC, 5)));
+
+        batchDispatcher.dispatchBatch();
+
+        assertEquals(2L, first.join().getDriverId());
+        assertEquals(1L, second.join().getDriverId());
+        assertTrue(driverReservations.isReserved(1L));
+        assertEquals(0, batchDispatcher.pendingCount());
+
+        CompletableFuture<DispatchCandidate> third = batchDispatcher.submit(request(LATITUDE, null));
+        batchDispatcher.dispatchBatch();
+
+        assertNull(third.join());
+    }
+
+
+    /**
+     * Requests without any free matching driver are completed without driver.
+     */
+    @Test
+    void dispatch_without_free_driver()
+    {
+        CompletableFuture<DispatchCandidate> request = batchDispatcher.submit(request(LATITUDE, null));
+
+        batchDispatcher.dispatchBatch();
+
+        assertTrue(request.isDone());
+        assertNull(request.join());
+        assertFalse(driverReservations.isReserved(1L));
+    }
+
+
+    /**
+     * Requests waiting on shutdown and requests submitted afterwards are cancelled.
+     */
+    @Test
+    void close_cancels_pending_requests()
+    {
+        CompletableFuture<DispatchCandidate> waiting = batchDispatcher.submit(request(LATITUDE, null));
+
+        batchDispatcher.close();
+        CompletableFuture<DispatchCandidate> late = batchDispatcher.submit(request(LATITUDE, null));
+
+        assertTrue(waiting.isCancelled());
+        assertTrue(late.isCancelled());
+        assertEquals(0, batchDispatcher.pendingCount());
+    }
+
+
+    private void addDriver(long driverId, double latitude, double longitude)
+    {
+        driverLocationIndex.markOnline(driverId, new GeoCoordinate(latitude, longitude));
+        driverCarIndex.onDriverCarChanged(new DriverCarChangedEvent(driverId, new CarAttributes(driverId, 4, false, EngineType.GAS, 5)));
+    }
+
+
+    private static DispatchRequest request(double latitude, EngineType engineType)
+    {
+        return new DispatchRequest(new GeoCoordinate(latitude, LONGITUDE), null, null, engineType, null);
+    }
+}
@@ -0,0 +1,170 @@
+package com.taxi.service.dispatch;
+
+import com.taxi.dataaccessobject.DriverRepository;
+import com.taxi.domainvalue.CarAttributes;
+import com.taxi.domainvalue.DispatchCandidate;
+import com.taxi.domainvalue.DispatchRequest;
+import com.taxi.domainvalue.EngineType;
+import com.taxi.domainvalue.GeoCoordinate;
+import com.taxi.event.DriverCarChangedEvent;
+import com.taxi.exception.ConstraintsViolationException;
+import com.taxi.service.location.DriverLocationIndex;
+import com.taxi.util.GeoDistance;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test ranking free drivers for a pickup.
+ * <p/>
+ */
+@ExtendWith(MockitoExtension.class)
+class DefaultDispatchServiceTest
+{
+    private static final double LATITUDE = 52.52;
+    private static final double LONGITUDE = 13.405;
+    private static final GeoCoordinate PICKUP = new GeoCoordinate(LATITUDE, LONGITUDE);
+    private static final double RATING_WEIGHT = 100;
+
+    @Mock
+    private DriverRepository driverRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private DriverLocationIndex driverLocationIndex;
+
+    private DriverCarIndex driverCarIndex;
+
+    private DriverReservations driverReservations;
+
+    private DefaultDispatchService defaultDispatchService;
+
+
+    @BeforeEach
+    void setUp()
+    {
+        driverLocationIndex = new DriverLocationIndex(driverRepository, eventPublisher, 0.01);
+        driverCarIndex = new DriverCarIndex(driverRepository);
+        driverReservations = new DriverReservations(60_000);
+        BatchDispatcher batchDispatcher = new BatchDispatcher(driverLocationIndex, driverCarIndex, driverReservations, RATING_WEIGHT, 8, 5000);
+        defaultDispatchService = new DefaultDispatchService(driverLocationIndex, driverCarIndex, driverReservations, batchDispatcher, RATING_WEIGHT);
+    }
+
+
+    /**
+     * A better rated car may outrank a slightly closer one, drivers without car or just assigned are not free.
+     *
+     * @throws ConstraintsViolationException
+     */
+    @Test
+    void rank_by_distance_and_rating() throws ConstraintsViolationException
+    {
+        addDriver(1L, LATITUDE + 0.001, car(1L, 4, EngineType.GAS, 2.0));
+        addDriver(2L, LATITUDE + 0.003, car(2L, 4, EngineType.GAS, 9.0));
+        addDriver(3L, LATITUDE + 0.0005, null);
+        addDriver(4L, LATITUDE + 0.0002, car(4L, 4, EngineType.GAS, 9.0));
+        driverReservations.reserve(4L);
+
+        var candidates = defaultDispatchService.findCandidates(new DispatchRequest(PICKUP, null, null, null, null), 5, 5000);
+
+        assertEquals(List.of(2L, 1L), driverIds(candidates));
+    }
+
+
+    /**
+     * Only drivers whose car has the required attributes are returned.
+     *
+     * @throws ConstraintsViolationException
+     */
+    @Test
+    void filter_by_car_attributes() throws ConstraintsViolationException
+    {
+        addDriver(1L, LATITUDE + 0.001, car(1L, 4, EngineType.GAS, 5.0));
+        addDriver(2L, LATITUDE + 0.002, car(2L, 7, EngineType.ELECTRIC, 5.0));
+        addDriver(3L, LATITUDE + 0.003, car(3L, 7, EngineType.GAS, 5.0));
+
+        var candidates = defaultDispatchService.findCandidates(new DispatchRequest(PICKUP, 6, null, EngineType.ELECTRIC, 4.0), 5, 5000);
+
+        assertEquals(List.of(2L), driverIds(candidates));
+    }
+
+
+    /**
+     * Ranking matches a brute force scoring of all free drivers, also when the best candidates are far from the
+     * nearest ones.
+     *
+     * @throws ConstraintsViolationException
+     */
+    @Test
+    void rank_matches_brute_force() throws ConstraintsViolationException
+    {
+        Random random = new Random(42);
+        List<DispatchCandidate> all = new ArrayList<>();
+        for (long driverId = 0; driverId < 5_000; driverId++)
+        {
+            double latitude = LATITUDE + random.nextGaussian() * 0.05;
+            double longitude = LONGITUDE + random.nextGaussian() * 0.05;
+            CarAttributes car = car(driverId, 2 + random.nextInt(6), EngineType.GAS, random.nextInt(11));
+            addDriver(driverId, latitude, longitude, car);
+            double distance = GeoDistance.haversine(LATITUDE, LONGITUDE, latitude, longitude);
+            if (car.getSeatCount() >= 5 && distance <= 3000)
+            {
+                all.add(new DispatchCandidate(driverId, car, null, distance, distance - RATING_WEIGHT * car.getRating()));
+            }
+        }
+        all.sort(Comparator.comparingDouble(DispatchCandidate::getScore));
+
+        var candidates = defaultDispatchService.findCandidates(new DispatchRequest(PICKUP, 5, null, null, null), 20, 3000);
+
+        assertEquals(driverIds(all.subList(0, 20)), driverIds(candidates));
+    }
+
+
+    /**
+     * Out of range limit or radius throws ConstraintsViolationException.
+     */
+    @Test
+    void find_candidates_not_allowed_with_invalid_input()
+    {
+        DispatchRequest request = new DispatchRequest(PICKUP, null, null, null, null);
+        assertThrows(ConstraintsViolationException.class, () -> defaultDispatchService.findCandidates(request, 0, 5000));
+        assertThrows(ConstraintsViolationException.class, () -> defaultDispatchService.findCandidates(request, 5, 0));
+    }
+
+
+    private void addDriver(long driverId, double latitude, CarAttributes car)
+    {
+        addDriver(driverId, latitude, LONGITUDE, car);
+    }
+
+
+    private void addDriver(long driverId, double latitude, double longitude, CarAttributes car)
+    {
+        driverLocationIndex.markOnline(driverId, new GeoCoordinate(latitude, longitude));
+        driverCarIndex.onDriverCarChanged(new DriverCarChangedEvent(driverId, car));
+    }
+
+
+    private static CarAttributes car(long carId, int seatCount, EngineType engineType, double rating)
+    {
+        return new CarAttributes(carId, seatCount, false, engineType, rating);
+    }
+
+
+    private static List<Long> driverIds(List<DispatchCandidate> candidates)
+    {
+        return candidates.stream().map(DispatchCandidate::getDriverId).collect(Collectors.toList());
+    }
+}
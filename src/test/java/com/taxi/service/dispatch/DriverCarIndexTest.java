@@ -0,0 +1,122 @@
+package com.taxi.service.dispatch;
+
+import com.taxi.dataaccessobject.DriverRepository;
+import com.taxi.domainobject.DriverDO;
+import com.taxi.domainvalue.CarAttributes;
+import com.taxi.domainvalue.EngineType;
+import com.taxi.event.CarChangedEvent;
+import com.taxi.event.CarRatingsChangedEvent;
+import com.taxi.event.DriverCarChangedEvent;
+import com.taxi.event.DriverDeletedEvent;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static com.taxi.common.TestFixtures.CAR_ID;
+import static com.taxi.common.TestFixtures.aDriverWithCarDO;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test the in-memory index of the cars selected by drivers.
+ * <p/>
+ */
+@ExtendWith(MockitoExtension.class)
+class DriverCarIndexTest
+{
+    @Mock
+    private DriverRepository driverRepository;
+
+    private DriverCarIndex driverCarIndex;
+
+
+    @BeforeEach
+    void setUp()
+    {
+        driverCarIndex = new DriverCarIndex(driverRepository);
+    }
+
+
+    /**
+     * Startup load indexes the drivers with a car.
+     */
+    @Test
+    void load_drivers_with_car()
+    {
+        DriverDO driverDO = aDriverWithCarDO();
+        driverDO.setId(1L);
+        driverDO.getCar().setId(CAR_ID);
+        when(driverRepository.findByDeletedFalseAndCarIsNotNull()).thenReturn(List.of(driverDO));
+
+        driverCarIndex.load();
+
+        assertEquals(CAR_ID, driverCarIndex.carOf(1L).getCarId());
+        assertEquals(1, driverCarIndex.size());
+    }
+
+
+    /**
+     * Selecting, moving a car to another driver and deselecting keeps the index in sync.
+     */
+    @Test
+    void select_and_deselect_car()
+    {
+        driverCarIndex.onDriverCarChanged(new DriverCarChangedEvent(1L, car(7L, 5.0)));
+        driverCarIndex.onDriverCarChanged(new DriverCarChangedEvent(1L, null));
+        driverCarIndex.onDriverCarChanged(new DriverCarChangedEvent(2L, car(7L, 5.0)));
+
+        assertNull(driverCarIndex.carOf(1L));
+        assertEquals(7L, driverCarIndex.carOf(2L).getCarId());
+
+        driverCarIndex.onDriverDeleted(new DriverDeletedEvent(2L));
+
+        assertEquals(0, driverCarIndex.size());
+    }
+
+
+    /**
+     * Rating updates reach the driver of the car, a deleted car is no longer available.
+     */
+    @Test
+    void update_and_delete_car()
+    {
+        driverCarIndex.onDriverCarChanged(new DriverCarChangedEvent(1L, car(7L, 5.0)));
+
+        driverCarIndex.onCarChanged(new CarChangedEvent(7L, car(7L, 9.0)));
+        driverCarIndex.onCarChanged(new CarChangedEvent(8L, car(8L, 1.0)));
+
+        assertEquals(9.0, driverCarIndex.carOf(1L).getRating());
+
+        driverCarIndex.onCarChanged(new CarChangedEvent(7L, null));
+
+        assertNull(driverCarIndex.carOf(1L));
+    }
+
+
+    /**
+     * Flushed ride ratings reach the drivers of the rated cars, the other attributes are kept.
+     */
+    @Test
+    void apply_flushed_ratings()
+    {
+        driverCarIndex.onDriverCarChanged(new DriverCarChangedEvent(1L, car(7L, 5.0)));
+        driverCarIndex.onDriverCarChanged(new DriverCarChangedEvent(2L, car(8L, 3.0)));
+
+        driverCarIndex.onCarRatingsChanged(new CarRatingsChangedEvent(Map.of(7L, 6.5, 9L, 1.0)));
+
+        assertEquals(6.5, driverCarIndex.carOf(1L).getRating());
+        assertEquals(EngineType.GAS, driverCarIndex.carOf(1L).getEngineType());
+        assertEquals(3.0, driverCarIndex.carOf(2L).getRating());
+    }
+
+
+    private static CarAttributes car(long carId, double rating)
+    {
+        return new CarAttributes(carId, 4, false, EngineType.GAS, rating);
+    }
+}
@@ -2,36 +2,72 @@ package com.taxi.service.driver;
 
 import com.taxi.controller.specification.DriverSpecification;
 import com.taxi.dataaccessobject.DriverRepository;
+import com.taxi.domainobject.DriverDO;
+import com.taxi.domainvalue.DriverCluster;
+import com.taxi.domainvalue.DriverFacets;
+import com.taxi.domainvalue.DriverLocation;
+import com.taxi.domainvalue.DriverView;
 import com.taxi.domainvalue.GeoCoordinate;
+import com.taxi.domainvalue.NearbyDriver;
 import com.taxi.domainvalue.OnlineStatus;
+import com.taxi.event.DriverCarChangedEvent;
+import com.taxi.event.DriverCreatedEvent;
+import com.taxi.event.DriverLocationUpdatedEvent;
+import com.taxi.event.DriverOnlineStatusChangedEvent;
 import com.taxi.exception.CarAlreadyInUseException;
 import com.taxi.exception.ConstraintsViolationException;
 import com.taxi.exception.EntityNotFoundException;
 import com.taxi.service.car.CarService;
+import com.taxi.service.history.LocationHistoryStore;
+import com.taxi.service.location.DriverClusterIndex;
+import com.taxi.service.location.DriverLocationIndex;
+import com.taxi.service.location.DriverLocationWriteBehindBuffer;
+import com.taxi.service.location.LocationWriteSuppressor;
+import com.taxi.service.search.DriverAttributeSnapshot;
+import com.taxi.service.search.DriverSearchCache;
+import com.taxi.service.search.SubstringSearchIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
 
 import static com.taxi.common.TestFixtures.CAR_ID;
 import static com.taxi.common.TestFixtures.DRIVER_ID;
 import static com.taxi.common.TestFixtures.aCarDO;
 import static com.taxi.common.TestFixtures.aDeletedDriverDO;
 import static com.taxi.common.TestFixtures.aDriverDO;
+import static com.taxi.common.TestFixtures.aDriverView;
 import static com.taxi.common.TestFixtures.aDriverWithCarDO;
 import static com.taxi.common.TestFixtures.anOfflineDriverWithCarDO;
 import static com.taxi.common.TestFixtures.anOnlineDriverDO;
+import static com.taxi.common.TestFixtures.latitude;
+import static com.taxi.common.TestFixtures.longitude;
 import static com.taxi.common.TestFixtures.password;
 import static com.taxi.common.TestFixtures.username;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.argThat;
 import static org.mockito.Mockito.anyLong;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -48,6 +84,24 @@ class DefaultDriverServiceTest
     private DriverRepository driverRepository;
     @Mock
     private CarService carService;
+    @Mock
+    private DriverLocationIndex driverLocationIndex;
+    @Mock
+    private DriverClusterIndex driverClusterIndex;
+    @Mock
+    private DriverLocationWriteBehindBuffer writeBehindBuffer;
+    @Spy
+    private LocationWriteSuppressor writeSuppressor = new LocationWriteSuppressor(new SimpleMeterRegistry(), 10, 30_000);
+    @Mock
+    private LocationHistoryStore locationHistoryStore;
+    @Mock
+    private SubstringSearchIndex substringSearchIndex;
+    @Mock
+    private DriverAttributeSnapshot attributeSnapshot;
+    @Spy
+    private DriverSearchCache searchCache = new DriverSearchCache(new SimpleMeterRegistry(), 16, 60_000);
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
     @InjectMocks
     private DefaultDriverService defaultDriverService;
 
@@ -83,19 +137,23 @@ class DefaultDriverServiceTest
 
 
     /**
-     * Create a driver.
+     * Create a driver and publish its username.
      *
      * @throws ConstraintsViolationException
      */
     @Test
     void create_driver() throws ConstraintsViolationException
     {
-        when(driverRepository.save(any())).thenReturn(aDriverDO());
+        DriverDO saved = aDriverDO();
+        saved.setId(DRIVER_ID);
+        when(driverRepository.save(any())).thenReturn(saved);
 
         var driver = defaultDriverService.create(aDriverDO());
 
         assertEquals(username, driver.getUsername());
         assertEquals(password, driver.getPassword());
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof DriverCreatedEvent
+            && ((DriverCreatedEvent) event).getDriverId() == DRIVER_ID && username.equals(((DriverCreatedEvent) event).getUsername())));
     }
 
 
@@ -131,33 +189,258 @@ class DefaultDriverServiceTest
      * Update driver location.
      *
      * @throws EntityNotFoundException
+     * @throws ConstraintsViolationException
      */
     @Test
-    void update_location() throws EntityNotFoundException
+    void update_location() throws EntityNotFoundException, ConstraintsViolationException
     {
-        double longitude = 1.1;
-        double latitude = 2.2;
         when(driverRepository.findById(anyLong())).thenReturn(Optional.of(aDriverDO()));
+        when(driverRepository.updateLocation(any(DriverLocation.class))).thenReturn(1);
 
         var driver = defaultDriverService.updateLocation(DRIVER_ID, longitude, latitude);
 
         assertEquals(new GeoCoordinate(latitude, longitude), driver.getCoordinate());
+        verify(driverRepository, times(1)).updateLocation(any(DriverLocation.class));
+        verify(eventPublisher, times(1)).publishEvent(isA(DriverLocationUpdatedEvent.class));
+    }
+
+
+    /**
+     * Update driver location which is not applied by the database returns the driver as stored.
+     *
+     * @throws EntityNotFoundException
+     * @throws ConstraintsViolationException
+     */
+    @Test
+    void update_location_not_applied_returns_stored_driver() throws EntityNotFoundException, ConstraintsViolationException
+    {
+        when(driverRepository.findById(anyLong())).thenReturn(Optional.of(aDriverDO()));
+        when(driverRepository.updateLocation(any(DriverLocation.class))).thenReturn(0);
+
+        var driver = defaultDriverService.updateLocation(DRIVER_ID, longitude, latitude);
+
+        assertNull(driver.getCoordinate());
+        assertNull(driver.getDateCoordinateUpdated());
+        verify(eventPublisher, never()).publishEvent(isA(DriverLocationUpdatedEvent.class));
     }
 
 
     /**
-     * Find drivers by online status.
+     * Update the location of a deleted driver throws a ConstraintsViolationException.
      */
     @Test
-    void find_by_online_status()
+    void update_location_of_deleted_driver_not_allowed()
+    {
+        when(driverRepository.findById(anyLong())).thenReturn(Optional.of(aDeletedDriverDO()));
+
+        assertThrows(ConstraintsViolationException.class, () -> defaultDriverService.updateLocation(DRIVER_ID, longitude, latitude));
+        verify(driverRepository, never()).updateLocation(any(DriverLocation.class));
+    }
+
+
+    /**
+     * Update driver location with write-behind enabled buffers the location instead of writing it.
+     *
+     * @throws EntityNotFoundException
+     * @throws ConstraintsViolationException
+     */
+    @Test
+    void update_location_write_behind() throws EntityNotFoundException, ConstraintsViolationException
+    {
+        when(driverRepository.findById(anyLong())).thenReturn(Optional.of(aDriverDO()));
+        when(writeBehindBuffer.isEnabled()).thenReturn(true);
+
+        defaultDriverService.updateLocation(DRIVER_ID, longitude, latitude);
+
+        verify(writeBehindBuffer, times(1)).offer(argThat(location -> location.getDriverId() == DRIVER_ID
+            && location.getCoordinate().equals(new GeoCoordinate(latitude, longitude))));
+        verify(driverRepository, never()).updateLocation(any(DriverLocation.class));
+        verify(eventPublisher, times(1)).publishEvent(isA(DriverLocationUpdatedEvent.class));
+    }
+
+
+    /**
+     * A driver reporting the same position again is acknowledged without a write.
+     */
+    @Test
+    void update_location_suppresses_stationary_driver()
+    {
+        ZonedDateTime now = ZonedDateTime.now();
+        GeoCoordinate coordinate = new GeoCoordinate(latitude, longitude);
+        when(driverRepository.updateLocation(any(DriverLocation.class))).thenReturn(1);
+
+        defaultDriverService.updateLocation(new DriverLocation(DRIVER_ID, coordinate, now));
+        defaultDriverService.updateLocation(new DriverLocation(DRIVER_ID, coordinate, now.plusSeconds(5)));
+
+        verify(driverRepository, times(1)).updateLocation(any(DriverLocation.class));
+        verify(eventPublisher, times(1)).publishEvent(isA(DriverLocationUpdatedEvent.class));
+        assertEquals(1, writeSuppressor.getSuppressedCount());
+    }
+
+
+    /**
+     * A buffered location does not count as written before its batch has been applied, so the next location at the
+     * same place is buffered again.
+     */
+    @Test
+    void update_location_buffered_does_not_suppress()
+    {
+        ZonedDateTime now = ZonedDateTime.now();
+        GeoCoordinate coordinate = new GeoCoordinate(latitude, longitude);
+        when(writeBehindBuffer.isEnabled()).thenReturn(true);
+
+        defaultDriverService.updateLocation(new DriverLocation(DRIVER_ID, coordinate, now));
+        defaultDriverService.updateLocation(new DriverLocation(DRIVER_ID, coordinate, now.plusSeconds(5)));
+
+        verify(writeBehindBuffer, times(2)).offer(any(DriverLocation.class));
+        assertEquals(0, writeSuppressor.getSuppressedCount());
+        assertEquals(0, writeSuppressor.getWrittenCount());
+    }
+
+
+    /**
+     * A location the database did not apply is not published and does not suppress the next location.
+     */
+    @Test
+    void update_location_not_applied_does_not_suppress()
+    {
+        ZonedDateTime now = ZonedDateTime.now();
+        GeoCoordinate coordinate = new GeoCoordinate(latitude, longitude);
+        when(driverRepository.updateLocation(any(DriverLocation.class))).thenReturn(0);
+
+        defaultDriverService.updateLocation(new DriverLocation(DRIVER_ID, coordinate, now));
+        defaultDriverService.updateLocation(new DriverLocation(DRIVER_ID, coordinate, now.plusSeconds(5)));
+
+        verify(driverRepository, times(2)).updateLocation(any(DriverLocation.class));
+        verify(eventPublisher, never()).publishEvent(isA(DriverLocationUpdatedEvent.class));
+        assertEquals(0, writeSuppressor.getSuppressedCount());
+    }
+
+
+    /**
+     * Find driver by id returns a location which has not been written yet.
+     *
+     * @throws EntityNotFoundException
+     */
+    @Test
+    void find_driver_with_pending_location() throws EntityNotFoundException
+    {
+        var coordinate = new GeoCoordinate(latitude, longitude);
+        var timestamp = ZonedDateTime.now();
+        when(driverRepository.findById(anyLong())).thenReturn(Optional.of(aDriverDO()));
+        when(writeBehindBuffer.pendingLocation(DRIVER_ID)).thenReturn(new DriverLocation(DRIVER_ID, coordinate, timestamp));
+
+        var driver = defaultDriverService.find(DRIVER_ID);
+
+        assertEquals(coordinate, driver.getCoordinate());
+        assertEquals(timestamp, driver.getDateCoordinateUpdated());
+    }
+
+
+    /**
+     * Find the view of a driver by id, with a location which has not been written yet.
+     *
+     * @throws EntityNotFoundException
+     */
+    @Test
+    void find_driver_view_with_pending_location() throws EntityNotFoundException
+    {
+        var coordinate = new GeoCoordinate(latitude, longitude);
+        when(driverRepository.findViewById(DRIVER_ID)).thenReturn(Optional.of(aDriverView()));
+        when(writeBehindBuffer.pendingLocation(DRIVER_ID)).thenReturn(new DriverLocation(DRIVER_ID, coordinate, ZonedDateTime.now()));
+
+        var driver = defaultDriverService.findView(DRIVER_ID);
+
+        assertEquals(username, driver.getUsername());
+        assertEquals(coordinate, driver.getCoordinate());
+    }
+
+
+    /**
+     * Find the view of a non-existing driver by id throws an EntityNotFoundException.
+     */
+    @Test
+    void find_non_existing_driver_view_not_possible()
+    {
+        when(driverRepository.findViewById(DRIVER_ID)).thenReturn(Optional.empty());
+
+        assertThrows(EntityNotFoundException.class, () -> defaultDriverService.findView(DRIVER_ID));
+    }
+
+
+    /**
+     * A driver going online is published to the in-memory indexes.
+     *
+     * @throws EntityNotFoundException
+     * @throws ConstraintsViolationException
+     */
+    @Test
+    void update_online_status() throws EntityNotFoundException, ConstraintsViolationException
+    {
+        when(driverRepository.findById(anyLong())).thenReturn(Optional.of(aDriverDO()));
+
+        var driver = defaultDriverService.updateOnlineStatus(DRIVER_ID, OnlineStatus.ONLINE);
+
+        assertEquals(OnlineStatus.ONLINE, driver.getOnlineStatus());
+        verify(eventPublisher, times(1)).publishEvent(isA(DriverOnlineStatusChangedEvent.class));
+    }
+
+
+    /**
+     * A deleted driver can not go online.
+     */
+    @Test
+    void update_online_status_of_deleted_driver_not_allowed()
+    {
+        when(driverRepository.findById(anyLong())).thenReturn(Optional.of(aDeletedDriverDO()));
+
+        assertThrows(ConstraintsViolationException.class, () -> defaultDriverService.updateOnlineStatus(DRIVER_ID, OnlineStatus.ONLINE));
+    }
+
+
+    /**
+     * Find a page of drivers by online status, fetching one driver more than the limit to tell whether there is a
+     * next page.
+     */
+    @Test
+    void find_by_online_status() throws ConstraintsViolationException
     {
         OnlineStatus status = OnlineStatus.ONLINE;
-        when(driverRepository.findByOnlineStatus(status)).thenReturn(List.of(anOnlineDriverDO()));
+        DriverView first = new DriverView(5L, username, password, null, null);
+        DriverView second = new DriverView(6L, username, password, null, null);
+        when(driverRepository.findViewsByOnlineStatus(eq(status), eq(4L), argThat((Pageable page) -> page.getPageSize() == 2)))
+            .thenReturn(List.of(first, second));
 
-        var driver = defaultDriverService.find(status);
+        var page = defaultDriverService.find(status, 4L, 1);
 
-        assertEquals(1, driver.size());
-        assertEquals(OnlineStatus.ONLINE, driver.get(0).getOnlineStatus());
+        assertEquals(List.of(first), page.getContent());
+        assertEquals(5L, page.getNextCursor());
+    }
+
+
+    /**
+     * Stream drivers by online status through the repository.
+     */
+    @Test
+    void stream_by_online_status()
+    {
+        Consumer<DriverView> action = driver -> {
+        };
+
+        defaultDriverService.stream(OnlineStatus.ONLINE, action);
+
+        verify(driverRepository).forEachView(argThat(params -> ((DriverSpecification) params).getOnlineStatus() == OnlineStatus.ONLINE), eq(action));
+    }
+
+
+    /**
+     * Find drivers by online status with a page size out of range throws ConstraintsViolationException.
+     */
+    @Test
+    void find_by_online_status_not_allowed_with_invalid_limit()
+    {
+        assertThrows(ConstraintsViolationException.class, () -> defaultDriverService.find(OnlineStatus.ONLINE, 0, 0));
+        assertThrows(ConstraintsViolationException.class, () -> defaultDriverService.find(OnlineStatus.ONLINE, 0, 1001));
     }
 
 
@@ -178,6 +461,8 @@ class DefaultDriverServiceTest
         var car = driver.getCar();
 
         assertEquals(aCarDO().getLicensePlate(), car.getLicensePlate());
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) -> event instanceof DriverCarChangedEvent
+            && ((DriverCarChangedEvent) event).getCar().getCarId() == CAR_ID));
     }
 
 
@@ -212,12 +497,17 @@ class DefaultDriverServiceTest
     {
         when(driverRepository.findById(DRIVER_ID)).thenReturn(Optional.of(aDriverDO()));
         when(carService.findCarChecked(CAR_ID)).thenReturn(aCarDO());
-        when(driverRepository.findFirstByCar(any())).thenReturn(anOfflineDriverWithCarDO());
+        DriverDO previousDriver = anOfflineDriverWithCarDO();
+        previousDriver.setId(2L);
+        when(driverRepository.findFirstByCar(any())).thenReturn(previousDriver);
 
         var driver = defaultDriverService.selectCar(DRIVER_ID, CAR_ID);
         var car = driver.getCar();
 
         assertEquals(aCarDO().getLicensePlate(), car.getLicensePlate());
+        assertNull(previousDriver.getCar());
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) -> event instanceof DriverCarChangedEvent
+            && ((DriverCarChangedEvent) event).getDriverId() == 2L && ((DriverCarChangedEvent) event).getCar() == null));
     }
 
 
@@ -234,22 +524,203 @@ class DefaultDriverServiceTest
         var driver = defaultDriverService.deselectCar(DRIVER_ID);
 
         assertNull(driver.getCar());
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) -> event instanceof DriverCarChangedEvent
+            && ((DriverCarChangedEvent) event).getCar() == null));
     }
 
 
     /**
-     * Find all drivers with driver and car attributes and operations defined in DriverSpecification.
+     * Find all drivers with driver and car attributes and operations defined in DriverSpecification,
+     * resolving the username substring through the search index.
      */
     @Test
-    void search_drivers()
+    void search_drivers() throws ConstraintsViolationException
     {
         DriverSpecification params = new DriverSpecification();
         params.setUsername(username);
-        when(driverRepository.findAll(params)).thenReturn(List.of(aDriverDO()));
+        when(substringSearchIndex.findDriverIdsByUsername(username)).thenReturn(Set.of(DRIVER_ID));
+        when(driverRepository.findViews(argThat((DriverSpecification specification) -> username.equals(specification.getUsername())), eq(0L), eq(101)))
+            .thenReturn(List.of(aDriverView()));
+
+        var page = defaultDriverService.search(params, 0L, 100);
+
+        assertEquals(1, page.getContent().size());
+        assertEquals(username, page.getContent().get(0).getUsername());
+        assertNull(page.getNextCursor());
+    }
+
+
+    /**
+     * Searches the attribute snapshot can answer read only the drivers of the page.
+     */
+    @Test
+    void search_drivers_from_attribute_snapshot() throws ConstraintsViolationException
+    {
+        DriverSpecification params = new DriverSpecification();
+        params.setOnlineStatus(OnlineStatus.ONLINE);
+        when(attributeSnapshot.find(any(DriverSpecification.class), eq(0L), eq(2))).thenReturn(new long[] {DRIVER_ID, DRIVER_ID + 1});
+        when(driverRepository.findViewsByIdIn(List.of(DRIVER_ID))).thenReturn(List.of(aDriverView()));
+
+        var page = defaultDriverService.search(params, 0L, 1);
+
+        assertEquals(1, page.getContent().size());
+        assertEquals(DRIVER_ID, page.getNextCursor());
+        verify(driverRepository, never()).findViews(any(DriverSpecification.class), anyLong(), anyInt());
+    }
+
+
+    /**
+     * Facets are counted by the attribute snapshot, and by the database if the snapshot can not answer.
+     */
+    @Test
+    void count_facets()
+    {
+        DriverSpecification params = new DriverSpecification();
+        params.setOnlineStatus(OnlineStatus.ONLINE);
+        DriverFacets facets = new DriverFacets(1, Map.of(OnlineStatus.ONLINE, 1L), Map.of(), Map.of(), Map.of());
+        when(attributeSnapshot.facets(any(DriverSpecification.class))).thenReturn(facets, (DriverFacets) null);
+        when(driverRepository.countFacets(any(DriverSpecification.class))).thenReturn(facets);
+
+        assertSame(facets, defaultDriverService.countFacets(params));
+        verify(driverRepository, never()).countFacets(any(DriverSpecification.class));
+
+        assertSame(facets, defaultDriverService.countFacets(params));
+        verify(driverRepository, times(1)).countFacets(any(DriverSpecification.class));
+    }
+
+
+    /**
+     * Repeating a search with an equal DriverSpecification is answered from the search cache.
+     */
+    @Test
+    void search_drivers_repeated_from_cache() throws ConstraintsViolationException
+    {
+        DriverSpecification params = new DriverSpecification();
+        params.setOnlineStatus(OnlineStatus.ONLINE);
+        DriverSpecification sameParams = new DriverSpecification();
+        sameParams.setOnlineStatus(OnlineStatus.ONLINE);
+        when(driverRepository.findViews(any(DriverSpecification.class), eq(0L), eq(101))).thenReturn(List.of(aDriverView()));
+
+        var page = defaultDriverService.search(params, 0L, 100);
+        var repeated = defaultDriverService.search(sameParams, 0L, 100);
+
+        assertSame(page, repeated);
+        verify(driverRepository, times(1)).findViews(any(DriverSpecification.class), eq(0L), eq(101));
+    }
+
+
+    /**
+     * Find the nearest online drivers around a point.
+     *
+     * @throws ConstraintsViolationException
+     */
+    @Test
+    void find_nearby_drivers() throws ConstraintsViolationException
+    {
+        GeoCoordinate coordinate = new GeoCoordinate(latitude, longitude);
+        when(driverLocationIndex.findNearest(latitude, longitude, 5, 1000)).thenReturn(List.of(new NearbyDriver(DRIVER_ID, coordinate, 0)));
+
+        var nearby = defaultDriverService.findNearby(latitude, longitude, 5, 1000);
+
+        assertEquals(1, nearby.size());
+        assertEquals(DRIVER_ID, nearby.get(0).getDriverId());
+    }
+
+
+    /**
+     * Find nearby drivers with an out of range limit throws ConstraintsViolationException.
+     */
+    @Test
+    void find_nearby_drivers_not_allowed_with_invalid_limit()
+    {
+        assertThrows(ConstraintsViolationException.class, () -> defaultDriverService.findNearby(latitude, longitude, 0, 1000));
+        assertThrows(ConstraintsViolationException.class, () -> defaultDriverService.findNearby(latitude, longitude, 5, -1));
+    }
+
+
+    /**
+     * Find driver clusters inside a box at a zoom level, zoom levels beyond the index are served from its finest level.
+     *
+     * @throws ConstraintsViolationException
+     */
+    @Test
+    void find_clusters() throws ConstraintsViolationException
+    {
+        GeoCoordinate coordinate = new GeoCoordinate(latitude, longitude);
+        when(driverClusterIndex.cellCount(anyDouble(), anyDouble(), anyDouble(), anyDouble(), eq(DriverClusterIndex.MAX_ZOOM))).thenReturn(64L);
+        when(driverClusterIndex.clusters(1, 0, 3, 2, DriverClusterIndex.MAX_ZOOM)).thenReturn(List.of(new DriverCluster(coordinate, 3)));
+
+        var clusters = defaultDriverService.findClusters(List.of(0.0, 1.0, 2.0, 3.0), 22);
+
+        assertEquals(1, clusters.size());
+        assertEquals(3, clusters.get(0).getCount());
+    }
+
+
+    /**
+     * Find driver clusters with a malformed box or too many cells throws ConstraintsViolationException.
+     */
+    @Test
+    void find_clusters_not_allowed_with_invalid_input()
+    {
+        when(driverClusterIndex.cellCount(anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyInt())).thenReturn(1_000_000L);
 
-        var driversList = defaultDriverService.search(params);
+        assertThrows(ConstraintsViolationException.class, () -> defaultDriverService.findClusters(List.of(0.0, 1.0, 2.0), 10));
+        assertThrows(ConstraintsViolationException.class, () -> defaultDriverService.findClusters(List.of(2.0, 1.0, 0.0, 3.0), 10));
+        assertThrows(ConstraintsViolationException.class, () -> defaultDriverService.findClusters(List.of(0.0, 1.0, 2.0, 3.0), -1));
+        assertThrows(ConstraintsViolationException.class, () -> defaultDriverService.findClusters(List.of(-180.0, -85.0, 180.0, 85.0), 10));
+    }
+
+
+    /**
+     * Find the track of a driver in the location history.
+     *
+     * @throws ConstraintsViolationException
+     */
+    @Test
+    void find_track() throws ConstraintsViolationException
+    {
+        var to = ZonedDateTime.now();
+        var from = to.minusHours(1);
+        var location = new DriverLocation(DRIVER_ID, new GeoCoordinate(latitude, longitude), to.minusMinutes(5));
+        when(locationHistoryStore.read(DRIVER_ID, from.toInstant(), to.toInstant())).thenReturn(List.of(location));
+
+        assertEquals(List.of(location), defaultDriverService.findTrack(DRIVER_ID, from, to, 0));
+    }
 
-        assertEquals(1, driversList.size());
-        assertEquals(username, driversList.get(0).getUsername());
+
+    /**
+     * Find a track with an empty or too long range or a negative tolerance throws ConstraintsViolationException.
+     */
+    @Test
+    void find_track_not_allowed_with_invalid_range()
+    {
+        var now = ZonedDateTime.now();
+        assertThrows(ConstraintsViolationException.class, () -> defaultDriverService.findTrack(DRIVER_ID, now, now, 0));
+        assertThrows(ConstraintsViolationException.class, () -> defaultDriverService.findTrack(DRIVER_ID, now.minusDays(32), now, 0));
+        assertThrows(ConstraintsViolationException.class, () -> defaultDriverService.findTrack(DRIVER_ID, now.minusDays(1), now, -1));
+    }
+
+
+    /**
+     * Update the locations of many drivers, only the newest location per driver is written.
+     *
+     * @throws ConstraintsViolationException
+     */
+    @Test
+    void update_locations() throws ConstraintsViolationException
+    {
+        ZonedDateTime now = ZonedDateTime.now();
+        GeoCoordinate coordinate = new GeoCoordinate(latitude, longitude);
+        DriverLocation newest = new DriverLocation(DRIVER_ID, coordinate, now);
+        DriverLocation older = new DriverLocation(DRIVER_ID, coordinate, now.minusSeconds(5));
+        DriverLocation unknown = new DriverLocation(2L, coordinate, now);
+        when(driverRepository.batchUpdateLocations(List.of(newest, unknown))).thenReturn(new int[] {1, 0});
+
+        var applied = defaultDriverService.updateLocations(List.of(newest, older, unknown));
+
+        assertEquals(List.of(newest), applied);
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) -> event instanceof DriverLocationUpdatedEvent
+            && ((DriverLocationUpdatedEvent) event).getDriverId() == DRIVER_ID));
     }
 }
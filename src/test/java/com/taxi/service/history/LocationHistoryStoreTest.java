@@ -0,0 +1,172 @@
+package com.taxi.service.history;
+
+import com.taxi.domainvalue.DriverLocation;
+import com.taxi.domainvalue.GeoCoordinate;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test the memory-mapped location history.
+ * <p/>
+ */
+class LocationHistoryStoreTest
+{
+    private static final long DRIVER_ID = 1L;
+
+    private static final Instant START = Instant.parse("2021-06-01T10:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    private LocationHistoryStore store;
+
+
+    @BeforeEach
+    void setUp() throws IOException
+    {
+        store = new LocationHistoryStore(directory.toString(), true, 60_000, 256);
+    }
+
+
+    @AfterEach
+    void tearDown()
+    {
+        store.close();
+    }
+
+
+    /**
+     * Only the locations inside the range are returned, in timestamp order.
+     */
+    @Test
+    void read_time_range()
+    {
+        for (int second = 0; second < 10; second++)
+        {
+            store.append(aLocation(DRIVER_ID, second));
+        }
+        store.append(aLocation(2L, 5));
+
+        List<DriverLocation> track = store.read(DRIVER_ID, START.plusSeconds(3), START.plusSeconds(6));
+
+        assertEquals(List.of(START.plusSeconds(3), START.plusSeconds(4), START.plusSeconds(5)), timestampsOf(track));
+        assertEquals(new GeoCoordinate(50.003, 10.003), track.get(0).getCoordinate());
+        assertTrue(store.read(DRIVER_ID, START.plusSeconds(20), START.plusSeconds(30)).isEmpty());
+        assertTrue(store.read(3L, START, START.plusSeconds(30)).isEmpty());
+    }
+
+
+    /**
+     * Locations which are not newer than the last recorded one are not appended.
+     */
+    @Test
+    void append_rejects_out_of_order_locations()
+    {
+        assertTrue(store.append(aLocation(DRIVER_ID, 5)));
+        assertFalse(store.append(aLocation(DRIVER_ID, 5)));
+        assertFalse(store.append(aLocation(DRIVER_ID, 1)));
+
+        assertEquals(1, store.read(DRIVER_ID, START, START.plusSeconds(10)).size());
+    }
+
+
+    /**
+     * The history survives closing the store and spans several blocks and mapped chunks.
+     */
+    @Test
+    void reopen_history() throws IOException
+    {
+        int count = 100_000;
+        for (int second = 0; second < count; second++)
+        {
+            store.append(aLocation(DRIVER_ID, second));
+        }
+        store.close();
+
+        store = new LocationHistoryStore(directory.toString(), true, 60_000, 256);
+        store.append(aLocation(DRIVER_ID, count));
+
+        List<DriverLocation> track = store.read(DRIVER_ID, START, START.plusSeconds(count + 1));
+        assertEquals(count + 1, track.size());
+        assertEquals(START.plusSeconds(count), track.get(count).getTimestamp().toInstant());
+        assertFalse(store.append(aLocation(DRIVER_ID, count - 1)));
+    }
+
+
+    /**
+     * Tracks which have been closed while idle are reopened on the next access.
+     */
+    @Test
+    void close_idle_tracks() throws IOException
+    {
+        store.close();
+        store = new LocationHistoryStore(directory.toString(), true, 0, 256);
+        store.append(aLocation(DRIVER_ID, 0));
+        store.closeIdle();
+        store.append(aLocation(DRIVER_ID, 1));
+
+        assertEquals(2, store.read(DRIVER_ID, START, START.plusSeconds(2)).size());
+    }
+
+
+    /**
+     * Opening more files than allowed closes the least recently used one, which is reopened on the next access.
+     */
+    @Test
+    void close_least_recently_used_tracks() throws IOException
+    {
+        store.close();
+        store = new LocationHistoryStore(directory.toString(), true, 60_000, 2);
+        store.append(aLocation(1L, 0));
+        store.append(aLocation(2L, 0));
+        store.append(aLocation(3L, 0));
+
+        assertEquals(2, store.openFiles());
+
+        store.append(aLocation(1L, 1));
+
+        assertEquals(2, store.openFiles());
+        assertEquals(2, store.read(1L, START, START.plusSeconds(2)).size());
+        assertEquals(1, store.read(2L, START, START.plusSeconds(2)).size());
+    }
+
+
+    /**
+     * A disabled history needs no directory and records nothing.
+     */
+    @Test
+    void disabled_history() throws IOException
+    {
+        LocationHistoryStore disabled = new LocationHistoryStore("", false, 60_000, 256);
+
+        assertEquals(List.of(), disabled.read(DRIVER_ID, START, START.plusSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> new LocationHistoryStore(" ", true, 60_000, 256));
+    }
+
+
+    private static DriverLocation aLocation(long driverId, int second)
+    {
+        GeoCoordinate coordinate = new GeoCoordinate(50 + (second % 1000) * 0.001, 10 + (second % 1000) * 0.001);
+        return new DriverLocation(driverId, coordinate, ZonedDateTime.ofInstant(START.plusSeconds(second), ZoneOffset.UTC));
+    }
+
+
+    private static List<Instant> timestampsOf(List<DriverLocation> track)
+    {
+        return track.stream().map(location -> location.getTimestamp().toInstant()).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,149 @@
+package com.taxi.service.history;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test the compact trace encoding and report its compression ratio and decode throughput.
+ * <p/>
+ */
+class TraceCodecTest
+{
+    private static final Logger LOG = LoggerFactory.getLogger(TraceCodecTest.class);
+
+    private static final int RAW_POINT_BYTES = Long.BYTES + 2 * Double.BYTES;
+
+
+    /**
+     * Zigzag variable length integers round trip, including the extremes.
+     */
+    @Test
+    void var_long_round_trip()
+    {
+        long[] values = {0, 1, -1, 63, -64, 64, 1_000_000, -1_000_000, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 10);
+        int position = 0;
+        for (long value : values)
+        {
+            position += TraceCodec.putVarLong(buffer, position, value);
+        }
+        for (long value : values)
+        {
+            assertEquals(value, TraceCodec.getVarLong(buffer));
+        }
+        assertEquals(position, buffer.position());
+    }
+
+
+    /**
+     * A realistic trace decodes to the quantized input and is several times smaller than raw records.
+     */
+    @Test
+    void encode_trace()
+    {
+        int size = 200_000;
+        long[] timestamps = new long[size];
+        int[] latitudes = new int[size];
+        int[] longitudes = new int[size];
+        aDrivingTrace(timestamps, latitudes, longitudes);
+
+        ByteBuffer buffer = ByteBuffer.allocate(size * TraceCodec.MAX_POINT_BYTES);
+        TraceCodec.Encoder encoder = new TraceCodec.Encoder();
+        encoder.reset(timestamps[0], latitudes[0], longitudes[0]);
+        int length = 0;
+        for (int i = 1; i < size; i++)
+        {
+            int written = encoder.encode(buffer, length, timestamps[i], latitudes[i], longitudes[i]);
+            assertTrue(written <= TraceCodec.MAX_POINT_BYTES);
+            length += written;
+        }
+        double ratio = (double) size * RAW_POINT_BYTES / (length + RAW_POINT_BYTES);
+
+        long checksum = 0;
+        long start = System.nanoTime();
+        int rounds = 10;
+        for (int round = 0; round < rounds; round++)
+        {
+            TraceCodec.Encoder decoder = new TraceCodec.Encoder();
+            decoder.reset(timestamps[0], latitudes[0], longitudes[0]);
+            buffer.position(0);
+            for (int i = 1; i < size; i++)
+            {
+                decoder.decode(buffer);
+                checksum += decoder.latitude();
+            }
+            assertEquals(timestamps[size - 1], decoder.timestamp());
+            assertEquals(latitudes[size - 1], decoder.latitude());
+            assertEquals(longitudes[size - 1], decoder.longitude());
+        }
+        double pointsPerSecond = (double) rounds * size / ((System.nanoTime() - start) / 1e9);
+        LOG.info("Trace of {} points: {} bytes encoded, compression ratio {}, decode throughput {} points/s (checksum {})",
+            size, length, String.format("%.1f", ratio), String.format("%.3g", pointsPerSecond), checksum);
+
+        assertTrue(ratio > 4, "compression ratio " + ratio);
+    }
+
+
+    /**
+     * Every point decodes to its quantized input.
+     */
+    @Test
+    void decode_every_point()
+    {
+        int size = 10_000;
+        long[] timestamps = new long[size];
+        int[] latitudes = new int[size];
+        int[] longitudes = new int[size];
+        aDrivingTrace(timestamps, latitudes, longitudes);
+
+        ByteBuffer buffer = ByteBuffer.allocate(size * TraceCodec.MAX_POINT_BYTES);
+        TraceCodec.Encoder encoder = new TraceCodec.Encoder();
+        encoder.reset(timestamps[0], latitudes[0], longitudes[0]);
+        int length = 0;
+        for (int i = 1; i < size; i++)
+        {
+            length += encoder.encode(buffer, length, timestamps[i], latitudes[i], longitudes[i]);
+        }
+
+        TraceCodec.Encoder decoder = new TraceCodec.Encoder();
+        decoder.reset(timestamps[0], latitudes[0], longitudes[0]);
+        for (int i = 1; i < size; i++)
+        {
+            decoder.decode(buffer);
+            assertEquals(timestamps[i], decoder.timestamp());
+            assertEquals(latitudes[i], decoder.latitude());
+            assertEquals(longitudes[i], decoder.longitude());
+        }
+        assertEquals(length, buffer.position());
+    }
+
+
+    /**
+     * A car pinging about every 4 seconds, driving at city speeds with GPS noise and occasional stops.
+     */
+    private static void aDrivingTrace(long[] timestamps, int[] latitudes, int[] longitudes)
+    {
+        Random random = new Random(7);
+        long timestamp = 1_622_541_600_000L;
+        double latitude = 52.52;
+        double longitude = 13.405;
+        double heading = 0;
+        for (int i = 0; i < timestamps.length; i++)
+        {
+            timestamp += 4_000 + (random.nextInt(10) == 0 ? random.nextInt(400) - 200 : 0);
+            double speed = random.nextInt(20) == 0 ? 0 : 8 + random.nextDouble() * 6;
+            heading += random.nextGaussian() * 0.2;
+            latitude += Math.cos(heading) * speed * 4 / 111_195;
+            longitude += Math.sin(heading) * speed * 4 / (111_195 * Math.cos(Math.toRadians(latitude)));
+            timestamps[i] = timestamp;
+            latitudes[i] = TraceCodec.quantize(latitude + random.nextGaussian() * 0.00002);
+            longitudes[i] = TraceCodec.quantize(longitude + random.nextGaussian() * 0.00002);
+        }
+    }
+}
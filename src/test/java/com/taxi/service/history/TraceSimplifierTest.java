@@ -0,0 +1,76 @@
+package com.taxi.service.history;
+
+import com.taxi.domainvalue.DriverLocation;
+import com.taxi.domainvalue.GeoCoordinate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Test the Douglas-Peucker trace simplification.
+ * <p/>
+ */
+class TraceSimplifierTest
+{
+    private static final ZonedDateTime START = ZonedDateTime.parse("2021-06-01T10:00:00Z");
+
+
+    /**
+     * Points on a straight line are dropped, corners are kept.
+     */
+    @Test
+    void simplify_keeps_corners()
+    {
+        List<DriverLocation> trace = new ArrayList<>();
+        for (int i = 0; i <= 10; i++)
+        {
+            trace.add(aLocation(i, 52.5 + i * 0.001, 13.4));
+        }
+        for (int i = 1; i <= 10; i++)
+        {
+            trace.add(aLocation(10 + i, 52.51, 13.4 + i * 0.001));
+        }
+
+        List<DriverLocation> simplified = TraceSimplifier.simplify(trace, 5);
+
+        assertEquals(List.of(trace.get(0), trace.get(10), trace.get(20)), simplified);
+    }
+
+
+    /**
+     * Deviations larger than the tolerance are kept.
+     */
+    @Test
+    void simplify_keeps_deviations_above_tolerance()
+    {
+        List<DriverLocation> trace = List.of(aLocation(0, 52.5, 13.4), aLocation(1, 52.5, 13.4005), aLocation(2, 52.5001, 13.401),
+            aLocation(3, 52.5, 13.4015), aLocation(4, 52.5, 13.402));
+
+        assertEquals(5, TraceSimplifier.simplify(trace, 5).size());
+        assertEquals(2, TraceSimplifier.simplify(trace, 20).size());
+    }
+
+
+    /**
+     * Short traces and a tolerance of zero are returned unchanged.
+     */
+    @Test
+    void simplify_without_tolerance()
+    {
+        List<DriverLocation> trace = List.of(aLocation(0, 52.5, 13.4), aLocation(1, 52.6, 13.4), aLocation(2, 52.6, 13.5));
+
+        assertSame(trace, TraceSimplifier.simplify(trace, 0));
+        List<DriverLocation> shortTrace = trace.subList(0, 2);
+        assertSame(shortTrace, TraceSimplifier.simplify(shortTrace, 100));
+    }
+
+
+    private static DriverLocation aLocation(int second, double latitude, double longitude)
+    {
+        return new DriverLocation(1L, new GeoCoordinate(latitude, longitude), START.plusSeconds(second));
+    }
+}
@@ -0,0 +1,125 @@
+package com.taxi.service.location;
+
+import com.taxi.domainvalue.DriverCluster;
+import com.taxi.domainvalue.GeoCoordinate;
+import com.taxi.event.DriverPositionChangedEvent;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test the hierarchical driver cluster grid.
+ * <p/>
+ */
+class DriverClusterIndexTest
+{
+    private static final GeoCoordinate BERLIN = new GeoCoordinate(52.52, 13.405);
+
+    private static final GeoCoordinate PARIS = new GeoCoordinate(48.8566, 2.3522);
+
+    private DriverClusterIndex driverClusterIndex;
+
+
+    @BeforeEach
+    void setUp()
+    {
+        driverClusterIndex = new DriverClusterIndex();
+    }
+
+
+    /**
+     * Nearby drivers fall into one cluster at low zoom levels and into separate clusters when zooming in.
+     */
+    @Test
+    void cluster_by_zoom_level()
+    {
+        add(1L, BERLIN);
+        add(2L, new GeoCoordinate(52.53, 13.405));
+        add(3L, PARIS);
+
+        List<DriverCluster> world = driverClusterIndex.clusters(-85, -180, 85, 180, 0);
+        assertEquals(1, world.size());
+        assertEquals(3, world.get(0).getCount());
+        assertEquals((52.52 + 52.53 + 48.8566) / 3, world.get(0).getCoordinate().getLatitude(), 1e-6);
+
+        assertEquals(2, driverClusterIndex.clusters(40, -10, 60, 30, 5).size());
+        assertEquals(1, driverClusterIndex.clusters(52, 13, 53, 14, 8).size());
+        assertEquals(2, driverClusterIndex.clusters(52, 13, 53, 14, 16).size());
+    }
+
+
+    /**
+     * Moving and removing drivers adjusts the clusters of every level.
+     */
+    @Test
+    void move_and_remove_drivers()
+    {
+        add(1L, BERLIN);
+        driverClusterIndex.onPositionChanged(new DriverPositionChangedEvent(1L, BERLIN, PARIS, 1, 2));
+
+        List<DriverCluster> clusters = driverClusterIndex.clusters(-85, -180, 85, 180, 12);
+        assertEquals(1, clusters.size());
+        assertEquals(PARIS, clusters.get(0).getCoordinate());
+
+        driverClusterIndex.onPositionChanged(new DriverPositionChangedEvent(1L, PARIS, null, 0, 3));
+
+        for (int zoom = 0; zoom <= DriverClusterIndex.MAX_ZOOM; zoom++)
+        {
+            assertTrue(driverClusterIndex.clusters(-85, -180, 85, 180, zoom).isEmpty());
+        }
+    }
+
+
+    /**
+     * A change arriving after a later change of the same driver is dropped.
+     */
+    @Test
+    void drop_late_changes()
+    {
+        add(1L, BERLIN);
+        driverClusterIndex.onPositionChanged(new DriverPositionChangedEvent(1L, BERLIN, PARIS, 1, 3));
+        driverClusterIndex.onPositionChanged(new DriverPositionChangedEvent(1L, BERLIN, null, 0, 2));
+
+        List<DriverCluster> clusters = driverClusterIndex.clusters(-85, -180, 85, 180, 0);
+        assertEquals(1, clusters.size());
+        assertEquals(1, clusters.get(0).getCount());
+        assertEquals(PARIS, clusters.get(0).getCoordinate());
+    }
+
+
+    /**
+     * Every level counts every driver exactly once, reading the cells of a small box or scanning a level alike.
+     */
+    @Test
+    void count_every_driver_once()
+    {
+        Random random = new Random(42);
+        for (long driverId = 0; driverId < 1_000; driverId++)
+        {
+            add(driverId, new GeoCoordinate(BERLIN.getLatitude() + random.nextGaussian() * 0.05, BERLIN.getLongitude() + random.nextGaussian() * 0.05));
+        }
+
+        for (int zoom = 0; zoom <= DriverClusterIndex.MAX_ZOOM; zoom++)
+        {
+            assertEquals(1_000, count(driverClusterIndex.clusters(-85, -180, 85, 180, zoom)));
+            assertEquals(1_000, count(driverClusterIndex.clusters(51, 12, 54, 15, zoom)));
+        }
+        assertEquals(16, driverClusterIndex.cellCount(-85, -180, 85, 180, 0));
+    }
+
+
+    private void add(long driverId, GeoCoordinate coordinate)
+    {
+        driverClusterIndex.onPositionChanged(new DriverPositionChangedEvent(driverId, null, coordinate, 1, 1));
+    }
+
+
+    private static int count(List<DriverCluster> clusters)
+    {
+        return clusters.stream().mapToInt(DriverCluster::getCount).sum();
+    }
+}
@@ -0,0 +1,230 @@
+package com.taxi.service.location;
+
+import com.taxi.dataaccessobject.DriverRepository;
+import com.taxi.domainobject.DriverDO;
+import com.taxi.domainvalue.GeoCoordinate;
+import com.taxi.domainvalue.NearbyDriver;
+import com.taxi.domainvalue.OnlineStatus;
+import com.taxi.event.DriverOnlineStatusChangedEvent;
+import com.taxi.event.DriverPositionChangedEvent;
+import com.taxi.util.GeoDistance;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import static com.taxi.common.TestFixtures.aDeletedDriverDO;
+import static com.taxi.common.TestFixtures.anOnlineDriverDO;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test the in-memory driver location index.
+ * <p/>
+ */
+@ExtendWith(MockitoExtension.class)
+class DriverLocationIndexTest
+{
+    private static final double LATITUDE = 52.52;
+    private static final double LONGITUDE = 13.405;
+
+    @Mock
+    private DriverRepository driverRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private DriverLocationIndex driverLocationIndex;
+
+
+    @BeforeEach
+    void setUp()
+    {
+        driverLocationIndex = new DriverLocationIndex(driverRepository, eventPublisher, 0.01);
+    }
+
+
+    /**
+     * Nearest drivers are returned closest first and limited to k.
+     */
+    @Test
+    void find_nearest_drivers()
+    {
+        driverLocationIndex.markOnline(1L, new GeoCoordinate(LATITUDE + 0.003, LONGITUDE));
+        driverLocationIndex.markOnline(2L, new GeoCoordinate(LATITUDE + 0.001, LONGITUDE));
+        driverLocationIndex.markOnline(3L, new GeoCoordinate(LATITUDE + 0.02, LONGITUDE));
+
+        List<NearbyDriver> nearest = driverLocationIndex.findNearest(LATITUDE, LONGITUDE, 2, 5000);
+
+        assertEquals(List.of(2L, 1L), nearest.stream().map(NearbyDriver::getDriverId).collect(Collectors.toList()));
+        assertTrue(nearest.get(0).getDistance() < nearest.get(1).getDistance());
+    }
+
+
+    /**
+     * Drivers outside the radius are not returned.
+     */
+    @Test
+    void find_nearest_drivers_within_radius()
+    {
+        driverLocationIndex.markOnline(1L, new GeoCoordinate(LATITUDE + 0.001, LONGITUDE));
+        driverLocationIndex.markOnline(2L, new GeoCoordinate(LATITUDE + 0.1, LONGITUDE));
+
+        List<NearbyDriver> nearest = driverLocationIndex.findNearest(LATITUDE, LONGITUDE, 10, 1000);
+
+        assertEquals(1, nearest.size());
+        assertEquals(1L, nearest.get(0).getDriverId());
+    }
+
+
+    /**
+     * Positions of drivers which are not online are ignored, offline drivers are removed.
+     */
+    @Test
+    void update_ignores_offline_drivers()
+    {
+        assertFalse(driverLocationIndex.update(1L, new GeoCoordinate(LATITUDE, LONGITUDE)));
+
+        driverLocationIndex.markOnline(2L, new GeoCoordinate(LATITUDE, LONGITUDE));
+        driverLocationIndex.markOffline(2L);
+
+        assertTrue(driverLocationIndex.findNearest(LATITUDE, LONGITUDE, 10, 1000).isEmpty());
+        assertNull(driverLocationIndex.positionOf(2L));
+        assertEquals(0, driverLocationIndex.size());
+    }
+
+
+    /**
+     * A driver moving to another cell is only found at its new position.
+     */
+    @Test
+    void update_moves_driver_between_cells()
+    {
+        driverLocationIndex.markOnline(1L, new GeoCoordinate(LATITUDE, LONGITUDE));
+        driverLocationIndex.update(1L, new GeoCoordinate(LATITUDE + 0.5, LONGITUDE));
+
+        assertTrue(driverLocationIndex.findNearest(LATITUDE, LONGITUDE, 10, 1000).isEmpty());
+        assertEquals(1, driverLocationIndex.findNearest(LATITUDE + 0.5, LONGITUDE, 10, 1000).size());
+    }
+
+
+    /**
+     * Drivers entering, moving inside and leaving the index publish position changes with increasing sequences.
+     */
+    @Test
+    void publish_position_changes()
+    {
+        GeoCoordinate first = new GeoCoordinate(LATITUDE, LONGITUDE);
+        GeoCoordinate second = new GeoCoordinate(LATITUDE + 0.001, LONGITUDE);
+        driverLocationIndex.onOnlineStatusChanged(new DriverOnlineStatusChangedEvent(1L, OnlineStatus.ONLINE, first, null));
+        driverLocationIndex.update(1L, second);
+        driverLocationIndex.onOnlineStatusChanged(new DriverOnlineStatusChangedEvent(1L, OnlineStatus.OFFLINE, second, null));
+
+        var events = inOrder(eventPublisher);
+        events.verify(eventPublisher).publishEvent(argThat((Object event) -> isPositionChange(event, null, first, 1)));
+        events.verify(eventPublisher).publishEvent(argThat((Object event) -> isPositionChange(event, first, second, 2)));
+        events.verify(eventPublisher).publishEvent(argThat((Object event) -> isPositionChange(event, second, null, 3)));
+        assertFalse(driverLocationIndex.isOnline(1L));
+    }
+
+
+    /**
+     * Positions older than the indexed one are ignored, expiry only removes positions which have not been updated.
+     */
+    @Test
+    void update_and_expire_by_timestamp()
+    {
+        GeoCoordinate current = new GeoCoordinate(LATITUDE, LONGITUDE);
+        driverLocationIndex.markOnline(1L, null);
+        assertTrue(driverLocationIndex.update(1L, current, 2_000));
+        assertFalse(driverLocationIndex.update(1L, new GeoCoordinate(LATITUDE + 0.1, LONGITUDE), 1_000));
+        assertEquals(current, driverLocationIndex.positionOf(1L));
+
+        assertFalse(driverLocationIndex.expire(1L, 1_999));
+        assertTrue(driverLocationIndex.expire(1L, 2_000));
+        assertNull(driverLocationIndex.positionOf(1L));
+        assertTrue(driverLocationIndex.isOnline(1L));
+    }
+
+
+    /**
+     * Startup load indexes online drivers which are not deleted.
+     */
+    @Test
+    void load_online_drivers()
+    {
+        DriverDO online = anOnlineDriverDO();
+        online.setId(1L);
+        online.setCoordinate(new GeoCoordinate(LATITUDE, LONGITUDE));
+        DriverDO deleted = aDeletedDriverDO();
+        deleted.setId(2L);
+        deleted.setOnlineStatus(OnlineStatus.ONLINE);
+        deleted.setCoordinate(new GeoCoordinate(LATITUDE, LONGITUDE));
+        when(driverRepository.findByOnlineStatus(OnlineStatus.ONLINE)).thenReturn(List.of(online, deleted));
+
+        driverLocationIndex.load();
+
+        assertTrue(driverLocationIndex.isOnline(1L));
+        assertFalse(driverLocationIndex.isOnline(2L));
+        assertEquals(1, driverLocationIndex.size());
+    }
+
+
+    /**
+     * Nearest-k results match a brute force scan over all drivers.
+     */
+    @Test
+    void find_nearest_matches_brute_force()
+    {
+        Random random = new Random(42);
+        List<GeoCoordinate> positions = new ArrayList<>();
+        for (long driverId = 0; driverId < 5_000; driverId++)
+        {
+            GeoCoordinate coordinate = new GeoCoordinate(LATITUDE + random.nextGaussian() * 0.05, LONGITUDE + random.nextGaussian() * 0.05);
+            positions.add(coordinate);
+            driverLocationIndex.markOnline(driverId, coordinate);
+        }
+
+        for (int query = 0; query < 50; query++)
+        {
+            double latitude = LATITUDE + random.nextGaussian() * 0.05;
+            double longitude = LONGITUDE + random.nextGaussian() * 0.05;
+            List<Long> expected = new ArrayList<>();
+            for (long driverId = 0; driverId < positions.size(); driverId++)
+            {
+                expected.add(driverId);
+            }
+            expected.sort(Comparator.comparingDouble(driverId -> GeoDistance.haversine(
+                latitude, longitude, positions.get(driverId.intValue()).getLatitude(), positions.get(driverId.intValue()).getLongitude())));
+
+            List<NearbyDriver> nearest = driverLocationIndex.findNearest(latitude, longitude, 10, 10_000);
+
+            assertEquals(expected.subList(0, 10), nearest.stream().map(NearbyDriver::getDriverId).collect(Collectors.toList()));
+        }
+    }
+
+
+    private static boolean isPositionChange(Object event, GeoCoordinate previous, GeoCoordinate current, long sequence)
+    {
+        if (!(event instanceof DriverPositionChangedEvent))
+        {
+            return false;
+        }
+        DriverPositionChangedEvent change = (DriverPositionChangedEvent) event;
+        return change.getDriverId() == 1L && Objects.equals(previous, change.getPrevious()) && Objects.equals(current, change.getCurrent())
+            && change.getSequence() == sequence;
+    }
+}
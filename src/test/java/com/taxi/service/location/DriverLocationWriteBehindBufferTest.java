@@ -0,0 +1,185 @@
+package com.taxi.service.location;
+
+import com.taxi.dataaccessobject.DriverRepository;
+import com.taxi.domainvalue.DriverLocation;
+import com.taxi.domainvalue.GeoCoordinate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test the write-behind buffer for driver locations.
+ * <p/>
+ */
+@ExtendWith(MockitoExtension.class)
+class DriverLocationWriteBehindBufferTest
+{
+    private static final ZonedDateTime NOW = ZonedDateTime.now();
+
+    @Mock
+    private DriverRepository driverRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private LocationWriteSuppressor writeSuppressor;
+
+    private DriverLocationWriteBehindBuffer buffer;
+
+
+    @BeforeEach
+    void setUp()
+    {
+        meterRegistry = new SimpleMeterRegistry();
+        writeSuppressor = new LocationWriteSuppressor(meterRegistry, 10, 30_000);
+        buffer = new DriverLocationWriteBehindBuffer(driverRepository, writeSuppressor, transactionManager, taskScheduler, meterRegistry, true, 3, 2);
+    }
+
+
+    /**
+     * Only the newest location per driver is kept and visible before the flush.
+     */
+    @Test
+    void offer_keeps_newest_location_per_driver()
+    {
+        DriverLocation newest = aLocation(1L, 2.0, NOW);
+        buffer.offer(aLocation(1L, 1.0, NOW.minusSeconds(1)));
+        buffer.offer(newest);
+        buffer.offer(aLocation(1L, 3.0, NOW.minusSeconds(2)));
+
+        assertEquals(1, buffer.size());
+        assertEquals(newest, buffer.pendingLocation(1L));
+        verify(driverRepository, never()).batchUpdateLocations(anyList());
+    }
+
+
+    /**
+     * A flush writes all pending locations in one batch, empties the buffer and reports the applied locations as
+     * written.
+     */
+    @Test
+    void flush_writes_pending_locations()
+    {
+        DriverLocation first = aLocation(1L, 1.0, NOW);
+        DriverLocation second = aLocation(2L, 2.0, NOW);
+        buffer.offer(first);
+        buffer.offer(second);
+        when(driverRepository.batchUpdateLocations(List.of(first, second))).thenReturn(new int[] {1, 0});
+
+        buffer.flush();
+
+        verify(driverRepository, times(1)).batchUpdateLocations(List.of(first, second));
+        assertEquals(0, buffer.size());
+        assertNull(buffer.pendingLocation(1L));
+        assertEquals(1, writeSuppressor.getWrittenCount());
+        assertFalse(writeSuppressor.shouldWrite(aLocation(1L, 1.0, NOW.plusSeconds(1))));
+        assertTrue(writeSuppressor.shouldWrite(aLocation(2L, 2.0, NOW.plusSeconds(1))));
+    }
+
+
+    /**
+     * Reaching the maximum number of pending drivers hands one flush to the scheduler instead of writing on the
+     * offering thread.
+     */
+    @Test
+    void offer_schedules_flush_when_full()
+    {
+        buffer.offer(aLocation(1L, 1.0, NOW));
+        buffer.offer(aLocation(2L, 1.0, NOW));
+        buffer.offer(aLocation(3L, 1.0, NOW));
+        buffer.offer(aLocation(4L, 1.0, NOW));
+        when(driverRepository.batchUpdateLocations(anyList())).thenReturn(new int[] {1, 1, 1, 1});
+
+        verify(driverRepository, never()).batchUpdateLocations(anyList());
+        ArgumentCaptor<Runnable> scheduledFlush = ArgumentCaptor.forClass(Runnable.class);
+        verify(taskScheduler, times(1)).schedule(scheduledFlush.capture(), any(Instant.class));
+
+        scheduledFlush.getValue().run();
+
+        verify(driverRepository, times(1)).batchUpdateLocations(anyList());
+        assertEquals(0, buffer.size());
+    }
+
+
+    /**
+     * Locations stay pending if the batch could not be written.
+     */
+    @Test
+    void failed_flush_keeps_locations()
+    {
+        DriverLocation location = aLocation(1L, 1.0, NOW);
+        buffer.offer(location);
+        when(driverRepository.batchUpdateLocations(anyList())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        buffer.flush();
+
+        assertEquals(location, buffer.pendingLocation(1L));
+    }
+
+
+    /**
+     * A batch failing max-attempts times in a row is dropped and counted.
+     */
+    @Test
+    void failed_flush_drops_locations_after_max_attempts()
+    {
+        buffer.offer(aLocation(1L, 1.0, NOW));
+        buffer.offer(aLocation(2L, 1.0, NOW));
+        when(driverRepository.batchUpdateLocations(anyList())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        buffer.flush();
+        buffer.flush();
+
+        assertEquals(0, buffer.size());
+        assertEquals(2, meterRegistry.counter("driver.location.write-behind.dropped").count());
+    }
+
+
+    /**
+     * A dropped location never counts as written, so the next location of the driver at the same place is written.
+     */
+    @Test
+    void dropped_location_does_not_suppress_next_location()
+    {
+        buffer.offer(aLocation(1L, 1.0, NOW));
+        when(driverRepository.batchUpdateLocations(anyList())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        buffer.flush();
+        buffer.flush();
+
+        assertEquals(0, writeSuppressor.getWrittenCount());
+        assertTrue(writeSuppressor.shouldWrite(aLocation(1L, 1.0, NOW.plusSeconds(1))));
+    }
+
+
+    private static DriverLocation aLocation(long driverId, double latitude, ZonedDateTime timestamp)
+    {
+        return new DriverLocation(driverId, new GeoCoordinate(latitude, 10.0), timestamp);
+    }
+}
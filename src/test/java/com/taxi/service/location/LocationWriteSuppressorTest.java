@@ -0,0 +1,127 @@
+package com.taxi.service.location;
+
+import com.taxi.domainvalue.DriverLocation;
+import com.taxi.domainvalue.GeoCoordinate;
+import com.taxi.event.DriverDeletedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.ZonedDateTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test suppressing writes of drivers which did not move.
+ * <p/>
+ */
+class LocationWriteSuppressorTest
+{
+    private static final double LATITUDE = 52.52;
+    private static final double LONGITUDE = 13.405;
+
+    /** Roughly 5 meters north. */
+    private static final double JITTER = 0.000045;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private LocationWriteSuppressor writeSuppressor;
+
+    private ZonedDateTime now;
+
+
+    @BeforeEach
+    void setUp()
+    {
+        meterRegistry = new SimpleMeterRegistry();
+        writeSuppressor = new LocationWriteSuppressor(meterRegistry, 10, 30_000);
+        now = ZonedDateTime.now();
+    }
+
+
+    /**
+     * Jitter below the threshold is suppressed, only the last seen time moves on.
+     */
+    @Test
+    void suppress_stationary_locations()
+    {
+        assertTrue(write(location(1L, LATITUDE, 0)));
+        assertFalse(write(location(1L, LATITUDE + JITTER, 5)));
+        assertFalse(write(location(1L, LATITUDE - JITTER, 10)));
+
+        assertEquals(now.plusSeconds(10).toInstant().toEpochMilli(), writeSuppressor.lastSeen(1L));
+        assertEquals(2, writeSuppressor.getSuppressedCount());
+        assertEquals(1, writeSuppressor.getWrittenCount());
+        assertEquals(2, meterRegistry.get("driver.location.writes").tag("outcome", "suppressed").counter().count());
+    }
+
+
+    /**
+     * Moving beyond the threshold, being silent for too long or being a new driver is written.
+     */
+    @Test
+    void write_moved_or_silent_drivers()
+    {
+        assertTrue(write(location(1L, LATITUDE, 0)));
+        assertTrue(write(location(1L, LATITUDE + 4 * JITTER, 5)));
+        assertFalse(write(location(1L, LATITUDE + 4 * JITTER, 20)));
+        assertTrue(write(location(1L, LATITUDE + 4 * JITTER, 35)));
+        assertTrue(write(location(2L, LATITUDE, 35)));
+
+        assertEquals(4, writeSuppressor.getWrittenCount());
+    }
+
+
+    /**
+     * Out of order locations are never suppressed, deleted drivers are forgotten.
+     */
+    @Test
+    void write_older_and_deleted()
+    {
+        assertTrue(write(location(1L, LATITUDE, 10)));
+        assertTrue(write(location(1L, LATITUDE, 5)));
+
+        writeSuppressor.onDriverDeleted(new DriverDeletedEvent(1L));
+
+        assertEquals(0, writeSuppressor.lastSeen(1L));
+        assertTrue(write(location(1L, LATITUDE, 15)));
+    }
+
+
+    /**
+     * Asking whether to write records nothing, only a confirmed write is compared with later locations.
+     */
+    @Test
+    void compare_with_confirmed_writes_only()
+    {
+        assertTrue(writeSuppressor.shouldWrite(location(1L, LATITUDE, 0)));
+        assertTrue(writeSuppressor.shouldWrite(location(1L, LATITUDE, 5)));
+        assertEquals(0, writeSuppressor.getWrittenCount());
+
+        writeSuppressor.recordWritten(location(1L, LATITUDE, 5));
+
+        assertFalse(writeSuppressor.shouldWrite(location(1L, LATITUDE, 10)));
+    }
+
+
+    /**
+     * Decide like the driver service, assuming every write is confirmed.
+     */
+    private boolean write(DriverLocation location)
+    {
+        if (writeSuppressor.shouldWrite(location))
+        {
+            writeSuppressor.recordWritten(location);
+            return true;
+        }
+        writeSuppressor.recordSuppressed(location);
+        return false;
+    }
+
+
+    private DriverLocation location(long driverId, double latitude, long seconds)
+    {
+        return new DriverLocation(driverId, new GeoCoordinate(latitude, LONGITUDE), now.plusSeconds(seconds));
+    }
+}
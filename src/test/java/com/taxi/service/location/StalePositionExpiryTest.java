@@ -0,0 +1,147 @@
+package com.taxi.service.location;
+
+import com.taxi.dataaccessobject.DriverRepository;
+import com.taxi.domainvalue.DriverLocation;
+import com.taxi.domainvalue.GeoCoordinate;
+import com.taxi.event.DriverPositionChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test the timing wheel removing stale driver positions.
+ * <p/>
+ */
+@ExtendWith(MockitoExtension.class)
+class StalePositionExpiryTest
+{
+    private static final long TIME_TO_LIVE = 60_000;
+
+    private static final long TICK = 1_000;
+
+    private static final GeoCoordinate POSITION = new GeoCoordinate(52.52, 13.405);
+
+    @Mock
+    private DriverRepository driverRepository;
+
+    private DriverLocationIndex driverLocationIndex;
+
+    private LocationWriteSuppressor writeSuppressor;
+
+    private StalePositionExpiry stalePositionExpiry;
+
+    private long now;
+
+
+    @BeforeEach
+    void setUp()
+    {
+        driverLocationIndex = new DriverLocationIndex(driverRepository,
+            event -> stalePositionExpiry.onPositionChanged((DriverPositionChangedEvent) event), 0.01);
+        writeSuppressor = new LocationWriteSuppressor(new SimpleMeterRegistry(), 10, 30_000);
+        stalePositionExpiry = new StalePositionExpiry(driverLocationIndex, writeSuppressor, TIME_TO_LIVE, TICK);
+        now = System.currentTimeMillis();
+    }
+
+
+    /**
+     * Positions are removed once they are older than the time to live, the drivers stay online.
+     */
+    @Test
+    void expire_stale_positions()
+    {
+        driverLocationIndex.markOnline(1L, null);
+        driverLocationIndex.markOnline(2L, null);
+        driverLocationIndex.update(1L, POSITION, now);
+        driverLocationIndex.update(2L, POSITION, now + 10_000);
+
+        assertEquals(0, stalePositionExpiry.expire(now + TIME_TO_LIVE - TICK));
+        assertEquals(1, stalePositionExpiry.expire(now + TIME_TO_LIVE + TICK));
+        assertNull(driverLocationIndex.positionOf(1L));
+        assertNotNull(driverLocationIndex.positionOf(2L));
+        assertTrue(driverLocationIndex.isOnline(1L));
+        assertTrue(driverLocationIndex.findNearest(POSITION.getLatitude(), POSITION.getLongitude(), 10, 100).stream()
+            .noneMatch(nearby -> nearby.getDriverId() == 1L));
+
+        assertEquals(1, stalePositionExpiry.expire(now + TIME_TO_LIVE + 10_000 + TICK));
+        assertEquals(2, stalePositionExpiry.getExpiredCount());
+    }
+
+
+    /**
+     * An updated position postpones the expiry, a removed driver is not expired again.
+     */
+    @Test
+    void update_postpones_expiry()
+    {
+        driverLocationIndex.markOnline(1L, null);
+        driverLocationIndex.markOnline(2L, null);
+        driverLocationIndex.update(1L, POSITION, now);
+        driverLocationIndex.update(2L, POSITION, now);
+        driverLocationIndex.update(1L, POSITION, now + 30_000);
+        driverLocationIndex.markOffline(2L);
+
+        assertEquals(0, stalePositionExpiry.expire(now + TIME_TO_LIVE + TICK));
+        assertNotNull(driverLocationIndex.positionOf(1L));
+
+        assertEquals(1, stalePositionExpiry.expire(now + TIME_TO_LIVE + 30_000 + TICK));
+        assertNull(driverLocationIndex.positionOf(1L));
+    }
+
+
+    /**
+     * Positions which are already stale when indexed are removed with the next tick, skipped ticks are caught up.
+     */
+    @Test
+    void expire_old_positions_with_next_tick()
+    {
+        driverLocationIndex.markOnline(1L, null);
+        driverLocationIndex.update(1L, POSITION, now - 10 * TIME_TO_LIVE);
+
+        assertEquals(1, stalePositionExpiry.expire(now + TICK));
+        assertNull(driverLocationIndex.positionOf(1L));
+
+        driverLocationIndex.update(1L, POSITION, now + TICK);
+        assertEquals(1, stalePositionExpiry.expire(now + 5 * TIME_TO_LIVE));
+    }
+
+
+    /**
+     * A parked driver whose locations are suppressed keeps its position as long as it reports, and loses it once it
+     * stops reporting.
+     */
+    @Test
+    void keep_positions_of_drivers_seen_without_write()
+    {
+        driverLocationIndex.markOnline(1L, null);
+        driverLocationIndex.update(1L, POSITION, now);
+        writeSuppressor.recordWritten(location(now));
+        writeSuppressor.recordSuppressed(location(now + 40_000));
+
+        assertEquals(0, stalePositionExpiry.expire(now + TIME_TO_LIVE + TICK));
+        assertNotNull(driverLocationIndex.positionOf(1L));
+
+        writeSuppressor.recordSuppressed(location(now + 80_000));
+        assertEquals(0, stalePositionExpiry.expire(now + TIME_TO_LIVE + 40_000 + TICK));
+        assertNotNull(driverLocationIndex.positionOf(1L));
+
+        assertEquals(1, stalePositionExpiry.expire(now + TIME_TO_LIVE + 80_000 + TICK));
+        assertNull(driverLocationIndex.positionOf(1L));
+    }
+
+
+    private DriverLocation location(long timestamp)
+    {
+        return new DriverLocation(1L, POSITION, Instant.ofEpochMilli(timestamp).atZone(ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,282 @@
+package com.taxi.service.search;
+
+import com.taxi.controller.specification.DriverSpecification;
+import com.taxi.dataaccessobject.DriverRepository;
+import com.taxi.domainvalue.DriverAttributes;
+import com.taxi.domainvalue.DriverFacets;
+import com.taxi.domainvalue.EngineType;
+import com.taxi.domainvalue.OnlineStatus;
+import com.taxi.event.CarChangedEvent;
+import com.taxi.event.CarRatingsChangedEvent;
+import com.taxi.event.DriverCarChangedEvent;
+import com.taxi.event.DriverCreatedEvent;
+import com.taxi.event.DriverOnlineStatusChangedEvent;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test the in-memory snapshot of the searchable driver attributes.
+ * <p/>
+ */
+@ExtendWith(MockitoExtension.class)
+class DriverAttributeSnapshotTest
+{
+    @Mock
+    private DriverRepository driverRepository;
+
+    private DriverAttributeSnapshot attributeSnapshot;
+
+
+    @BeforeEach
+    void setUp()
+    {
+        attributeSnapshot = new DriverAttributeSnapshot(driverRepository);
+    }
+
+
+    /**
+     * Specifications are answered by intersecting the bitmaps of the filtered values, in id order after the cursor.
+     */
+    @Test
+    void find_by_intersecting_attributes()
+    {
+        load();
+
+        assertArrayEquals(new long[] {1, 2, 3, 4, 5}, attributeSnapshot.find(new DriverSpecification(), 0, 10));
+        assertArrayEquals(new long[] {1, 3}, attributeSnapshot.find(spec(OnlineStatus.ONLINE, null, null), 0, 10));
+        assertArrayEquals(new long[] {1, 2, 3}, attributeSnapshot.find(spec(null, EngineType.GAS, null), 0, 10));
+        assertArrayEquals(new long[] {1, 3}, attributeSnapshot.find(spec(OnlineStatus.ONLINE, EngineType.GAS, null), 0, 10));
+        assertArrayEquals(new long[] {3}, attributeSnapshot.find(spec(OnlineStatus.ONLINE, EngineType.GAS, null), 1, 10));
+        assertArrayEquals(new long[] {2}, attributeSnapshot.find(spec(null, EngineType.GAS, null), 1, 1));
+
+        DriverSpecification bySeatsAndConvertible = new DriverSpecification();
+        bySeatsAndConvertible.setSeatCount(4);
+        bySeatsAndConvertible.setConvertible(false);
+        assertArrayEquals(new long[] {1}, attributeSnapshot.find(bySeatsAndConvertible, 0, 10));
+    }
+
+
+    /**
+     * A rating filter matches the rated cars at or above the rating, cars without a rating never match.
+     */
+    @Test
+    void find_by_minimum_rating()
+    {
+        load();
+
+        assertArrayEquals(new long[] {1, 2, 3}, attributeSnapshot.find(spec(null, null, 0.0), 0, 10));
+        assertArrayEquals(new long[] {1, 3}, attributeSnapshot.find(spec(null, null, 4.0), 0, 10));
+        assertArrayEquals(new long[] {3}, attributeSnapshot.find(spec(null, null, 4.5), 0, 10));
+        assertArrayEquals(new long[] {}, attributeSnapshot.find(spec(null, null, 5.5), 0, 10));
+    }
+
+
+    /**
+     * Facets count the matching rows in the bitmap of each attribute value, values without matches are left out.
+     */
+    @Test
+    void count_facets()
+    {
+        load();
+
+        DriverFacets facets = attributeSnapshot.facets(new DriverSpecification());
+
+        assertEquals(5, facets.getTotal());
+        assertEquals(Map.of(OnlineStatus.ONLINE, 2L, OnlineStatus.OFFLINE, 3L), facets.getOnlineStatus());
+        assertEquals(Map.of(EngineType.GAS, 3L, EngineType.ELECTRIC, 1L), facets.getEngineType());
+        assertEquals(Map.of(2, 1L, 3, 1L, 4, 2L), facets.getSeatCount());
+        assertEquals(Map.of(false, 1L, true, 2L), facets.getConvertible());
+
+        DriverFacets online = attributeSnapshot.facets(spec(OnlineStatus.ONLINE, null, 4.5));
+
+        assertEquals(1, online.getTotal());
+        assertEquals(Map.of(OnlineStatus.ONLINE, 1L), online.getOnlineStatus());
+        assertEquals(Map.of(2, 1L), online.getSeatCount());
+        assertEquals(Map.of(true, 1L), online.getConvertible());
+    }
+
+
+    /**
+     * Substrings resolved to id sets are intersected like the other attributes, unresolved substrings and an unloaded
+     * snapshot are left to the database.
+     */
+    @Test
+    void find_by_resolved_substrings()
+    {
+        DriverSpecification byUsernameAndPlate = new DriverSpecification();
+        byUsernameAndPlate.setUsername("driver");
+        byUsernameAndPlate.setLicensePlate("AB");
+        assertNull(attributeSnapshot.find(byUsernameAndPlate.resolvedBy(Set.of(1L, 2L, 3L), Set.of(12L)), 0, 10));
+        assertNull(attributeSnapshot.facets(byUsernameAndPlate.resolvedBy(Set.of(1L, 2L, 3L), Set.of(12L))));
+
+        load();
+
+        assertArrayEquals(new long[] {2}, attributeSnapshot.find(byUsernameAndPlate.resolvedBy(Set.of(1L, 2L, 3L), Set.of(12L)), 0, 10));
+        assertNull(attributeSnapshot.find(byUsernameAndPlate.resolvedBy(Set.of(1L), null), 0, 10));
+    }
+
+
+    /**
+     * Committed changes of drivers and cars re-read the affected rows, new drivers are appended.
+     */
+    @Test
+    void refresh_changed_rows()
+    {
+        load();
+        when(driverRepository.findAttributesById(4L))
+            .thenReturn(Optional.of(new DriverAttributes(4L, OnlineStatus.ONLINE, 13L, 2, true, EngineType.ELECTRIC, 5.0)));
+        when(driverRepository.findAttributesById(1L)).thenReturn(Optional.of(new DriverAttributes(1L, OnlineStatus.ONLINE, null, null, null, null, null)));
+        when(driverRepository.findAttributesByCarId(12L))
+            .thenReturn(List.of(new DriverAttributes(2L, OnlineStatus.OFFLINE, 12L, 3, true, EngineType.GAS, 4.8)));
+        when(driverRepository.findAttributesById(6L)).thenReturn(Optional.of(new DriverAttributes(6L, OnlineStatus.OFFLINE, null, null, null, null, null)));
+
+        attributeSnapshot.onOnlineStatusChanged(new DriverOnlineStatusChangedEvent(4L, OnlineStatus.ONLINE, null, null));
+        attributeSnapshot.onDriverCarChanged(new DriverCarChangedEvent(1L, null));
+        attributeSnapshot.onCarChanged(new CarChangedEvent(12L, null));
+        attributeSnapshot.onDriverCreated(new DriverCreatedEvent(6L, "driver06"));
+
+        assertArrayEquals(new long[] {1, 3, 4}, attributeSnapshot.find(spec(OnlineStatus.ONLINE, null, null), 0, 10));
+        assertArrayEquals(new long[] {2, 3}, attributeSnapshot.find(spec(null, EngineType.GAS, null), 0, 10));
+        assertArrayEquals(new long[] {2, 3, 4}, attributeSnapshot.find(spec(null, null, 4.5), 0, 10));
+        assertArrayEquals(new long[] {5, 6}, attributeSnapshot.find(spec(OnlineStatus.OFFLINE, null, null), 4, 10));
+        assertEquals(6, attributeSnapshot.size());
+    }
+
+
+    /**
+     * Flushed ride ratings update the rows of the drivers of the rated cars in rating order, without reading them.
+     */
+    @Test
+    void apply_flushed_ratings()
+    {
+        load();
+
+        attributeSnapshot.onCarRatingsChanged(new CarRatingsChangedEvent(Map.of(12L, 4.6, 14L, 4.7, 99L, 1.0)));
+
+        assertArrayEquals(new long[] {1, 2, 3, 4}, attributeSnapshot.find(spec(null, null, 4.0), 0, 10));
+        assertArrayEquals(new long[] {2, 3, 4}, attributeSnapshot.find(spec(null, null, 4.5), 0, 10));
+        assertArrayEquals(new long[] {3, 4}, attributeSnapshot.find(spec(null, null, 4.65), 0, 10));
+        verify(driverRepository, never()).findAttributesByCarId(anyLong());
+    }
+
+
+    /**
+     * A driver committed out of id order is stored by loading the snapshot again.
+     */
+    @Test
+    void reload_on_driver_out_of_order()
+    {
+        load();
+        when(driverRepository.findAttributesById(0L)).thenReturn(Optional.of(new DriverAttributes(0L, OnlineStatus.OFFLINE, null, null, null, null, null)));
+
+        attributeSnapshot.onDriverCreated(new DriverCreatedEvent(0L, "driver00"));
+
+        verify(driverRepository, times(2)).findAllAttributes();
+    }
+
+
+    /**
+     * Changes committed while all drivers are read are replayed on the loaded table instead of being dropped, the
+     * snapshot answers searches only after that.
+     */
+    @Test
+    void replay_changes_during_load()
+    {
+        when(driverRepository.findAttributesById(4L))
+            .thenReturn(Optional.of(new DriverAttributes(4L, OnlineStatus.ONLINE, 14L, 4, null, EngineType.ELECTRIC, null)));
+        when(driverRepository.findAttributesByCarId(12L))
+            .thenReturn(List.of(new DriverAttributes(2L, OnlineStatus.OFFLINE, 12L, 3, true, EngineType.ELECTRIC, 0.0)));
+        when(driverRepository.findAllAttributes()).thenAnswer(invocation -> {
+            attributeSnapshot.onOnlineStatusChanged(new DriverOnlineStatusChangedEvent(4L, OnlineStatus.ONLINE, null, null));
+            attributeSnapshot.onCarChanged(new CarChangedEvent(12L, null));
+            attributeSnapshot.onCarRatingsChanged(new CarRatingsChangedEvent(Map.of(11L, 3.0)));
+            assertNull(attributeSnapshot.find(new DriverSpecification(), 0, 10));
+            return List.of(
+                new DriverAttributes(1L, OnlineStatus.ONLINE, 11L, 4, false, EngineType.GAS, 4.2),
+                new DriverAttributes(2L, OnlineStatus.OFFLINE, 12L, 3, true, EngineType.GAS, 0.0),
+                new DriverAttributes(4L, OnlineStatus.OFFLINE, 14L, 4, null, EngineType.ELECTRIC, null));
+        });
+
+        attributeSnapshot.load();
+
+        assertArrayEquals(new long[] {1, 4}, attributeSnapshot.find(spec(OnlineStatus.ONLINE, null, null), 0, 10));
+        assertArrayEquals(new long[] {2, 4}, attributeSnapshot.find(spec(null, EngineType.ELECTRIC, null), 0, 10));
+        assertArrayEquals(new long[] {}, attributeSnapshot.find(spec(null, null, 4.0), 0, 10));
+        verify(driverRepository, times(1)).findAllAttributes();
+    }
+
+
+    /**
+     * Refreshes of the same driver apply in the order they read, a refresh waits while an earlier one has read but not
+     * applied its row yet.
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    void refreshes_apply_in_read_order() throws InterruptedException
+    {
+        load();
+        CountDownLatch firstRead = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        when(driverRepository.findAttributesById(4L))
+            .thenAnswer(invocation -> {
+                firstRead.countDown();
+                releaseFirst.await(10, TimeUnit.SECONDS);
+                return Optional.of(new DriverAttributes(4L, OnlineStatus.ONLINE, 14L, 4, null, EngineType.ELECTRIC, null));
+            })
+            .thenReturn(Optional.of(new DriverAttributes(4L, OnlineStatus.OFFLINE, 14L, 4, null, EngineType.ELECTRIC, null)));
+
+        Thread first = new Thread(() -> attributeSnapshot.onOnlineStatusChanged(new DriverOnlineStatusChangedEvent(4L, OnlineStatus.ONLINE, null, null)));
+        first.start();
+        assertTrue(firstRead.await(10, TimeUnit.SECONDS));
+        Thread second = new Thread(() -> attributeSnapshot.onOnlineStatusChanged(new DriverOnlineStatusChangedEvent(4L, OnlineStatus.OFFLINE, null, null)));
+        second.start();
+        second.join(200);
+        releaseFirst.countDown();
+        first.join();
+        second.join();
+
+        assertArrayEquals(new long[] {1, 3}, attributeSnapshot.find(spec(OnlineStatus.ONLINE, null, null), 0, 10));
+    }
+
+
+    private void load()
+    {
+        when(driverRepository.findAllAttributes()).thenReturn(List.of(
+            new DriverAttributes(1L, OnlineStatus.ONLINE, 11L, 4, false, EngineType.GAS, 4.2),
+            new DriverAttributes(2L, OnlineStatus.OFFLINE, 12L, 3, true, EngineType.GAS, 0.0),
+            new DriverAttributes(3L, OnlineStatus.ONLINE, 13L, 2, true, EngineType.GAS, 5.0),
+            new DriverAttributes(4L, OnlineStatus.OFFLINE, 14L, 4, null, EngineType.ELECTRIC, null),
+            new DriverAttributes(5L, OnlineStatus.OFFLINE, null, null, null, null, null)));
+        attributeSnapshot.load();
+    }
+
+
+    private static DriverSpecification spec(OnlineStatus onlineStatus, EngineType engineType, Double rating)
+    {
+        DriverSpecification params = new DriverSpecification();
+        params.setOnlineStatus(onlineStatus);
+        params.setEngineType(engineType);
+        params.setRating(rating);
+        return params;
+    }
+}
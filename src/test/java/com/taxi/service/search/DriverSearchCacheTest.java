@@ -0,0 +1,149 @@
+package com.taxi.service.search;
+
+import com.taxi.controller.specification.DriverSpecification;
+import com.taxi.domainvalue.DriverView;
+import com.taxi.domainvalue.KeysetPage;
+import com.taxi.domainvalue.OnlineStatus;
+import com.taxi.event.CarChangedEvent;
+import com.taxi.event.CarRatingsChangedEvent;
+import com.taxi.event.DriverCarChangedEvent;
+import com.taxi.event.DriverCreatedEvent;
+import com.taxi.event.DriverOnlineStatusChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+import static com.taxi.common.TestFixtures.DRIVER_ID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Test the driver search cache.
+ * <p/>
+ */
+class DriverSearchCacheTest
+{
+    private final AtomicLong nanoClock = new AtomicLong();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final DriverSearchCache searchCache = new DriverSearchCache(meterRegistry, 2, 1000, nanoClock::get);
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+
+    /**
+     * Equal specifications share an entry until the time to live is over, hits and misses are counted.
+     */
+    @Test
+    void get_cached_until_expired()
+    {
+        KeysetPage<DriverView> page = searchCache.get(byStatus(OnlineStatus.ONLINE), 0, 10, this::load);
+
+        nanoClock.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        assertSame(page, searchCache.get(byStatus(OnlineStatus.ONLINE), 0, 10, this::load));
+        assertNotSame(page, searchCache.get(byStatus(OnlineStatus.ONLINE), 10, 10, this::load));
+
+        nanoClock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        assertNotSame(page, searchCache.get(byStatus(OnlineStatus.ONLINE), 0, 10, this::load));
+
+        assertEquals(3, loads.get());
+        assertEquals(1, searchCache.getHitCount());
+        assertEquals(3, searchCache.getMissCount());
+        assertEquals(1, meterRegistry.get("driver.search.cache").tag("result", "hit").counter().count());
+    }
+
+
+    /**
+     * The least recently used page is dropped when the cache is full.
+     */
+    @Test
+    void get_evicts_least_recently_used()
+    {
+        searchCache.get(byStatus(OnlineStatus.ONLINE), 0, 10, this::load);
+        searchCache.get(byStatus(OnlineStatus.OFFLINE), 0, 10, this::load);
+        searchCache.get(byStatus(OnlineStatus.ONLINE), 0, 10, this::load);
+        searchCache.get(byRating(4.0), 0, 10, this::load);
+
+        searchCache.get(byStatus(OnlineStatus.ONLINE), 0, 10, this::load);
+        searchCache.get(byStatus(OnlineStatus.OFFLINE), 0, 10, this::load);
+
+        assertEquals(2, searchCache.size());
+        assertEquals(4, loads.get());
+    }
+
+
+    /**
+     * Changes drop only the pages whose specification filters on the changed value, a new driver drops all pages.
+     */
+    @Test
+    void invalidate_pages_filtering_on_changed_value()
+    {
+        DriverSearchCache searchCache = new DriverSearchCache(meterRegistry, 16, 1000, nanoClock::get);
+        searchCache.get(byStatus(OnlineStatus.ONLINE), 0, 10, this::load);
+        searchCache.get(byRating(4.0), 0, 10, this::load);
+        searchCache.get(new DriverSpecification(), 0, 10, this::load);
+
+        searchCache.onOnlineStatusChanged(new DriverOnlineStatusChangedEvent(DRIVER_ID, OnlineStatus.ONLINE, null, null));
+        assertEquals(2, searchCache.size());
+
+        searchCache.onCarChanged(new CarChangedEvent(1L, null));
+        assertEquals(1, searchCache.size());
+
+        searchCache.get(byRating(4.0), 0, 10, this::load);
+        searchCache.onCarRatingsChanged(new CarRatingsChangedEvent(Map.of(1L, 4.5)));
+        assertEquals(1, searchCache.size());
+
+        searchCache.onDriverCarChanged(new DriverCarChangedEvent(DRIVER_ID, null));
+        assertEquals(1, searchCache.size());
+
+        searchCache.onDriverCreated(new DriverCreatedEvent(DRIVER_ID, "driver"));
+        assertEquals(0, searchCache.size());
+    }
+
+
+    /**
+     * A page loaded while the cache got invalidated is returned but not kept.
+     */
+    @Test
+    void get_does_not_keep_page_loaded_during_invalidation()
+    {
+        Supplier<KeysetPage<DriverView>> invalidatingLoad = () -> {
+            searchCache.onOnlineStatusChanged(new DriverOnlineStatusChangedEvent(DRIVER_ID, OnlineStatus.ONLINE, null, null));
+            return load();
+        };
+
+        searchCache.get(byRating(4.0), 0, 10, invalidatingLoad);
+
+        assertEquals(0, searchCache.size());
+    }
+
+
+    private KeysetPage<DriverView> load()
+    {
+        loads.incrementAndGet();
+        return new KeysetPage<>(List.of(), null);
+    }
+
+
+    private static DriverSpecification byStatus(OnlineStatus onlineStatus)
+    {
+        DriverSpecification params = new DriverSpecification();
+        params.setOnlineStatus(onlineStatus);
+        return params;
+    }
+
+
+    private static DriverSpecification byRating(double rating)
+    {
+        DriverSpecification params = new DriverSpecification();
+        params.setRating(rating);
+        return params;
+    }
+}
@@ -0,0 +1,93 @@
+package com.taxi.service.search;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Test the trigram substring index.
+ * <p/>
+ */
+class TrigramIndexTest
+{
+    private final TrigramIndex trigramIndex = new TrigramIndex();
+
+
+    /**
+     * Substring queries of any length return the same ids as checking every text.
+     */
+    @Test
+    void find_matches_brute_force()
+    {
+        Random random = new Random(42);
+        Map<Long, String> texts = new HashMap<>();
+        for (long id = 0; id < 2_000; id++)
+        {
+            String text = randomText(random, 4 + random.nextInt(8));
+            texts.put(id, text);
+            trigramIndex.put(id, text);
+        }
+
+        for (int query = 0; query < 500; query++)
+        {
+            String substring = randomText(random, 1 + random.nextInt(4));
+            Set<Long> expected = texts.entrySet().stream()
+                .filter(entry -> entry.getValue().contains(substring))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+
+            assertEquals(expected, trigramIndex.find(substring, texts.size()));
+        }
+    }
+
+
+    /**
+     * Replaced and removed texts are no longer found.
+     */
+    @Test
+    void put_replaces_and_remove_drops_text()
+    {
+        trigramIndex.put(1L, "driver01");
+        trigramIndex.put(2L, "driver02");
+        trigramIndex.put(1L, "rider11");
+        trigramIndex.remove(2L);
+
+        assertEquals(Set.of(), trigramIndex.find("driver", 10));
+        assertEquals(Set.of(1L), trigramIndex.find("ider1", 10));
+        assertEquals(1, trigramIndex.size());
+    }
+
+
+    /**
+     * More matches than the caller can handle are reported as null.
+     */
+    @Test
+    void find_with_too_many_matches()
+    {
+        for (long id = 0; id < 20; id++)
+        {
+            trigramIndex.put(id, "car" + id);
+        }
+
+        assertNull(trigramIndex.find("car", 10));
+        assertNull(trigramIndex.find("c", 10));
+        assertEquals(Set.of(1L, 10L, 11L, 12L, 13L, 14L, 15L, 16L, 17L, 18L, 19L), trigramIndex.find("car1", 11));
+    }
+
+
+    private static String randomText(Random random, int length)
+    {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++)
+        {
+            text.append((char) ('a' + random.nextInt(4)));
+        }
+        return text.toString();
+    }
+}
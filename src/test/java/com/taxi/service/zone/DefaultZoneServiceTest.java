@@ -0,0 +1,80 @@
+package com.taxi.service.zone;
+
+import com.taxi.dataaccessobject.ZoneRepository;
+import com.taxi.domainobject.ZoneDO;
+import com.taxi.domainvalue.ZoneCount;
+import com.taxi.exception.ConstraintsViolationException;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import static com.taxi.common.TestFixtures.aZoneDO;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test the zone business layer service.
+ * <p/>
+ */
+@ExtendWith(MockitoExtension.class)
+class DefaultZoneServiceTest
+{
+
+    @Mock
+    private ZoneRepository zoneRepository;
+    @Mock
+    private ZoneOccupancyIndex zoneOccupancyIndex;
+    @InjectMocks
+    private DefaultZoneService defaultZoneService;
+
+
+    /**
+     * Create a zone and start counting its drivers.
+     *
+     * @throws ConstraintsViolationException
+     */
+    @Test
+    void create_zone() throws ConstraintsViolationException
+    {
+        var zone = aZoneDO();
+        when(zoneRepository.save(any())).thenReturn(zone);
+
+        assertEquals(zone, defaultZoneService.create(zone));
+        verify(zoneOccupancyIndex, times(1)).addZone(zone);
+    }
+
+
+    /**
+     * Create a zone with an existing name throws ConstraintsViolationException.
+     */
+    @Test
+    void create_zone_not_allowed_when_violating_constraint()
+    {
+        when(zoneRepository.save(any())).thenThrow(DataIntegrityViolationException.class);
+
+        assertThrows(ConstraintsViolationException.class, () -> defaultZoneService.create(aZoneDO()));
+        verify(zoneOccupancyIndex, never()).addZone(any());
+    }
+
+
+    /**
+     * Online driver counts are served from the occupancy index.
+     */
+    @Test
+    void find_online_driver_counts()
+    {
+        var counts = List.of(new ZoneCount(1L, "STATION", 3));
+        when(zoneOccupancyIndex.counts()).thenReturn(counts);
+
+        assertEquals(counts, defaultZoneService.findOnlineDriverCounts());
+    }
+}
@@ -0,0 +1,179 @@
+package com.taxi.service.zone;
+
+import com.taxi.dataaccessobject.DriverRepository;
+import com.taxi.dataaccessobject.ZoneRepository;
+import com.taxi.domainobject.ZoneDO;
+import com.taxi.domainvalue.GeoCoordinate;
+import com.taxi.domainvalue.GeoPolygon;
+import com.taxi.domainvalue.ZoneCount;
+import com.taxi.event.DriverPositionChangedEvent;
+import com.taxi.service.location.DriverLocationIndex;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test the incrementally maintained per-zone online driver counts.
+ * <p/>
+ */
+@ExtendWith(MockitoExtension.class)
+class ZoneOccupancyIndexTest
+{
+    private static final ZoneDO STATION = aZone(1L, "STATION", 52.50, 13.40, 52.51, 13.41);
+
+    private static final ZoneDO CENTER = aZone(2L, "CENTER", 52.505, 13.405, 52.52, 13.42);
+
+    @Mock
+    private DriverRepository driverRepository;
+
+    @Mock
+    private ZoneRepository zoneRepository;
+
+    private DriverLocationIndex driverLocationIndex;
+
+    private ZoneOccupancyIndex zoneOccupancyIndex;
+
+
+    @BeforeEach
+    void setUp()
+    {
+        driverLocationIndex = new DriverLocationIndex(driverRepository,
+            event -> zoneOccupancyIndex.onPositionChanged((DriverPositionChangedEvent) event), 0.01);
+        zoneOccupancyIndex = new ZoneOccupancyIndex(zoneRepository, driverLocationIndex);
+    }
+
+
+    /**
+     * Drivers are counted when they come online inside a zone, move across a boundary or go offline.
+     */
+    @Test
+    void count_drivers_crossing_zone_boundaries()
+    {
+        when(zoneRepository.findAll()).thenReturn(List.of(STATION, CENTER));
+        zoneOccupancyIndex.load();
+
+        driverLocationIndex.markOnline(1L, new GeoCoordinate(52.501, 13.401));
+        driverLocationIndex.markOnline(2L, new GeoCoordinate(52.507, 13.407));
+        assertEquals(Map.of("STATION", 2, "CENTER", 1), countsByName());
+
+        driverLocationIndex.update(1L, new GeoCoordinate(52.515, 13.415));
+        assertEquals(Map.of("STATION", 1, "CENTER", 2), countsByName());
+
+        driverLocationIndex.update(2L, new GeoCoordinate(53.0, 14.0));
+        driverLocationIndex.markOffline(1L);
+        assertEquals(Map.of("STATION", 0, "CENTER", 0), countsByName());
+    }
+
+
+    /**
+     * A new zone counts the drivers which are already inside.
+     */
+    @Test
+    void add_zone_counts_current_drivers()
+    {
+        driverLocationIndex.markOnline(1L, new GeoCoordinate(52.501, 13.401));
+        driverLocationIndex.markOnline(2L, new GeoCoordinate(52.6, 13.6));
+
+        zoneOccupancyIndex.addZone(STATION);
+        assertEquals(Map.of("STATION", 1), countsByName());
+
+        driverLocationIndex.markOffline(1L);
+        assertEquals(Map.of("STATION", 0), countsByName());
+    }
+
+
+    /**
+     * A position change arriving after a later change of the same driver is dropped.
+     */
+    @Test
+    void drop_late_position_changes()
+    {
+        zoneOccupancyIndex.addZone(STATION);
+        GeoCoordinate inside = new GeoCoordinate(52.501, 13.401);
+
+        zoneOccupancyIndex.onPositionChanged(new DriverPositionChangedEvent(1L, null, inside, 1, 2));
+        zoneOccupancyIndex.onPositionChanged(new DriverPositionChangedEvent(1L, null, new GeoCoordinate(53.0, 14.0), 1, 1));
+        assertEquals(Map.of("STATION", 1), countsByName());
+
+        zoneOccupancyIndex.onPositionChanged(new DriverPositionChangedEvent(1L, inside, null, 0, 3));
+        zoneOccupancyIndex.onPositionChanged(new DriverPositionChangedEvent(1L, null, inside, 1, 2));
+        assertEquals(Map.of("STATION", 0), countsByName());
+    }
+
+
+    /**
+     * Counts after many random moves match a point-in-polygon scan over all drivers.
+     */
+    @Test
+    void counts_match_full_scan()
+    {
+        zoneOccupancyIndex.addZone(STATION);
+        zoneOccupancyIndex.addZone(CENTER);
+        Random random = new Random(3);
+        Map<Long, GeoCoordinate> positions = new HashMap<>();
+        for (int move = 0; move < 20_000; move++)
+        {
+            long driverId = random.nextInt(500);
+            if (random.nextInt(20) == 0)
+            {
+                driverLocationIndex.markOffline(driverId);
+                positions.remove(driverId);
+            }
+            else
+            {
+                GeoCoordinate coordinate = new GeoCoordinate(52.495 + random.nextDouble() * 0.03, 13.395 + random.nextDouble() * 0.03);
+                driverLocationIndex.markOnline(driverId, coordinate);
+                positions.put(driverId, coordinate);
+            }
+        }
+
+        GeoPolygon station = new GeoPolygon(STATION.getVertices());
+        GeoPolygon center = new GeoPolygon(CENTER.getVertices());
+        assertEquals(Map.of(
+            "STATION", (int) positions.values().stream().filter(station::contains).count(),
+            "CENTER", (int) positions.values().stream().filter(center::contains).count()), countsByName());
+    }
+
+
+    /**
+     * Point-in-polygon works for concave polygons.
+     */
+    @Test
+    void polygon_contains()
+    {
+        GeoPolygon polygon = new GeoPolygon(List.of(new GeoCoordinate(0, 0), new GeoCoordinate(0, 10), new GeoCoordinate(10, 10),
+            new GeoCoordinate(5, 5), new GeoCoordinate(10, 0)));
+
+        assertTrue(polygon.contains(2, 5));
+        assertTrue(polygon.contains(8, 1));
+        assertFalse(polygon.contains(8, 5));
+        assertFalse(polygon.contains(-1, 5));
+    }
+
+
+    private Map<String, Integer> countsByName()
+    {
+        return zoneOccupancyIndex.counts().stream().collect(Collectors.toMap(ZoneCount::getName, ZoneCount::getOnlineDrivers));
+    }
+
+
+    private static ZoneDO aZone(long id, String name, double minLatitude, double minLongitude, double maxLatitude, double maxLongitude)
+    {
+        ZoneDO zoneDO = new ZoneDO(name, List.of(new GeoCoordinate(minLatitude, minLongitude), new GeoCoordinate(minLatitude, maxLongitude),
+            new GeoCoordinate(maxLatitude, maxLongitude), new GeoCoordinate(maxLatitude, minLongitude)));
+        zoneDO.setId(id);
+        return zoneDO;
+    }
+}
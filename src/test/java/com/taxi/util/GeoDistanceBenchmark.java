@@ -0,0 +1,134 @@
+package com.taxi.util;
+
+import com.taxi.domainvalue.GeoCoordinate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.geo.Point;
+
+/**
+ * Compares scoring candidates by distance through {@link GeoCoordinate}/{@link Point} objects with the primitive and
+ * batch {@link GeoDistance} functions over packed latitude and longitude arrays. Not run by the build, start it with the main method from the test classpath.
+ * <p/>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeoDistanceBenchmark
+{
+    private static final double LATITUDE = 52.52;
+    private static final double LONGITUDE = 13.405;
+
+    @Param({"100", "10000"})
+    private int candidates;
+
+    private List<GeoCoordinate> coordinates;
+
+    private double[] latitudes;
+
+    private double[] longitudes;
+
+    private double[] distances;
+
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(GeoDistanceBenchmark.class.getSimpleName()).build()).run();
+    }
+
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(42);
+        coordinates = new ArrayList<>(candidates);
+        latitudes = new double[candidates];
+        longitudes = new double[candidates];
+        distances = new double[candidates];
+        for (int i = 0; i < candidates; i++)
+        {
+            GeoCoordinate coordinate = new GeoCoordinate(LATITUDE + random.nextGaussian() * 0.05, LONGITUDE + random.nextGaussian() * 0.05);
+            coordinates.add(coordinate);
+            latitudes[i] = coordinate.getLatitude();
+            longitudes[i] = coordinate.getLongitude();
+        }
+    }
+
+
+    @Benchmark
+    public void point(Blackhole blackhole)
+    {
+        Point reference = new GeoCoordinate(LATITUDE, LONGITUDE).getPoint();
+        for (GeoCoordinate coordinate : coordinates)
+        {
+            blackhole.consume(haversine(reference, coordinate.getPoint()));
+        }
+    }
+
+
+    @Benchmark
+    public void haversine(Blackhole blackhole)
+    {
+        for (int i = 0; i < candidates; i++)
+        {
+            blackhole.consume(GeoDistance.haversine(LATITUDE, LONGITUDE, latitudes[i], longitudes[i]));
+        }
+    }
+
+
+    @Benchmark
+    public void equirectangular(Blackhole blackhole)
+    {
+        for (int i = 0; i < candidates; i++)
+        {
+            blackhole.consume(GeoDistance.equirectangular(LATITUDE, LONGITUDE, latitudes[i], longitudes[i]));
+        }
+    }
+
+
+    @Benchmark
+    public double[] haversineBatch()
+    {
+        GeoDistance.haversine(LATITUDE, LONGITUDE, latitudes, longitudes, candidates, distances);
+        return distances;
+    }
+
+
+    @Benchmark
+    public double[] equirectangularBatch()
+    {
+        GeoDistance.equirectangular(LATITUDE, LONGITUDE, latitudes, longitudes, candidates, distances);
+        return distances;
+    }
+
+
+    private static double haversine(Point from, Point to)
+    {
+        double phi1 = Math.toRadians(from.getY());
+        double phi2 = Math.toRadians(to.getY());
+        double sinHalfDeltaPhi = Math.sin((phi2 - phi1) / 2);
+        double sinHalfDeltaLambda = Math.sin(Math.toRadians(to.getX() - from.getX()) / 2);
+
+        double a = sinHalfDeltaPhi * sinHalfDeltaPhi + Math.cos(phi1) * Math.cos(phi2) * sinHalfDeltaLambda * sinHalfDeltaLambda;
+        return 2 * GeoDistance.EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
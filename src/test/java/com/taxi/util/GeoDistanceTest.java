@@ -0,0 +1,78 @@
+package com.taxi.util;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test the primitive distance functions.
+ * <p/>
+ */
+class GeoDistanceTest
+{
+    private static final double LATITUDE = 52.52;
+    private static final double LONGITUDE = 13.405;
+
+
+    /**
+     * Haversine matches the known distance between Berlin and Paris.
+     */
+    @Test
+    void haversine_known_distance()
+    {
+        assertEquals(877_500, GeoDistance.haversine(LATITUDE, LONGITUDE, 48.8566, 2.3522), 1_000);
+    }
+
+
+    /**
+     * The equirectangular approximation stays within 0.1% of haversine for dispatch distances and across the
+     * antimeridian.
+     */
+    @Test
+    void equirectangular_close_to_haversine()
+    {
+        Random random = new Random(42);
+        for (int i = 0; i < 1_000; i++)
+        {
+            double latitude = LATITUDE + random.nextGaussian() * 0.05;
+            double longitude = LONGITUDE + random.nextGaussian() * 0.05;
+            double expected = GeoDistance.haversine(LATITUDE, LONGITUDE, latitude, longitude);
+            assertEquals(expected, GeoDistance.equirectangular(LATITUDE, LONGITUDE, latitude, longitude), expected * 0.001);
+        }
+        assertEquals(GeoDistance.haversine(10, 179.99, 10, -179.99), GeoDistance.equirectangular(10, 179.99, 10, -179.99), 1);
+    }
+
+
+    /**
+     * Batch variants score packed coordinates like the scalar functions.
+     */
+    @Test
+    void batch_matches_scalar()
+    {
+        Random random = new Random(7);
+        int count = 100;
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        for (int i = 0; i < count; i++)
+        {
+            latitudes[i] = LATITUDE + random.nextGaussian() * 0.05;
+            longitudes[i] = LONGITUDE + random.nextGaussian() * 0.05;
+        }
+        double[] haversine = new double[count];
+        double[] equirectangular = new double[count];
+
+        GeoDistance.haversine(LATITUDE, LONGITUDE, latitudes, longitudes, count, haversine);
+        GeoDistance.equirectangular(LATITUDE, LONGITUDE, latitudes, longitudes, count, equirectangular);
+
+        for (int i = 0; i < count; i++)
+        {
+            double expected = GeoDistance.haversine(LATITUDE, LONGITUDE, latitudes[i], longitudes[i]);
+            assertEquals(expected, haversine[i], 1e-6);
+            assertEquals(expected, equirectangular[i], expected * 0.001);
+        }
+        assertThrows(IllegalArgumentException.class, () -> GeoDistance.haversine(LATITUDE, LONGITUDE, latitudes, longitudes, count + 1, haversine));
+        assertThrows(IllegalArgumentException.class, () -> GeoDistance.equirectangular(LATITUDE, LONGITUDE, latitudes, new double[1], 2, equirectangular));
+    }
+}